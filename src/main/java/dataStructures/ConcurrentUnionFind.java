@@ -0,0 +1,101 @@
+package dataStructures;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Lock-free disjoint sets for parallel connectivity: any number of threads may call find, union and
+ * connected at the same time.
+ *
+ * parent[v] is the parent of v, a root is its own parent. union links one root under the other with a
+ * compare-and-set on the root's parent entry, which only succeeds while it is still a root; a failed CAS means
+ * another thread linked it first, so both roots are looked up again. The root with the larger index is always
+ * linked under the smaller one, so links never form a cycle. Sizes cannot be kept consistent without locks,
+ * which rules out union by size; linking by index with path halving still keeps the trees shallow in practice.
+ *
+ * find halves the path with CAS as well. A failed CAS there only means someone else already shortened the
+ * path, it is never retried.
+ */
+public class ConcurrentUnionFind {
+
+    private final AtomicIntegerArray parent;
+
+    public ConcurrentUnionFind(int n){
+        parent = new AtomicIntegerArray(n);
+        for(int i=0; i<n; ++i)
+            parent.set(i, i);
+    }
+
+    /**
+     * @return root of the set containing v at some moment during the call
+     */
+    public int find(int v){
+        while(true){
+            int p = parent.get(v);
+            if(p == v)
+                return v;
+
+            int gp = parent.get(p);
+            if(p != gp)
+                parent.compareAndSet(v, p, gp); // halve the path
+            v = gp;
+        }
+    }
+
+    /**
+     * Merge the sets of a and b
+     *
+     * @return true if this call merged two sets, false if they were already one
+     */
+    public boolean union(int a, int b){
+        while(true){
+            int rootA = find(a), rootB = find(b);
+            if(rootA == rootB)
+                return false;
+
+            if(rootA < rootB){
+                if(parent.compareAndSet(rootB, rootB, rootA))
+                    return true;
+            }else if(parent.compareAndSet(rootA, rootA, rootB)){
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Exact if no union runs at the same time, else the answer was true at some moment during the call
+     */
+    public boolean connected(int a, int b){
+        while(true){
+            int rootA = find(a), rootB = find(b);
+            if(rootA == rootB)
+                return true;
+            // rootA still a root means the two sets were different when rootB was found
+            if(parent.get(rootA) == rootA)
+                return false;
+        }
+    }
+
+    /**
+     * @return number of elements
+     */
+    public int size(){
+        return parent.length();
+    }
+
+    /**
+     * Set number of every element, sets numbered from 1 in the order of their smallest element. Call it once
+     * no union runs any more.
+     */
+    public int[] labels(){
+        int n = parent.length();
+        int[] label = new int[n];
+        // roots are the smallest element of their set, so a root gets its number before the rest of its set
+        int next = 0;
+        for(int v=0; v<n; ++v){
+            int root = find(v);
+            label[v] = root == v ? ++next : label[root];
+        }
+
+        return label;
+    }
+}
@@ -0,0 +1,215 @@
+package dataStructures;
+
+import java.util.Arrays;
+
+/**
+ * Min priority queue of int ids in [0, capacity) with long keys, the kind of queue Dijkstra and Prim need.
+ *
+ * Every id is in the queue at most once, and position[] remembers where each id sits in the heap, so the
+ * key of a queued id can be decreased in place instead of removing and re-adding it. Ids and keys are kept
+ * in parallel primitive arrays, nothing is allocated after construction.
+ *
+ * Each node has d children instead of two. A wider node makes the heap shallower, so decreaseKey (the
+ * common operation in Dijkstra) moves up fewer levels, while pollMin compares more children per level. The
+ * d children of a node are adjacent in memory, so d = 4 usually beats a binary heap.
+ */
+public class IndexedDaryHeap {
+
+    private final int d;
+    private final int[] heap; // ids in heap order
+    private final long[] keys; // keys[i] is the key of heap[i]
+    private final int[] position; // position of each id in heap, -1 if it is not queued
+    private int n = 0;
+
+    public IndexedDaryHeap(int capacity){
+        this(capacity, 4);
+    }
+
+    public IndexedDaryHeap(int capacity, int d){
+        if(d < 2)
+            throw new IllegalArgumentException("Heap arity must be at least 2, got " + d);
+
+        this.d = d;
+        heap = new int[capacity];
+        keys = new long[capacity];
+        position = new int[capacity];
+        Arrays.fill(position, -1);
+    }
+
+    public int size(){
+        return n;
+    }
+
+    public boolean isEmpty(){
+        return n == 0;
+    }
+
+    public boolean contains(int id){
+        return position[id] >= 0;
+    }
+
+    /**
+     * @return key of a queued id
+     */
+    public long getKey(int id){
+        if(position[id] < 0)
+            throw new IllegalArgumentException("Id " + id + " is not in the heap");
+
+        return keys[position[id]];
+    }
+
+    /**
+     * O(log_d n) time complexity
+     */
+    public void insert(int id, long key){
+        if(position[id] >= 0)
+            throw new IllegalArgumentException("Id " + id + " is already in the heap");
+
+        heap[n] = id;
+        keys[n] = key;
+        position[id] = n;
+        siftUp(n++);
+    }
+
+    /**
+     * Lower the key of a queued id. O(log_d n) time complexity
+     */
+    public void decreaseKey(int id, long key){
+        int i = position[id];
+        if(i < 0)
+            throw new IllegalArgumentException("Id " + id + " is not in the heap");
+        if(key > keys[i])
+            throw new IllegalArgumentException("New key " + key + " is greater than the current key " + keys[i]);
+
+        keys[i] = key;
+        siftUp(i);
+    }
+
+    /**
+     * Insert the id, or lower its key if it is queued with a greater key.
+     *
+     * @return true if the heap changed
+     */
+    public boolean insertOrDecrease(int id, long key){
+        int i = position[id];
+        if(i < 0){
+            insert(id, key);
+            return true;
+        }
+        if(key >= keys[i])
+            return false;
+
+        keys[i] = key;
+        siftUp(i);
+        return true;
+    }
+
+    public int peekMin(){
+        if(n == 0)
+            throw new IllegalStateException("Heap is empty");
+
+        return heap[0];
+    }
+
+    public long peekMinKey(){
+        if(n == 0)
+            throw new IllegalStateException("Heap is empty");
+
+        return keys[0];
+    }
+
+    /**
+     * Remove the id with the smallest key. O(d log_d n) time complexity
+     */
+    public int pollMin(){
+        if(n == 0)
+            throw new IllegalStateException("Heap is empty");
+
+        int min = heap[0];
+        position[min] = -1;
+        n--;
+        if(n > 0){
+            heap[0] = heap[n];
+            keys[0] = keys[n];
+            position[heap[0]] = 0;
+            siftDown(0);
+        }
+
+        return min;
+    }
+
+    /**
+     * Empty the heap in O(size) time, so the same heap can be reused by many searches over one graph
+     */
+    public void clear(){
+        for(int i=0; i<n; ++i)
+            position[heap[i]] = -1;
+        n = 0;
+    }
+
+    // move the hole at i up until its parent has a key no greater than the moving entry
+    private void siftUp(int i){
+        int id = heap[i];
+        long key = keys[i];
+
+        while(i > 0){
+            int parent = (i - 1) / d;
+            if(keys[parent] <= key)
+                break;
+
+            heap[i] = heap[parent];
+            keys[i] = keys[parent];
+            position[heap[i]] = i;
+            i = parent;
+        }
+
+        heap[i] = id;
+        keys[i] = key;
+        position[id] = i;
+    }
+
+    private void siftDown(int i){
+        int id = heap[i];
+        long key = keys[i];
+
+        while(true){
+            int first = i * d + 1;
+            if(first >= n)
+                break;
+
+            // smallest of the (up to) d children
+            int last = Math.min(first + d, n);
+            int min = first;
+            for(int c = first + 1; c < last; ++c)
+                if(keys[c] < keys[min])
+                    min = c;
+
+            if(keys[min] >= key)
+                break;
+
+            heap[i] = heap[min];
+            keys[i] = keys[min];
+            position[heap[i]] = i;
+            i = min;
+        }
+
+        heap[i] = id;
+        keys[i] = key;
+        position[id] = i;
+    }
+
+    public static void main(String[] args){
+        int[] arr = new int[] {1,5,2,1, 944, 24, 12, 221, 0, 20, 83, 7};
+        IndexedDaryHeap heap = new IndexedDaryHeap(arr.length);
+
+        for(int i=0; i<arr.length; ++i)
+            heap.insert(i, arr[i]);
+
+        heap.decreaseKey(4, -1); // 944 becomes the smallest key
+
+        while(!heap.isEmpty()){
+            long key = heap.peekMinKey();
+            System.out.println(heap.pollMin() + " " + key);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package dataStructures;
+
+/**
+ * Disjoint sets of int elements in [0, n), for Kruskal, connected components and the like.
+ *
+ * Each set is a tree with its root as representative, kept in one int array: parent[v] is the parent of v,
+ * or minus the size of the set if v is a root. union links the root of the smaller set under the root of the
+ * larger one, so trees stay O(log n) deep. find walks to the root iteratively and points every other vertex
+ * on the way to its grandparent (path halving), which flattens the trees as a side effect of searching them.
+ * Together a sequence of operations costs O(alpha(n)) each, amortized, where alpha is the inverse Ackermann
+ * function, at most 4 for any practical n.
+ */
+public class UnionFind {
+
+    private final int[] parent;
+    private int count;
+
+    public UnionFind(int n){
+        parent = new int[n];
+        for(int i=0; i<n; ++i)
+            parent[i] = -1;
+        count = n;
+    }
+
+    /**
+     * @return root of the set containing v
+     */
+    public int find(int v){
+        while(parent[v] >= 0){
+            int p = parent[v];
+            if(parent[p] >= 0)
+                parent[v] = parent[p]; // halve the path
+            v = p;
+        }
+
+        return v;
+    }
+
+    /**
+     * Merge the sets of a and b
+     *
+     * @return false if they were already the same set
+     */
+    public boolean union(int a, int b){
+        int rootA = find(a), rootB = find(b);
+        if(rootA == rootB)
+            return false;
+
+        // sizes are negative at the roots, the more negative one is the larger set
+        if(parent[rootA] > parent[rootB]){
+            int tmp = rootA;
+            rootA = rootB;
+            rootB = tmp;
+        }
+        parent[rootA] += parent[rootB];
+        parent[rootB] = rootA;
+        count--;
+
+        return true;
+    }
+
+    public boolean connected(int a, int b){
+        return find(a) == find(b);
+    }
+
+    /**
+     * @return number of elements in the set containing v
+     */
+    public int setSize(int v){
+        return -parent[find(v)];
+    }
+
+    /**
+     * @return number of disjoint sets
+     */
+    public int count(){
+        return count;
+    }
+
+    /**
+     * @return number of elements
+     */
+    public int size(){
+        return parent.length;
+    }
+
+    /**
+     * Set number of every element, sets numbered from 1 in the order of their smallest element
+     */
+    public int[] labels(){
+        int n = parent.length;
+        int[] label = new int[n];
+        int[] rootLabel = new int[n];
+        int next = 0;
+        for(int v=0; v<n; ++v){
+            int root = find(v);
+            if(rootLabel[root] == 0)
+                rootLabel[root] = ++next;
+            label[v] = rootLabel[root];
+        }
+
+        return label;
+    }
+
+    public static void main(String[] args){
+        // a chain 0 - 1 - ... - n-1 joined from the far end, the worst case without balancing
+        int n = 5_000_000;
+        UnionFind sets = new UnionFind(n);
+        long t0 = System.nanoTime();
+        for(int v=n - 1; v>0; --v)
+            sets.union(v, v - 1);
+        for(int v=0; v<n; ++v)
+            sets.find(v);
+        long t1 = System.nanoTime();
+
+        System.out.printf("%d elements, %d set(s) of size %d, %.0f ms%n", n, sets.count(), sets.setSize(0),
+                (t1 - t0) / 1e6);
+    }
+}
@@ -0,0 +1,250 @@
+package graphs;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable directed graph in compressed sparse row (CSR) form, shared by the graph algorithms.
+ *
+ * The out-edges of vertex u are the edge ids edgeStart(u) .. edgeEnd(u) - 1, and the target and weight of
+ * edge e are target(e) and weight(e). All edges live in two flat int arrays (plus one weight array), so a
+ * traversal reads memory in order instead of chasing boxed Integers or linked list nodes. An undirected
+ * graph stores every edge once in each direction.
+ *
+ * Edges of a vertex keep the order in which they were added to the builder.
+ */
+public final class CSRGraph {
+
+    private final int numVertices;
+    private final int[] offsets; // offsets[u] .. offsets[u+1]-1 are the edge ids of u
+    private final int[] targets;
+    private final int[] weights; // null unless built with int weights
+    private final double[] doubleWeights; // null unless built with double weights
+
+    private CSRGraph(int numVertices, int[] offsets, int[] targets, int[] weights, double[] doubleWeights){
+        this.numVertices = numVertices;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.doubleWeights = doubleWeights;
+    }
+
+    public int numVertices(){
+        return numVertices;
+    }
+
+    public int numEdges(){
+        return targets.length;
+    }
+
+    public int outDegree(int u){
+        return offsets[u + 1] - offsets[u];
+    }
+
+    // id of the first out-edge of u
+    public int edgeStart(int u){
+        return offsets[u];
+    }
+
+    // one past the id of the last out-edge of u
+    public int edgeEnd(int u){
+        return offsets[u + 1];
+    }
+
+    public int target(int e){
+        return targets[e];
+    }
+
+    public boolean isWeighted(){
+        return weights != null || doubleWeights != null;
+    }
+
+    public boolean hasDoubleWeights(){
+        return doubleWeights != null;
+    }
+
+    /**
+     * @return the weight of edge e, the graph must have been built with int weights
+     */
+    public int weight(int e){
+        if(weights == null)
+            throw new IllegalStateException("The graph has no int edge weights");
+
+        return weights[e];
+    }
+
+    /**
+     * @return the weight of edge e as a double, for graphs built with int or double weights
+     */
+    public double doubleWeight(int e){
+        if(doubleWeights != null)
+            return doubleWeights[e];
+        if(weights != null)
+            return weights[e];
+
+        throw new IllegalStateException("The graph has no edge weights");
+    }
+
+    /**
+     * Reverse every edge. Edges into v keep the order of their sources, so the transpose of the transpose has
+     * the same edges in the same order as this graph.
+     */
+    public CSRGraph transpose(){
+        int m = targets.length;
+        int[] tOffsets = new int[numVertices + 1];
+        for(int e=0; e<m; ++e)
+            tOffsets[targets[e] + 1]++;
+        for(int v=0; v<numVertices; ++v)
+            tOffsets[v + 1] += tOffsets[v];
+
+        int[] next = Arrays.copyOf(tOffsets, numVertices);
+        int[] tTargets = new int[m];
+        int[] tWeights = weights == null ? null : new int[m];
+        double[] tDoubleWeights = doubleWeights == null ? null : new double[m];
+
+        for(int u=0; u<numVertices; ++u){
+            for(int e=offsets[u]; e<offsets[u + 1]; ++e){
+                int pos = next[targets[e]]++;
+                tTargets[pos] = u;
+                if(tWeights != null)
+                    tWeights[pos] = weights[e];
+                if(tDoubleWeights != null)
+                    tDoubleWeights[pos] = doubleWeights[e];
+            }
+        }
+
+        return new CSRGraph(numVertices, tOffsets, tTargets, tWeights, tDoubleWeights);
+    }
+
+    /**
+     * Build a weighted graph from an adjacency matrix, every entry greater than zero is an edge with that weight
+     */
+    public static CSRGraph fromAdjacencyMatrix(int[][] adjMatrix){
+        Builder builder = new Builder(adjMatrix.length);
+        for(int u=0; u<adjMatrix.length; ++u)
+            for(int v=0; v<adjMatrix[u].length; ++v)
+                if(adjMatrix[u][v] > 0)
+                    builder.addEdge(u, v, adjMatrix[u][v]);
+
+        return builder.build();
+    }
+
+    /**
+     * Build an unweighted graph from adjacency lists, adjList[u] holds the targets of the edges of u
+     */
+    public static CSRGraph fromAdjacencyList(List<Integer>[] adjList){
+        Builder builder = new Builder(adjList.length);
+        for(int u=0; u<adjList.length; ++u)
+            for(int v : adjList[u])
+                builder.addEdge(u, v);
+
+        return builder.build();
+    }
+
+    /**
+     * Collects edges in any order and packs them into a CSRGraph. A graph is either unweighted, int weighted or
+     * double weighted, mixing edge kinds is an error.
+     */
+    public static final class Builder {
+        private static final int NONE = 0, UNWEIGHTED = 1, INT_WEIGHTS = 2, DOUBLE_WEIGHTS = 3;
+
+        private final int numVertices;
+        private int[] sources = new int[16];
+        private int[] targets = new int[16];
+        private int[] weights;
+        private double[] doubleWeights;
+        private int size = 0;
+        private int kind = NONE;
+
+        public Builder(int numVertices){
+            if(numVertices < 0)
+                throw new IllegalArgumentException("Negative number of vertices " + numVertices);
+
+            this.numVertices = numVertices;
+        }
+
+        public Builder addEdge(int u, int v){
+            append(u, v, UNWEIGHTED);
+            return this;
+        }
+
+        public Builder addEdge(int u, int v, int weight){
+            int e = append(u, v, INT_WEIGHTS);
+            weights[e] = weight;
+            return this;
+        }
+
+        public Builder addEdge(int u, int v, double weight){
+            int e = append(u, v, DOUBLE_WEIGHTS);
+            doubleWeights[e] = weight;
+            return this;
+        }
+
+        // adds (u, v) and (v, u)
+        public Builder addUndirectedEdge(int u, int v){
+            return addEdge(u, v).addEdge(v, u);
+        }
+
+        public Builder addUndirectedEdge(int u, int v, int weight){
+            return addEdge(u, v, weight).addEdge(v, u, weight);
+        }
+
+        public Builder addUndirectedEdge(int u, int v, double weight){
+            return addEdge(u, v, weight).addEdge(v, u, weight);
+        }
+
+        private int append(int u, int v, int edgeKind){
+            if(u < 0 || u >= numVertices || v < 0 || v >= numVertices)
+                throw new IllegalArgumentException("Edge (" + u + ", " + v + ") is out of range for "
+                        + numVertices + " vertices");
+            if(kind != NONE && kind != edgeKind)
+                throw new IllegalStateException("Cannot mix unweighted, int weighted and double weighted edges");
+
+            kind = edgeKind;
+            if(size == sources.length){
+                int capacity = size * 2;
+                sources = Arrays.copyOf(sources, capacity);
+                targets = Arrays.copyOf(targets, capacity);
+                if(weights != null)
+                    weights = Arrays.copyOf(weights, capacity);
+                if(doubleWeights != null)
+                    doubleWeights = Arrays.copyOf(doubleWeights, capacity);
+            }
+            if(edgeKind == INT_WEIGHTS && weights == null)
+                weights = new int[sources.length];
+            if(edgeKind == DOUBLE_WEIGHTS && doubleWeights == null)
+                doubleWeights = new double[sources.length];
+
+            sources[size] = u;
+            targets[size] = v;
+            return size++;
+        }
+
+        /**
+         * Counting sort of the edges by source, O(V + E). Edges of a vertex keep their insertion order.
+         */
+        public CSRGraph build(){
+            int[] offsets = new int[numVertices + 1];
+            for(int e=0; e<size; ++e)
+                offsets[sources[e] + 1]++;
+            for(int u=0; u<numVertices; ++u)
+                offsets[u + 1] += offsets[u];
+
+            int[] next = Arrays.copyOf(offsets, numVertices);
+            int[] csrTargets = new int[size];
+            int[] csrWeights = weights == null ? null : new int[size];
+            double[] csrDoubleWeights = doubleWeights == null ? null : new double[size];
+
+            for(int e=0; e<size; ++e){
+                int pos = next[sources[e]]++;
+                csrTargets[pos] = targets[e];
+                if(csrWeights != null)
+                    csrWeights[pos] = weights[e];
+                if(csrDoubleWeights != null)
+                    csrDoubleWeights[pos] = doubleWeights[e];
+            }
+
+            return new CSRGraph(numVertices, offsets, csrTargets, csrWeights, csrDoubleWeights);
+        }
+    }
+}
@@ -1,8 +1,6 @@
 package graphs.unweightedGraphs;
 
-import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.Queue;
+import graphs.CSRGraph;
 
 public class BFS {
 
@@ -19,28 +17,31 @@ public class BFS {
     private static void processVertexLate(int u){
     }
 
-    public static void bfs(ArrayList<Integer>[] adjList, int source, boolean isDirected){
+    public static void bfs(CSRGraph graph, int source, boolean isDirected){
         final int UN_DISCOVERED = 0, DISCOVERED = 1, PROCCESSED = 2;
-        Queue<Integer> queue = new LinkedList<Integer>();
-        int[] state = new int[adjList.length];
+        // every vertex enters the queue at most once, so a plain array of V slots is enough
+        int[] queue = new int[graph.numVertices()];
+        int head = 0, tail = 0;
+        int[] state = new int[graph.numVertices()];
 
-        queue.add(source);
+        queue[tail++] = source;
         state[source] = DISCOVERED;
 
-        while(!queue.isEmpty()){
-            int u = queue.remove();
+        while(head < tail){
+            int u = queue[head++];
             state[u] = PROCCESSED;
 
             processVertexEarly(u);
 
-            for(int v : adjList[u]){
+            for(int e = graph.edgeStart(u); e < graph.edgeEnd(u); ++e){
+                int v = graph.target(e);
                 // process the edge if it was not processed before
                 // or the edge is directed (so its a new edge since u is being processed)
                 if(state[v] != PROCCESSED || isDirected)
                     processEdge(u, v);
 
                 if(state[v] == UN_DISCOVERED){
-                    queue.add(v);
+                    queue[tail++] = v;
                     state[v] = DISCOVERED;
                 }
             }
@@ -50,25 +51,17 @@ public class BFS {
     }
 
     public static void main(String[] args) {
-        ArrayList<Integer>[] adjList = new ArrayList[5];
-        adjList[0] = new ArrayList<>();
-        adjList[0].add(2);
-        adjList[0].add(3);
-
-        adjList[1] = new ArrayList<>();
-        adjList[1].add(0);
-        adjList[1].add(4);
-
-        adjList[2] = new ArrayList<>();
-        adjList[2].add(1);
-        adjList[2].add(3);
-
-        adjList[3] = new ArrayList<>();
-        adjList[3].add(4);
-        adjList[3].add(1);
-
-        adjList[4] = new ArrayList<>();
-
-        bfs(adjList, 0, true);
+        CSRGraph graph = new CSRGraph.Builder(5)
+                .addEdge(0, 2)
+                .addEdge(0, 3)
+                .addEdge(1, 0)
+                .addEdge(1, 4)
+                .addEdge(2, 1)
+                .addEdge(2, 3)
+                .addEdge(3, 4)
+                .addEdge(3, 1)
+                .build();
+
+        bfs(graph, 0, true);
     }
 }
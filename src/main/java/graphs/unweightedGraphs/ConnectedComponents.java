@@ -1,73 +1,76 @@
 package graphs.unweightedGraphs;
 
+import dataStructures.ConcurrentUnionFind;
+import dataStructures.UnionFind;
+import graphs.CSRGraph;
+
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 public class ConnectedComponents {
 
-    private static class UndirectedGraph{
-        List<Integer>[] adjList;
-        int[] state;
-
-        public UndirectedGraph(int numVertecies){
-            this.adjList = new ArrayList[numVertecies];
-            for(int i=0; i<numVertecies; ++i)
-                adjList[i] = new ArrayList<>();
-
-            state = new int[adjList.length];
-        }
-
-        public void addEdge(int u, int v){
-            adjList[u].add(v);
-            adjList[v].add(u);
-        }
-    }
+    /**
+     * Every edge merges the components of its two endpoints. Once all edges are merged, the sets of the
+     * union-find are the connected components. Unlike a search from each undiscovered vertex this needs no
+     * queue, and the edges can be handled in any order.
+     *
+     * @param graph undirected graph, every edge stored in both directions
+     * @return component number of each vertex, numbered from 1 in the order of their smallest vertex
+     */
+    public  int[] solve(CSRGraph graph){
+        int V = graph.numVertices();
+        UnionFind components = new UnionFind(V);
 
-    final int UNDISCOVERED = 0, DISCOVERED = 1, PROCCESSED = 2;
-    int currComp = 0;
-    int[] cc;
+        for(int u=0; u<V; ++u)
+            for(int e = graph.edgeStart(u); e < graph.edgeEnd(u); ++e)
+                components.union(u, graph.target(e));
 
-    private void processVertexEarly(int u){
-        cc[u] = currComp;
+        return components.labels();
     }
 
-    private void bfs(UndirectedGraph graph, int start){
-        Queue<Integer> queue = new LinkedList<>();
-        graph.state[start] = DISCOVERED;
-        queue.add(start);
-
-        while(!queue.isEmpty()){
-            int u = queue.poll();
-            processVertexEarly(u);
-
-            for(int v : graph.adjList[u]){
-                if(graph.state[v] == UNDISCOVERED){
-                    graph.state[v] = DISCOVERED;
-                    queue.add(v);
-                }
-            }
-
-            graph.state[u] = PROCCESSED;
+    /**
+     * Same as solve(graph), the vertices are split into ranges and the edges of each range merged by one task
+     * of the pool into a lock-free union-find
+     */
+    public int[] solve(CSRGraph graph, ForkJoinPool pool){
+        int V = graph.numVertices();
+        ConcurrentUnionFind components = new ConcurrentUnionFind(V);
+
+        int chunks = Math.max(1, Math.min(V, pool.getParallelism() * 4));
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(chunks);
+        for(int i=0; i<chunks; ++i){
+            final int from = (int) ((long) V * i / chunks), to = (int) ((long) V * (i + 1) / chunks);
+            tasks.add(pool.submit(() -> {
+                for(int u=from; u<to; ++u)
+                    for(int e = graph.edgeStart(u); e < graph.edgeEnd(u); ++e)
+                        if(u < graph.target(e)) // the other direction of the edge merges the same sets
+                            components.union(u, graph.target(e));
+            }));
         }
+        for(ForkJoinTask<?> task : tasks)
+            task.join();
+
+        return components.labels();
     }
 
     /**
-     * We start from the first vertex. Anything we discover during
-     * this search must be part of the same connected component. We then repeat the
-     * search from any undiscovered vertex (if one exists) to define the next component,
-     * and so on until all vertices have been discovered.
-     *
-     * @param graph
-     * @return
+     * Same as solve(graph) with a DirectionOptimizingBFS from each vertex no earlier search reached. Better
+     * than merging every edge when the graph has a giant component: its middle levels run bottom-up and skip
+     * most of its edges.
      */
-    public  int[] solve(UndirectedGraph graph){
-        cc = new int[graph.adjList.length];
-
-        for(int i=0; i<graph.adjList.length; ++i){
-            if(graph.state[i] == UNDISCOVERED){
-                currComp++;
-                bfs(graph, i);
-            }
-        }
+    public int[] solveByBFS(CSRGraph graph, ForkJoinPool pool){
+        int V = graph.numVertices();
+        DirectionOptimizingBFS bfs = new DirectionOptimizingBFS(graph, graph, pool);
+        for(int v=0; v<V; ++v)
+            bfs.expand(v);
+
+        // each search starts at the smallest vertex of its component, before the rest of it
+        int[] root = bfs.getRoots();
+        int[] cc = new int[V];
+        int count = 0;
+        for(int v=0; v<V; ++v)
+            cc[v] = root[v] == v ? ++count : cc[root[v]];
 
         return cc;
     }
@@ -75,10 +78,11 @@ public class ConnectedComponents {
     public static void main(String[] args){
         ConnectedComponents connectedComponents = new ConnectedComponents();
 
-        UndirectedGraph g = new UndirectedGraph(5); // 5 vertices numbered from 0 to 4
-        g.addEdge(1, 0);
-        g.addEdge(2, 3);
-        g.addEdge(3, 4);
+        CSRGraph g = new CSRGraph.Builder(5) // 5 vertices numbered from 0 to 4
+                .addUndirectedEdge(1, 0)
+                .addUndirectedEdge(2, 3)
+                .addUndirectedEdge(3, 4)
+                .build();
 
         int[] cc = connectedComponents.solve(g);
 
@@ -1,35 +1,16 @@
 package graphs.unweightedGraphs;
 
-import java.util.ArrayList;
+import graphs.CSRGraph;
+
 import java.util.Arrays;
-import java.util.List;
 
 public class CyclesDFS {
 
-    private static class UndirectedGraph{
-        List<Integer>[] adjList;
-        int [] state, parent, entry, exit;
-        int time;
-        public UndirectedGraph(int numVertecies){
-            this.adjList = new ArrayList[numVertecies];
-            for(int i=0; i<numVertecies; ++i)
-                adjList[i] = new ArrayList<>();
-
-            state = new int[adjList.length];
-            parent = new int[adjList.length];
-            entry = new int[adjList.length];
-            exit = new int[adjList.length];
-            time = 0;
-        }
+    int [] state, parent, entry, exit;
+    int time;
 
-        public void addEdge(int u, int v){
-            adjList[u].add(v);
-            adjList[v].add(u);
-        }
-    }
-
-    private static void processEdge(UndirectedGraph g, int u, int v){
-        if(g.parent[u] != v) { // found back edge
+    private void processEdge(int u, int v){
+        if(parent[u] != v) { // found back edge
             System.out.println("Cycle detected  from " + u + " to " + v);
         }
     }
@@ -45,63 +26,79 @@ public class CyclesDFS {
 
     final int UN_DISCOVERED = 0, DISCOVERED = 1, PROCCESSED = 2;
 
-    public void dfs (UndirectedGraph graph, int u){
-        graph.state[u] = DISCOVERED;
-        graph.time++;
-        graph.entry[u] = graph.time;
+    /**
+     * Run a depth first search of an undirected graph (every edge stored in both directions) from start
+     */
+    public void run(CSRGraph graph, int start){
+        int V = graph.numVertices();
+        state = new int[V];
+        parent = new int[V];
+        entry = new int[V];
+        exit = new int[V];
+        time = 0;
+
+        parent[start] = -1;
+        dfs(graph, start);
+    }
+
+    private void dfs (CSRGraph graph, int u){
+        state[u] = DISCOVERED;
+        time++;
+        entry[u] = time;
 
         processVertexEarly(u);
 
-        for(int v: graph.adjList[u]){
+        for(int e = graph.edgeStart(u); e < graph.edgeEnd(u); ++e){
+            int v = graph.target(e);
             // process the edge if it was not processed before
             // or the edge is directed (so its a new edge since u is being processed)
-            if(graph.state[v] == UN_DISCOVERED){
-                graph.parent[v] = u;
+            if(state[v] == UN_DISCOVERED){
+                parent[v] = u;
                 dfs(graph, v);
             }else{
                 // process edges where the destination was discovered but not fully processed yet
-                if(graph.state[v] != PROCCESSED)
-                    processEdge(graph, u, v); // back edge pointing to an ancestor of u
+                if(state[v] != PROCCESSED)
+                    processEdge(u, v); // back edge pointing to an ancestor of u
             }
         }
 
         processVertexLate(u);
-        graph.time++;
-        graph.exit[u] = graph.time;
-        graph.state[u] = PROCCESSED;
+        time++;
+        exit[u] = time;
+        state[u] = PROCCESSED;
     }
 
     public static void main(String[] args) {
-        UndirectedGraph g = new UndirectedGraph(5);
-        g.addEdge(1, 0);
-        g.addEdge(0, 2);
-        g.addEdge(2, 1);
-        g.addEdge(0, 3);
-        g.addEdge(3, 4);
+        CSRGraph g = new CSRGraph.Builder(5)
+                .addUndirectedEdge(1, 0)
+                .addUndirectedEdge(0, 2)
+                .addUndirectedEdge(2, 1)
+                .addUndirectedEdge(0, 3)
+                .addUndirectedEdge(3, 4)
+                .build();
 
 
         CyclesDFS d = new CyclesDFS();
 
-        g.parent[0] = -1;
-        d.dfs(g, 0);
-        System.out.println(Arrays.toString(g.state));
-        System.out.println(Arrays.toString(g.parent));
-        System.out.println(Arrays.toString(g.entry));
-        System.out.println(Arrays.toString(g.exit));
+        d.run(g, 0);
+        System.out.println(Arrays.toString(d.state));
+        System.out.println(Arrays.toString(d.parent));
+        System.out.println(Arrays.toString(d.entry));
+        System.out.println(Arrays.toString(d.exit));
 
         System.out.println("================================");
         System.out.println("");
 
-        UndirectedGraph g2 = new UndirectedGraph(3);
-        g2.addEdge(0, 1);
-        g2.addEdge(1, 2);
+        CSRGraph g2 = new CSRGraph.Builder(3)
+                .addUndirectedEdge(0, 1)
+                .addUndirectedEdge(1, 2)
+                .build();
 
-        g2.parent[0] = -1;
-        d.dfs(g2, 0);
-        System.out.println(Arrays.toString(g2.state));
-        System.out.println(Arrays.toString(g2.parent));
-        System.out.println(Arrays.toString(g2.entry));
-        System.out.println(Arrays.toString(g2.exit));
+        d.run(g2, 0);
+        System.out.println(Arrays.toString(d.state));
+        System.out.println(Arrays.toString(d.parent));
+        System.out.println(Arrays.toString(d.entry));
+        System.out.println(Arrays.toString(d.exit));
 
     }
 }
@@ -0,0 +1,376 @@
+package graphs.unweightedGraphs;
+
+import graphs.CSRGraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+
+/**
+ * Parallel breadth-first search for large graphs, level by level, switching direction per level (Beamer's
+ * direction optimization).
+ *
+ * Top-down, every vertex of the frontier looks at its out edges and claims the unvisited vertices it finds.
+ * That is cheap while the frontier is small, but in the middle levels of a low diameter graph the frontier
+ * holds a large part of the graph and most edges lead to vertices that are already visited. Bottom-up, every
+ * unvisited vertex looks at its in edges instead and stops at the first parent in the frontier, so most
+ * edges are never looked at. The search goes bottom-up when the edges out of the frontier exceed 1/ALPHA of
+ * the edges out of unvisited vertices, and back top-down once the frontier shrinks below V/BETA vertices.
+ *
+ * Top-down the frontier is a list of vertices and each thread claims vertices by setting their bit in the
+ * visited bitmap with compare-and-set. Bottom-up the frontier is a bitmap, and each thread owns whole 64 bit
+ * words of the vertices, so it writes its words of the next frontier and of the visited bitmap without
+ * synchronization.
+ *
+ * The arrays are allocated once and reused by every search. Several searches can share them: expand()
+ * continues from a new source without forgetting the vertices reached before, which is what connected
+ * components need.
+ */
+public class DirectionOptimizingBFS {
+
+    public static final int UNREACHED = -1;
+    static final int ALPHA = 14, BETA = 24;
+    private static final int SEQUENTIAL_EDGES = 1 << 14; // levels with fewer edges run on the calling thread
+    private static final int SEQUENTIAL_WORDS = 1 << 10;
+
+    private final CSRGraph graph, incoming;
+    private final ForkJoinPool pool;
+    private final int n, words, chunks;
+    private final int[] distance, parent, root;
+    private final AtomicLongArray visited; // bits past n are always set
+    private long[] frontierBits, nextBits;
+    private int[] frontier, next;
+    private final int[][] buffers; // vertices found by each chunk in a top-down level
+    private final int[] bufferSize;
+    private final long[] chunkVertices, chunkEdges;
+    private long unexploredEdges; // out edges of unvisited vertices
+
+    public DirectionOptimizingBFS(CSRGraph graph, CSRGraph incoming){
+        this(graph, incoming, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param incoming in edges of every vertex for the bottom-up levels: graph itself if every edge is stored in
+     *                 both directions, else graph.transpose()
+     */
+    public DirectionOptimizingBFS(CSRGraph graph, CSRGraph incoming, ForkJoinPool pool){
+        if(incoming.numVertices() != graph.numVertices() || incoming.numEdges() != graph.numEdges())
+            throw new IllegalArgumentException("The incoming graph does not have the edges of the graph");
+
+        this.graph = graph;
+        this.incoming = incoming;
+        this.pool = pool;
+        n = graph.numVertices();
+        words = (n + 63) >>> 6;
+        chunks = Math.max(1, pool.getParallelism() * 4);
+
+        distance = new int[n];
+        parent = new int[n];
+        root = new int[n];
+        visited = new AtomicLongArray(words);
+        frontierBits = new long[words];
+        nextBits = new long[words];
+        frontier = new int[n];
+        next = new int[n];
+        buffers = new int[chunks][16];
+        bufferSize = new int[chunks];
+        chunkVertices = new long[chunks];
+        chunkEdges = new long[chunks];
+
+        clear();
+    }
+
+    /**
+     * Forget all searches
+     */
+    public void clear(){
+        Arrays.fill(distance, UNREACHED);
+        Arrays.fill(parent, -1);
+        Arrays.fill(root, -1);
+        for(int w=0; w<words; ++w)
+            visited.set(w, 0);
+        if((n & 63) != 0)
+            visited.set(words - 1, -1L << (n & 63));
+        unexploredEdges = graph.numEdges();
+    }
+
+    public void search(int source){
+        clear();
+        expand(source);
+    }
+
+    /**
+     * Search from source over the vertices that no search since the last clear() reached. The vertices reached
+     * before keep their distance, parent and root.
+     *
+     * @return number of vertices reached, 0 if source was reached before
+     */
+    public int expand(int source){
+        if(distance[source] != UNREACHED)
+            return 0;
+
+        visited.set(source >>> 6, visited.get(source >>> 6) | 1L << source);
+        distance[source] = 0;
+        root[source] = source;
+        frontier[0] = source;
+        int frontierSize = 1, previousSize = 0;
+        long frontierEdges = graph.outDegree(source);
+        unexploredEdges -= frontierEdges;
+        int reached = 1;
+
+        boolean topDown = true;
+        for(int level=1; frontierSize > 0; ++level){
+            if(topDown && frontierEdges > unexploredEdges / ALPHA){
+                toBitmap(frontierSize);
+                topDown = false;
+            }else if(!topDown && frontierSize < n / BETA && frontierSize < previousSize){
+                toList();
+                topDown = true;
+            }
+
+            previousSize = frontierSize;
+            if(topDown){
+                frontierSize = topDownLevel(frontierSize, frontierEdges, level);
+            }else{
+                frontierSize = bottomUpLevel(level);
+            }
+
+            frontierEdges = 0;
+            for(int c=0; c<chunks; ++c)
+                frontierEdges += chunkEdges[c];
+            unexploredEdges -= frontierEdges;
+            reached += frontierSize;
+        }
+
+        return reached;
+    }
+
+    // run work(c) for every chunk c, in the pool or on this thread
+    private void forEachChunk(boolean parallel, IntConsumer work){
+        if(!parallel){
+            for(int c=0; c<chunks; ++c)
+                work.accept(c);
+            return;
+        }
+
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(chunks);
+        for(int c=0; c<chunks; ++c){
+            final int chunk = c;
+            tasks.add(pool.submit(() -> work.accept(chunk)));
+        }
+        for(ForkJoinTask<?> task : tasks)
+            task.join();
+    }
+
+    /**
+     * @return size of the next frontier, which replaces the frontier list
+     */
+    private int topDownLevel(int frontierSize, long frontierEdges, int level){
+        forEachChunk(frontierEdges >= SEQUENTIAL_EDGES, c -> {
+            int lo = (int) ((long) frontierSize * c / chunks), hi = (int) ((long) frontierSize * (c + 1) / chunks);
+            int[] buffer = buffers[c];
+            int size = 0;
+            long edges = 0;
+            for(int i=lo; i<hi; ++i){
+                int u = frontier[i];
+                for(int e = graph.edgeStart(u); e < graph.edgeEnd(u); ++e){
+                    int v = graph.target(e);
+                    if(!claim(v))
+                        continue;
+
+                    distance[v] = level;
+                    parent[v] = u;
+                    root[v] = root[u];
+                    if(size == buffer.length)
+                        buffer = Arrays.copyOf(buffer, size * 2);
+                    buffer[size++] = v;
+                    edges += graph.outDegree(v);
+                }
+            }
+            buffers[c] = buffer;
+            bufferSize[c] = size;
+            chunkEdges[c] = edges;
+        });
+
+        int size = 0;
+        for(int c=0; c<chunks; ++c){
+            System.arraycopy(buffers[c], 0, next, size, bufferSize[c]);
+            size += bufferSize[c];
+        }
+        int[] tmp = frontier;
+        frontier = next;
+        next = tmp;
+
+        return size;
+    }
+
+    // set the visited bit of v, true if this call set it
+    private boolean claim(int v){
+        int w = v >>> 6;
+        long bit = 1L << v;
+        long old = visited.get(w);
+        while((old & bit) == 0){
+            if(visited.compareAndSet(w, old, old | bit))
+                return true;
+            old = visited.get(w);
+        }
+
+        return false;
+    }
+
+    /**
+     * @return size of the next frontier, which replaces the frontier bitmap
+     */
+    private int bottomUpLevel(int level){
+        forEachChunk(words >= SEQUENTIAL_WORDS, c -> {
+            int lo = (int) ((long) words * c / chunks), hi = (int) ((long) words * (c + 1) / chunks);
+            long vertices = 0, edges = 0;
+            for(int w=lo; w<hi; ++w){
+                long seen = visited.get(w);
+                long unvisited = ~seen;
+                long found = 0;
+                while(unvisited != 0){
+                    int bit = Long.numberOfTrailingZeros(unvisited);
+                    unvisited &= unvisited - 1;
+
+                    int v = w << 6 | bit;
+                    for(int e = incoming.edgeStart(v); e < incoming.edgeEnd(v); ++e){
+                        int u = incoming.target(e);
+                        if((frontierBits[u >>> 6] & 1L << u) != 0){
+                            distance[v] = level;
+                            parent[v] = u;
+                            root[v] = root[u];
+                            found |= 1L << bit;
+                            vertices++;
+                            edges += graph.outDegree(v);
+                            break;
+                        }
+                    }
+                }
+
+                nextBits[w] = found;
+                if(found != 0)
+                    visited.set(w, seen | found);
+            }
+            chunkVertices[c] = vertices;
+            chunkEdges[c] = edges;
+        });
+
+        long[] tmp = frontierBits;
+        frontierBits = nextBits;
+        nextBits = tmp;
+
+        long size = 0;
+        for(int c=0; c<chunks; ++c)
+            size += chunkVertices[c];
+        return (int) size;
+    }
+
+    private void toBitmap(int frontierSize){
+        Arrays.fill(frontierBits, 0);
+        for(int i=0; i<frontierSize; ++i)
+            frontierBits[frontier[i] >>> 6] |= 1L << frontier[i];
+    }
+
+    private void toList(){
+        int size = 0;
+        for(int w=0; w<words; ++w){
+            long bits = frontierBits[w];
+            while(bits != 0){
+                frontier[size++] = w << 6 | Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    /**
+     * @return number of edges from the source to each vertex, UNREACHED if no search reached it
+     */
+    public int[] getDistances(){
+        return distance;
+    }
+
+    /**
+     * @return previous vertex on a shortest path to each vertex, -1 for sources and unreached vertices
+     */
+    public int[] getParents(){
+        return parent;
+    }
+
+    /**
+     * @return source of the search that reached each vertex, UNREACHED if none did
+     */
+    public int[] getRoots(){
+        return root;
+    }
+
+    /**
+     * @return vertices of a shortest path from the source of the search that reached target, null if none did
+     */
+    public int[] path(int target){
+        if(distance[target] == UNREACHED)
+            return null;
+
+        int[] path = new int[distance[target] + 1];
+        for(int v=target, i=path.length - 1; i>=0; v=parent[v], --i)
+            path[i] = v;
+
+        return path;
+    }
+
+    /**
+     * Searches on a random undirected graph with a few high degree hubs, against a plain queue BFS.
+     * Usage: DirectionOptimizingBFS [vertices] [edges]
+     */
+    public static void main(String[] args){
+        int V = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int m = args.length > 1 ? Integer.parseInt(args[1]) : 10_000_000;
+
+        // half of the endpoints among the first 1% of the vertices, degrees are skewed like in a social graph
+        Random random = new Random(13);
+        CSRGraph.Builder builder = new CSRGraph.Builder(V);
+        for(int e=0; e<m; ++e){
+            int u = random.nextBoolean() ? random.nextInt(Math.max(1, V / 100)) : random.nextInt(V);
+            builder.addUndirectedEdge(u, random.nextInt(V));
+        }
+        CSRGraph graph = builder.build();
+
+        DirectionOptimizingBFS bfs = new DirectionOptimizingBFS(graph, graph);
+        int[] queue = new int[V];
+        int[] expected = new int[V];
+        for(int round=0; round<3; ++round){
+            int source = random.nextInt(V);
+
+            long t0 = System.nanoTime();
+            Arrays.fill(expected, UNREACHED);
+            int head = 0, tail = 0;
+            expected[source] = 0;
+            queue[tail++] = source;
+            while(head < tail){
+                int u = queue[head++];
+                for(int e = graph.edgeStart(u); e < graph.edgeEnd(u); ++e){
+                    int v = graph.target(e);
+                    if(expected[v] == UNREACHED){
+                        expected[v] = expected[u] + 1;
+                        queue[tail++] = v;
+                    }
+                }
+            }
+            long t1 = System.nanoTime();
+            bfs.search(source);
+            long t2 = System.nanoTime();
+
+            if(!Arrays.equals(expected, bfs.getDistances()))
+                throw new AssertionError("Distances from " + source + " differ from the queue BFS");
+            System.out.printf("%d vertices, %d edges, %d reached from %d: queue BFS %.0f ms, "
+                            + "direction optimizing %.0f ms on %d threads%n",
+                    V, graph.numEdges(), tail, source, (t1 - t0) / 1e6, (t2 - t1) / 1e6,
+                    ForkJoinPool.commonPool().getParallelism());
+        }
+    }
+}
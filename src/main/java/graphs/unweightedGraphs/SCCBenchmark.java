@@ -0,0 +1,89 @@
+package graphs.unweightedGraphs;
+
+import graphs.CSRGraph;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Iterative TarjanSCC against the recursive two pass Kosaraju of SCCTwoPath, on a random sparse graph and on
+ * a long chain of small cycles. SCCTwoPath recurses once per vertex of a path, so it runs on a thread with a
+ * large stack. Usage: SCCBenchmark [vertices]
+ */
+public class SCCBenchmark {
+
+    static CSRGraph randomGraph(int V, int degree, long seed){
+        Random random = new Random(seed);
+        CSRGraph.Builder builder = new CSRGraph.Builder(V);
+        for(int u=0; u<V; ++u)
+            for(int i=0; i<degree; ++i)
+                builder.addEdge(u, random.nextInt(V));
+
+        return builder.build();
+    }
+
+    // cycles of 4 vertices, each pointing to the next: V / 4 components on one depth first path
+    static CSRGraph chain(int V){
+        CSRGraph.Builder builder = new CSRGraph.Builder(V);
+        for(int u=0; u<V; ++u){
+            int next = (u & ~3) | ((u + 1) & 3);
+            builder.addEdge(u, next < V ? next : u & ~3);
+            if(u + 4 < V)
+                builder.addEdge(u, u + 4);
+        }
+
+        return builder.build();
+    }
+
+    // true if both labelings put the same vertices together
+    static boolean samePartition(int[] a, int[] b){
+        int n = a.length;
+        int max = 0;
+        for(int v=0; v<n; ++v)
+            max = Math.max(max, Math.max(a[v], b[v]));
+
+        int[] aToB = new int[max + 1], bToA = new int[max + 1];
+        Arrays.fill(aToB, -1);
+        Arrays.fill(bToA, -1);
+        for(int v=0; v<n; ++v){
+            if(aToB[a[v]] == -1 && bToA[b[v]] == -1){
+                aToB[a[v]] = b[v];
+                bToA[b[v]] = a[v];
+            }else if(aToB[a[v]] != b[v] || bToA[b[v]] != a[v]){
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static void compare(String name, CSRGraph graph) throws InterruptedException {
+        for(int round=0; round<2; ++round){
+            long t0 = System.nanoTime();
+            TarjanSCC tarjan = new TarjanSCC(graph);
+            long t1 = System.nanoTime();
+
+            int[][] kosaraju = new int[1][];
+            Thread thread = new Thread(null, () -> kosaraju[0] = new SCCTwoPath().run(graph), "kosaraju", 1L << 31);
+            long t2 = System.nanoTime();
+            thread.start();
+            thread.join();
+            long t3 = System.nanoTime();
+
+            if(kosaraju[0] == null)
+                throw new AssertionError("SCCTwoPath failed on " + name);
+            if(!samePartition(tarjan.getComponents(), kosaraju[0]))
+                throw new AssertionError("TarjanSCC and SCCTwoPath differ on " + name);
+            System.out.printf("%s: %d vertices, %d edges, %d components: Tarjan %.0f ms, Kosaraju %.0f ms%n",
+                    name, graph.numVertices(), graph.numEdges(), tarjan.getCount(), (t1 - t0) / 1e6,
+                    (t3 - t2) / 1e6);
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int V = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+
+        compare("random", randomGraph(V, 4, 23));
+        compare("chain", chain(V));
+    }
+}
@@ -1,25 +1,25 @@
 package graphs.unweightedGraphs;
 
+import graphs.CSRGraph;
+
 import java.util.Arrays;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.Stack;
 
 public class SCCOnePath {
 
-    static LinkedList<Integer> [] adjList;
-    static Stack<Integer> stack = new Stack<Integer>();
+    static CSRGraph graph;
+    // vertices not yet assigned to a component, the top is at stack[top - 1]
+    static int[] stack;
+    static int top = 0;
     static int[] entry, low, scc;
     static int time = 0, sccIdx = 0;
 
     private static void dfs(int u){
         // initially set furthest reachable ancestor of a node to itself
         entry[u] = low[u] = ++time;
-        stack.push(u);
+        stack[top++] = u;
 
-        Iterator<Integer> iter = adjList[u].iterator();
-        while (iter.hasNext()){
-            int v = iter.next();
+        for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); ++e){
+            int v = graph.target(e);
             if(entry[v] == 0) // v not discovered yet
                 dfs(v);
 
@@ -33,8 +33,8 @@ public class SCCOnePath {
         // component. The other nodes in its scc will be above it in the stack including itself.
         if(entry[u] == low[u]){
             sccIdx++;
-            while (!stack.isEmpty()){
-                int v = stack.pop();
+            while (top > 0){
+                int v = stack[--top];
                 scc[v] = sccIdx;
                 if(v == u)
                     break;
@@ -42,60 +42,56 @@ public class SCCOnePath {
         }
     }
 
-    public static void computeSCC(){
-        for(int u = 0; u < adjList.length; ++u){
+    public static int[] computeSCC(CSRGraph g){
+        int V = g.numVertices();
+        graph = g;
+        stack = new int[V];
+        scc = new int[V];
+        entry = new int[V];
+        low = new int[V];
+        top = time = sccIdx = 0;
+
+        for(int u = 0; u < V; ++u){
             if(entry[u] == 0) // undiscovered
                 dfs(u);
         }
 
         System.out.println("The strongly connected components of each node in the given graph ");
         System.out.println(Arrays.toString(scc));
+        return scc;
     }
 
 
     public static void main(String[] args) {
         // Graph 1
-        int V = 5;
-        adjList = new LinkedList[V];
-        scc = new int[V];
-        entry = new int[V];
-        low = new int[V];
-        for(int i=0; i<adjList.length; ++i)
-            adjList[i] = new LinkedList<Integer>();
-
-        adjList[1].add(0);
-        adjList[0].add(2);
-        adjList[2].add(1);
-        adjList[0].add(3);
-        adjList[3].add(4);
+        CSRGraph g1 = new CSRGraph.Builder(5)
+                .addEdge(1, 0)
+                .addEdge(0, 2)
+                .addEdge(2, 1)
+                .addEdge(0, 3)
+                .addEdge(3, 4)
+                .build();
 
-        computeSCC();
+        computeSCC(g1);
 
         System.out.println("\n =========================== \n");
 
         // Graph 2 (example in the book)
-        V = 8;
-        adjList = new LinkedList[V];
-        scc = new int[V];
-        entry = new int[V];
-        low = new int[V];
-        time = sccIdx = 0;
-        for(int i=0; i<adjList.length; ++i)
-            adjList[i] = new LinkedList<Integer>();
-
-        adjList[0].add(1);
-        adjList[1].add(2);
-        adjList[1].add(3);
-        adjList[1].add(4);
-        adjList[2].add(0);
-        adjList[3].add(0);
-        adjList[3].add(5);
-        adjList[3].add(7);
-        adjList[4].add(5);
-        adjList[5].add(6);
-        adjList[6].add(4);
-        adjList[7].add(5);
-
-        computeSCC();
+        CSRGraph g2 = new CSRGraph.Builder(8)
+                .addEdge(0, 1)
+                .addEdge(1, 2)
+                .addEdge(1, 3)
+                .addEdge(1, 4)
+                .addEdge(2, 0)
+                .addEdge(3, 0)
+                .addEdge(3, 5)
+                .addEdge(3, 7)
+                .addEdge(4, 5)
+                .addEdge(5, 6)
+                .addEdge(6, 4)
+                .addEdge(7, 5)
+                .build();
+
+        computeSCC(g2);
     }
 }
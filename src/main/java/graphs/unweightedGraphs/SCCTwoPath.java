@@ -1,9 +1,8 @@
 package graphs.unweightedGraphs;
 
-import java.util.ArrayList;
+import graphs.CSRGraph;
+
 import java.util.Arrays;
-import java.util.List;
-import java.util.Stack;
 
 /**
  * In this algorithm we perform DFS two times to partition the directed graph into a set of strongly
@@ -15,60 +14,34 @@ import java.util.Stack;
  */
 public class SCCTwoPath {
 
-    private static class DirectedGraph {
-        List<Integer>[] adjList;
-        int[] state, entry, low;
-        int time = 0;
-
-        public DirectedGraph(int numVertecies) {
-            this.adjList = new ArrayList[numVertecies];
-            for (int i = 0; i < numVertecies; ++i)
-                adjList[i] = new ArrayList<>();
-
-            state = new int[adjList.length];
-            entry = new int[adjList.length];
-            low = new int[adjList.length];
-        }
-
-        public void addEdge(int u, int v) {
-            adjList[u].add(v);
-        }
-
-        public DirectedGraph getTranspose(){
-            DirectedGraph graph = new DirectedGraph(this.adjList.length);
-
-            for(int u = 0; u<this.adjList.length; ++u){
-                for(int v : this.adjList[u])
-                    graph.adjList[v].add(u);
-            }
-
-            return graph;
-        }
-    }
-
     final int UN_DISCOVERED = 0, DISCOVERED = 1, PROCCESSED = 2;
-    Stack<Integer> stack = new Stack<Integer>();
+    int[] state;
+    // vertices in order of completion of the first search, the top is at stack[top - 1]
+    int[] stack;
+    int top;
     int currSCCNum = 0;
 
-    private void firstDFSPath(DirectedGraph graph, int u){
-        graph.state[u] = DISCOVERED;
+    private void firstDFSPath(CSRGraph graph, int u){
+        state[u] = DISCOVERED;
 
-        for(int v: graph.adjList[u]){
-            if(graph.state[v] == UN_DISCOVERED)
+        for(int e = graph.edgeStart(u); e < graph.edgeEnd(u); ++e){
+            int v = graph.target(e);
+            if(state[v] == UN_DISCOVERED)
                 firstDFSPath(graph, v);
         }
 
-        graph.state[u] = PROCCESSED;
-        stack.push(u);
+        state[u] = PROCCESSED;
+        stack[top++] = u;
     }
 
 
-    private void secondDFSPath(DirectedGraph graph, int u, int[] scc){
-        graph.state[u] = DISCOVERED;
+    private void secondDFSPath(CSRGraph graph, int u, int[] scc){
+        state[u] = DISCOVERED;
         scc[u] = currSCCNum;
 
-        for(int v: graph.adjList[u]){
-            if(graph.state[v] == UN_DISCOVERED)
+        for(int e = graph.edgeStart(u); e < graph.edgeEnd(u); ++e){
+            int v = graph.target(e);
+            if(state[v] == UN_DISCOVERED)
                 secondDFSPath(graph, v, scc);
         }
     }
@@ -80,21 +53,27 @@ public class SCCTwoPath {
      * @param graph
      * @return
      */
-    public int[] run(DirectedGraph graph){
+    public int[] run(CSRGraph graph){
+        int V = graph.numVertices();
+        state = new int[V];
+        stack = new int[V];
+        top = 0;
+        currSCCNum = 0;
 
         // We find all vertices reachable from u
-        for(int u = 0; u < graph.adjList.length; ++u){
-            if(graph.state[u] == UN_DISCOVERED)
+        for(int u = 0; u < V; ++u){
+            if(state[u] == UN_DISCOVERED)
                 firstDFSPath(graph, u);
         }
 
         // By doing a DFS from u in reversed graph, we find all vertices with paths to u in G.
-        DirectedGraph transposedGraph = graph.getTranspose();
-        int[] scc = new int[graph.adjList.length];
+        CSRGraph transposedGraph = graph.transpose();
+        int[] scc = new int[V];
+        Arrays.fill(state, UN_DISCOVERED);
 
-        while (!stack.isEmpty()){
-            int u = stack.pop();
-            if(transposedGraph.state[u] == UN_DISCOVERED) {
+        while (top > 0){
+            int u = stack[--top];
+            if(state[u] == UN_DISCOVERED) {
                 currSCCNum++;
                 secondDFSPath(transposedGraph, u, scc);
             }
@@ -107,12 +86,13 @@ public class SCCTwoPath {
     public static void main(String[] args) {
         SCCTwoPath sccTwoPath = new SCCTwoPath();
 
-        DirectedGraph g = new DirectedGraph(5);
-        g.addEdge(1, 0);
-        g.addEdge(0, 2);
-        g.addEdge(2, 1);
-        g.addEdge(0, 3);
-        g.addEdge(3, 4);
+        CSRGraph g = new CSRGraph.Builder(5)
+                .addEdge(1, 0)
+                .addEdge(0, 2)
+                .addEdge(2, 1)
+                .addEdge(0, 3)
+                .addEdge(3, 4)
+                .build();
 
         System.out.println("The strongly connected components of each node in the given graph ");
         int[] res = sccTwoPath.run(g);
@@ -120,23 +100,23 @@ public class SCCTwoPath {
 
         // example in the book
 
-        DirectedGraph g2 = new DirectedGraph(8);
-        g2.addEdge(0, 1);
-        g2.addEdge(1, 2);
-        g2.addEdge(1, 3);
-        g2.addEdge(1, 4);
-        g2.addEdge(2, 0);
-        g2.addEdge(3, 0);
-        g2.addEdge(3, 5);
-        g2.addEdge(3, 7);
-        g2.addEdge(4, 5);
-        g2.addEdge(5, 6);
-        g2.addEdge(6, 4);
-        g2.addEdge(7, 5);
+        CSRGraph g2 = new CSRGraph.Builder(8)
+                .addEdge(0, 1)
+                .addEdge(1, 2)
+                .addEdge(1, 3)
+                .addEdge(1, 4)
+                .addEdge(2, 0)
+                .addEdge(3, 0)
+                .addEdge(3, 5)
+                .addEdge(3, 7)
+                .addEdge(4, 5)
+                .addEdge(5, 6)
+                .addEdge(6, 4)
+                .addEdge(7, 5)
+                .build();
 
         System.out.println(" =====   ");
         System.out.println("The strongly connected components of each node in the given graph ");
-        sccTwoPath.currSCCNum = 0;
         res = sccTwoPath.run(g2);
         System.out.println(Arrays.toString(res));
 
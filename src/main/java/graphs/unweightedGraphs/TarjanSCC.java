@@ -0,0 +1,182 @@
+package graphs.unweightedGraphs;
+
+import graphs.CSRGraph;
+
+import java.util.Arrays;
+
+/**
+ * Strongly connected components in one depth first search, Tarjan's algorithm in Pearce's space saving
+ * form, without recursion.
+ *
+ * rindex[v] is the discovery index of v, lowered to the smallest index reachable from v's subtree over
+ * vertices whose component is still open. A vertex that keeps its own index is the root of a component,
+ * which is made of the vertices above it on the stack. Pearce's observation is that rindex can also hold the
+ * component number of finished vertices: components are numbered downwards from V - 1 while the index only
+ * counts vertices still open, so a finished vertex always compares larger than any open one and needs no
+ * separate array or flag.
+ *
+ * The search keeps its call stack in int arrays, the current edge of each vertex in cursor[], so paths of
+ * any length work where the recursive SCCOnePath and SCCTwoPath overflow the thread stack. All state belongs
+ * to the instance, several graphs can be solved at the same time by different instances.
+ *
+ * Components are numbered 0 .. count - 1 in topological order of the condensation: Tarjan's algorithm
+ * finishes sink components first, so every edge between two components goes from a smaller number to a
+ * larger one.
+ */
+public class TarjanSCC {
+
+    private final CSRGraph graph;
+    private final int[] component;
+    private final int count;
+    private CSRGraph condensation;
+
+    public TarjanSCC(CSRGraph graph){
+        this.graph = graph;
+        int V = graph.numVertices();
+
+        int[] rindex = new int[V]; // 0 = undiscovered
+        boolean[] root = new boolean[V];
+        int[] cursor = new int[V];
+        int[] call = new int[V];
+        int[] stack = new int[V];
+        int callTop = 0, top = 0;
+        int index = 1, c = V - 1;
+
+        for(int s=0; s<V; ++s){
+            if(rindex[s] != 0)
+                continue;
+
+            rindex[s] = index++;
+            root[s] = true;
+            cursor[s] = graph.edgeStart(s);
+            call[callTop++] = s;
+
+            while(callTop > 0){
+                int v = call[callTop - 1];
+                int e = cursor[v];
+
+                if(e < graph.edgeEnd(v)){
+                    int w = graph.target(e);
+                    if(rindex[w] == 0){
+                        // descend, the edge is looked at again once w is finished
+                        rindex[w] = index++;
+                        root[w] = true;
+                        cursor[w] = graph.edgeStart(w);
+                        call[callTop++] = w;
+                        continue;
+                    }
+
+                    if(rindex[w] < rindex[v]){
+                        rindex[v] = rindex[w];
+                        root[v] = false;
+                    }
+                    cursor[v] = e + 1;
+                    continue;
+                }
+
+                // all edges of v are done
+                callTop--;
+                if(root[v]){
+                    index--;
+                    while(top > 0 && rindex[v] <= rindex[stack[top - 1]]){
+                        rindex[stack[--top]] = c;
+                        index--;
+                    }
+                    rindex[v] = c--;
+                }else{
+                    stack[top++] = v;
+                }
+            }
+        }
+
+        // components got c + 1 .. V - 1 downwards from the first sink found, already topological order
+        count = V - 1 - c;
+        for(int v=0; v<V; ++v)
+            rindex[v] = rindex[v] - (c + 1);
+        component = rindex;
+    }
+
+    /**
+     * @return component of each vertex, numbered from 0 in topological order
+     */
+    public int[] getComponents(){
+        return component;
+    }
+
+    public int getCount(){
+        return count;
+    }
+
+    public boolean stronglyConnected(int u, int v){
+        return component[u] == component[v];
+    }
+
+    /**
+     * The condensation DAG: one vertex per component and one edge for every pair of components joined by an
+     * edge of the graph. Built on the first call.
+     */
+    public CSRGraph condensation(){
+        if(condensation != null)
+            return condensation;
+
+        int V = graph.numVertices();
+        // vertices grouped by component, a counting sort
+        int[] start = new int[count + 1];
+        for(int v=0; v<V; ++v)
+            start[component[v] + 1]++;
+        for(int i=0; i<count; ++i)
+            start[i + 1] += start[i];
+        int[] order = new int[V];
+        int[] next = new int[count];
+        System.arraycopy(start, 0, next, 0, count);
+        for(int v=0; v<V; ++v)
+            order[next[component[v]]++] = v;
+
+        // lastSource[d] == c once the edge c -> d is added
+        int[] lastSource = new int[count];
+        Arrays.fill(lastSource, -1);
+        CSRGraph.Builder builder = new CSRGraph.Builder(count);
+        for(int cu=0; cu<count; ++cu){
+            for(int i=start[cu]; i<start[cu + 1]; ++i){
+                int u = order[i];
+                for(int e = graph.edgeStart(u); e < graph.edgeEnd(u); ++e){
+                    int cv = component[graph.target(e)];
+                    if(cv != cu && lastSource[cv] != cu){
+                        lastSource[cv] = cu;
+                        builder.addEdge(cu, cv);
+                    }
+                }
+            }
+        }
+
+        condensation = builder.build();
+        return condensation;
+    }
+
+    public static void main(String[] args){
+        // example in the book, same as SCCTwoPath
+        CSRGraph g = new CSRGraph.Builder(8)
+                .addEdge(0, 1)
+                .addEdge(1, 2)
+                .addEdge(1, 3)
+                .addEdge(1, 4)
+                .addEdge(2, 0)
+                .addEdge(3, 0)
+                .addEdge(3, 5)
+                .addEdge(3, 7)
+                .addEdge(4, 5)
+                .addEdge(5, 6)
+                .addEdge(6, 4)
+                .addEdge(7, 5)
+                .build();
+
+        TarjanSCC scc = new TarjanSCC(g);
+        System.out.println(scc.getCount() + " strongly connected components: "
+                + Arrays.toString(scc.getComponents()));
+
+        CSRGraph dag = scc.condensation();
+        for(int c=0; c<dag.numVertices(); ++c)
+            for(int e = dag.edgeStart(c); e < dag.edgeEnd(c); ++e)
+                System.out.println(c + " -> " + dag.target(e));
+    }
+}
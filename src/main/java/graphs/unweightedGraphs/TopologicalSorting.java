@@ -1,8 +1,6 @@
 package graphs.unweightedGraphs;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Stack;
+import graphs.CSRGraph;
 
 /**
  * Topological sorting for Directed Acyclic Graph (DAG) is a linear ordering of vertices such that
@@ -16,72 +14,65 @@ import java.util.Stack;
  */
 public class TopologicalSorting {
 
-    private static class DirectedGraph {
-        List<Integer>[] adjList;
-        int[] state, parent, entry, exit;
-        int time;
-
-        public DirectedGraph(int numVertecies) {
-            this.adjList = new ArrayList[numVertecies];
-            for (int i = 0; i < numVertecies; ++i)
-                adjList[i] = new ArrayList<>();
-
-            state = new int[adjList.length];
-            parent = new int[adjList.length];
-            entry = new int[adjList.length];
-            exit = new int[adjList.length];
-            time = 0;
-        }
-
-        public void addEdge(int u, int v) {
-            adjList[u].add(v);
-        }
-    }
-
     final int UN_DISCOVERED = 0, DISCOVERED = 1, PROCCESSED = 2;
 
-    Stack<Integer> stack = new Stack<Integer>();
+    int[] state, parent, entry, exit;
+    int time;
+
+    // vertices in order of completion, the top of the stack is at stack[top - 1]
+    int[] stack;
+    int top;
 
     private void processVertexLate(int u) {
-        stack.push(u);
+        stack[top++] = u;
     }
 
-    private void processEdge(DirectedGraph graph, int u, int v) {
-        if (graph.state[v] == DISCOVERED) { // back edge (v is visited before and not fully processed)
+    private void processEdge(int u, int v) {
+        if (state[v] == DISCOVERED) { // back edge (v is visited before and not fully processed)
             throw new IllegalStateException("The graph is not DAG, cycle is found at edge ("
                     + u + ", " + v + ")");
         }
     }
 
-    private void dfs(DirectedGraph graph, int u) {
-        graph.state[u] = DISCOVERED;
-        graph.entry[u] = ++graph.time;
+    private void dfs(CSRGraph graph, int u) {
+        state[u] = DISCOVERED;
+        entry[u] = ++time;
 
-        for (int v : graph.adjList[u]) {
+        for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); ++e) {
+            int v = graph.target(e);
 
-            if (graph.state[v] == UN_DISCOVERED) {
-                graph.parent[v] = u;
+            if (state[v] == UN_DISCOVERED) {
+                parent[v] = u;
                 dfs(graph, v);
             } else {
-                processEdge(graph, u, v); // check for back edge
+                processEdge(u, v); // check for back edge
             }
         }
 
         processVertexLate(u);
-        graph.exit[u] = ++graph.time;
-        graph.state[u] = PROCCESSED;
+        exit[u] = ++time;
+        state[u] = PROCCESSED;
     }
 
-    public void run(DirectedGraph graph) {
-        for (int i = 0; i < graph.adjList.length; ++i) {
-            if (graph.state[i] == UN_DISCOVERED) {
+    public void run(CSRGraph graph) {
+        int V = graph.numVertices();
+        state = new int[V];
+        parent = new int[V];
+        entry = new int[V];
+        exit = new int[V];
+        time = 0;
+        stack = new int[V];
+        top = 0;
+
+        for (int i = 0; i < V; ++i) {
+            if (state[i] == UN_DISCOVERED) {
                 dfs(graph, i);
             }
         }
 
         System.out.println("Following is a Topological sort of the given graph");
-        while (!stack.isEmpty()) {
-            System.out.print(stack.pop() + " ");
+        while (top > 0) {
+            System.out.print(stack[--top] + " ");
         }
 
         System.out.println();
@@ -90,30 +81,32 @@ public class TopologicalSorting {
     public static void main(String[] args) {
         TopologicalSorting ts = new TopologicalSorting();
 
-        DirectedGraph g = new DirectedGraph(6);
-        g.addEdge(5, 2);
-        g.addEdge(5, 0);
-        g.addEdge(4, 0);
-        g.addEdge(4, 1);
-        g.addEdge(2, 3);
-        g.addEdge(3, 1);
+        CSRGraph g = new CSRGraph.Builder(6)
+                .addEdge(5, 2)
+                .addEdge(5, 0)
+                .addEdge(4, 0)
+                .addEdge(4, 1)
+                .addEdge(2, 3)
+                .addEdge(3, 1)
+                .build();
 
         ts.run(g);
 
         System.out.println("==========");
 
         // example in book
-        DirectedGraph g2 = new DirectedGraph(7);
-        g2.addEdge(0, 1);
-        g2.addEdge(0, 2);
-        g2.addEdge(1, 3);
-        g2.addEdge(1, 2);
-        g2.addEdge(2, 4);
-        g2.addEdge(2, 5);
-        g2.addEdge(4, 3);
-        g2.addEdge(5, 4);
-        g2.addEdge(6, 5);
-        g2.addEdge(6, 0);
+        CSRGraph g2 = new CSRGraph.Builder(7)
+                .addEdge(0, 1)
+                .addEdge(0, 2)
+                .addEdge(1, 3)
+                .addEdge(1, 2)
+                .addEdge(2, 4)
+                .addEdge(2, 5)
+                .addEdge(4, 3)
+                .addEdge(5, 4)
+                .addEdge(6, 5)
+                .addEdge(6, 0)
+                .build();
         ts.run(g2);
     }
 }
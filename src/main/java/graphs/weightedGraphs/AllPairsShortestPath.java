@@ -0,0 +1,255 @@
+package graphs.weightedGraphs;
+
+import graphs.CSRGraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * All pairs shortest paths by a blocked Floyd-Warshall over a flat V x V long matrix.
+ *
+ * The plain triple loop streams the whole matrix through the cache once per vertex k, which is slow once the
+ * matrix no longer fits. The blocked version splits the matrix into B x B tiles and handles the vertices k
+ * one tile at a time. For every diagonal tile (kb, kb), in three phases:
+ * 1) run Floyd-Warshall inside the diagonal tile,
+ * 2) update the tiles in row kb and column kb, each only needs itself and the diagonal tile,
+ * 3) update every other tile (i, j) from tiles (i, kb) and (kb, j), which are final for this round.
+ * The updates of phases 1 and 2 touch at most three tiles, which fit in the cache together. Phase 3 updates a
+ * whole row of tiles at a time: the B rows k of the round stay in the cache while long rows i stream past
+ * them, which keeps the inner loop long. The tiles of phase 2, and the tile rows of phase 3, are independent
+ * of each other and run in parallel on a ForkJoinPool.
+ *
+ * A missing edge is INF, not zero, so zero and negative weights are allowed. If the graph has a negative
+ * cycle the computation stops early, hasNegativeCycle reports it and the distances are meaningless.
+ */
+public final class AllPairsShortestPath {
+
+    // distance of unreachable pairs, small enough that adding two distances cannot overflow
+    public static final long INF = Long.MAX_VALUE / 4;
+
+    private static final int BLOCK = 64; // 64 x 64 longs is 32KB per tile
+
+    private final int n;
+    private final long[] dist; // dist[i * n + j]
+    private final int[] next; // first vertex after i on the path to j, -1 if none, null if not computed
+    private final boolean negativeCycle;
+
+    private AllPairsShortestPath(int n, long[] dist, int[] next, boolean negativeCycle){
+        this.n = n;
+        this.dist = dist;
+        this.next = next;
+        this.negativeCycle = negativeCycle;
+    }
+
+    public static AllPairsShortestPath compute(CSRGraph graph){
+        return compute(graph, false, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param graph int weighted graph, parallel edges keep the lightest
+     * @param withPaths also compute the next hop matrix, needed for path
+     * @param pool runs the tiles of each phase in parallel
+     */
+    public static AllPairsShortestPath compute(CSRGraph graph, boolean withPaths, ForkJoinPool pool){
+        int n = graph.numVertices();
+        if((long) n * n > Integer.MAX_VALUE)
+            throw new IllegalArgumentException(n + " vertices do not fit in a distance matrix");
+
+        long[] dist = new long[n * n];
+        int[] next = withPaths ? new int[n * n] : null;
+
+        Arrays.fill(dist, INF);
+        if(next != null)
+            Arrays.fill(next, -1);
+        for(int i=0; i<n; ++i){
+            dist[i * n + i] = 0;
+            if(next != null)
+                next[i * n + i] = i;
+        }
+        for(int u=0; u<n; ++u){
+            for(int e = graph.edgeStart(u); e < graph.edgeEnd(u); ++e){
+                int v = graph.target(e);
+                if(graph.weight(e) < dist[u * n + v]){
+                    dist[u * n + v] = graph.weight(e);
+                    if(next != null)
+                        next[u * n + v] = v;
+                }
+            }
+        }
+
+        int blocks = (n + BLOCK - 1) / BLOCK;
+        boolean negativeCycle = false;
+        for(int kb=0; kb<blocks && !negativeCycle; ++kb){
+            final int k = kb;
+
+            // phase 1
+            updateTile(dist, next, n, k, k, k);
+
+            // phase 2
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(2 * blocks);
+            for(int b=0; b<blocks; ++b){
+                if(b == k)
+                    continue;
+                final int other = b;
+                tasks.add(pool.submit(() -> updateTile(dist, next, n, k, other, k)));
+                tasks.add(pool.submit(() -> updateTile(dist, next, n, other, k, k)));
+            }
+            for(ForkJoinTask<?> task : tasks)
+                task.join();
+
+            // phase 3, one task per row of tiles
+            tasks.clear();
+            for(int ib=0; ib<blocks; ++ib){
+                if(ib == k)
+                    continue;
+                final int row = ib;
+                tasks.add(pool.submit(() -> updateRow(dist, next, n, row, k)));
+            }
+            for(ForkJoinTask<?> task : tasks)
+                task.join();
+
+            // distances around a negative cycle shrink without bound and could overflow, stop at the first one
+            for(int i=0; i<n; ++i)
+                if(dist[i * n + i] < 0)
+                    negativeCycle = true;
+        }
+
+        // forget the almost INF sums of unreachable pairs and negative edges
+        for(int i=0; i<n * n; ++i){
+            if(dist[i] >= INF / 2){
+                dist[i] = INF;
+                if(next != null)
+                    next[i] = -1;
+            }
+        }
+
+        return new AllPairsShortestPath(n, dist, next, negativeCycle);
+    }
+
+    /**
+     * Relax tile (ib, jb) through the vertices of tile kb. k is the outer loop, so the update is also correct
+     * for the diagonal, row and column tiles, which read the tile they write.
+     */
+    private static void updateTile(long[] dist, int[] next, int n, int ib, int jb, int kb){
+        int iEnd = Math.min((ib + 1) * BLOCK, n);
+        int jStart = jb * BLOCK, jEnd = Math.min((jb + 1) * BLOCK, n);
+        int kEnd = Math.min((kb + 1) * BLOCK, n);
+
+        for(int k = kb * BLOCK; k < kEnd; ++k){
+            int kRow = k * n;
+            for(int i = ib * BLOCK; i < iEnd; ++i){
+                int iRow = i * n;
+                long dik = dist[iRow + k];
+                if(dik >= INF / 2) // no path from i to k
+                    continue;
+
+                if(next == null){
+                    for(int j = jStart; j < jEnd; ++j){
+                        long throughK = dik + dist[kRow + j];
+                        if(throughK < dist[iRow + j])
+                            dist[iRow + j] = throughK;
+                    }
+                }else{
+                    int hop = next[iRow + k];
+                    for(int j = jStart; j < jEnd; ++j){
+                        long throughK = dik + dist[kRow + j];
+                        if(throughK < dist[iRow + j]){
+                            dist[iRow + j] = throughK;
+                            next[iRow + j] = hop;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Relax rows ib * B .. (ib + 1) * B - 1 through the vertices of tile kb, i before k. The columns of tile kb
+     * are relaxed as well, which cannot change them since phase 2 already did.
+     */
+    private static void updateRow(long[] dist, int[] next, int n, int ib, int kb){
+        int iEnd = Math.min((ib + 1) * BLOCK, n);
+        int kEnd = Math.min((kb + 1) * BLOCK, n);
+
+        for(int i = ib * BLOCK; i < iEnd; ++i){
+            int iRow = i * n;
+            for(int k = kb * BLOCK; k < kEnd; ++k){
+                int kRow = k * n;
+                long dik = dist[iRow + k];
+                if(dik >= INF / 2) // no path from i to k
+                    continue;
+
+                if(next == null){
+                    for(int j = 0; j < n; ++j){
+                        long throughK = dik + dist[kRow + j];
+                        if(throughK < dist[iRow + j])
+                            dist[iRow + j] = throughK;
+                    }
+                }else{
+                    int hop = next[iRow + k];
+                    for(int j = 0; j < n; ++j){
+                        long throughK = dik + dist[kRow + j];
+                        if(throughK < dist[iRow + j]){
+                            dist[iRow + j] = throughK;
+                            next[iRow + j] = hop;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    public int numVertices(){
+        return n;
+    }
+
+    /**
+     * @return length of the shortest path from i to j, or INF
+     */
+    public long distance(int i, int j){
+        return dist[i * n + j];
+    }
+
+    public boolean hasPath(int i, int j){
+        return dist[i * n + j] != INF;
+    }
+
+    // some vertex can reach itself with a negative length, distances through such a cycle are not shortest
+    public boolean hasNegativeCycle(){
+        return negativeCycle;
+    }
+
+    /**
+     * @return vertices of the shortest path from i to j, or an empty array if there is none
+     */
+    public int[] path(int i, int j){
+        if(next == null)
+            throw new IllegalStateException("Next hops were not computed");
+        if(negativeCycle)
+            throw new IllegalStateException("The graph has a negative cycle");
+        if(next[i * n + j] == -1)
+            return new int[0];
+
+        int length = 1;
+        for(int u = i; u != j; u = next[u * n + j])
+            length++;
+
+        int[] path = new int[length];
+        int p = 0;
+        for(int u = i; u != j; u = next[u * n + j])
+            path[p++] = u;
+        path[p] = j;
+
+        return path;
+    }
+
+    /**
+     * Row major V x V distance matrix, shared with this result
+     */
+    public long[] getDistances(){
+        return dist;
+    }
+}
@@ -0,0 +1,424 @@
+package graphs.weightedGraphs;
+
+import graphs.CSRGraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Single source shortest paths with negative edge weights, where Dijkstra is wrong.
+ *
+ * Bellman-Ford relaxes every edge in rounds. After round i every shortest path of at most i edges is known,
+ * and a shortest path has at most V - 1 edges unless the graph has a negative cycle, in which case paths
+ * through the cycle get shorter forever. So if an edge can still be relaxed after V - 1 rounds, a negative
+ * cycle is reachable from the source. Most graphs converge in far fewer rounds, so the search stops at the
+ * first round that changes nothing.
+ *
+ * Three versions:
+ * - run: rounds over all edges, O(V E) worst case.
+ * - spfa: a FIFO queue of vertices whose distance changed, only their edges are relaxed again. Usually much
+ *   faster, still O(V E) in the worst case.
+ * - parallel: rounds over all edges split between threads, distances are lowered with compare-and-set.
+ *
+ * None of them loop on a negative cycle, the Result holds the cycle instead of distances.
+ */
+public class BellmanFord {
+
+    /**
+     * Distances from the source, or a negative cycle reachable from it
+     */
+    public static final class Result {
+        private final ShortestPathTree tree;
+        private final int[] negativeCycle;
+
+        private Result(ShortestPathTree tree, int[] negativeCycle){
+            this.tree = tree;
+            this.negativeCycle = negativeCycle;
+        }
+
+        public boolean hasNegativeCycle(){
+            return negativeCycle != null;
+        }
+
+        /**
+         * @return vertices of a negative cycle c0 -> c1 -> .. -> c0, or null
+         */
+        public int[] getNegativeCycle(){
+            return negativeCycle;
+        }
+
+        /**
+         * @return shortest path tree from the source, null if there is a negative cycle
+         */
+        public ShortestPathTree getTree(){
+            return tree;
+        }
+    }
+
+    private static final long UNREACHABLE = ShortestPathTree.UNREACHABLE;
+
+    /**
+     * Bellman-Ford with early exit.
+     *
+     * @param graph int weighted graph, weights may be negative
+     */
+    public static Result run(CSRGraph graph, int source){
+        int V = graph.numVertices();
+        long[] distance = new long[V];
+        int[] parent = new int[V];
+        Arrays.fill(distance, UNREACHABLE);
+        Arrays.fill(parent, -1);
+        distance[source] = 0;
+
+        for(int round=1; round<=V; ++round){
+            int changed = -1;
+            for(int u=0; u<V; ++u){
+                if(distance[u] == UNREACHABLE)
+                    continue;
+
+                for(int e = graph.edgeStart(u); e < graph.edgeEnd(u); ++e){
+                    int v = graph.target(e);
+                    long d = distance[u] + graph.weight(e);
+                    if(d < distance[v]){
+                        distance[v] = d;
+                        parent[v] = u;
+                        changed = v;
+                    }
+                }
+            }
+
+            if(changed == -1)
+                return new Result(new ShortestPathTree(source, distance, parent), null);
+            if(round == V) // still relaxing after V - 1 rounds
+                return new Result(null, negativeCycle(parent, changed));
+        }
+
+        // V == 0 cannot get here, the source would be out of range
+        throw new IllegalStateException();
+    }
+
+    /**
+     * Shortest Path Faster Algorithm: only vertices whose distance dropped are queued to relax their edges
+     * again. A vertex whose path has V edges lies on or behind a negative cycle.
+     */
+    public static Result spfa(CSRGraph graph, int source){
+        int V = graph.numVertices();
+        long[] distance = new long[V];
+        int[] parent = new int[V];
+        int[] edges = new int[V]; // number of edges on the current path to each vertex
+        boolean[] inQueue = new boolean[V];
+        Arrays.fill(distance, UNREACHABLE);
+        Arrays.fill(parent, -1);
+
+        // ring buffer, each vertex is in it at most once
+        int[] queue = new int[V];
+        int head = 0, size = 0;
+
+        distance[source] = 0;
+        queue[0] = source;
+        size = 1;
+        inQueue[source] = true;
+
+        while(size > 0){
+            int u = queue[head];
+            head = head + 1 == V ? 0 : head + 1;
+            size--;
+            inQueue[u] = false;
+
+            for(int e = graph.edgeStart(u); e < graph.edgeEnd(u); ++e){
+                int v = graph.target(e);
+                long d = distance[u] + graph.weight(e);
+                if(d < distance[v]){
+                    distance[v] = d;
+                    parent[v] = u;
+                    edges[v] = edges[u] + 1;
+                    if(edges[v] >= V){
+                        int[] cycle = negativeCycle(parent, v);
+                        // the parents of a queue based search may not have closed the cycle yet
+                        return cycle != null ? new Result(null, cycle) : run(graph, source);
+                    }
+
+                    if(!inQueue[v]){
+                        int tail = head + size < V ? head + size : head + size - V;
+                        queue[tail] = v;
+                        size++;
+                        inQueue[v] = true;
+                    }
+                }
+            }
+        }
+
+        return new Result(new ShortestPathTree(source, distance, parent), null);
+    }
+
+    /**
+     * Distances from a virtual source with a zero weight edge to every vertex, the vertex potentials of
+     * Johnson's reweighting. SPFA with every vertex queued at distance 0, which is where the virtual source
+     * would put them after its first step.
+     *
+     * @return potential of each vertex, at most zero, or null if the graph has a negative cycle
+     */
+    static long[] potentials(CSRGraph graph){
+        int V = graph.numVertices();
+        long[] distance = new long[V];
+        int[] edges = new int[V]; // edges after the virtual one
+        boolean[] inQueue = new boolean[V];
+
+        int[] queue = new int[V];
+        int head = 0, size = V;
+        for(int v=0; v<V; ++v){
+            queue[v] = v;
+            inQueue[v] = true;
+        }
+
+        while(size > 0){
+            int u = queue[head];
+            head = head + 1 == V ? 0 : head + 1;
+            size--;
+            inQueue[u] = false;
+
+            for(int e = graph.edgeStart(u); e < graph.edgeEnd(u); ++e){
+                int v = graph.target(e);
+                long d = distance[u] + graph.weight(e);
+                if(d < distance[v]){
+                    distance[v] = d;
+                    edges[v] = edges[u] + 1;
+                    if(edges[v] >= V) // with the virtual edge the path has V + 1 edges on V + 1 vertices
+                        return null;
+
+                    if(!inQueue[v]){
+                        int tail = head + size < V ? head + size : head + size - V;
+                        queue[tail] = v;
+                        size++;
+                        inQueue[v] = true;
+                    }
+                }
+            }
+        }
+
+        return distance;
+    }
+
+    /**
+     * Bellman-Ford rounds with the edges split between the threads of the pool. Threads lower distances with a
+     * compare-and-set loop, so an update is never lost, and a thread already sees the updates other threads
+     * made earlier in the same round, which only makes rounds more effective.
+     *
+     * Parents are not tracked during the rounds, a CAS can only cover the distance. They are rebuilt at the end
+     * by a BFS from the source over tight edges, edges with distance[u] + weight == distance[v], which form the
+     * shortest paths. If a negative cycle is found, it is extracted by the sequential run.
+     */
+    public static Result parallel(CSRGraph graph, int source, ForkJoinPool pool){
+        int V = graph.numVertices();
+        AtomicLongArray distance = new AtomicLongArray(V);
+        for(int v=0; v<V; ++v)
+            distance.set(v, UNREACHABLE);
+        distance.set(source, 0);
+
+        // chunks of vertices with about the same number of edges, a few per thread for load balancing
+        int chunks = Math.max(1, Math.min(V, pool.getParallelism() * 4));
+        int[] bounds = new int[chunks + 1];
+        long edgesPerChunk = Math.max(1, ((long) graph.numEdges() + chunks - 1) / chunks);
+        int c = 1;
+        for(int u=0; u<V && c < chunks; ++u)
+            if(graph.edgeEnd(u) >= edgesPerChunk * c)
+                bounds[c++] = u + 1;
+        while(c <= chunks)
+            bounds[c++] = V;
+
+        boolean converged = false;
+        List<ForkJoinTask<Boolean>> tasks = new ArrayList<>(chunks);
+        for(int round=1; round<V && !converged; ++round){
+            tasks.clear();
+            for(int i=0; i<chunks; ++i){
+                final int from = bounds[i], to = bounds[i + 1];
+                tasks.add(pool.submit(() -> relaxRange(graph, distance, from, to)));
+            }
+
+            converged = true;
+            for(ForkJoinTask<Boolean> task : tasks)
+                if(task.join())
+                    converged = false;
+        }
+
+        // after V - 1 rounds any further improvement means a negative cycle
+        if(!converged && relaxRange(graph, distance, 0, V))
+            return run(graph, source);
+
+        long[] dist = new long[V];
+        for(int v=0; v<V; ++v)
+            dist[v] = distance.get(v);
+
+        return new Result(new ShortestPathTree(source, dist, tightParents(graph, source, dist)), null);
+    }
+
+    // relax the edges of vertices [from, to), true if a distance dropped
+    private static boolean relaxRange(CSRGraph graph, AtomicLongArray distance, int from, int to){
+        boolean changed = false;
+        for(int u=from; u<to; ++u){
+            long du = distance.get(u);
+            if(du == UNREACHABLE)
+                continue;
+
+            for(int e = graph.edgeStart(u); e < graph.edgeEnd(u); ++e){
+                int v = graph.target(e);
+                long d = du + graph.weight(e);
+                long current = distance.get(v);
+                while(d < current){
+                    if(distance.compareAndSet(v, current, d)){
+                        changed = true;
+                        break;
+                    }
+                    current = distance.get(v);
+                }
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * Parent of every reachable vertex from a BFS over the tight edges. Any tight edge into v would give the right
+     * distance, but zero weight cycles of tight edges could make parents point around in a circle; the BFS only
+     * uses edges from vertices already connected to the source.
+     */
+    private static int[] tightParents(CSRGraph graph, int source, long[] distance){
+        int V = graph.numVertices();
+        int[] parent = new int[V];
+        boolean[] visited = new boolean[V];
+        Arrays.fill(parent, -1);
+
+        int[] queue = new int[V];
+        int head = 0, tail = 0;
+        queue[tail++] = source;
+        visited[source] = true;
+        while(head < tail){
+            int u = queue[head++];
+            for(int e = graph.edgeStart(u); e < graph.edgeEnd(u); ++e){
+                int v = graph.target(e);
+                if(!visited[v] && distance[u] + graph.weight(e) == distance[v]){
+                    visited[v] = true;
+                    parent[v] = u;
+                    queue[tail++] = v;
+                }
+            }
+        }
+
+        return parent;
+    }
+
+    /**
+     * v was relaxed by a path of V or more edges, so its parents should lead into a cycle, and every cycle of
+     * parent pointers is negative. Walks V parents back from v to land on the cycle, or looks for a cycle among
+     * all parents if the walk reaches the source.
+     *
+     * @return vertices of the cycle in edge order, or null if the parents have no cycle
+     */
+    private static int[] negativeCycle(int[] parent, int v){
+        int V = parent.length;
+        for(int i=0; i<V && v != -1; ++i)
+            v = parent[v];
+
+        if(v == -1)
+            v = anyParentCycle(parent);
+        if(v == -1)
+            return null;
+
+        int length = 1;
+        for(int u = parent[v]; u != v; u = parent[u])
+            length++;
+
+        // parents point backwards, fill the cycle from its end
+        int[] cycle = new int[length];
+        int u = v;
+        for(int i = length - 1; i >= 0; --i){
+            cycle[i] = u;
+            u = parent[u];
+        }
+
+        return cycle;
+    }
+
+    // a vertex on a cycle of parent pointers, or -1. Every vertex is walked over at most once.
+    private static int anyParentCycle(int[] parent){
+        int V = parent.length;
+        int[] walk = new int[V]; // number of the walk that first reached a vertex, 0 if none
+        for(int start=0; start<V; ++start){
+            int u = start;
+            while(u != -1 && walk[u] == 0){
+                walk[u] = start + 1;
+                u = parent[u];
+            }
+            if(u != -1 && walk[u] == start + 1)
+                return u;
+        }
+
+        return -1;
+    }
+
+    public static void main(String[] args){
+        /* Rebates make some costs negative
+                 6        -3
+            0 ------> 1 ------> 2
+            |         ^         |
+           7|       -2|         |9
+            v         |         v
+            3 ------> 4 <------ 5
+                 5        -4           */
+        CSRGraph graph = new CSRGraph.Builder(6)
+                .addEdge(0, 1, 6)
+                .addEdge(0, 3, 7)
+                .addEdge(1, 2, -3)
+                .addEdge(2, 5, 9)
+                .addEdge(3, 4, 5)
+                .addEdge(4, 1, -2)
+                .addEdge(5, 4, -4)
+                .build();
+
+        ShortestPathTree tree = run(graph, 0).getTree();
+        for(int v=0; v<graph.numVertices(); ++v)
+            System.out.println("0 -> " + v + " distance " + tree.distance(v) + " path " + Arrays.toString(tree.path(v)));
+
+        // 1 -> 2 -> 5 -> 4 -> 1 costs -3 + 9 - 4 - 2 = 0, one more rebate makes it negative
+        CSRGraph cyclic = new CSRGraph.Builder(6)
+                .addEdge(0, 1, 6)
+                .addEdge(0, 3, 7)
+                .addEdge(1, 2, -3)
+                .addEdge(2, 5, 9)
+                .addEdge(3, 4, 5)
+                .addEdge(4, 1, -2)
+                .addEdge(5, 4, -5)
+                .build();
+        System.out.println("negative cycle " + Arrays.toString(spfa(cyclic, 0).getNegativeCycle()));
+
+        // the three versions agree on a large random graph
+        int V = 200_000;
+        Random random = new Random(9);
+        CSRGraph.Builder builder = new CSRGraph.Builder(V);
+        for(int u=0; u<V; ++u)
+            for(int i=0; i<5; ++i)
+                builder.addEdge(u, random.nextInt(V), random.nextInt(1000) - 100 + (u % 100 == 0 ? 0 : 200));
+        CSRGraph large = builder.build();
+
+        long t0 = System.nanoTime();
+        Result sequential = run(large, 0);
+        long t1 = System.nanoTime();
+        Result queued = spfa(large, 0);
+        long t2 = System.nanoTime();
+        Result concurrent = parallel(large, 0, ForkJoinPool.commonPool());
+        long t3 = System.nanoTime();
+
+        for(int v=0; v<V; ++v)
+            if(sequential.getTree().distance(v) != queued.getTree().distance(v)
+                    || sequential.getTree().distance(v) != concurrent.getTree().distance(v))
+                throw new AssertionError("Distance of " + v + " differs");
+        System.out.printf("%d vertices, %d edges: rounds %.0f ms, SPFA %.0f ms, parallel %.0f ms on %d threads%n",
+                V, large.numEdges(), (t1 - t0) / 1e6, (t2 - t1) / 1e6, (t3 - t2) / 1e6,
+                ForkJoinPool.commonPool().getParallelism());
+    }
+}
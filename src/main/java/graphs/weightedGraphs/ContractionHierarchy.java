@@ -0,0 +1,722 @@
+package graphs.weightedGraphs;
+
+import dataStructures.IndexedDaryHeap;
+import graphs.CSRGraph;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Contraction hierarchies answer shortest path queries on a static graph far faster than Dijkstra, after a
+ * one-off preprocessing step whose result can be saved to disk.
+ *
+ * Preprocessing contracts the vertices one at a time, least important first. Contracting v removes it from
+ * the graph; for every pair of neighbours u -> v -> x whose shortest path runs through v, a shortcut edge
+ * u -> x with the weight of both edges is added, so distances between the remaining vertices do not change.
+ * Whether a pair needs a shortcut is decided by a witness search, a small Dijkstra from u that avoids v. The
+ * order in which a vertex is contracted is its rank.
+ *
+ * Every shortest path then has an equivalent path that first goes only up in rank and then only down. A
+ * query runs a forward Dijkstra from s over upward edges and a backward Dijkstra from t over edges that come
+ * down into t, both searches only visit vertices ranked above their start, a few hundred on a road network.
+ * Shortcuts remember the vertex they bypass, so the path in the original graph can be unpacked.
+ *
+ * The vertex order is the lazy edge difference heuristic: the priority of v is the number of shortcuts its
+ * contraction adds minus the edges it removes, plus the number of neighbours already contracted, which
+ * spreads the contractions evenly over the graph. Priorities are only recomputed when a vertex comes to the
+ * top of the queue; if it is no longer the smallest it goes back into the queue.
+ */
+public final class ContractionHierarchy {
+
+    private static final int MAGIC = 0x43483032; // "CH02", "CH01" had int weights
+
+    // vertices settled by one witness search, a lower limit only costs extra shortcuts
+    private static final int WITNESS_SETTLE_LIMIT = 500;
+    private static final int SIMULATION_SETTLE_LIMIT = 50;
+
+    private final int[] rank;
+    // up: edges u -> v with rank[v] > rank[u]. down: stored at v, edges v -> u for original edges u -> v with
+    // rank[u] > rank[v]. Both graphs are unweighted, weight and middle are indexed by their edge ids: weight is
+    // long because a shortcut can outweigh any int edge, middle is the bypassed vertex of a shortcut, -1 for an
+    // edge of the original graph.
+    private final CSRGraph up, down;
+    private final long[] upWeight, downWeight;
+    private final int[] upMiddle, downMiddle;
+
+    private ContractionHierarchy(int[] rank, CSRGraph up, long[] upWeight, int[] upMiddle, CSRGraph down,
+                                 long[] downWeight, int[] downMiddle){
+        this.rank = rank;
+        this.up = up;
+        this.upWeight = upWeight;
+        this.upMiddle = upMiddle;
+        this.down = down;
+        this.downWeight = downWeight;
+        this.downMiddle = downMiddle;
+    }
+
+    public int numVertices(){
+        return rank.length;
+    }
+
+    public int rank(int v){
+        return rank[v];
+    }
+
+    // upward plus downward edges, original edges and shortcuts
+    public int numEdges(){
+        return up.numEdges() + down.numEdges();
+    }
+
+    /**
+     * Contract every vertex of the graph.
+     *
+     * @param graph int weighted graph without negative weights
+     */
+    public static ContractionHierarchy build(CSRGraph graph){
+        return new Contractor(graph).contractAll();
+    }
+
+    /**
+     * Graph that changes while it is being contracted. Out and in edges of every vertex are parallel arrays
+     * (neighbour, weight, middle, twin); there is at most one edge per ordered pair, the lightest. The twin of an
+     * out edge u -> x is its slot in the in edges of x and the other way round, so an edge is updated or removed
+     * on both sides without searching either list. The edges of a vertex are dropped from its neighbours when it
+     * is contracted.
+     *
+     * Weights are long: a shortcut stands for a path and may outweigh every single edge of the input.
+     */
+    private static final class Contractor {
+        final int V;
+        final int[][] outTo, outMiddle, outTwin, inFrom, inMiddle, inTwin;
+        final long[][] outWeight, inWeight;
+        final int[] outSize, inSize;
+        final int[] contractedNeighbors;
+        final int[] rank;
+
+        // edges of the hierarchy, collected per vertex as it is contracted
+        final int[][] upTo, upMid, downTo, downMid;
+        final long[][] upWeight, downWeight;
+
+        // witness search
+        final IndexedDaryHeap heap;
+        final long[] distance;
+        final int[] stamp;
+        int currentStamp = 0;
+
+        // slot[x] is the out edge u -> x of the vertex u marked last, valid if slotStamp[x] == currentSlotStamp
+        final int[] slot, slotStamp;
+        int currentSlotStamp = 0;
+
+        Contractor(CSRGraph graph){
+            V = graph.numVertices();
+            outTo = new int[V][]; outWeight = new long[V][]; outMiddle = new int[V][]; outTwin = new int[V][];
+            inFrom = new int[V][]; inWeight = new long[V][]; inMiddle = new int[V][]; inTwin = new int[V][];
+            outSize = new int[V];
+            inSize = new int[V];
+            for(int v=0; v<V; ++v){
+                outTo[v] = new int[2]; outWeight[v] = new long[2]; outMiddle[v] = new int[2]; outTwin[v] = new int[2];
+                inFrom[v] = new int[2]; inWeight[v] = new long[2]; inMiddle[v] = new int[2]; inTwin[v] = new int[2];
+            }
+            slot = new int[V];
+            slotStamp = new int[V];
+
+            for(int u=0; u<V; ++u){
+                markOut(u);
+                for(int e = graph.edgeStart(u); e < graph.edgeEnd(u); ++e){
+                    int w = graph.weight(e);
+                    if(w < 0)
+                        throw new IllegalArgumentException("Negative weight " + w + " on an edge of " + u);
+                    if(graph.target(e) != u) // a loop is never on a shortest path
+                        addOrImprove(u, graph.target(e), w, -1);
+                }
+            }
+
+            contractedNeighbors = new int[V];
+            rank = new int[V];
+            upTo = new int[V][]; upWeight = new long[V][]; upMid = new int[V][];
+            downTo = new int[V][]; downWeight = new long[V][]; downMid = new int[V][];
+
+            heap = new IndexedDaryHeap(V);
+            distance = new long[V];
+            stamp = new int[V];
+        }
+
+        // make u the vertex whose out edges addOrImprove finds through slot
+        void markOut(int u){
+            if(++currentSlotStamp == 0){
+                Arrays.fill(slotStamp, 0);
+                currentSlotStamp = 1;
+            }
+            for(int i=0; i<outSize[u]; ++i){
+                slot[outTo[u][i]] = i;
+                slotStamp[outTo[u][i]] = currentSlotStamp;
+            }
+        }
+
+        // add the edge u -> x, or lower the weight of the existing one. u must be the vertex marked last.
+        void addOrImprove(int u, int x, long weight, int middle){
+            if(slotStamp[x] == currentSlotStamp){
+                int i = slot[x];
+                if(outWeight[u][i] <= weight)
+                    return;
+
+                int j = outTwin[u][i];
+                outWeight[u][i] = weight;
+                outMiddle[u][i] = middle;
+                inWeight[x][j] = weight;
+                inMiddle[x][j] = middle;
+                return;
+            }
+
+            if(outSize[u] == outTo[u].length){
+                int capacity = outSize[u] * 2;
+                outTo[u] = Arrays.copyOf(outTo[u], capacity);
+                outWeight[u] = Arrays.copyOf(outWeight[u], capacity);
+                outMiddle[u] = Arrays.copyOf(outMiddle[u], capacity);
+                outTwin[u] = Arrays.copyOf(outTwin[u], capacity);
+            }
+            if(inSize[x] == inFrom[x].length){
+                int capacity = inSize[x] * 2;
+                inFrom[x] = Arrays.copyOf(inFrom[x], capacity);
+                inWeight[x] = Arrays.copyOf(inWeight[x], capacity);
+                inMiddle[x] = Arrays.copyOf(inMiddle[x], capacity);
+                inTwin[x] = Arrays.copyOf(inTwin[x], capacity);
+            }
+
+            int i = outSize[u]++, j = inSize[x]++;
+            outTo[u][i] = x;
+            outWeight[u][i] = weight;
+            outMiddle[u][i] = middle;
+            outTwin[u][i] = j;
+            inFrom[x][j] = u;
+            inWeight[x][j] = weight;
+            inMiddle[x][j] = middle;
+            inTwin[x][j] = i;
+
+            slot[x] = i;
+            slotStamp[x] = currentSlotStamp;
+        }
+
+        // swap-remove the in edge in slot j of x, the out edge of the moved one learns its new twin
+        void removeIn(int x, int j){
+            int last = --inSize[x];
+            inFrom[x][j] = inFrom[x][last];
+            inWeight[x][j] = inWeight[x][last];
+            inMiddle[x][j] = inMiddle[x][last];
+            inTwin[x][j] = inTwin[x][last];
+            outTwin[inFrom[x][j]][inTwin[x][j]] = j;
+        }
+
+        // swap-remove the out edge in slot i of u, the in edge of the moved one learns its new twin
+        void removeOut(int u, int i){
+            int last = --outSize[u];
+            outTo[u][i] = outTo[u][last];
+            outWeight[u][i] = outWeight[u][last];
+            outMiddle[u][i] = outMiddle[u][last];
+            outTwin[u][i] = outTwin[u][last];
+            inTwin[outTo[u][i]][outTwin[u][i]] = i;
+        }
+
+        /**
+         * Dijkstra from u over uncontracted vertices other than v, up to distance maxDistance or settleLimit
+         * settled vertices. Afterwards witnessDistance(x) is an upper bound of the distance from u to x avoiding v.
+         */
+        void witnessSearch(int u, int v, long maxDistance, int settleLimit){
+            if(++currentStamp == 0){
+                Arrays.fill(stamp, 0);
+                currentStamp = 1;
+            }
+            heap.clear();
+
+            distance[u] = 0;
+            stamp[u] = currentStamp;
+            heap.insert(u, 0);
+
+            int settled = 0;
+            while(!heap.isEmpty() && settled < settleLimit){
+                if(heap.peekMinKey() > maxDistance)
+                    break;
+
+                int a = heap.pollMin();
+                settled++;
+                for(int i=0; i<outSize[a]; ++i){
+                    int b = outTo[a][i];
+                    if(b == v)
+                        continue;
+
+                    long d = distance[a] + outWeight[a][i];
+                    if(stamp[b] != currentStamp || d < distance[b]){
+                        if(stamp[b] == currentStamp && !heap.contains(b))
+                            continue; // settled
+
+                        stamp[b] = currentStamp;
+                        distance[b] = d;
+                        heap.insertOrDecrease(b, d);
+                    }
+                }
+            }
+        }
+
+        long witnessDistance(int x){
+            return stamp[x] == currentStamp ? distance[x] : Long.MAX_VALUE;
+        }
+
+        /**
+         * Find the shortcuts the contraction of v needs, and add them if add is set.
+         *
+         * @return number of shortcuts
+         */
+        int contract(int v, boolean add, int settleLimit){
+            int shortcuts = 0;
+            if(outSize[v] == 0)
+                return 0;
+
+            for(int i=0; i<inSize[v]; ++i){
+                int u = inFrom[v][i];
+                long wuv = inWeight[v][i];
+
+                long maxDistance = 0;
+                for(int j=0; j<outSize[v]; ++j)
+                    if(outTo[v][j] != u)
+                        maxDistance = Math.max(maxDistance, wuv + outWeight[v][j]);
+                witnessSearch(u, v, maxDistance, settleLimit);
+                if(add)
+                    markOut(u);
+
+                for(int j=0; j<outSize[v]; ++j){
+                    int x = outTo[v][j];
+                    if(x == u)
+                        continue;
+
+                    long viaV = wuv + outWeight[v][j];
+                    if(witnessDistance(x) <= viaV)
+                        continue;
+
+                    shortcuts++;
+                    if(add)
+                        addOrImprove(u, x, viaV, v);
+                }
+            }
+
+            return shortcuts;
+        }
+
+        long priority(int v){
+            int shortcuts = contract(v, false, SIMULATION_SETTLE_LIMIT);
+            return (long) shortcuts - inSize[v] - outSize[v] + contractedNeighbors[v];
+        }
+
+        ContractionHierarchy contractAll(){
+            IndexedDaryHeap order = new IndexedDaryHeap(V);
+            for(int v=0; v<V; ++v)
+                order.insert(v, priority(v));
+
+            int nextRank = 0;
+            while(!order.isEmpty()){
+                int v = order.pollMin();
+
+                // lazy update: the priority may have grown since it was queued
+                long p = priority(v);
+                if(!order.isEmpty() && p > order.peekMinKey()){
+                    order.insert(v, p);
+                    continue;
+                }
+
+                contract(v, true, WITNESS_SETTLE_LIMIT);
+                rank[v] = nextRank++;
+
+                // all remaining neighbours are ranked above v, so the edges of v are its hierarchy edges
+                upTo[v] = Arrays.copyOf(outTo[v], outSize[v]);
+                upWeight[v] = Arrays.copyOf(outWeight[v], outSize[v]);
+                upMid[v] = Arrays.copyOf(outMiddle[v], outSize[v]);
+                downTo[v] = Arrays.copyOf(inFrom[v], inSize[v]);
+                downWeight[v] = Arrays.copyOf(inWeight[v], inSize[v]);
+                downMid[v] = Arrays.copyOf(inMiddle[v], inSize[v]);
+
+                for(int i=0; i<outSize[v]; ++i){
+                    removeIn(outTo[v][i], outTwin[v][i]);
+                    contractedNeighbors[outTo[v][i]]++;
+                }
+                for(int i=0; i<inSize[v]; ++i){
+                    removeOut(inFrom[v][i], inTwin[v][i]);
+                    contractedNeighbors[inFrom[v][i]]++;
+                }
+                outTo[v] = outMiddle[v] = outTwin[v] = null;
+                inFrom[v] = inMiddle[v] = inTwin[v] = null;
+                outWeight[v] = inWeight[v] = null;
+                outSize[v] = inSize[v] = 0;
+            }
+
+            return new ContractionHierarchy(rank, pack(upTo), flatten(upWeight), flatten(upMid),
+                    pack(downTo), flatten(downWeight), flatten(downMid));
+        }
+
+        // edges are added vertex by vertex, so edge ids of the packed graph follow the order of the lists
+        private CSRGraph pack(int[][] to){
+            CSRGraph.Builder builder = new CSRGraph.Builder(V);
+            for(int v=0; v<V; ++v)
+                for(int i=0; i<to[v].length; ++i)
+                    builder.addEdge(v, to[v][i]);
+
+            return builder.build();
+        }
+
+        private int[] flatten(int[][] lists){
+            int m = 0;
+            for(int v=0; v<V; ++v)
+                m += lists[v].length;
+
+            int[] flat = new int[m];
+            int e = 0;
+            for(int v=0; v<V; ++v)
+                for(int i=0; i<lists[v].length; ++i)
+                    flat[e++] = lists[v][i];
+
+            return flat;
+        }
+
+        private long[] flatten(long[][] lists){
+            int m = 0;
+            for(int v=0; v<V; ++v)
+                m += lists[v].length;
+
+            long[] flat = new long[m];
+            int e = 0;
+            for(int v=0; v<V; ++v)
+                for(int i=0; i<lists[v].length; ++i)
+                    flat[e++] = lists[v][i];
+
+            return flat;
+        }
+    }
+
+    /**
+     * Middle vertex of the hierarchy edge a -> b, -1 if it is an edge of the original graph
+     */
+    private int middle(int a, int b){
+        if(rank[a] < rank[b]){
+            for(int e = up.edgeStart(a); e < up.edgeEnd(a); ++e)
+                if(up.target(e) == b)
+                    return upMiddle[e];
+        }else{
+            for(int e = down.edgeStart(b); e < down.edgeEnd(b); ++e)
+                if(down.target(e) == a)
+                    return downMiddle[e];
+        }
+
+        throw new IllegalStateException("No hierarchy edge " + a + " -> " + b);
+    }
+
+    /**
+     * Query state over this hierarchy. Per vertex arrays are reused between queries through a stamp, so a query
+     * only touches the vertices it visits. A Query is not thread safe, create one per thread.
+     */
+    public Query newQuery(){
+        return new Query();
+    }
+
+    public final class Query {
+        private final IndexedDaryHeap forwardHeap, backwardHeap;
+        private final long[] forwardDistance, backwardDistance;
+        private final int[] forwardParent, backwardParent;
+        private final int[] forwardStamp, backwardStamp;
+        private int stamp = 0;
+
+        private int source = -1, meet = -1;
+        private long distance = ShortestPathTree.UNREACHABLE;
+        private int settled = 0;
+
+        private Query(){
+            int V = rank.length;
+            forwardHeap = new IndexedDaryHeap(V);
+            backwardHeap = new IndexedDaryHeap(V);
+            forwardDistance = new long[V];
+            backwardDistance = new long[V];
+            forwardParent = new int[V];
+            backwardParent = new int[V];
+            forwardStamp = new int[V];
+            backwardStamp = new int[V];
+        }
+
+        /**
+         * Both searches run until their smallest queued distance reaches the best s-t distance found through a
+         * vertex settled by either search. Unlike bidirectional Dijkstra, a search cannot stop when the two
+         * minima add up to it, because the upward searches do not settle vertices in order of s-t distance.
+         *
+         * @return distance from s to t, or UNREACHABLE
+         */
+        public long distance(int s, int t){
+            if(s < 0 || s >= rank.length || t < 0 || t >= rank.length)
+                throw new IllegalArgumentException("Query (" + s + ", " + t + ") is out of range for "
+                        + rank.length + " vertices");
+
+            if(++stamp == 0){
+                Arrays.fill(forwardStamp, 0);
+                Arrays.fill(backwardStamp, 0);
+                stamp = 1;
+            }
+            forwardHeap.clear();
+            backwardHeap.clear();
+            source = s;
+            settled = 0;
+
+            forwardDistance[s] = 0;
+            forwardParent[s] = -1;
+            forwardStamp[s] = stamp;
+            forwardHeap.insert(s, 0);
+
+            backwardDistance[t] = 0;
+            backwardParent[t] = -1;
+            backwardStamp[t] = stamp;
+            backwardHeap.insert(t, 0);
+
+            long mu = ShortestPathTree.UNREACHABLE;
+            meet = -1;
+
+            while(true){
+                boolean forwardDone = forwardHeap.isEmpty() || forwardHeap.peekMinKey() >= mu;
+                boolean backwardDone = backwardHeap.isEmpty() || backwardHeap.peekMinKey() >= mu;
+                if(forwardDone && backwardDone)
+                    break;
+
+                boolean forward = backwardDone
+                        || (!forwardDone && forwardHeap.peekMinKey() <= backwardHeap.peekMinKey());
+                CSRGraph g = forward ? up : down;
+                long[] weight = forward ? upWeight : downWeight;
+                IndexedDaryHeap heap = forward ? forwardHeap : backwardHeap;
+                long[] dist = forward ? forwardDistance : backwardDistance;
+                int[] parent = forward ? forwardParent : backwardParent;
+                int[] seen = forward ? forwardStamp : backwardStamp;
+                long[] otherDist = forward ? backwardDistance : forwardDistance;
+                int[] otherSeen = forward ? backwardStamp : forwardStamp;
+
+                int u = heap.pollMin();
+                settled++;
+                if(otherSeen[u] == stamp && dist[u] + otherDist[u] < mu){
+                    mu = dist[u] + otherDist[u];
+                    meet = u;
+                }
+
+                for(int e = g.edgeStart(u); e < g.edgeEnd(u); ++e){
+                    int v = g.target(e);
+                    long d = dist[u] + weight[e];
+                    if(seen[v] != stamp || d < dist[v]){
+                        if(seen[v] == stamp && !heap.contains(v))
+                            continue; // settled
+
+                        seen[v] = stamp;
+                        dist[v] = d;
+                        parent[v] = u;
+                        heap.insertOrDecrease(v, d);
+                    }
+                }
+            }
+
+            distance = mu;
+            return mu;
+        }
+
+        public long getDistance(){
+            return distance;
+        }
+
+        /**
+         * @return vertices settled by the last query in both directions
+         */
+        public int getSettledCount(){
+            return settled;
+        }
+
+        /**
+         * Path of the last query in the original graph, shortcuts are unpacked with an explicit stack.
+         *
+         * @return the path from s to t, or an empty array if t is not reachable from s
+         */
+        public int[] getPath(){
+            if(meet < 0)
+                return new int[0];
+
+            // hierarchy path s .. meet .. t
+            int upLength = 0;
+            for(int u = meet; u != -1; u = forwardParent[u])
+                upLength++;
+            int downLength = 0;
+            for(int u = backwardParent[meet]; u != -1; u = backwardParent[u])
+                downLength++;
+
+            int[] hierarchyPath = new int[upLength + downLength];
+            int i = upLength - 1;
+            for(int u = meet; u != -1; u = forwardParent[u])
+                hierarchyPath[i--] = u;
+            i = upLength;
+            for(int u = backwardParent[meet]; u != -1; u = backwardParent[u])
+                hierarchyPath[i++] = u;
+
+            // replace every shortcut a -> b by a -> middle -> b until only original edges are left
+            int[] path = new int[hierarchyPath.length];
+            int size = 0;
+            path[size++] = source;
+            int[] stack = new int[16];
+            int top = 0;
+            for(int k = hierarchyPath.length - 1; k > 0; --k){
+                if(top + 2 > stack.length)
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                stack[top++] = hierarchyPath[k - 1];
+                stack[top++] = hierarchyPath[k];
+            }
+            while(top > 0){
+                int b = stack[--top];
+                int a = stack[--top];
+                int m = middle(a, b);
+                if(m == -1){
+                    if(size == path.length)
+                        path = Arrays.copyOf(path, path.length * 2);
+                    path[size++] = b;
+                    continue;
+                }
+
+                if(top + 4 > stack.length)
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                stack[top++] = m;
+                stack[top++] = b;
+                stack[top++] = a;
+                stack[top++] = m;
+            }
+
+            return Arrays.copyOf(path, size);
+        }
+    }
+
+    /**
+     * Write the hierarchy in a binary format read by load
+     */
+    public void save(Path file) throws IOException {
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))){
+            out.writeInt(MAGIC);
+            out.writeInt(rank.length);
+            for(int r : rank)
+                out.writeInt(r);
+            writeEdges(out, up, upWeight, upMiddle);
+            writeEdges(out, down, downWeight, downMiddle);
+        }
+    }
+
+    private static void writeEdges(DataOutput out, CSRGraph g, long[] weight, int[] middle) throws IOException {
+        for(int v=0; v<g.numVertices(); ++v){
+            out.writeInt(g.outDegree(v));
+            for(int e = g.edgeStart(v); e < g.edgeEnd(v); ++e){
+                out.writeInt(g.target(e));
+                out.writeLong(weight[e]);
+                out.writeInt(middle[e]);
+            }
+        }
+    }
+
+    public static ContractionHierarchy load(Path file) throws IOException {
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))){
+            if(in.readInt() != MAGIC)
+                throw new IOException(file + " is not a contraction hierarchy");
+
+            int V = in.readInt();
+            int[] rank = new int[V];
+            for(int v=0; v<V; ++v)
+                rank[v] = in.readInt();
+
+            EdgeReader up = new EdgeReader(in, V);
+            EdgeReader down = new EdgeReader(in, V);
+
+            return new ContractionHierarchy(rank, up.graph, up.weight, up.middle, down.graph, down.weight,
+                    down.middle);
+        }
+    }
+
+    // edges come vertex by vertex, so the i-th edge read is edge i of the built graph
+    private static final class EdgeReader {
+        final CSRGraph graph;
+        final long[] weight;
+        final int[] middle;
+
+        EdgeReader(DataInput in, int V) throws IOException {
+            CSRGraph.Builder builder = new CSRGraph.Builder(V);
+            long[] weight = new long[16];
+            int[] middle = new int[16];
+            int m = 0;
+            for(int v=0; v<V; ++v){
+                int degree = in.readInt();
+                for(int i=0; i<degree; ++i){
+                    builder.addEdge(v, in.readInt());
+                    if(m == middle.length){
+                        weight = Arrays.copyOf(weight, m * 2);
+                        middle = Arrays.copyOf(middle, m * 2);
+                    }
+                    weight[m] = in.readLong();
+                    middle[m++] = in.readInt();
+                }
+            }
+
+            this.graph = builder.build();
+            this.weight = Arrays.copyOf(weight, m);
+            this.middle = Arrays.copyOf(middle, m);
+        }
+    }
+
+    /**
+     * Build a hierarchy of a grid road network, save and reload it, and check random queries against Dijkstra
+     */
+    public static void main(String[] args) throws IOException {
+        int side = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+
+        CSRGraph graph = DijkstraBenchmark.grid(side, 42);
+        long t0 = System.nanoTime();
+        ContractionHierarchy built = ContractionHierarchy.build(graph);
+        long t1 = System.nanoTime();
+        System.out.printf("%d vertices, %d edges, preprocessing %.1f s, %d hierarchy edges%n",
+                graph.numVertices(), graph.numEdges(), (t1 - t0) / 1e9, built.numEdges());
+
+        Path file = Files.createTempFile("grid", ".ch");
+        built.save(file);
+        ContractionHierarchy ch = ContractionHierarchy.load(file);
+        System.out.println("saved and reloaded " + Files.size(file) + " bytes");
+        Files.delete(file);
+
+        Query query = ch.newQuery();
+        PointToPointShortestPath p2p = new PointToPointShortestPath(graph);
+        Random random = new Random(5);
+        int[] s = new int[queries], t = new int[queries];
+        for(int q=0; q<queries; ++q){
+            s[q] = random.nextInt(graph.numVertices());
+            t[q] = random.nextInt(graph.numVertices());
+
+            long expected = p2p.bidirectional(s[q], t[q]);
+            long found = query.distance(s[q], t[q]);
+            int[] path = query.getPath();
+            long length = 0;
+            for(int i=0; i + 1<path.length; ++i){
+                long best = ShortestPathTree.UNREACHABLE;
+                for(int e = graph.edgeStart(path[i]); e < graph.edgeEnd(path[i]); ++e)
+                    if(graph.target(e) == path[i + 1])
+                        best = Math.min(best, graph.weight(e));
+                length += best;
+            }
+            if(found != expected || length != expected || path[0] != s[q] || path[path.length - 1] != t[q])
+                throw new AssertionError("Query " + s[q] + " -> " + t[q] + ": expected " + expected
+                        + ", found " + found + " with path length " + length);
+        }
+
+        for(int round=0; round<2; ++round){
+            long settled = 0;
+            long q0 = System.nanoTime();
+            for(int q=0; q<queries; ++q){
+                query.distance(s[q], t[q]);
+                settled += query.getSettledCount();
+            }
+            long q1 = System.nanoTime();
+            System.out.printf("%d queries match Dijkstra, %.1f us/query, %d settled/query%n",
+                    queries, (q1 - q0) / 1e3 / queries, settled / queries);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package graphs.weightedGraphs;
+
+import dataStructures.IndexedDaryHeap;
+import graphs.CSRGraph;
+
+import java.util.Random;
+
+/**
+ * Compares the TreeSet Dijkstra with the indexed d-ary heap Dijkstra on a road-network sized graph.
+ *
+ * The graph is a side x side grid, every vertex is connected to its right and lower neighbour in both
+ * directions with a random travel time, which has the low degree and large diameter of a road network.
+ * The default of 1000 x 1000 gives 1M vertices and 4M edges. Usage: DijkstraBenchmark [side] [sources]
+ */
+public class DijkstraBenchmark {
+
+    static CSRGraph grid(int side, long seed){
+        Random random = new Random(seed);
+        CSRGraph.Builder builder = new CSRGraph.Builder(side * side);
+        for(int r=0; r<side; ++r){
+            for(int c=0; c<side; ++c){
+                int u = r * side + c;
+                if(c + 1 < side)
+                    builder.addUndirectedEdge(u, u + 1, 1 + random.nextInt(1000));
+                if(r + 1 < side)
+                    builder.addUndirectedEdge(u, u + side, 1 + random.nextInt(1000));
+            }
+        }
+
+        return builder.build();
+    }
+
+    public static void main(String[] args){
+        int side = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int sources = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        CSRGraph graph = grid(side, 42);
+        int V = graph.numVertices();
+        System.out.println(V + " vertices, " + graph.numEdges() + " edges");
+
+        Random random = new Random(7);
+        int[] distance = new int[V];
+        int[] parent = new int[V];
+        IndexedDaryHeap heap = new IndexedDaryHeap(V);
+
+        // first round warms up the JIT
+        for(int round=0; round<2; ++round){
+            long treeSetNanos = 0, heapNanos = 0;
+            for(int i=0; i<sources; ++i){
+                int source = random.nextInt(V);
+
+                long t0 = System.nanoTime();
+                ShortestPath.treeSetDijkstra(graph, source, distance, parent);
+                long t1 = System.nanoTime();
+                ShortestPathTree tree = ShortestPath.shortestPathTree(graph, source, heap);
+                long t2 = System.nanoTime();
+
+                treeSetNanos += t1 - t0;
+                heapNanos += t2 - t1;
+
+                for(int v=0; v<V; ++v)
+                    if(tree.distance(v) != distance[v])
+                        throw new AssertionError("Distance of " + v + " from " + source + " differs: "
+                                + tree.distance(v) + " != " + distance[v]);
+            }
+
+            System.out.printf("round %d: TreeSet %.1f ms/source, indexed 4-ary heap %.1f ms/source, speedup %.2f%n",
+                    round, treeSetNanos / 1e6 / sources, heapNanos / 1e6 / sources, (double) treeSetNanos / heapNanos);
+        }
+    }
+}
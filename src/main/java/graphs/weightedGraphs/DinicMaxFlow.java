@@ -0,0 +1,136 @@
+package graphs.weightedGraphs;
+
+import java.util.Arrays;
+
+/**
+ * Dinic's max flow algorithm.
+ *
+ * Each phase runs a BFS from the source over arcs with residual capacity to label every vertex with its level,
+ * its distance from s. Only arcs from level i to level i + 1 form the level graph, which holds every shortest
+ * augmenting path. A blocking flow then saturates the level graph with depth first searches: current[u] is
+ * the first arc of u that may still lead to t, arcs before it are saturated or dead ends, so every arc is
+ * skipped at most once per phase. The distance from s to t grows with every phase, so there are at most V
+ * phases and the running time is O(V^2 E), O(E sqrt(V)) on unit capacity graphs such as bipartite matching.
+ *
+ * The depth first search keeps its path in an array instead of recursing, so long paths cannot overflow the
+ * stack.
+ */
+public class DinicMaxFlow {
+
+    private final FlowNetwork network;
+    private final int[] level;
+    private final int[] current;
+    private final int[] queue;
+    private final int[] path; // arcs of the current search path
+
+    public DinicMaxFlow(FlowNetwork network){
+        this.network = network;
+        level = new int[network.n];
+        current = new int[network.n];
+        queue = new int[network.n];
+        path = new int[network.n];
+    }
+
+    /**
+     * Augment the current flow of the network to a maximum flow from s to t
+     *
+     * @return amount of flow added
+     */
+    public long maxFlow(int s, int t){
+        return maxFlow(s, t, Long.MAX_VALUE);
+    }
+
+    /**
+     * Augment the current flow from s to t by at most limit
+     *
+     * @return amount of flow added
+     */
+    public long maxFlow(int s, int t, long limit){
+        if(s == t)
+            throw new IllegalArgumentException("Source and sink are the same vertex " + s);
+
+        long total = 0;
+        while(total < limit && buildLevels(s, t)){
+            System.arraycopy(network.offsets, 0, current, 0, network.n);
+            total += blockingFlow(s, t, limit - total);
+        }
+
+        return total;
+    }
+
+    // BFS from s, true if t is reachable
+    private boolean buildLevels(int s, int t){
+        FlowNetwork g = network;
+        Arrays.fill(level, -1);
+
+        int qHead = 0, qTail = 0;
+        level[s] = 0;
+        queue[qTail++] = s;
+        while(qHead < qTail){
+            int u = queue[qHead++];
+            for(int a = g.offsets[u]; a < g.offsets[u + 1]; ++a){
+                int v = g.head[a];
+                if(level[v] < 0 && g.residual[a] > 0){
+                    level[v] = level[u] + 1;
+                    if(v == t)
+                        return true; // vertices at the level of t or deeper cannot be on a shortest path
+                    queue[qTail++] = v;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private long blockingFlow(int s, int t, long limit){
+        FlowNetwork g = network;
+        long total = 0;
+        int depth = 0;
+        int u = s;
+
+        while(true){
+            if(u == t){
+                // bottleneck of the path, then push it and retreat to the tail of the first saturated arc
+                long f = limit - total;
+                for(int i=0; i<depth; ++i)
+                    f = Math.min(f, g.residual[path[i]]);
+
+                int firstSaturated = -1;
+                for(int i=0; i<depth; ++i){
+                    g.push(path[i], f);
+                    if(firstSaturated < 0 && g.residual[path[i]] == 0)
+                        firstSaturated = i;
+                }
+
+                total += f;
+                if(total == limit)
+                    return total;
+                depth = firstSaturated;
+                u = g.head[g.rev[path[depth]]];
+                continue;
+            }
+
+            // advance over the current arc of u, skipping arcs that are saturated or leave the level graph
+            int end = g.offsets[u + 1];
+            int a = current[u];
+            while(a < end && (g.residual[a] == 0 || level[g.head[a]] != level[u] + 1))
+                a++;
+            current[u] = a;
+
+            if(a < end){
+                path[depth++] = a;
+                u = g.head[a];
+                continue;
+            }
+
+            // dead end, no later search can get through u in this phase
+            level[u] = -1;
+            if(u == s)
+                return total;
+
+            int back = path[--depth];
+            u = g.head[g.rev[back]];
+            current[u]++;
+        }
+    }
+}
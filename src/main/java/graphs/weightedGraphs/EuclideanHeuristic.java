@@ -0,0 +1,33 @@
+package graphs.weightedGraphs;
+
+import rtree.HyperPoint;
+
+/**
+ * Straight line distance to the target, for graphs whose vertices have coordinates such as road networks.
+ *
+ * weightPerUnit converts a coordinate distance into edge weight units, it must be no more than the smallest
+ * ratio weight(u, v) / distance(u, v) over all edges, e.g. travel time per meter at the highest speed. The
+ * estimate is rounded down, so it stays admissible and consistent.
+ */
+public class EuclideanHeuristic implements Heuristic {
+
+    private final HyperPoint[] coordinates;
+    private final double weightPerUnit;
+
+    /**
+     * @param coordinates position of each vertex, e.g. rtree.geometry.Point2d
+     * @param weightPerUnit lower bound of edge weight per unit of coordinate distance
+     */
+    public EuclideanHeuristic(HyperPoint[] coordinates, double weightPerUnit){
+        if(!(weightPerUnit >= 0))
+            throw new IllegalArgumentException("Weight per unit must be non-negative, got " + weightPerUnit);
+
+        this.coordinates = coordinates;
+        this.weightPerUnit = weightPerUnit;
+    }
+
+    @Override
+    public long estimate(int v, int target){
+        return (long) Math.floor(coordinates[v].distance(coordinates[target]) * weightPerUnit);
+    }
+}
@@ -0,0 +1,258 @@
+package graphs.weightedGraphs;
+
+import graphs.CSRGraph;
+
+import java.util.Arrays;
+
+/**
+ * Flow network with its residual graph in flat arrays, shared by the max flow and min cost flow solvers.
+ *
+ * Every edge i (u -> v) becomes two arcs: a forward arc u -> v with the capacity of the edge, and a reverse
+ * arc v -> u with capacity 0 that carries the flow back. rev[a] is the other arc of the pair, so pushing f
+ * units over an arc is residual[a] -= f; residual[rev[a]] += f, without searching any adjacency list. The
+ * arcs of vertex u are arcStart(u) .. arcEnd(u) - 1: first the forward arcs of the edges of u in edge order,
+ * then the reverse arcs of the edges into u in edge order.
+ *
+ * The residual capacities are the state of the current flow, solvers change them in place. The flow on
+ * edge i is capacity(i) - residual of its forward arc; reset() goes back to the zero flow.
+ *
+ * Capacities are longs. Costs are optional, the reverse arc of an edge costs minus the edge cost.
+ */
+public final class FlowNetwork {
+
+    final int n;
+    final int[] offsets; // arcs of u are offsets[u] .. offsets[u+1]-1
+    final int[] head; // vertex an arc points to
+    final int[] rev;
+    final long[] capacity; // per arc, 0 for reverse arcs
+    final long[] residual;
+    final long[] cost; // per arc, null without costs
+    final int[] edgeArc; // forward arc of each edge
+
+    private FlowNetwork(int n, int[] from, int[] to, long[] edgeCapacity, long[] edgeCost){
+        int m = from.length;
+        if(to.length != m || edgeCapacity.length != m || (edgeCost != null && edgeCost.length != m))
+            throw new IllegalArgumentException("Edge arrays have different lengths");
+
+        this.n = n;
+        offsets = new int[n + 1];
+        for(int i=0; i<m; ++i){
+            if(from[i] < 0 || from[i] >= n || to[i] < 0 || to[i] >= n)
+                throw new IllegalArgumentException("Edge (" + from[i] + ", " + to[i] + ") is out of range for "
+                        + n + " vertices");
+            if(edgeCapacity[i] < 0)
+                throw new IllegalArgumentException("Negative capacity " + edgeCapacity[i] + " on edge " + i);
+
+            offsets[from[i] + 1]++;
+            offsets[to[i] + 1]++;
+        }
+        for(int u=0; u<n; ++u)
+            offsets[u + 1] += offsets[u];
+
+        // forward arcs of u come before its reverse arcs
+        int[] nextForward = Arrays.copyOf(offsets, n);
+        int[] nextReverse = new int[n];
+        for(int i=0; i<m; ++i)
+            nextReverse[from[i]]++;
+        for(int u=0; u<n; ++u)
+            nextReverse[u] += offsets[u];
+
+        head = new int[2 * m];
+        rev = new int[2 * m];
+        capacity = new long[2 * m];
+        residual = new long[2 * m];
+        cost = edgeCost == null ? null : new long[2 * m];
+        edgeArc = new int[m];
+
+        for(int i=0; i<m; ++i){
+            int forward = nextForward[from[i]]++;
+            int backward = nextReverse[to[i]]++;
+
+            head[forward] = to[i];
+            head[backward] = from[i];
+            rev[forward] = backward;
+            rev[backward] = forward;
+            capacity[forward] = edgeCapacity[i];
+            residual[forward] = edgeCapacity[i];
+            if(cost != null){
+                cost[forward] = edgeCost[i];
+                cost[backward] = -edgeCost[i];
+            }
+            edgeArc[i] = forward;
+        }
+    }
+
+    /**
+     * @param n number of vertices
+     * @param from tail of each edge
+     * @param to head of each edge
+     * @param capacity capacity of each edge, anti-parallel and parallel edges are allowed
+     */
+    public static FlowNetwork fromEdges(int n, int[] from, int[] to, long[] capacity){
+        return new FlowNetwork(n, from, to, capacity, null);
+    }
+
+    /**
+     * Same as fromEdges(n, from, to, capacity), each edge also has a cost per unit of flow
+     */
+    public static FlowNetwork fromEdges(int n, int[] from, int[] to, long[] capacity, long[] cost){
+        return new FlowNetwork(n, from, to, capacity, cost);
+    }
+
+    /**
+     * Edge i of the network is edge i of the graph, with the edge weight as capacity
+     */
+    public static FlowNetwork fromGraph(CSRGraph graph){
+        int m = graph.numEdges();
+        int[] from = new int[m], to = new int[m];
+        long[] capacity = new long[m];
+        for(int u=0; u<graph.numVertices(); ++u){
+            for(int e = graph.edgeStart(u); e < graph.edgeEnd(u); ++e){
+                from[e] = u;
+                to[e] = graph.target(e);
+                capacity[e] = graph.weight(e);
+            }
+        }
+
+        return new FlowNetwork(graph.numVertices(), from, to, capacity, null);
+    }
+
+    public int numVertices(){
+        return n;
+    }
+
+    public int numEdges(){
+        return edgeArc.length;
+    }
+
+    public boolean hasCosts(){
+        return cost != null;
+    }
+
+    public int arcStart(int u){
+        return offsets[u];
+    }
+
+    public int arcEnd(int u){
+        return offsets[u + 1];
+    }
+
+    public int head(int arc){
+        return head[arc];
+    }
+
+    // tail of an arc is the head of its reverse arc
+    public int tail(int arc){
+        return head[rev[arc]];
+    }
+
+    public int reverse(int arc){
+        return rev[arc];
+    }
+
+    public long residual(int arc){
+        return residual[arc];
+    }
+
+    public int edgeArc(int edge){
+        return edgeArc[edge];
+    }
+
+    public long capacity(int edge){
+        return capacity[edgeArc[edge]];
+    }
+
+    public long flow(int edge){
+        int a = edgeArc[edge];
+        return capacity[a] - residual[a];
+    }
+
+    public long cost(int edge){
+        if(cost == null)
+            throw new IllegalStateException("The network has no costs");
+
+        return cost[edgeArc[edge]];
+    }
+
+    // send f units over an arc
+    void push(int arc, long f){
+        residual[arc] -= f;
+        residual[rev[arc]] += f;
+    }
+
+    /**
+     * Remove all flow
+     */
+    public void reset(){
+        for(int a=0; a<residual.length; ++a)
+            residual[a] = capacity[a];
+    }
+
+    /**
+     * Net flow out of s, the value of the current flow if s is its source
+     */
+    public long flowOut(int s){
+        long f = 0;
+        for(int a = offsets[s]; a < offsets[s + 1]; ++a)
+            f += capacity[a] - residual[a];
+
+        return f;
+    }
+
+    /**
+     * Total cost of the current flow, the sum of flow times cost over all edges
+     */
+    public long flowCost(){
+        if(cost == null)
+            throw new IllegalStateException("The network has no costs");
+
+        long total = 0;
+        for(int a : edgeArc)
+            total += (capacity[a] - residual[a]) * cost[a];
+
+        return total;
+    }
+
+    /**
+     * Vertices reachable from s over arcs with residual capacity. For a maximum flow from s these are the
+     * source side of a minimum cut.
+     */
+    public boolean[] sourceSide(int s){
+        boolean[] reached = new boolean[n];
+        int[] queue = new int[n];
+        int qHead = 0, qTail = 0;
+        reached[s] = true;
+        queue[qTail++] = s;
+        while(qHead < qTail){
+            int u = queue[qHead++];
+            for(int a = offsets[u]; a < offsets[u + 1]; ++a){
+                if(!reached[head[a]] && residual[a] > 0){
+                    reached[head[a]] = true;
+                    queue[qTail++] = head[a];
+                }
+            }
+        }
+
+        return reached;
+    }
+
+    /**
+     * Edges from the source side to the sink side, in edge order. For a maximum flow from s they are all
+     * saturated and their capacities add up to the flow value.
+     */
+    public int[] minCut(int s){
+        boolean[] reached = sourceSide(s);
+        int count = 0;
+        for(int a : edgeArc)
+            if(reached[head[rev[a]]] && !reached[head[a]])
+                count++;
+
+        int[] cut = new int[count];
+        count = 0;
+        for(int i=0; i<edgeArc.length; ++i)
+            if(reached[head[rev[edgeArc[i]]]] && !reached[head[edgeArc[i]]])
+                cut[count++] = i;
+
+        return cut;
+    }
+}
@@ -0,0 +1,55 @@
+package graphs.weightedGraphs;
+
+import graphs.CSRGraph;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Compares the plain Floyd-Warshall loop of ShortestPath over int[][] with the blocked, parallel
+ * AllPairsShortestPath on a random graph with 8 edges per vertex. Usage: FloydWarshallBenchmark [vertices]
+ */
+public class FloydWarshallBenchmark {
+
+    public static void main(String[] args){
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+
+        Random random = new Random(13);
+        CSRGraph.Builder builder = new CSRGraph.Builder(n);
+        int[][] adjMatrix = new int[n][n];
+        for(int u=0; u<n; ++u){
+            for(int i=0; i<8; ++i){
+                int v = random.nextInt(n);
+                int w = 1 + random.nextInt(100); // the plain loop cannot tell a zero weight from no edge
+                if(v != u && (adjMatrix[u][v] == 0 || w < adjMatrix[u][v]))
+                    adjMatrix[u][v] = w;
+                builder.addEdge(u, v, w);
+            }
+        }
+        CSRGraph graph = builder.build();
+        System.out.println(n + " vertices, " + graph.numEdges() + " edges, "
+                + ForkJoinPool.commonPool().getParallelism() + " worker threads");
+
+        long t0 = System.nanoTime();
+        ShortestPath.floydWarshall(adjMatrix);
+        long t1 = System.nanoTime();
+        AllPairsShortestPath blocked = AllPairsShortestPath.compute(graph);
+        long t2 = System.nanoTime();
+        AllPairsShortestPath withPaths = AllPairsShortestPath.compute(graph, true, ForkJoinPool.commonPool());
+        long t3 = System.nanoTime();
+
+        final int INF = (int) 1e6; // the no edge value of floydWarshall
+        for(int i=0; i<n; ++i){
+            for(int j=0; j<n; ++j){
+                long expected = adjMatrix[i][j] >= INF ? AllPairsShortestPath.INF : adjMatrix[i][j];
+                if(blocked.distance(i, j) != expected || withPaths.distance(i, j) != expected)
+                    throw new AssertionError("Distance " + i + " -> " + j + " differs: " + expected + " != "
+                            + blocked.distance(i, j));
+            }
+        }
+
+        System.out.printf("plain int[][] loop: %.2f s%n", (t1 - t0) / 1e9);
+        System.out.printf("blocked:            %.2f s, speedup %.2f%n", (t2 - t1) / 1e9, (double) (t1 - t0) / (t2 - t1));
+        System.out.printf("blocked with paths: %.2f s%n", (t3 - t2) / 1e9);
+    }
+}
@@ -0,0 +1,15 @@
+package graphs.weightedGraphs;
+
+/**
+ * Lower bound on the length of the shortest path from a vertex to the target of an A* search.
+ *
+ * The estimate must be admissible, never more than the true distance, for A* to return shortest paths. If it
+ * is also consistent, estimate(u) <= weight(u, v) + estimate(v) for every edge, no vertex is settled twice.
+ */
+public interface Heuristic {
+
+    // no information, A* with this heuristic is Dijkstra that stops at the target
+    Heuristic NONE = (v, target) -> 0;
+
+    long estimate(int v, int target);
+}
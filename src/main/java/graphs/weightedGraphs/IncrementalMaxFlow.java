@@ -0,0 +1,152 @@
+package graphs.weightedGraphs;
+
+import java.util.Random;
+
+/**
+ * Maximum flow from s to t that is kept up to date while edge capacities change.
+ *
+ * The flow lives in the residual capacities of the network, so after an update only the difference has to be
+ * repaired instead of solving from the zero flow again:
+ *
+ * - Raising a capacity, or lowering it to no less than the current flow on the edge, keeps the flow valid,
+ *   only the residual capacity of the edge changes. The next maxFlow() augments from there.
+ * - Lowering the capacity of u -> v below its flow removes the overflow from the edge, which leaves u with
+ *   more flow coming in than going out and v with less. The overflow is first sent from u to v around the
+ *   edge, often the flow value does not even drop. What cannot be sent around goes back from u to the source
+ *   and is taken out of the sink, t -> v, over the reverse arcs of the flow that brought it there.
+ *
+ * Every repair is a Dinic search limited to the overflow, so it touches the part of the network near the edge
+ * rather than the whole flow.
+ */
+public class IncrementalMaxFlow {
+
+    private final FlowNetwork network;
+    private final int s, t;
+    private final DinicMaxFlow dinic;
+
+    /**
+     * Computes a maximum flow from s to t, starting from the current flow of the network
+     */
+    public IncrementalMaxFlow(FlowNetwork network, int s, int t){
+        if(s == t)
+            throw new IllegalArgumentException("Source and sink are the same vertex " + s);
+
+        this.network = network;
+        this.s = s;
+        this.t = t;
+        dinic = new DinicMaxFlow(network);
+        dinic.maxFlow(s, t);
+    }
+
+    public FlowNetwork getNetwork(){
+        return network;
+    }
+
+    /**
+     * Value of the current flow, the maximum flow if maxFlow() was called after the last update
+     */
+    public long getFlow(){
+        return network.flowOut(s);
+    }
+
+    /**
+     * Augment the current flow to a maximum flow again after capacity updates
+     *
+     * @return value of the maximum flow
+     */
+    public long maxFlow(){
+        dinic.maxFlow(s, t);
+        return getFlow();
+    }
+
+    public void increaseCapacity(int edge, long delta){
+        setCapacity(edge, network.capacity(edge) + delta);
+    }
+
+    public void decreaseCapacity(int edge, long delta){
+        setCapacity(edge, network.capacity(edge) - delta);
+    }
+
+    /**
+     * Change the capacity of an edge and repair the flow so it stays valid. The flow may no longer be maximal,
+     * call maxFlow() once after a batch of updates.
+     */
+    public void setCapacity(int edge, long capacity){
+        if(capacity < 0)
+            throw new IllegalArgumentException("Negative capacity " + capacity + " on edge " + edge);
+
+        FlowNetwork g = network;
+        int a = g.edgeArc[edge];
+        long flow = g.capacity[a] - g.residual[a];
+        g.capacity[a] = capacity;
+        if(flow <= capacity){
+            g.residual[a] = capacity - flow;
+            return;
+        }
+
+        // cut the flow on the edge down to its new capacity
+        long overflow = flow - capacity;
+        g.residual[a] = 0;
+        g.residual[g.rev[a]] -= overflow;
+
+        int u = g.tail(a), v = g.head[a];
+        if(u == v)
+            return; // a loop, the flow around it was balanced anyway
+
+        long left = overflow - dinic.maxFlow(u, v, overflow);
+        if(left == 0)
+            return;
+
+        // the source and the sink are the only vertices allowed to be out of balance
+        long returned = u == s ? left : dinic.maxFlow(u, s, left);
+        long withdrawn = v == t ? left : dinic.maxFlow(t, v, left);
+        if(returned != left || withdrawn != left){
+            // not repairable around the edge, start over from the zero flow
+            g.reset();
+            dinic.maxFlow(s, t);
+        }
+    }
+
+    /**
+     * Random capacity updates on the assignment network of MaxFlowBenchmark, each followed by a new maximum
+     * flow, against solving every updated network from scratch. Usage: IncrementalMaxFlow [workers] [updates]
+     */
+    public static void main(String[] args){
+        int workers = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int updates = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+
+        FlowNetwork network = MaxFlowBenchmark.assignment(workers, 20, 17);
+        long t0 = System.nanoTime();
+        IncrementalMaxFlow flow = new IncrementalMaxFlow(network, 0, 1);
+        long t1 = System.nanoTime();
+        System.out.printf("%d vertices, %d edges, max flow %d in %.0f ms%n",
+                network.numVertices(), network.numEdges(), flow.getFlow(), (t1 - t0) / 1e6);
+
+        // close an open edge or reopen a closed one, anywhere in the network
+        Random random = new Random(5);
+        long incremental = 0;
+        for(int i=0; i<updates; ++i){
+            int edge = random.nextInt(network.numEdges());
+            long start = System.nanoTime();
+            flow.setCapacity(edge, network.capacity(edge) == 0 ? 1 : 0);
+            flow.maxFlow();
+            incremental += System.nanoTime() - start;
+        }
+
+        // solve the final network from zero a few times for the cost of one update without the old flow
+        long expected = flow.getFlow();
+        int cold = 3;
+        long scratch = 0, value = 0;
+        for(int i=0; i<cold; ++i){
+            network.reset();
+            long start = System.nanoTime();
+            value = new DinicMaxFlow(network).maxFlow(0, 1);
+            scratch += System.nanoTime() - start;
+        }
+
+        if(value != expected)
+            throw new AssertionError("Incremental flow " + expected + ", from scratch " + value);
+        System.out.printf("%d updates, max flow %d: %.3f ms per update incremental, %.0f ms from scratch%n",
+                updates, value, incremental / 1e6 / updates, scratch / 1e6 / cold);
+    }
+}
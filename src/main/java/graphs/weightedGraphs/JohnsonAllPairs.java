@@ -0,0 +1,167 @@
+package graphs.weightedGraphs;
+
+import dataStructures.IndexedDaryHeap;
+import graphs.CSRGraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Johnson's all pairs shortest paths, for sparse graphs where a V x V matrix does not fit.
+ *
+ * Dijkstra needs non-negative weights, so the edges are first reweighted. Bellman-Ford from a virtual vertex
+ * with a zero weight edge to every vertex gives each vertex a potential h(v). The reweighted edge
+ * w'(u, v) = w(u, v) + h(u) - h(v) is never negative, and every path from s to t changes by the same
+ * h(s) - h(t), so shortest paths stay the same. Then one Dijkstra per source runs in O(E log V), in total
+ * O(V E log V) instead of the O(V^3) of Floyd-Warshall.
+ *
+ * Sources are spread across a ForkJoinPool. Each thread keeps one heap and one set of row buffers for all of
+ * its sources, and every finished row is handed to a RowConsumer, nothing of size V^2 is kept.
+ */
+public class JohnsonAllPairs {
+
+    /**
+     * Receives the shortest paths from one source. Rows arrive from several threads at once and in no
+     * particular order. The arrays are reused for the next source of the same thread, copy what you keep.
+     */
+    public interface RowConsumer {
+        /**
+         * @param distance distance from source to each vertex, ShortestPathTree.UNREACHABLE if there is none
+         * @param parent previous vertex on the shortest path to each vertex, -1 for the source and unreachable
+         */
+        void accept(int source, long[] distance, int[] parent);
+    }
+
+    // heap and row buffers of one thread
+    private static final class Worker {
+        final IndexedDaryHeap heap;
+        final long[] distance;
+        final int[] parent;
+
+        Worker(int V){
+            heap = new IndexedDaryHeap(V);
+            distance = new long[V];
+            parent = new int[V];
+        }
+
+        void run(CSRGraph graph, long[] h, int source, RowConsumer consumer){
+            Arrays.fill(distance, ShortestPathTree.UNREACHABLE);
+            Arrays.fill(parent, -1);
+            heap.clear(); // in case a consumer threw in the middle of the last source
+
+            distance[source] = 0;
+            heap.insert(source, 0);
+            while(!heap.isEmpty()){
+                int u = heap.pollMin();
+
+                for(int e = graph.edgeStart(u); e < graph.edgeEnd(u); ++e){
+                    int v = graph.target(e);
+                    long d = distance[u] + graph.weight(e) + h[u] - h[v]; // reweighted, never negative
+                    if(d < distance[v]){
+                        // a settled vertex already has its shortest distance, d cannot be smaller
+                        distance[v] = d;
+                        parent[v] = u;
+                        heap.insertOrDecrease(v, d);
+                    }
+                }
+            }
+
+            // back to the original weights
+            for(int v=0; v<distance.length; ++v)
+                if(distance[v] != ShortestPathTree.UNREACHABLE)
+                    distance[v] += h[v] - h[source];
+
+            consumer.accept(source, distance, parent);
+        }
+    }
+
+    public static boolean run(CSRGraph graph, RowConsumer consumer){
+        return run(graph, consumer, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Compute the shortest paths from every source and hand each row to the consumer.
+     *
+     * @param graph int weighted graph, weights may be negative
+     * @return false, without calling the consumer, if the graph has a negative cycle
+     */
+    public static boolean run(CSRGraph graph, RowConsumer consumer, ForkJoinPool pool){
+        int V = graph.numVertices();
+        long[] h = BellmanFord.potentials(graph);
+        if(h == null)
+            return false;
+
+        // a few chunks of sources per thread, so a thread that finishes early can take another
+        int chunks = Math.max(1, Math.min(V, pool.getParallelism() * 4));
+        ThreadLocal<Worker> workers = ThreadLocal.withInitial(() -> new Worker(V));
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(chunks);
+        for(int i=0; i<chunks; ++i){
+            final int from = (int) ((long) V * i / chunks), to = (int) ((long) V * (i + 1) / chunks);
+            tasks.add(pool.submit(() -> {
+                Worker worker = workers.get();
+                for(int source=from; source<to; ++source)
+                    worker.run(graph, h, source, consumer);
+            }));
+        }
+        for(ForkJoinTask<?> task : tasks)
+            task.join();
+
+        return true;
+    }
+
+    /**
+     * All pairs on a random sparse graph with negative weights, checked against Bellman-Ford for a few sources.
+     * Usage: JohnsonAllPairs [vertices]
+     */
+    public static void main(String[] args){
+        int V = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+
+        // weights w + p(u) - p(v) with w >= 0 are partly negative, but every cycle keeps its weight w >= 0
+        Random random = new Random(21);
+        int[] p = new int[V];
+        for(int v=0; v<V; ++v)
+            p[v] = random.nextInt(500);
+        CSRGraph.Builder builder = new CSRGraph.Builder(V);
+        for(int u=0; u<V; ++u){
+            for(int i=0; i<4; ++i){
+                int v = random.nextInt(V);
+                builder.addEdge(u, v, random.nextInt(1000) + p[u] - p[v]);
+            }
+        }
+        CSRGraph graph = builder.build();
+
+        int[] check = {0, V / 2, V - 1};
+        long[][] rows = new long[check.length][];
+        AtomicLong reachablePairs = new AtomicLong();
+
+        long t0 = System.nanoTime();
+        boolean ok = run(graph, (source, distance, parent) -> {
+            long reachable = 0;
+            for(long d : distance)
+                if(d != ShortestPathTree.UNREACHABLE)
+                    reachable++;
+            reachablePairs.addAndGet(reachable);
+
+            for(int i=0; i<check.length; ++i)
+                if(check[i] == source)
+                    rows[i] = distance.clone();
+        });
+        long t1 = System.nanoTime();
+
+        for(int i=0; i<check.length; ++i){
+            ShortestPathTree tree = BellmanFord.run(graph, check[i]).getTree();
+            for(int v=0; v<V; ++v)
+                if(rows[i][v] != tree.distance(v))
+                    throw new AssertionError("Distance " + check[i] + " -> " + v + " differs from Bellman-Ford");
+        }
+
+        System.out.printf("%d vertices, %d edges, negative cycle %b, %d reachable pairs in %.2f s on %d threads%n",
+                V, graph.numEdges(), !ok, reachablePairs.get(), (t1 - t0) / 1e9,
+                ForkJoinPool.commonPool().getParallelism());
+    }
+}
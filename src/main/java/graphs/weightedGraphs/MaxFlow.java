@@ -1,7 +1,6 @@
 package graphs.weightedGraphs;
 
-import java.util.LinkedList;
-import java.util.Queue;
+import graphs.CSRGraph;
 
 
 /**
@@ -35,105 +34,69 @@ import java.util.Queue;
  *
  * Reference: https://brilliant.org/wiki/edmonds-karp-algorithm/
  *
+ * DinicMaxFlow and PushRelabelMaxFlow are much faster on large networks and have no restriction on
+ * anti-parallel edges, all of them work on a FlowNetwork.
+ *
  */
 public class MaxFlow {
 
-    private class ResidualEdge{
-        // flow in edge = capacity - residual
-        int v, capacity, residual;
-
-        public ResidualEdge(int v, int capacity, int residual){
-            this.v = v;
-            this.capacity = capacity;
-            this.residual = residual;
-        }
-    }
-
-    private LinkedList<ResidualEdge>[] buildResidualGraph(int[][] adjMatrix){
-        int V = adjMatrix.length;
-        LinkedList<ResidualEdge>[] resdAdjList = new LinkedList[V];
-
-        for(int u=0; u<V; ++u)
-            resdAdjList[u] = new LinkedList<ResidualEdge>();
-
-        for(int u=0; u<V; ++u){
-            for(int v=0; v<V; ++v){
-                if(adjMatrix[u][v] > 0){
-                    // forward (flow) edge. residual = capacity
-                    resdAdjList[u].add(new ResidualEdge(v, adjMatrix[u][v], adjMatrix[u][v]));
-                    // backward (reverse) edge. residual = 0
-                    resdAdjList[v].add(new ResidualEdge(u, 0, 0));
-                }
-            }
-        }
-
-        return resdAdjList;
-    }
+    private FlowNetwork network;
 
     /**
      * breadth-first search is used to find the shortest paths from source to sink
      * during the intermediate stages of the program.
+     *
+     * @return arc used to reach each vertex, or null if t is not reachable
      */
-    private int[] bfs(LinkedList<ResidualEdge>[] adjList, int s, int t){
-        int V = adjList.length;
-        int[] parent = new int[V];
+    private int[] bfs(int s, int t){
+        FlowNetwork g = network;
+        int V = g.numVertices();
+        int[] parentArc = new int[V];
         boolean[] visited = new boolean[V];
 
-        Queue<Integer> queue = new LinkedList<Integer>();
+        int[] queue = new int[V];
+        int qHead = 0, qTail = 0;
 
-        queue.add(s);
-        parent[s] = -1;
+        queue[qTail++] = s;
+        parentArc[s] = -1;
         visited[s] = true;
-        while(!queue.isEmpty() && !visited[t]){
-            int u = queue.poll();
-
-            for(ResidualEdge edge: adjList[u]){
-                if(!visited[edge.v] && edge.residual > 0){
-                    queue.add(edge.v);
-                    parent[edge.v] = u;
-                    visited[edge.v] = true;
+        while(qHead < qTail && !visited[t]){
+            int u = queue[qHead++];
+
+            for(int a = g.arcStart(u); a < g.arcEnd(u); ++a){
+                int v = g.head(a);
+                if(!visited[v] && g.residual(a) > 0){
+                    queue[qTail++] = v;
+                    parentArc[v] = a;
+                    visited[v] = true;
                 }
             }
         }
 
         // return parent array if there exist a path from source s to sink t.
-        return (visited[t])? parent: null;
-    }
-
-    private ResidualEdge getEdge(LinkedList<ResidualEdge>[] adjList, int u, int v){
-        for(ResidualEdge edge : adjList[u])
-            if(edge.v == v)
-                return edge;
-
-        return null;
+        return (visited[t])? parentArc: null;
     }
 
     /**
-     * Worst case complexity is O(E), as we will visit all edges in the graph in the worst case
+     * Worst case complexity is O(V), the reverse arc of each path arc is known to the network
      */
-    private int updateResidualGraph(LinkedList<ResidualEdge>[] adjList, int s, int t, int[] parent){
+    private long updateResidualGraph(int s, int t, int[] parentArc){
+        FlowNetwork g = network;
         // find minimum flow in the path
         int u = t;
-        int volume = Integer.MAX_VALUE;
-        while(parent[u] != -1){ // traverse path from sink t to source s
-            ResidualEdge edge = getEdge(adjList, parent[u], u);
-            volume = Math.min(volume, edge.residual);
-            u = parent[u];
+        long volume = Long.MAX_VALUE;
+        while(parentArc[u] != -1){ // traverse path from sink t to source s
+            int a = parentArc[u];
+            volume = Math.min(volume, g.residual(a));
+            u = g.tail(a);
         }
 
-        // update Residual graph with new pathedFlow
+        // update Residual graph with new pathedFlow, forward (initial) edge and backward (reverse) edge
         u = t;
-        while(parent[u] != -1){
-            // forward (initial) edge
-            ResidualEdge forwardEdge = getEdge(adjList, parent[u], u);
-            forwardEdge.residual -= volume;
-
-            // backward (reverse) edge
-            ResidualEdge backwardEdge = getEdge(adjList, u, parent[u]);
-            backwardEdge.residual += volume;
-
-
-            u = parent[u];
+        while(parentArc[u] != -1){
+            int a = parentArc[u];
+            g.push(a, volume);
+            u = g.tail(a);
         }
 
         return volume;
@@ -147,37 +110,21 @@ public class MaxFlow {
      *
      * We perform a BFS traversal of the graph from the source vertex to find vertices reachable from s.
      * The cut edges will be the forward edges with that has zero residual.
+     *
+     * @return edges of the cut for the flow of the last compute(), in edge order of its graph
      */
-    private void minCut(LinkedList<ResidualEdge>[] resdAdjList, int s){
-        boolean[] visited = new boolean[resdAdjList.length];
+    public int[] minCut(int s){
+        if(network == null)
+            throw new IllegalStateException("No flow computed yet");
 
-        Queue<Integer> queue = new LinkedList<>();
-        visited[s] = true;
-        queue.add(s);
-        while(!queue.isEmpty()){
-            int u = queue.poll();
-
-            for(ResidualEdge e : resdAdjList[u]){
-                if(!visited[e.v] && e.residual > 0){
-                    visited[e.v] = true;
-                    queue.add(e.v);
-                }
-            }
-        }
-        // Print all edges that are from a reachable vertex (in s subset) to non-reachable vertex
-        // (t subset) in the original graph
+        return network.minCut(s);
+    }
 
-        System.out.println("Min cut edge are: ");
-        for(int u=0; u<resdAdjList.length; ++u){
-            for(int v=0; v<resdAdjList.length; ++v){
-                if(visited[u] && !visited[v]){
-                    ResidualEdge edge = getEdge(resdAdjList, u, v);
-                    if(edge != null && edge.capacity > 0) {
-                        System.out.println(u + " -> " + v + " flow = " + edge.capacity);
-                    }
-                }
-            }
-        }
+    /**
+     * Network of the last compute(), with its maximum flow
+     */
+    public FlowNetwork getNetwork(){
+        return network;
     }
 
     /**
@@ -189,23 +136,34 @@ public class MaxFlow {
      * 2) While there is a augmenting path from source to sink.
      *            Add this path-flow to flow and update residual graph.
      * 3) Return flow.
+     *
+     * @param graph edge weights are the capacities
      */
-    public int compute( int[][] adjMatrix, int s, int t){
-        LinkedList<ResidualEdge>[] resdAdjList = buildResidualGraph(adjMatrix);
-        int maxFlow = 0; // not flow initially
-        int volume;
+    public int compute(CSRGraph graph, int s, int t){
+        network = FlowNetwork.fromGraph(graph);
+        long maxFlow = 0; // not flow initially
+        long volume;
         do {
             // find the shortest augmenting path from source s to sink t. O(E)
-            int[] parent = bfs(resdAdjList, s, t);
-            // if there exist a path then update residual graph and get new added flow volume. O(E)
-            volume = (parent == null)? 0 : updateResidualGraph(resdAdjList, s, t, parent);
+            int[] parentArc = bfs(s, t);
+            // if there exist a path then update residual graph and get new added flow volume. O(V)
+            volume = (parentArc == null)? 0 : updateResidualGraph(s, t, parentArc);
             maxFlow += volume;
 
         }while (volume > 0);
 
-        minCut(resdAdjList, s);
+        return Math.toIntExact(maxFlow);
+    }
 
-        return maxFlow;
+    public int compute( int[][] adjMatrix, int s, int t){
+        return compute(CSRGraph.fromAdjacencyMatrix(adjMatrix), s, t);
+    }
+
+    private static void printCut(MaxFlow maxFlow, int s){
+        FlowNetwork g = maxFlow.getNetwork();
+        System.out.println("Min cut edge are: ");
+        for(int e : maxFlow.minCut(s))
+            System.out.println(g.tail(g.edgeArc(e)) + " -> " + g.head(g.edgeArc(e)) + " flow = " + g.capacity(e));
     }
 
     public static void main(String[] args) {
@@ -219,6 +177,7 @@ public class MaxFlow {
 
         MaxFlow maxFlow = new MaxFlow();
         int flow = maxFlow.compute(adjMatrix, 0, 5);
+        printCut(maxFlow, 0);
         System.out.println("The maximum possible flow is " + flow);
 
         System.out.println("\n=========Second Graph==============");
@@ -228,7 +187,9 @@ public class MaxFlow {
                                 {0, 0, 0, 2},
                                 {0, 0, 0, 0}};
 
-        System.out.println("The maximum possible flow is " + maxFlow.compute(adjMatrix, 0, 3));
+        flow = maxFlow.compute(adjMatrix, 0, 3);
+        printCut(maxFlow, 0);
+        System.out.println("The maximum possible flow is " + flow);
 
     }
 }
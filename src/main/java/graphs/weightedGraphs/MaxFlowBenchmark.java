@@ -0,0 +1,54 @@
+package graphs.weightedGraphs;
+
+import java.util.Random;
+
+/**
+ * Dinic and highest label push-relabel on a bipartite assignment network: source -> each worker -> the jobs
+ * it can do -> sink, all with capacity 1. The default of 100000 workers and jobs with 20 jobs per worker has
+ * 2M worker-job edges. Usage: MaxFlowBenchmark [workers] [jobsPerWorker]
+ */
+public class MaxFlowBenchmark {
+
+    static FlowNetwork assignment(int workers, int jobsPerWorker, long seed){
+        Random random = new Random(seed);
+        int m = workers * jobsPerWorker + 2 * workers;
+        int[] from = new int[m], to = new int[m];
+        long[] capacity = new long[m];
+
+        // vertices: source 0, sink 1, workers 2 .. workers + 1, jobs after them
+        int e = 0;
+        for(int w=0; w<workers; ++w){
+            from[e] = 0; to[e] = 2 + w; capacity[e++] = 1;
+            from[e] = 2 + workers + w; to[e] = 1; capacity[e++] = 1;
+        }
+        for(int w=0; w<workers; ++w){
+            for(int i=0; i<jobsPerWorker; ++i){
+                from[e] = 2 + w; to[e] = 2 + workers + random.nextInt(workers); capacity[e++] = 1;
+            }
+        }
+
+        return FlowNetwork.fromEdges(2 + 2 * workers, from, to, capacity);
+    }
+
+    public static void main(String[] args){
+        int workers = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int jobsPerWorker = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        for(int round=0; round<2; ++round){
+            FlowNetwork network = assignment(workers, jobsPerWorker, 17);
+            long t0 = System.nanoTime();
+            long dinic = new DinicMaxFlow(network).maxFlow(0, 1);
+            long t1 = System.nanoTime();
+
+            network.reset();
+            long t2 = System.nanoTime();
+            long pushRelabel = new PushRelabelMaxFlow(network).maxFlow(0, 1);
+            long t3 = System.nanoTime();
+
+            if(dinic != pushRelabel)
+                throw new AssertionError("Dinic found " + dinic + ", push-relabel " + pushRelabel);
+            System.out.printf("%d vertices, %d edges, max flow %d: Dinic %.0f ms, push-relabel %.0f ms%n",
+                    network.numVertices(), network.numEdges(), dinic, (t1 - t0) / 1e6, (t3 - t2) / 1e6);
+        }
+    }
+}
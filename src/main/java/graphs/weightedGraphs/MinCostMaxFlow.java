@@ -0,0 +1,283 @@
+package graphs.weightedGraphs;
+
+import dataStructures.IndexedDaryHeap;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Minimum cost maximum flow by successive shortest paths with potentials (primal-dual).
+ *
+ * Sending flow along a cheapest path of the residual graph, again and again, ends in a maximum flow of minimum
+ * cost. Reverse arcs have negative costs, so the paths are found with Dijkstra on reduced costs
+ * c'(u, v) = c(u, v) + p(u) - p(v): if p(v) is the cost of a cheapest path to v then c' >= 0 on every residual
+ * arc, and an arc on a cheapest path has c' = 0. After each Dijkstra the distances are added to the
+ * potentials, so the reverse arcs created by pushing flow over zero cost arcs have zero reduced cost as well.
+ *
+ * One Dijkstra usually has many cheapest paths, so instead of a single path per Dijkstra a Dinic style blocking
+ * flow saturates all the arcs of reduced cost 0 that lead to t before the next Dijkstra. Dijkstra runs once per
+ * distinct path cost rather than once per path.
+ *
+ * The initial potentials come from a Bellman-Ford over the residual graph when some residual arc has a negative
+ * cost, so negative edge costs and a starting flow are fine as long as the residual graph has no negative cycle.
+ */
+public class MinCostMaxFlow {
+
+    private static final long UNREACHABLE = Long.MAX_VALUE;
+
+    private final FlowNetwork network;
+    private final int n;
+    private final long[] potential;
+    private final long[] distance;
+    private final IndexedDaryHeap heap;
+    private final int[] level;
+    private final int[] current;
+    private final int[] queue;
+    private final int[] path;
+
+    public MinCostMaxFlow(FlowNetwork network){
+        if(!network.hasCosts())
+            throw new IllegalArgumentException("The network has no costs");
+
+        this.network = network;
+        n = network.n;
+        potential = new long[n];
+        distance = new long[n];
+        heap = new IndexedDaryHeap(n);
+        level = new int[n];
+        current = new int[n];
+        queue = new int[n];
+        path = new int[n];
+    }
+
+    /**
+     * Augment the current flow of the network to a maximum flow from s to t of minimum cost
+     *
+     * @return amount of flow added, network.flowCost() is the cost of the whole flow
+     */
+    public long maxFlow(int s, int t){
+        return maxFlow(s, t, Long.MAX_VALUE);
+    }
+
+    /**
+     * Add at most limit units of flow from s to t at minimum cost, for a cheapest flow of a given value
+     *
+     * @return amount of flow added
+     */
+    public long maxFlow(int s, int t, long limit){
+        if(s == t)
+            throw new IllegalArgumentException("Source and sink are the same vertex " + s);
+
+        initPotentials(s);
+
+        long total = 0;
+        while(total < limit && dijkstra(s, t)){
+            // distances become part of the potentials, unreached vertices can never be reached again
+            for(int v=0; v<n; ++v)
+                if(distance[v] != UNREACHABLE)
+                    potential[v] += distance[v];
+
+            while(total < limit && buildLevels(s, t)){
+                System.arraycopy(network.offsets, 0, current, 0, n);
+                total += blockingFlow(s, t, limit - total);
+            }
+        }
+
+        return total;
+    }
+
+    // arc is in the residual graph and on a cheapest path
+    private boolean admissible(int a, int u){
+        FlowNetwork g = network;
+        return g.residual[a] > 0 && g.cost[a] + potential[u] - potential[g.head[a]] == 0;
+    }
+
+    /**
+     * Zero potentials if no residual arc has a negative cost, else cheapest path costs from s by Bellman-Ford
+     * with a FIFO queue
+     */
+    private void initPotentials(int s){
+        FlowNetwork g = network;
+        Arrays.fill(potential, 0);
+
+        boolean negative = false;
+        for(int a=0; a<g.head.length && !negative; ++a)
+            negative = g.residual[a] > 0 && g.cost[a] < 0;
+        if(!negative)
+            return;
+
+        Arrays.fill(potential, UNREACHABLE);
+        int[] rounds = level; // times each vertex was queued
+        boolean[] queued = new boolean[n];
+        Arrays.fill(rounds, 0);
+
+        potential[s] = 0;
+        queue[0] = s;
+        queued[s] = true;
+        int qHead = 0, size = 1;
+        while(size > 0){
+            int u = queue[qHead];
+            qHead = (qHead + 1) % n;
+            size--;
+            queued[u] = false;
+
+            for(int a = g.offsets[u]; a < g.offsets[u + 1]; ++a){
+                int v = g.head[a];
+                if(g.residual[a] > 0 && potential[u] + g.cost[a] < potential[v]){
+                    potential[v] = potential[u] + g.cost[a];
+                    if(!queued[v]){
+                        if(++rounds[v] >= n)
+                            throw new IllegalArgumentException("The residual graph has a negative cost cycle");
+                        queue[(qHead + size) % n] = v;
+                        queued[v] = true;
+                        size++;
+                    }
+                }
+            }
+        }
+
+        // vertices out of reach of s never carry flow from it, any finite potential will do
+        for(int v=0; v<n; ++v)
+            if(potential[v] == UNREACHABLE)
+                potential[v] = 0;
+    }
+
+    // cheapest path costs from s on reduced costs, true if t is reachable
+    private boolean dijkstra(int s, int t){
+        FlowNetwork g = network;
+        Arrays.fill(distance, UNREACHABLE);
+        heap.clear();
+
+        distance[s] = 0;
+        heap.insert(s, 0);
+        while(!heap.isEmpty()){
+            int u = heap.pollMin();
+            for(int a = g.offsets[u]; a < g.offsets[u + 1]; ++a){
+                if(g.residual[a] == 0)
+                    continue;
+
+                int v = g.head[a];
+                long d = distance[u] + g.cost[a] + potential[u] - potential[v];
+                if(d < distance[v]){
+                    distance[v] = d;
+                    heap.insertOrDecrease(v, d);
+                }
+            }
+        }
+
+        return distance[t] != UNREACHABLE;
+    }
+
+    // BFS over admissible arcs, true if t is reachable
+    private boolean buildLevels(int s, int t){
+        FlowNetwork g = network;
+        Arrays.fill(level, -1);
+
+        int qHead = 0, qTail = 0;
+        level[s] = 0;
+        queue[qTail++] = s;
+        while(qHead < qTail){
+            int u = queue[qHead++];
+            for(int a = g.offsets[u]; a < g.offsets[u + 1]; ++a){
+                int v = g.head[a];
+                if(level[v] < 0 && admissible(a, u)){
+                    level[v] = level[u] + 1;
+                    if(v == t)
+                        return true;
+                    queue[qTail++] = v;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    // same as DinicMaxFlow, on admissible arcs only
+    private long blockingFlow(int s, int t, long limit){
+        FlowNetwork g = network;
+        long total = 0;
+        int depth = 0;
+        int u = s;
+
+        while(true){
+            if(u == t){
+                long f = limit - total;
+                for(int i=0; i<depth; ++i)
+                    f = Math.min(f, g.residual[path[i]]);
+
+                int firstSaturated = -1;
+                for(int i=0; i<depth; ++i){
+                    g.push(path[i], f);
+                    if(firstSaturated < 0 && g.residual[path[i]] == 0)
+                        firstSaturated = i;
+                }
+
+                total += f;
+                if(total == limit)
+                    return total;
+                depth = firstSaturated;
+                u = g.head[g.rev[path[depth]]];
+                continue;
+            }
+
+            int end = g.offsets[u + 1];
+            int a = current[u];
+            while(a < end && (level[g.head[a]] != level[u] + 1 || !admissible(a, u)))
+                a++;
+            current[u] = a;
+
+            if(a < end){
+                path[depth++] = a;
+                u = g.head[a];
+                continue;
+            }
+
+            level[u] = -1;
+            if(u == s)
+                return total;
+
+            int back = path[--depth];
+            u = g.head[g.rev[back]];
+            current[u]++;
+        }
+    }
+
+    /**
+     * Cheapest assignment of jobs to machines: source -> each job (one unit) -> the machines that can run it,
+     * at a cost -> each machine (its number of slots) -> sink. Usage: MinCostMaxFlow [jobs] [machinesPerJob]
+     */
+    public static void main(String[] args){
+        int jobs = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int machinesPerJob = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int machines = Math.max(1, jobs / 10);
+
+        // vertices: source 0, sink 1, jobs from 2, machines after them
+        Random random = new Random(9);
+        int m = jobs + jobs * machinesPerJob + machines;
+        int[] from = new int[m], to = new int[m];
+        long[] capacity = new long[m], cost = new long[m];
+        int e = 0;
+        for(int j=0; j<jobs; ++j){
+            from[e] = 0; to[e] = 2 + j; capacity[e++] = 1;
+            for(int i=0; i<machinesPerJob; ++i){
+                from[e] = 2 + j; to[e] = 2 + jobs + random.nextInt(machines);
+                capacity[e] = 1; cost[e++] = 1 + random.nextInt(100);
+            }
+        }
+        for(int k=0; k<machines; ++k){
+            from[e] = 2 + jobs + k; to[e] = 1; capacity[e++] = 8 + random.nextInt(5);
+        }
+        FlowNetwork network = FlowNetwork.fromEdges(2 + jobs + machines, from, to, capacity, cost);
+
+        long t0 = System.nanoTime();
+        long flow = new MinCostMaxFlow(network).maxFlow(0, 1);
+        long t1 = System.nanoTime();
+
+        long expected = new DinicMaxFlow(FlowNetwork.fromEdges(network.numVertices(), from, to, capacity))
+                .maxFlow(0, 1);
+        if(flow != expected)
+            throw new AssertionError("Min cost flow " + flow + " is not the max flow " + expected);
+        System.out.printf("%d vertices, %d edges: flow %d of cost %d in %.0f ms%n",
+                network.numVertices(), network.numEdges(), flow, network.flowCost(), (t1 - t0) / 1e6);
+    }
+}
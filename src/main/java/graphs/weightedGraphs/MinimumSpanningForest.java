@@ -0,0 +1,297 @@
+package graphs.weightedGraphs;
+
+import dataStructures.ConcurrentUnionFind;
+import dataStructures.UnionFind;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Minimum spanning forests of large undirected graphs given as edge arrays: edge e joins from[e] and to[e]
+ * with weight[e], each edge stored once. Both methods return the edge ids of the forest, one tree per
+ * connected component, nothing is printed.
+ *
+ * Ties are broken by edge id: an edge is compared by the key weight << 32 | id, so all keys are distinct and
+ * fit one long, and the minimum spanning forest is unique.
+ *
+ * - boruvka: in each round every component picks its cheapest edge to another component, and all of them are
+ *   added at once. The number of components at least halves per round, so there are at most log V rounds.
+ *   The edges are split between the threads of a pool; the cheapest edge of each component is kept with a
+ *   compare-and-set minimum, and components are merged in a ConcurrentUnionFind. Edges inside one component
+ *   are dropped after each round, so later rounds scan fewer edges.
+ * - filterKruskal: Kruskal without sorting all edges. The edges are partitioned around a random pivot, the
+ *   light half is solved first, then every heavy edge whose endpoints are already connected is filtered out
+ *   before the rest of the heavy half is partitioned again. Once the forest is complete, the remaining heavy
+ *   edges are never sorted at all. Small ranges are sorted and run through Kruskal directly.
+ */
+public class MinimumSpanningForest {
+
+    private static final int KRUSKAL_THRESHOLD = 1 << 12;
+
+    static long key(int weight, int edge){
+        return (long) weight << 32 | edge;
+    }
+
+    private static void checkEdges(int V, int[] from, int[] to, int[] weight){
+        int m = from.length;
+        if(to.length != m || weight.length != m)
+            throw new IllegalArgumentException("Edge arrays have different lengths");
+        for(int e=0; e<m; ++e)
+            if(from[e] < 0 || from[e] >= V || to[e] < 0 || to[e] >= V)
+                throw new IllegalArgumentException("Edge (" + from[e] + ", " + to[e] + ") is out of range for "
+                        + V + " vertices");
+    }
+
+    public static int[] boruvka(int V, int[] from, int[] to, int[] weight){
+        return boruvka(V, from, to, weight, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @return edge ids of the minimum spanning forest, in the order they were added
+     */
+    public static int[] boruvka(int V, int[] from, int[] to, int[] weight, ForkJoinPool pool){
+        checkEdges(V, from, to, weight);
+        int m = from.length;
+
+        ConcurrentUnionFind components = new ConcurrentUnionFind(V);
+        AtomicLongArray cheapest = new AtomicLongArray(V); // by component root
+        for(int v=0; v<V; ++v)
+            cheapest.set(v, Long.MAX_VALUE);
+
+        int[] live = new int[m]; // edges that may still join two components
+        for(int e=0; e<m; ++e)
+            live[e] = e;
+        int liveCount = m;
+
+        int[] forest = new int[Math.max(0, V - 1)];
+        AtomicInteger forestSize = new AtomicInteger();
+
+        int chunks = Math.max(1, pool.getParallelism() * 4);
+        while(liveCount > 0){
+            // each chunk compacts the edges between components to the front of its range and offers them to
+            // the components on both sides
+            final int count = liveCount;
+            int[] kept = new int[chunks];
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(chunks);
+            for(int i=0; i<chunks; ++i){
+                final int chunk = i;
+                final int lo = (int) ((long) count * i / chunks), hi = (int) ((long) count * (i + 1) / chunks);
+                tasks.add(pool.submit(() -> {
+                    int k = lo;
+                    for(int j=lo; j<hi; ++j){
+                        int e = live[j];
+                        int rootU = components.find(from[e]), rootV = components.find(to[e]);
+                        if(rootU == rootV)
+                            continue;
+
+                        live[k++] = e;
+                        long key = key(weight[e], e);
+                        offer(cheapest, rootU, key);
+                        offer(cheapest, rootV, key);
+                    }
+                    kept[chunk] = k - lo;
+                }));
+            }
+            for(ForkJoinTask<?> task : tasks)
+                task.join();
+
+            liveCount = 0;
+            for(int i=0; i<chunks; ++i){
+                int lo = (int) ((long) count * i / chunks);
+                System.arraycopy(live, lo, live, liveCount, kept[i]);
+                liveCount += kept[i];
+            }
+            if(liveCount == 0)
+                break;
+
+            // every component adds its cheapest edge, an edge picked by both of its sides is added once
+            tasks.clear();
+            for(int i=0; i<chunks; ++i){
+                final int lo = (int) ((long) V * i / chunks), hi = (int) ((long) V * (i + 1) / chunks);
+                tasks.add(pool.submit(() -> {
+                    for(int v=lo; v<hi; ++v){
+                        long key = cheapest.get(v);
+                        if(key == Long.MAX_VALUE)
+                            continue;
+
+                        cheapest.set(v, Long.MAX_VALUE);
+                        int e = (int) key;
+                        if(components.union(from[e], to[e]))
+                            forest[forestSize.getAndIncrement()] = e;
+                    }
+                }));
+            }
+            for(ForkJoinTask<?> task : tasks)
+                task.join();
+        }
+
+        return Arrays.copyOf(forest, forestSize.get());
+    }
+
+    // lower the cheapest key of a component to key
+    private static void offer(AtomicLongArray cheapest, int root, long key){
+        long current = cheapest.get(root);
+        while(key < current && !cheapest.compareAndSet(root, current, key))
+            current = cheapest.get(root);
+    }
+
+    /**
+     * @return edge ids of the minimum spanning forest, in increasing order of weight
+     */
+    public static int[] filterKruskal(int V, int[] from, int[] to, int[] weight){
+        checkEdges(V, from, to, weight);
+        int m = from.length;
+
+        FilterKruskal state = new FilterKruskal(V, from, to, weight);
+        state.solve(0, m);
+
+        return Arrays.copyOf(state.forest, state.forestSize);
+    }
+
+    private static final class FilterKruskal {
+        final int[] from, to;
+        final long[] keys;
+        final UnionFind components;
+        final int[] forest;
+        int forestSize = 0;
+        final Random random = new Random(1);
+
+        FilterKruskal(int V, int[] from, int[] to, int[] weight){
+            this.from = from;
+            this.to = to;
+            keys = new long[from.length];
+            for(int e=0; e<keys.length; ++e)
+                keys[e] = key(weight[e], e);
+            components = new UnionFind(V);
+            forest = new int[Math.max(0, V - 1)];
+        }
+
+        void solve(int lo, int hi){
+            // the heavy side continues in the loop, only the light side recurses
+            while(hi - lo > KRUSKAL_THRESHOLD){
+                if(components.count() == 1)
+                    return; // the tree is complete, everything left is heavier
+
+                long pivot = keys[lo + random.nextInt(hi - lo)];
+                int mid = partition(lo, hi, pivot);
+                solve(lo, mid);
+                add(pivot);
+                lo = filter(mid + 1, hi);
+            }
+
+            Arrays.sort(keys, lo, hi);
+            for(int i=lo; i<hi; ++i)
+                add(keys[i]);
+        }
+
+        void add(long key){
+            int e = (int) key;
+            if(components.union(from[e], to[e]))
+                forest[forestSize++] = e;
+        }
+
+        /**
+         * Keys below the pivot to lo .. mid - 1, the pivot to mid, heavier keys after it
+         *
+         * @return mid
+         */
+        int partition(int lo, int hi, long pivot){
+            int mid = lo;
+            for(int i=lo; i<hi; ++i){
+                long k = keys[i];
+                if(k < pivot){
+                    keys[i] = keys[mid];
+                    keys[mid++] = k;
+                }else if(k == pivot){
+                    keys[i] = keys[hi - 1]; // park the pivot at the end, the last key is looked at again
+                    keys[hi - 1] = k;
+                    hi--;
+                    i--;
+                }
+            }
+            keys[hi] = keys[mid];
+            keys[mid] = pivot;
+
+            return mid;
+        }
+
+        /**
+         * Move the edges of lo .. hi - 1 between different components to the end of the range, in any order
+         *
+         * @return start of the remaining edges
+         */
+        int filter(int lo, int hi){
+            int start = hi;
+            for(int i=hi - 1; i>=lo; --i){
+                int e = (int) keys[i];
+                if(components.find(from[e]) != components.find(to[e]))
+                    keys[--start] = keys[i];
+            }
+
+            return start;
+        }
+    }
+
+    public static long totalWeight(int[] forest, int[] weight){
+        long total = 0;
+        for(int e : forest)
+            total += weight[e];
+
+        return total;
+    }
+
+    /**
+     * Both methods on a random sparse graph against Kruskal with a full sort. Usage: MinimumSpanningForest
+     * [vertices] [edges]
+     */
+    public static void main(String[] args){
+        int V = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int m = args.length > 1 ? Integer.parseInt(args[1]) : 8_000_000;
+
+        Random random = new Random(3);
+        int[] from = new int[m], to = new int[m], weight = new int[m];
+        for(int e=0; e<m; ++e){
+            from[e] = random.nextInt(V);
+            to[e] = random.nextInt(V);
+            weight[e] = random.nextInt(1_000_000);
+        }
+
+        for(int round=0; round<2; ++round){
+            long t0 = System.nanoTime();
+            long[] keys = new long[m];
+            for(int e=0; e<m; ++e)
+                keys[e] = key(weight[e], e);
+            Arrays.sort(keys);
+            UnionFind components = new UnionFind(V);
+            long kruskal = 0;
+            int kruskalEdges = 0;
+            for(long k : keys){
+                int e = (int) k;
+                if(components.union(from[e], to[e])){
+                    kruskal += weight[e];
+                    kruskalEdges++;
+                }
+            }
+            long t1 = System.nanoTime();
+            int[] filtered = filterKruskal(V, from, to, weight);
+            long t2 = System.nanoTime();
+            int[] parallel = boruvka(V, from, to, weight);
+            long t3 = System.nanoTime();
+
+            if(filtered.length != kruskalEdges || totalWeight(filtered, weight) != kruskal)
+                throw new AssertionError("Filter-Kruskal differs from Kruskal");
+            if(parallel.length != kruskalEdges || totalWeight(parallel, weight) != kruskal)
+                throw new AssertionError("Boruvka differs from Kruskal");
+            System.out.printf("%d vertices, %d edges, forest of %d edges and weight %d: Kruskal %.0f ms, "
+                            + "filter-Kruskal %.0f ms, Boruvka %.0f ms on %d threads%n",
+                    V, m, kruskalEdges, kruskal, (t1 - t0) / 1e6, (t2 - t1) / 1e6, (t3 - t2) / 1e6,
+                    ForkJoinPool.commonPool().getParallelism());
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package graphs.weightedGraphs;
 
+import dataStructures.UnionFind;
+import graphs.CSRGraph;
+
 import java.util.*;
 
 /**
@@ -13,6 +16,9 @@ import java.util.*;
  * amount of roadway, wire, or pipe. Any tree is the smallest possible connected graph
  * in terms of number of edges, while the minimum spanning tree is the smallest
  * connected graph in terms of edge weight.
+ *
+ * MinimumSpanningForest handles large edge lists, with a parallel Boruvka and filter-Kruskal, and returns
+ * the forest as edge ids instead of printing it.
  */
 public class MinimumSpanningTree {
     static class Edge{
@@ -36,16 +42,16 @@ public class MinimumSpanningTree {
         }
     }
 
-    private static void printMST(LinkedList<Edge>[] adjList, int[]parent){
+    private static void printMST(CSRGraph graph, int[]parent){
         System.out.println("Edge \tWeight");
-        for (int i = 0; i < adjList.length; i++) {
+        for (int i = 0; i < graph.numVertices(); i++) {
             if(parent[i] == -1 || parent[i] == i) // root of the tree
                 continue;
 
             int weight = 0;
-            for(Edge e : adjList[parent[i]]) {
-                if (e.v == i) {
-                    weight = e.weight;
+            for(int e = graph.edgeStart(parent[i]); e < graph.edgeEnd(parent[i]); ++e) {
+                if (graph.target(e) == i) {
+                    weight = graph.weight(e);
                     break;
                 }
             }
@@ -64,12 +70,13 @@ public class MinimumSpanningTree {
     // Time Complexity of the above program is O(V^2). If the input graph is represented using adjacency
     // list, then the time complexity of Prim’s algorithm can be reduced to O(E log V) with the help
     // of binary heap.
-    private static  void primAlg(LinkedList<Edge>[] adjList, int start){
-        int[] distance = new int[adjList.length];
-        int[] parent = new int[adjList.length];
-        boolean[] inTree = new boolean[adjList.length];
+    private static  void primAlg(CSRGraph graph, int start){
+        int V = graph.numVertices();
+        int[] distance = new int[V];
+        int[] parent = new int[V];
+        boolean[] inTree = new boolean[V];
 
-        for(int i=0; i<adjList.length; ++i)
+        for(int i=0; i<V; ++i)
             distance[i] = Integer.MAX_VALUE;
 
         distance[start] = Integer.MIN_VALUE;
@@ -81,16 +88,17 @@ public class MinimumSpanningTree {
 
             // for each destination node update its distance entry to minimum ingoing edge to it from u
             // update parent of node v to the parent with the minimum weight.
-            for (Edge e : adjList[u]) {
-                if (!inTree[e.v] && distance[e.v] > e.weight) {
-                    distance[e.v] = e.weight;
-                    parent[e.v] = u;
+            for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); ++e) {
+                int v = graph.target(e);
+                if (!inTree[v] && distance[v] > graph.weight(e)) {
+                    distance[v] = graph.weight(e);
+                    parent[v] = u;
                 }
             }
 
             // find node with minimum ingoing edge from nodes in the tree to add it to the tree.
             int dist = Integer.MAX_VALUE;
-            for(int i=0; i<adjList.length; ++i){
+            for(int i=0; i<V; ++i){
                 if(!inTree[i] && distance[i] < dist){
                     dist = distance[i];
                     u = i;
@@ -99,48 +107,7 @@ public class MinimumSpanningTree {
         }
 
         // the tree edges can be identified using the parent array.
-        printMST(adjList, parent);
-    }
-
-    private static class UnionFind{
-        int[] root, size;
-
-        public UnionFind(int V){
-            root = new int[V];
-            size = new int[V];
-
-            for(int i=0; i<V; ++i){
-                root[i] = i;
-                size[i] = 1;
-            }
-        }
-
-        // find parent of subtree containing v
-        private int find(int v){
-            if(root[v] == v)
-                return v;
-
-            return find(root[v]);
-        }
-
-        public boolean unionSets(int s1, int s2){
-            int root1 = find(s1);
-            int root2 = find(s2);
-            if(root1 == root2)
-                return false;
-
-
-            // Merge step by making the smaller tree the subtree of the larger tree.
-            if(size[root1] >= size[root2]){
-                size[root1]+= size[root2];
-                root[root2] = root1;
-            }else{
-                size[root2] += size[root1];
-                root[root1] = root2;
-            }
-
-            return true;
-        }
+        printMST(graph, parent);
     }
 
     /**
@@ -156,27 +123,28 @@ public class MinimumSpanningTree {
      * With Union-Find data structure, Kruskal’s algorithm runs in O(max( ElogE, ElogV)) time, which is
      * faster than Prim’s for sparse graphs.
      */
-    public static void kruskalMSTAlg(LinkedList<Edge>[] adjList){
-        UnionFind unionFindDS = new UnionFind(adjList.length);
+    public static void kruskalMSTAlg(CSRGraph graph){
+        UnionFind unionFindDS = new UnionFind(graph.numVertices());
         ArrayList<Edge> res = new ArrayList<>();// stores tree edges
 
+        // Integer.compare, a difference of weights overflows for weights of opposite sign
         Comparator<Edge> cmp = new Comparator<Edge>(){
           public int compare(Edge e1, Edge e2){
-              return e1.weight - e2.weight;
+              return Integer.compare(e1.weight, e2.weight);
           }
         };
 
         ArrayList<Edge> edges = new ArrayList<>();
-        for(int i=0; i<adjList.length; ++i)
-            for(Edge e: adjList[i])
-                edges.add(e);
+        for(int i=0; i<graph.numVertices(); ++i)
+            for(int e = graph.edgeStart(i); e < graph.edgeEnd(i); ++e)
+                edges.add(new Edge(i, graph.target(e), graph.weight(e)));
 
         // Time complexity O(E log E) and space complexity O(log E) (quick sort)
         Collections.sort(edges, cmp);
 
-        // Time complexity O(E log V) and space complexity O(V)
+        // Time complexity O(E alpha(V)) and space complexity O(V)
         for(Edge e: edges) {
-            boolean didUnion = unionFindDS.unionSets(e.u, e.v);
+            boolean didUnion = unionFindDS.union(e.u, e.v);
             if(didUnion)
                 res.add(e);
         }
@@ -197,31 +165,29 @@ public class MinimumSpanningTree {
 
          */
 
-        LinkedList<Edge>[] adjList = new LinkedList[5];
-        for(int i=0; i<adjList.length; ++i)
-            adjList[i] = new LinkedList<Edge>();
-
-        adjList[0].add(new Edge(0,1, 2));
-        adjList[0].add(new Edge(0,3, 6));
-        adjList[1].add(new Edge(1,0, 2));
-        adjList[1].add(new Edge(1,2, 3));
-        adjList[1].add(new Edge(1,3, 8));
-        adjList[1].add(new Edge(1,4, 5));
-        adjList[2].add(new Edge(2,1, 3));
-        adjList[2].add(new Edge(2,4, 7));
-        adjList[3].add(new Edge(3,0, 6));
-        adjList[3].add(new Edge(3,1, 8));
-        adjList[3].add(new Edge(3,4, 9));
-        adjList[4].add(new Edge(4,1, 5));
-        adjList[4].add(new Edge(4,2, 7));
-        adjList[4].add(new Edge(4,3, 9));
+        CSRGraph graph = new CSRGraph.Builder(5)
+                .addEdge(0, 1, 2)
+                .addEdge(0, 3, 6)
+                .addEdge(1, 0, 2)
+                .addEdge(1, 2, 3)
+                .addEdge(1, 3, 8)
+                .addEdge(1, 4, 5)
+                .addEdge(2, 1, 3)
+                .addEdge(2, 4, 7)
+                .addEdge(3, 0, 6)
+                .addEdge(3, 1, 8)
+                .addEdge(3, 4, 9)
+                .addEdge(4, 1, 5)
+                .addEdge(4, 2, 7)
+                .addEdge(4, 3, 9)
+                .build();
 
         System.out.println("Prim's algorithm running");
-        primAlg(adjList, 0);
+        primAlg(graph, 0);
 
         System.out.println("\n =============== \n ");
         System.out.println("Kruskal's algorithm running");
-        kruskalMSTAlg(adjList);
+        kruskalMSTAlg(graph);
 
 
         /* Example 2:
@@ -233,37 +199,21 @@ public class MinimumSpanningTree {
             2--------3
                 4        */
 
-        LinkedList<Edge>[] adjList2 = new LinkedList[4];
-        for(int i=0; i<adjList2.length; ++i)
-            adjList2[i] = new LinkedList<Edge>();
-
-        // add edge 0-1
-        adjList2[0].add(new Edge(0, 1, 10));
-        adjList2[1].add(new Edge(1, 0, 10));
-
-        // add edge 0-2
-        adjList2[0].add(new Edge(0, 2, 6));
-        adjList2[2].add(new Edge(2, 0, 6));
-
-        // add edge 0-3
-        adjList2[0].add(new Edge(0, 3, 5));
-        adjList2[3].add(new Edge(3, 0, 5));
-
-        // add edge 1-3
-        adjList2[1].add(new Edge(1, 3, 15));
-        adjList2[3].add(new Edge(3, 1, 15));
-
-        // add edge 2-3
-        adjList2[2].add(new Edge(2, 3, 4));
-        adjList2[3].add(new Edge(3, 2, 4));
+        CSRGraph graph2 = new CSRGraph.Builder(4)
+                .addUndirectedEdge(0, 1, 10)
+                .addUndirectedEdge(0, 2, 6)
+                .addUndirectedEdge(0, 3, 5)
+                .addUndirectedEdge(1, 3, 15)
+                .addUndirectedEdge(2, 3, 4)
+                .build();
 
         System.out.println("\n ===== GRAPH 2 =====  \n");
         System.out.println("Prim's algorithm running");
-        primAlg(adjList2, 0);
+        primAlg(graph2, 0);
 
         System.out.println("\n =============== \n ");
         System.out.println("Kruskal's algorithm running");
-        kruskalMSTAlg(adjList2);
+        kruskalMSTAlg(graph2);
 
     }
 }
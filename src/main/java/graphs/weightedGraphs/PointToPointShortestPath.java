@@ -0,0 +1,333 @@
+package graphs.weightedGraphs;
+
+import dataStructures.IndexedDaryHeap;
+import graphs.CSRGraph;
+import rtree.HyperPoint;
+import rtree.geometry.Point2d;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Shortest path queries between one source s and one target t. Instead of settling every vertex, a search
+ * stops as soon as the path to t is known.
+ *
+ * Bidirectional Dijkstra grows one search forward from s and one backward from t over the reversed edges, and
+ * stops when the two frontiers together cannot beat the best path found through a vertex reached by both. On
+ * a road network each search covers a disc of about half the radius, roughly half the vertices of a one way
+ * search.
+ *
+ * A* settles vertices in order of distance from s plus a lower bound on the distance to t (see Heuristic), so
+ * it is drawn towards the target and stops when it settles t.
+ *
+ * An instance keeps its heaps and per vertex arrays between queries. Instead of clearing the arrays, every
+ * query gets a new stamp, and an entry is only valid if its vertex carries the stamp of the current query, so
+ * a query costs time proportional to the vertices it visits. An instance is not thread safe, use one per
+ * thread over a shared graph.
+ */
+public class PointToPointShortestPath {
+
+    private final CSRGraph graph;
+    private final CSRGraph reverse;
+
+    // forward search, also used by A*
+    private final IndexedDaryHeap forwardHeap;
+    private final long[] forwardDistance;
+    private final int[] forwardParent;
+    private final int[] forwardStamp;
+
+    // backward search over the reversed edges, parent is the next vertex towards t
+    private final IndexedDaryHeap backwardHeap;
+    private final long[] backwardDistance;
+    private final int[] backwardParent;
+    private final int[] backwardStamp;
+
+    private int stamp = 0;
+
+    // result of the last query
+    private int source = -1, target = -1, meet = -1;
+    private long distance = ShortestPathTree.UNREACHABLE;
+    private int settled = 0;
+
+    /**
+     * @param graph int weighted graph without negative weights
+     */
+    public PointToPointShortestPath(CSRGraph graph){
+        int V = graph.numVertices();
+        this.graph = graph;
+        this.reverse = graph.transpose();
+
+        forwardHeap = new IndexedDaryHeap(V);
+        forwardDistance = new long[V];
+        forwardParent = new int[V];
+        forwardStamp = new int[V];
+
+        backwardHeap = new IndexedDaryHeap(V);
+        backwardDistance = new long[V];
+        backwardParent = new int[V];
+        backwardStamp = new int[V];
+    }
+
+    private void start(int s, int t){
+        if(s < 0 || s >= graph.numVertices() || t < 0 || t >= graph.numVertices())
+            throw new IllegalArgumentException("Query (" + s + ", " + t + ") is out of range for "
+                    + graph.numVertices() + " vertices");
+
+        if(++stamp == 0){
+            // stamps wrapped around, forget every old stamp
+            Arrays.fill(forwardStamp, 0);
+            Arrays.fill(backwardStamp, 0);
+            stamp = 1;
+        }
+        forwardHeap.clear();
+        backwardHeap.clear();
+
+        source = s;
+        target = t;
+        meet = -1;
+        distance = ShortestPathTree.UNREACHABLE;
+        settled = 0;
+    }
+
+    private static int checkedWeight(CSRGraph g, int e, int u){
+        int w = g.weight(e);
+        if(w < 0)
+            throw new IllegalArgumentException("Negative weight " + w + " on an edge of " + u);
+
+        return w;
+    }
+
+    /**
+     * Bidirectional Dijkstra. Each step advances the search whose frontier is closer to its root. Let mu be the
+     * shortest s-t path seen so far through a vertex reached by both searches; once the two smallest frontier
+     * distances add up to mu or more, no unexplored path can be shorter and mu is the distance.
+     *
+     * @return distance from s to t, or UNREACHABLE
+     */
+    public long bidirectional(int s, int t){
+        start(s, t);
+
+        forwardDistance[s] = 0;
+        forwardParent[s] = -1;
+        forwardStamp[s] = stamp;
+        forwardHeap.insert(s, 0);
+
+        backwardDistance[t] = 0;
+        backwardParent[t] = -1;
+        backwardStamp[t] = stamp;
+        backwardHeap.insert(t, 0);
+
+        long mu = s == t ? 0 : ShortestPathTree.UNREACHABLE;
+        meet = s == t ? s : -1;
+
+        while(!forwardHeap.isEmpty() && !backwardHeap.isEmpty()){
+            long forwardMin = forwardHeap.peekMinKey();
+            long backwardMin = backwardHeap.peekMinKey();
+            if(forwardMin + backwardMin >= mu)
+                break;
+
+            boolean forward = forwardMin <= backwardMin;
+            CSRGraph g = forward ? graph : reverse;
+            IndexedDaryHeap heap = forward ? forwardHeap : backwardHeap;
+            long[] dist = forward ? forwardDistance : backwardDistance;
+            int[] parent = forward ? forwardParent : backwardParent;
+            int[] seen = forward ? forwardStamp : backwardStamp;
+            long[] otherDist = forward ? backwardDistance : forwardDistance;
+            int[] otherSeen = forward ? backwardStamp : forwardStamp;
+
+            int u = heap.pollMin();
+            settled++;
+
+            for(int e = g.edgeStart(u); e < g.edgeEnd(u); ++e){
+                int v = g.target(e);
+                long d = dist[u] + checkedWeight(g, e, u);
+
+                if(seen[v] != stamp || d < dist[v]){
+                    // a vertex that is reached and not queued is settled, its distance is final
+                    if(seen[v] == stamp && !heap.contains(v))
+                        continue;
+
+                    seen[v] = stamp;
+                    dist[v] = d;
+                    parent[v] = u;
+                    heap.insertOrDecrease(v, d);
+                }
+
+                // a path through v if the other search has reached it
+                if(otherSeen[v] == stamp && dist[v] + otherDist[v] < mu){
+                    mu = dist[v] + otherDist[v];
+                    meet = v;
+                }
+            }
+        }
+
+        distance = mu;
+        return mu;
+    }
+
+    /**
+     * A* search from s to t. Vertices are settled in order of distance from s plus heuristic.estimate(v, t).
+     * An admissible but inconsistent heuristic may reopen settled vertices, the result is still the shortest
+     * path.
+     *
+     * @return distance from s to t, or UNREACHABLE
+     */
+    public long aStar(int s, int t, Heuristic heuristic){
+        start(s, t);
+
+        forwardDistance[s] = 0;
+        forwardParent[s] = -1;
+        forwardStamp[s] = stamp;
+        forwardHeap.insert(s, heuristic.estimate(s, t));
+
+        while(!forwardHeap.isEmpty()){
+            int u = forwardHeap.pollMin();
+            settled++;
+            if(u == t){
+                meet = t;
+                distance = forwardDistance[t];
+                break;
+            }
+
+            for(int e = graph.edgeStart(u); e < graph.edgeEnd(u); ++e){
+                int v = graph.target(e);
+                long d = forwardDistance[u] + checkedWeight(graph, e, u);
+
+                if(forwardStamp[v] != stamp || d < forwardDistance[v]){
+                    forwardStamp[v] = stamp;
+                    forwardDistance[v] = d;
+                    forwardParent[v] = u;
+                    forwardHeap.insertOrDecrease(v, d + heuristic.estimate(v, t));
+                }
+            }
+        }
+
+        return distance;
+    }
+
+    /**
+     * @return distance found by the last query
+     */
+    public long getDistance(){
+        return distance;
+    }
+
+    /**
+     * @return vertices settled by the last query, a measure of the work it did
+     */
+    public int getSettledCount(){
+        return settled;
+    }
+
+    /**
+     * Vertices of the path found by the last query, from s to t. Built by walking parent arrays, so the length
+     * of a path is not limited by the stack.
+     *
+     * @return the path, or an empty array if t is not reachable from s
+     */
+    public int[] getPath(){
+        if(meet < 0)
+            return new int[0];
+
+        // s .. meet from the forward parents, meet .. t from the backward parents
+        int forwardLength = 0;
+        for(int u = meet; u != -1; u = forwardParent[u])
+            forwardLength++;
+        int backwardLength = 0;
+        if(backwardStamp[meet] == stamp)
+            for(int u = backwardParent[meet]; u != -1; u = backwardParent[u])
+                backwardLength++;
+
+        int[] path = new int[forwardLength + backwardLength];
+        int i = forwardLength - 1;
+        for(int u = meet; u != -1; u = forwardParent[u])
+            path[i--] = u;
+        i = forwardLength;
+        if(backwardStamp[meet] == stamp)
+            for(int u = backwardParent[meet]; u != -1; u = backwardParent[u])
+                path[i++] = u;
+
+        return path;
+    }
+
+    public int getSource(){
+        return source;
+    }
+
+    public int getTarget(){
+        return target;
+    }
+
+    /**
+     * Random queries on a grid road network with vertex coordinates, checked against a full Dijkstra
+     */
+    public static void main(String[] args){
+        int side = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        CSRGraph graph = DijkstraBenchmark.grid(side, 42);
+        HyperPoint[] coordinates = new HyperPoint[graph.numVertices()];
+        for(int v=0; v<coordinates.length; ++v)
+            coordinates[v] = new Point2d(v % side, v / side);
+        // grid edges are one unit long and weigh at least 1
+        Heuristic euclidean = new EuclideanHeuristic(coordinates, 1.0);
+
+        PointToPointShortestPath p2p = new PointToPointShortestPath(graph);
+        IndexedDaryHeap heap = new IndexedDaryHeap(graph.numVertices());
+        Random random = new Random(3);
+        long bidirectionalSettled = 0, aStarSettled = 0;
+        long dijkstraNanos = 0, bidirectionalNanos = 0, aStarNanos = 0;
+
+        for(int q=0; q<queries; ++q){
+            int s = random.nextInt(graph.numVertices());
+            int t = random.nextInt(graph.numVertices());
+
+            long t0 = System.nanoTime();
+            ShortestPathTree tree = ShortestPath.shortestPathTree(graph, s, heap);
+            long t1 = System.nanoTime();
+            long bidirectional = p2p.bidirectional(s, t);
+            int[] bidirectionalPath = p2p.getPath();
+            bidirectionalSettled += p2p.getSettledCount();
+            long t2 = System.nanoTime();
+            long aStar = p2p.aStar(s, t, euclidean);
+            int[] aStarPath = p2p.getPath();
+            aStarSettled += p2p.getSettledCount();
+            long t3 = System.nanoTime();
+
+            dijkstraNanos += t1 - t0;
+            bidirectionalNanos += t2 - t1;
+            aStarNanos += t3 - t2;
+
+            if(bidirectional != tree.distance(t) || aStar != tree.distance(t)
+                    || pathLength(graph, bidirectionalPath) != tree.distance(t)
+                    || pathLength(graph, aStarPath) != tree.distance(t))
+                throw new AssertionError("Query " + s + " -> " + t + ": Dijkstra " + tree.distance(t)
+                        + ", bidirectional " + bidirectional + ", A* " + aStar);
+        }
+
+        System.out.println(graph.numVertices() + " vertices, " + queries + " queries, all distances match Dijkstra");
+        System.out.printf("Dijkstra:      %8.3f ms/query, %8d settled/query%n",
+                dijkstraNanos / 1e6 / queries, graph.numVertices());
+        System.out.printf("bidirectional: %8.3f ms/query, %8d settled/query%n",
+                bidirectionalNanos / 1e6 / queries, bidirectionalSettled / queries);
+        System.out.printf("A* euclidean:  %8.3f ms/query, %8d settled/query%n",
+                aStarNanos / 1e6 / queries, aStarSettled / queries);
+    }
+
+    // length of a path, or UNREACHABLE for an empty path
+    private static long pathLength(CSRGraph graph, int[] path){
+        if(path.length == 0)
+            return ShortestPathTree.UNREACHABLE;
+
+        long length = 0;
+        for(int i=0; i + 1<path.length; ++i){
+            long best = ShortestPathTree.UNREACHABLE;
+            for(int e = graph.edgeStart(path[i]); e < graph.edgeEnd(path[i]); ++e)
+                if(graph.target(e) == path[i + 1])
+                    best = Math.min(best, graph.weight(e));
+            length += best;
+        }
+
+        return length;
+    }
+}
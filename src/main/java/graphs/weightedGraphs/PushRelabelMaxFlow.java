@@ -0,0 +1,185 @@
+package graphs.weightedGraphs;
+
+import java.util.Arrays;
+
+/**
+ * Highest label push-relabel max flow with the gap heuristic.
+ *
+ * Instead of whole augmenting paths, push-relabel moves flow one arc at a time. It starts by saturating every
+ * arc out of the source; vertices then hold more flow coming in than going out, an excess. Every vertex has
+ * a height, and excess only flows downhill, over residual arcs to a vertex exactly one lower. A vertex with
+ * excess and no such arc is relabeled to one above its lowest residual neighbour. Excess that cannot reach
+ * the sink rises above the source (height V) and drains back to it. When no vertex has excess left, the
+ * preflow is a maximum flow.
+ *
+ * Always discharging a highest active vertex bounds the work by O(V^2 sqrt(E)). Two heuristics matter more
+ * in practice: the heights start as exact distances to the sink (a reverse BFS), and when relabeling leaves
+ * no vertex at some height h < V, no vertex above h can reach the sink any more, so all of them jump to V + 1
+ * at once instead of climbing one relabel at a time (gap heuristic).
+ */
+public class PushRelabelMaxFlow {
+
+    private final FlowNetwork network;
+    private final int n;
+    private final int[] height;
+    private final long[] excess;
+    private final int[] current; // next arc to try
+    private final int[] count; // vertices per height
+    private final int[] bucketHead; // active vertices per height, linked through bucketNext
+    private final int[] bucketNext;
+    private final int[] queue;
+
+    public PushRelabelMaxFlow(FlowNetwork network){
+        this.network = network;
+        n = network.n;
+        height = new int[n];
+        excess = new long[n];
+        current = new int[n];
+        count = new int[2 * n + 2];
+        bucketHead = new int[2 * n + 2];
+        bucketNext = new int[n];
+        queue = new int[n];
+    }
+
+    /**
+     * Augment the current flow of the network to a maximum flow from s to t
+     *
+     * @return amount of flow added
+     */
+    public long maxFlow(int s, int t){
+        if(s == t)
+            throw new IllegalArgumentException("Source and sink are the same vertex " + s);
+
+        FlowNetwork g = network;
+        Arrays.fill(excess, 0);
+        Arrays.fill(count, 0);
+        Arrays.fill(bucketHead, -1);
+        System.arraycopy(g.offsets, 0, current, 0, n);
+
+        globalRelabel(s, t);
+        for(int v=0; v<n; ++v)
+            count[height[v]]++;
+
+        int highest = 0;
+        for(int a = g.offsets[s]; a < g.offsets[s + 1]; ++a){
+            long f = g.residual[a];
+            if(f == 0)
+                continue;
+
+            int v = g.head[a];
+            g.push(a, f);
+            excess[s] -= f;
+            if(excess[v] == 0 && v != t && v != s){
+                activate(v);
+                highest = Math.max(highest, height[v]);
+            }
+            excess[v] += f;
+        }
+
+        while(true){
+            while(highest >= 0 && bucketHead[highest] == -1)
+                highest--;
+            if(highest < 0)
+                break;
+
+            int u = bucketHead[highest];
+            bucketHead[highest] = bucketNext[u];
+            highest = Math.max(highest, discharge(u, s, t));
+        }
+
+        return excess[t];
+    }
+
+    /**
+     * Heights are the residual distances to t, vertices that cannot reach t start at n + 1
+     */
+    private void globalRelabel(int s, int t){
+        FlowNetwork g = network;
+        Arrays.fill(height, n + 1);
+        height[t] = 0;
+        height[s] = n;
+
+        int qHead = 0, qTail = 0;
+        queue[qTail++] = t;
+        while(qHead < qTail){
+            int w = queue[qHead++];
+            for(int b = g.offsets[w]; b < g.offsets[w + 1]; ++b){
+                int x = g.head[b];
+                // x -> w is the reverse arc of b
+                if(height[x] == n + 1 && g.residual[g.rev[b]] > 0){
+                    height[x] = height[w] + 1;
+                    queue[qTail++] = x;
+                }
+            }
+        }
+    }
+
+    private void activate(int v){
+        bucketNext[v] = bucketHead[height[v]];
+        bucketHead[height[v]] = v;
+    }
+
+    /**
+     * Push the excess of u downhill, relabeling u whenever it has no admissible arc left.
+     *
+     * @return highest height of a vertex activated on the way
+     */
+    private int discharge(int u, int s, int t){
+        FlowNetwork g = network;
+        int highest = -1;
+
+        while(excess[u] > 0){
+            int a = current[u];
+            if(a == g.offsets[u + 1]){
+                relabel(u);
+                continue;
+            }
+
+            int v = g.head[a];
+            if(g.residual[a] > 0 && height[u] == height[v] + 1){
+                long f = Math.min(excess[u], g.residual[a]);
+                g.push(a, f);
+                excess[u] -= f;
+                if(excess[v] == 0 && v != s && v != t){
+                    activate(v);
+                    highest = Math.max(highest, height[v]);
+                }
+                excess[v] += f;
+                if(g.residual[a] == 0)
+                    current[u]++;
+            }else{
+                current[u]++;
+            }
+        }
+
+        return highest;
+    }
+
+    private void relabel(int u){
+        FlowNetwork g = network;
+        int old = height[u];
+
+        int lowest = 2 * n;
+        for(int a = g.offsets[u]; a < g.offsets[u + 1]; ++a)
+            if(g.residual[a] > 0)
+                lowest = Math.min(lowest, height[g.head[a]] + 1);
+
+        count[old]--;
+        height[u] = lowest;
+        count[lowest]++;
+        current[u] = g.offsets[u];
+
+        // gap: nothing at height old, so nothing above it can reach t. u was the highest active vertex, so the
+        // lifted vertices are all inactive and in no bucket.
+        if(old < n && count[old] == 0){
+            for(int v=0; v<n; ++v){
+                if(height[v] > old && height[v] < n){
+                    count[height[v]]--;
+                    height[v] = n + 1;
+                    count[n + 1]++;
+                    current[v] = g.offsets[v];
+                }
+            }
+        }
+    }
+}
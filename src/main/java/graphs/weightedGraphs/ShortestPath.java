@@ -1,30 +1,12 @@
 package graphs.weightedGraphs;
 
+import dataStructures.IndexedDaryHeap;
+import graphs.CSRGraph;
+
 import java.lang.reflect.Array;
 import java.util.*;
 
 public class ShortestPath {
-    static class Edge{
-        int u;
-        int v; // destination node id
-        int weight;
-
-        public Edge(int u, int v, int weight){
-            this.u = u;
-            this.v = v;
-            this.weight = weight;
-        }
-
-        @Override
-        public String toString() {
-            return "Edge{" +
-                    "u=" + u +
-                    ", v=" + v +
-                    ", weight=" + weight +
-                    '}';
-        }
-    }
-
     // A utility function to print the constructed distance array
     private static void printSolution(int dist[]) {
         System.out.println("Vertex \t\t Distance from Source");
@@ -33,11 +15,25 @@ public class ShortestPath {
     }
 
 
+    // walks the parents iteratively, a recursive walk overflows the stack on long paths. The vertices are
+    // collected first and appended source first, inserting at the front would copy the string on every step.
     private static String getPath(int[] parent, int v){
-        if(parent[v] == -1)
-            return v + "";
+        int length = 0;
+        for(int u = v; u != -1; u = parent[u])
+            length++;
+
+        int[] vertices = new int[length];
+        for(int u = v, i = length - 1; u != -1; u = parent[u], --i)
+            vertices[i] = u;
+
+        StringBuilder path = new StringBuilder();
+        for(int i=0; i<length; ++i){
+            if(i > 0)
+                path.append("->");
+            path.append(vertices[i]);
+        }
 
-        return getPath(parent, parent[v]) + "->" + v;
+        return path.toString();
     }
 
     /**
@@ -54,21 +50,22 @@ public class ShortestPath {
      * shortest path spanning tree rooted in s.
      *
      * Time Complexity of the implementation is O(V^2). If the input graph is represented using
-     * adjacency list, it can be reduced to O(E log V) with the help of binary heap.
+     * adjacency list, it can be reduced to O(E log V) with the help of binary heap, see shortestPathTree.
      *
      * Space complexity is O(V).
      *
      * Dijkstra’s algorithm doesn’t work for graphs with negative weight edges. For graphs with
-     * negative weight edges, Bellman–Ford algorithm can be used. Most applications do not feature
+     * negative weight edges, Bellman–Ford algorithm can be used (see BellmanFord). Most applications do not feature
      * negative-weight edges, making this type of problems academic.
      */
-    public static int[] dijkstra(LinkedList<Edge>[] adjList, int start){
+    public static int[] dijkstra(CSRGraph graph, int start){
         final int INF = (int)1e6;
-        int[] distance = new int[adjList.length];
-        int[] parent = new int[adjList.length]; // can be used to get paths
-        boolean[] inTree = new boolean[adjList.length];
+        int V = graph.numVertices();
+        int[] distance = new int[V];
+        int[] parent = new int[V]; // can be used to get paths
+        boolean[] inTree = new boolean[V];
 
-        for(int i=0; i<adjList.length; ++i){
+        for(int i=0; i<V; ++i){
             distance[i] = INF;
             parent[i] = -1;
         }
@@ -79,16 +76,17 @@ public class ShortestPath {
         while(!inTree[u]){
             inTree[u] = true;
 
-            for(Edge e : adjList[u]){
-                if(distance[e.v] > distance[u] + e.weight){
-                    distance[e.v] = distance[u] + e.weight;
-                    parent[e.v] = u;
+            for(int e = graph.edgeStart(u); e < graph.edgeEnd(u); ++e){
+                int v = graph.target(e);
+                if(distance[v] > distance[u] + graph.weight(e)){
+                    distance[v] = distance[u] + graph.weight(e);
+                    parent[v] = u;
                 }
             }
 
             // we want to include the closest outside vertex (in shortest-path distance) to s.
             int dist = Integer.MAX_VALUE;
-            for(int i=0; i<adjList.length; ++i) {
+            for(int i=0; i<V; ++i) {
                 if (!inTree[i] && dist > distance[i]) {
                     dist = distance[i];
                     u = i;
@@ -117,11 +115,11 @@ public class ShortestPath {
 
     /**
      * Time Complexity: V  + E log V
+     *
+     * Fills distance and parent without printing. Every decrease-key is a remove and an add on the TreeSet.
      */
-    private static int[] optimizedDijkstraALg(LinkedList<Edge>[] adjList, int start){
-        int V = adjList.length;
-        int[] distance = new int[V];
-        int[] parent = new int[V];
+    static void treeSetDijkstra(CSRGraph graph, int start, int[] distance, int[] parent){
+        int V = graph.numVertices();
         Node[] nodes = new Node[V];
         boolean[] inTree = new boolean[V];
 
@@ -144,24 +142,84 @@ public class ShortestPath {
             Node u = pq.pollFirst(); // poll node with lowest cost
             inTree[u.id] = true;
 
-            for(Edge e: adjList[u.id]){
-                if(!inTree[e.v] && distance[e.v] > distance[e.u] + e.weight){
-                    parent[e.v] = e.u;
-                    distance[e.v] = distance[e.u] + e.weight;
+            for(int e = graph.edgeStart(u.id); e < graph.edgeEnd(u.id); ++e){
+                int v = graph.target(e);
+                if(!inTree[v] && distance[v] > distance[u.id] + graph.weight(e)){
+                    parent[v] = u.id;
+                    distance[v] = distance[u.id] + graph.weight(e);
 
                     // update treeSet
-                    Node n = nodes[e.v];
+                    Node n = nodes[v];
                     pq.remove(n); // O(log V)
-                    n.cost = distance[e.v];
+                    n.cost = distance[v];
                     pq.add(n); // O(log V)
                }
             }
         }
+    }
+
+    private static int[] optimizedDijkstraALg(CSRGraph graph, int start){
+        int V = graph.numVertices();
+        int[] distance = new int[V];
+        int[] parent = new int[V];
+
+        treeSetDijkstra(graph, start, distance, parent);
 
         printSolution(distance);
         return parent;
     }
 
+    /**
+     * Dijkstra’s algorithm on an indexed 4-ary heap. Time Complexity: O(E log V), Space complexity O(V).
+     *
+     * Only the source starts in the heap and a vertex enters it when it is first reached, so the heap holds
+     * the frontier instead of all V vertices. A shorter path to a queued vertex lowers its key in place,
+     * nothing is allocated per edge. Distances are longs, so long paths of large int weights do not overflow.
+     *
+     * @param graph int weighted graph without negative weights
+     * @return distances and parents of all vertices, unreachable vertices have distance UNREACHABLE
+     */
+    public static ShortestPathTree shortestPathTree(CSRGraph graph, int source){
+        return shortestPathTree(graph, source, new IndexedDaryHeap(graph.numVertices()));
+    }
+
+    /**
+     * Same as shortestPathTree(graph, source), reusing an empty heap of capacity numVertices
+     */
+    static ShortestPathTree shortestPathTree(CSRGraph graph, int source, IndexedDaryHeap heap){
+        int V = graph.numVertices();
+        long[] distance = new long[V];
+        int[] parent = new int[V];
+        boolean[] inTree = new boolean[V];
+
+        Arrays.fill(distance, ShortestPathTree.UNREACHABLE);
+        Arrays.fill(parent, -1);
+
+        distance[source] = 0;
+        heap.insert(source, 0);
+
+        while(!heap.isEmpty()){
+            int u = heap.pollMin(); // closest vertex outside the tree
+            inTree[u] = true;
+
+            for(int e = graph.edgeStart(u); e < graph.edgeEnd(u); ++e){
+                int v = graph.target(e);
+                int w = graph.weight(e);
+                if(w < 0)
+                    throw new IllegalArgumentException("Negative weight " + w + " on edge " + u + " -> " + v);
+
+                long dist = distance[u] + w;
+                if(!inTree[v] && dist < distance[v]){
+                    distance[v] = dist;
+                    parent[v] = u;
+                    heap.insertOrDecrease(v, dist);
+                }
+            }
+        }
+
+        return new ShortestPathTree(source, distance, parent);
+    }
+
     /**
      * Floyd’s algorithm computes the shortest path between all pairs of vertices in a given graph.
      * It works correctly unless there are negative cost cycles.
@@ -180,8 +238,23 @@ public class ShortestPath {
      * vertex used for each vertex pair (x, y). Say this value is k. The shortest path from
      * x to y is the concatenation of the shortest path from x to k with the shortest
      * path from k to y, which can be reconstructed recursively given the matrix P
+     *
+     * See AllPairsShortestPath for a blocked, parallel version without the zero weight limitation.
      */
     private static void floydAlg(int[][] adjMatrix){
+        floydWarshall(adjMatrix);
+
+        for(int i=0; i<adjMatrix.length; ++i) {
+            System.out.println("Source vertex is " + i);
+            printSolution(adjMatrix[i]);
+        }
+    }
+
+    /**
+     * The plain triple loop of floydAlg without printing, a zero entry off the diagonal means no edge.
+     * Replaces adjMatrix by the distances.
+     */
+    static void floydWarshall(int[][] adjMatrix){
         final int INF = (int) 1e6;
         int V = adjMatrix.length;
 
@@ -208,11 +281,6 @@ public class ShortestPath {
                 }
             }
         }
-
-        for(int i=0; i<V; ++i) {
-            System.out.println("Source vertex is " + i);
-            printSolution(adjMatrix[i]);
-        }
     }
 
     public static void main(String[] args){
@@ -226,28 +294,28 @@ public class ShortestPath {
                                         { 8, 11, 0, 0, 0, 0, 1, 0, 7 },
                                         { 0, 0, 2, 0, 0, 0, 6, 7, 0 } };
 
-        LinkedList<Edge>[] adjList = new LinkedList[adjMatrix.length];
-        for(int i=0; i<adjList.length; ++i)
-            adjList[i] = new LinkedList<Edge>();
-
-        for(int i=0; i<adjMatrix.length; ++i)
-            for(int j=0; j<adjMatrix[0].length; ++j)
-                if(adjMatrix[i][j] > 0)
-                    adjList[i].add(new Edge(i, j, adjMatrix[i][j]));
+        CSRGraph graph = CSRGraph.fromAdjacencyMatrix(adjMatrix);
 
         System.out.println("\n =====  Dijskra's Algorithm ====== ");
 
-        int[] parent = dijkstra(adjList, 0);
+        int[] parent = dijkstra(graph, 0);
         System.out.println("\npath from 0 to 6: " + getPath(parent, 6));
         System.out.println("\npath from 0 to 8: " + getPath(parent, 8));
 
         System.out.println("\n ===== Optimized Dijskra's Algorithm ====== ");
 
-        parent = optimizedDijkstraALg(adjList, 0);
+        parent = optimizedDijkstraALg(graph, 0);
 
         System.out.println("\npath from 0 to 6: " + getPath(parent, 6));
         System.out.println("\npath from 0 to 8: " + getPath(parent, 8));
 
+        System.out.println("\n ===== Heap Dijskra's Algorithm ====== ");
+
+        ShortestPathTree tree = shortestPathTree(graph, 0);
+
+        System.out.println("\npath from 0 to 6: " + Arrays.toString(tree.path(6)) + " distance " + tree.distance(6));
+        System.out.println("\npath from 0 to 8: " + Arrays.toString(tree.path(8)) + " distance " + tree.distance(8));
+
         System.out.println("\n =====  Floyd's Algorithm ====== ");
 
 //        floydAlg(adjMatrix);
@@ -0,0 +1,75 @@
+package graphs.weightedGraphs;
+
+/**
+ * Result of a single-source shortest path search: the distance of every vertex from the source and the
+ * parent of every vertex on its shortest path. Together the parents form a shortest path spanning tree
+ * rooted in the source.
+ */
+public final class ShortestPathTree {
+
+    // distance of vertices that cannot be reached from the source
+    public static final long UNREACHABLE = Long.MAX_VALUE;
+
+    private final int source;
+    private final long[] distance;
+    private final int[] parent; // -1 for the source and for unreachable vertices
+
+    ShortestPathTree(int source, long[] distance, int[] parent){
+        this.source = source;
+        this.distance = distance;
+        this.parent = parent;
+    }
+
+    public int getSource(){
+        return source;
+    }
+
+    public int numVertices(){
+        return distance.length;
+    }
+
+    /**
+     * @return length of the shortest path from the source to v, or UNREACHABLE
+     */
+    public long distance(int v){
+        return distance[v];
+    }
+
+    public int parent(int v){
+        return parent[v];
+    }
+
+    public boolean hasPath(int v){
+        return distance[v] != UNREACHABLE;
+    }
+
+    /**
+     * @return vertices of the shortest path from the source to v, or an empty array if v is unreachable
+     */
+    public int[] path(int v){
+        if(!hasPath(v))
+            return new int[0];
+
+        int length = 1;
+        for(int u = v; u != source; u = parent[u])
+            length++;
+
+        // walk the parents back from v, filling the path from its end
+        int[] path = new int[length];
+        for(int u = v, i = length - 1; i >= 0; u = parent[u], --i)
+            path[i] = u;
+
+        return path;
+    }
+
+    /**
+     * The arrays are shared with this tree, not copied
+     */
+    public long[] getDistances(){
+        return distance;
+    }
+
+    public int[] getParents(){
+        return parent;
+    }
+}
@@ -0,0 +1,135 @@
+package rtree;
+
+import rtree.geometry.Point2d;
+import rtree.geometry.Rect2d;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the blocking ConcurrentRTree API with AsyncSpatialSearch when 10k callers query at once.
+ *
+ * Blocking: every caller runs its query on its own thread (virtual threads on JDK 21+).
+ * Async: every caller submits its query to the facade and waits for the CompletionStage, queries run on a
+ * fixed pool sized to the machine or on virtual threads.
+ */
+public class AsyncSearchBenchmark {
+
+    private static final int ENTRIES = 1_000_000;
+    private static final int CALLERS = 10_000;
+    private static final int QUERIES_PER_CALLER = 10;
+    private static final double QUERY_SIZE = 2.0;
+
+    private static final class Run {
+        final String name;
+        final long elapsedNanos;
+        final long[] latencies;
+
+        Run(final String name, final long elapsedNanos, final long[] latencies) {
+            this.name = name;
+            this.elapsedNanos = elapsedNanos;
+            this.latencies = latencies;
+        }
+
+        void print() {
+            Arrays.sort(latencies);
+            final double seconds = elapsedNanos / 1e9;
+            System.out.printf("%-28s %10.0f queries/s   p50 %8.1fus   p99 %8.1fus%n", name,
+                    latencies.length / seconds,
+                    latencies[latencies.length / 2] / 1e3,
+                    latencies[(int) (latencies.length * 0.99)] / 1e3);
+        }
+    }
+
+    private interface Caller {
+        void query(Rect2d rect) throws Exception;
+    }
+
+    private static Run run(final String name, final ExecutorService callers, final Rect2d[] rects, final Caller caller) throws InterruptedException {
+        final long[] latencies = new long[CALLERS * QUERIES_PER_CALLER];
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(CALLERS);
+
+        for(int c = 0; c < CALLERS; c++) {
+            final int callerId = c;
+            callers.execute(() -> {
+                try {
+                    start.await();
+                    for(int q = 0; q < QUERIES_PER_CALLER; q++) {
+                        final int i = callerId * QUERIES_PER_CALLER + q;
+                        final long t0 = System.nanoTime();
+                        caller.query(rects[i % rects.length]);
+                        latencies[i] = System.nanoTime() - t0;
+                    }
+                } catch(Exception e) {
+                    throw new RuntimeException(e);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        final long t0 = System.nanoTime();
+        start.countDown();
+        done.await();
+        return new Run(name, System.nanoTime() - t0, latencies);
+    }
+
+    public static void main(String[] args) throws Exception {
+        final Random random = new Random(7);
+        final SpatialSearch<Point2d> tree = SpatialSearches.lockingRTree(new Point2d.Builder(), 2, 16, RTree.Split.AXIAL);
+        for(int i = 0; i < ENTRIES; i++) {
+            tree.add(new Point2d(random.nextDouble() * 1000, random.nextDouble() * 1000));
+        }
+
+        final Rect2d[] rects = new Rect2d[4096];
+        for(int i = 0; i < rects.length; i++) {
+            final double x = random.nextDouble() * (1000 - QUERY_SIZE);
+            final double y = random.nextDouble() * (1000 - QUERY_SIZE);
+            rects[i] = new Rect2d(x, y, x + QUERY_SIZE, y + QUERY_SIZE);
+        }
+
+        final int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println(CALLERS + " callers x " + QUERIES_PER_CALLER + " queries, " + ENTRIES + " entries, " + cores + " cores");
+
+        final List<Run> runs = new ArrayList<>();
+        for(int round = 0; round < 2; round++) {
+            runs.clear();
+
+            ExecutorService callers = AsyncSpatialSearch.virtualThreadExecutor();
+            runs.add(run("blocking", callers, rects, rect -> {
+                final List<Point2d> found = new ArrayList<>();
+                tree.intersects(rect, found::add);
+            }));
+            shutdown(callers);
+
+            callers = AsyncSpatialSearch.virtualThreadExecutor();
+            final ExecutorService pool = AsyncSpatialSearch.fixedPoolExecutor(cores);
+            final AsyncSpatialSearch<Point2d> fixed = new AsyncSpatialSearch<>(tree, pool, 4 * cores);
+            runs.add(run("async fixed pool", callers, rects, rect -> fixed.submit(rect).toCompletableFuture().get()));
+            shutdown(callers);
+            shutdown(pool);
+
+            callers = AsyncSpatialSearch.virtualThreadExecutor();
+            final ExecutorService perTask = AsyncSpatialSearch.virtualThreadExecutor();
+            final AsyncSpatialSearch<Point2d> virtual = new AsyncSpatialSearch<>(tree, perTask, 4 * cores);
+            runs.add(run("async thread per task", callers, rects, rect -> virtual.submit(rect).toCompletableFuture().get()));
+            shutdown(callers);
+            shutdown(perTask);
+        }
+
+        for(Run run : runs) {
+            run.print();
+        }
+    }
+
+    private static void shutdown(final ExecutorService executor) throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+}
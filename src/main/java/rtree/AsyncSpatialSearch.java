@@ -0,0 +1,240 @@
+package rtree;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Asynchronous query facade over a SpatialSearch. Queries are submitted to an executor and complete a
+ * CompletionStage with their results.</p>
+ *
+ * <p>Backpressure: at most maxInFlight queries are queued or running at once. submit() blocks the caller while
+ * the limit is reached, which is cheap for virtual threads; trySubmit() fails fast instead. submitAll() runs a
+ * scatter-gather over many queries with its own parallelism bound on top of that limit.</p>
+ *
+ * The wrapped index must be safe for concurrent readers, e.g. ConcurrentRTree.
+ */
+public final class AsyncSpatialSearch<T> {
+
+    private final SpatialSearch<T> tree;
+    private final Executor executor;
+    private final Semaphore inFlight;
+
+    /**
+     * @param tree - index to query, must support concurrent reads
+     * @param executor - runs the queries
+     * @param maxInFlight - maximum number of queries queued or running at once
+     */
+    public AsyncSpatialSearch(final SpatialSearch<T> tree, final Executor executor, final int maxInFlight) {
+        if(maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be positive");
+        }
+        this.tree = tree;
+        this.executor = executor;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * Create an executor that starts a virtual thread per task when the running JDK supports it (21+) and falls
+     * back to a cached platform thread pool otherwise
+     *
+     * @return ExecutorService - caller is responsible for shutdown
+     */
+    public static ExecutorService virtualThreadExecutor() {
+        try {
+            final Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch(ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * Create a fixed size pool of platform threads
+     *
+     * @param nThreads - number of threads
+     *
+     * @return ExecutorService - caller is responsible for shutdown
+     */
+    public static ExecutorService fixedPoolExecutor(final int nThreads) {
+        return Executors.newFixedThreadPool(nThreads);
+    }
+
+    /**
+     * Search for entries intersecting given bounding rect, waiting for a free slot if maxInFlight queries
+     * are outstanding
+     *
+     * @param rect - Bounding rectangle to use for querying
+     *
+     * @return CompletionStage - completed with the intersecting entries
+     */
+    public CompletionStage<List<T>> submit(final HyperRect rect) {
+        try {
+            inFlight.acquire();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            final CompletableFuture<List<T>> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+        return dispatch(rect, true);
+    }
+
+    /**
+     * Search for entries intersecting given bounding rect without blocking
+     *
+     * @param rect - Bounding rectangle to use for querying
+     *
+     * @return CompletionStage - completed with the intersecting entries, or null if maxInFlight queries are
+     * outstanding
+     */
+    public CompletionStage<List<T>> trySubmit(final HyperRect rect) {
+        if(inFlight.tryAcquire()) {
+            return dispatch(rect, true);
+        }
+        return null;
+    }
+
+    /**
+     * Scatter-gather: run every query with at most parallelism of them outstanding at once
+     *
+     * @param rects - Bounding rectangles to use for querying
+     * @param parallelism - maximum number of these queries in flight
+     *
+     * @return CompletionStage - completed with the results of each query, in the order of rects
+     */
+    public CompletionStage<List<List<T>>> submitAll(final List<? extends HyperRect> rects, final int parallelism) {
+        final int n = rects.size();
+        final CompletableFuture<List<List<T>>> all = new CompletableFuture<>();
+        if(n == 0) {
+            all.complete(Collections.emptyList());
+            return all;
+        }
+
+        final List<List<T>> results = new ArrayList<>(Collections.nCopies(n, (List<T>) null));
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicInteger remaining = new AtomicInteger(n);
+
+        // each lane holds one in flight slot for its lifetime and issues its next query when the previous one
+        // completes, so completion callbacks never block on the semaphore
+        final int lanes = Math.min(Math.max(parallelism, 1), n);
+        for(int lane = 0; lane < lanes; lane++) {
+            try {
+                inFlight.acquire();
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                all.completeExceptionally(e);
+                break;
+            }
+            runLane(rects, results, next, remaining, all);
+        }
+        return all;
+    }
+
+    private void runLane(final List<? extends HyperRect> rects, final List<List<T>> results, final AtomicInteger next,
+                         final AtomicInteger remaining, final CompletableFuture<List<List<T>>> all) {
+        while(true) {
+            final int i = next.getAndIncrement();
+            if(i >= rects.size() || all.isDone()) {
+                inFlight.release();
+                return;
+            }
+            final CompletableFuture<List<T>> future = dispatch(rects.get(i), false);
+
+            // whoever of this thread and the callback comes second continues the lane. A query that completed
+            // before the callback was registered (a direct executor, a rejection) is picked up by the loop, so
+            // the stack does not grow with the number of queries.
+            final AtomicBoolean handOff = new AtomicBoolean();
+            future.whenComplete((found, error) -> {
+                if(!handOff.compareAndSet(false, true) && store(i, found, error, results, remaining, all)) {
+                    runLane(rects, results, next, remaining, all);
+                }
+            });
+            if(handOff.compareAndSet(false, true)) {
+                return;
+            }
+
+            List<T> found = null;
+            Throwable error = null;
+            try {
+                found = future.join();
+            } catch(CompletionException e) {
+                error = e.getCause();
+            } catch(CancellationException e) {
+                error = e;
+            }
+            if(!store(i, found, error, results, remaining, all)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Record the result of query i
+     *
+     * @return true if the lane goes on with the next query, false if it gave its slot back
+     */
+    private boolean store(final int i, final List<T> found, final Throwable error, final List<List<T>> results,
+                          final AtomicInteger remaining, final CompletableFuture<List<List<T>>> all) {
+        if(error != null) {
+            inFlight.release();
+            all.completeExceptionally(error);
+            return false;
+        }
+        synchronized(results) {
+            results.set(i, found);
+        }
+        if(remaining.decrementAndGet() == 0) {
+            inFlight.release();
+            synchronized(results) {
+                all.complete(results);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Run the query on the executor, the caller holds an in flight slot
+     *
+     * @param release - give the slot back once the query is done
+     */
+    private CompletableFuture<List<T>> dispatch(final HyperRect rect, final boolean release) {
+        final CompletableFuture<List<T>> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    final List<T> found = new ArrayList<>();
+                    tree.intersects(rect, found::add);
+                    if(release) {
+                        inFlight.release();
+                    }
+                    future.complete(found);
+                } catch(Throwable t) {
+                    if(release) {
+                        inFlight.release();
+                    }
+                    future.completeExceptionally(t);
+                }
+            });
+        } catch(RuntimeException e) {
+            // rejected by the executor
+            if(release) {
+                inFlight.release();
+            }
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+}
@@ -2,6 +2,13 @@ package rtree;
 
 import java.util.function.Consumer;
 
+/**
+ * Inner node of the tree. Besides the child nodes, the bounds of each child are kept in primitive arrays laid
+ * out dimension by dimension, [d * mMax + i], along with the area of each child, so choosing the subtree for
+ * an insert reads flat arrays and allocates no HyperRects. The arrays are refreshed whenever a child changes.
+ *
+ * @param <T>
+ */
 final class Branch<T> implements Node<T> {
 
     private final RectBuilder<T> builder;
@@ -18,6 +25,20 @@ final class Branch<T> implements Node<T> {
 
     private int size;
 
+    private int nDim;
+
+    // bounds and area of each child, allocated with the first child
+    private double[] childLo;
+
+    private double[] childHi;
+
+    private double[] childArea;
+
+    // bounds of the rect being inserted, scratch for chooseLeaf
+    private double[] tLo;
+
+    private double[] tHi;
+
     Branch(final RectBuilder<T> builder, final int mMin, final int mMax, final RTree.Split splitType) {
         this.mMin = mMin;
         this.mMax = mMax;
@@ -36,7 +57,9 @@ final class Branch<T> implements Node<T> {
      */
     protected int addChild(final Node<T> n) {
         if(size < mMax) {
-            child[size++] = n;
+            child[size] = n;
+            syncChild(size);
+            size++;
 
             if(mbr != null) {
                 mbr = mbr.getMbr(n.getBound());
@@ -67,30 +90,24 @@ final class Branch<T> implements Node<T> {
      */
     public Node<T> add(final T t) {
         final HyperRect tRect = builder.getBBox(t);
-        if(size < mMin) {
-            for(int i=0; i<size; i++) {
-                if(child[i].getBound().contains(tRect)) {
-                    child[i] = child[i].add(t);
-                    mbr = mbr.getMbr(child[i].getBound());
-                    return this;
-                }
-            }
-            // no overlapping node - grow
+        final int best = chooseLeaf(tRect);
+
+        if(best < 0) {
+            // no child encloses the entry and the branch is below its minimum fill - grow
             final Node<T> nextLeaf = Leaf.create(builder, mMin, mMax, splitType);
             nextLeaf.add(t);
-            final int nextChild = addChild(nextLeaf);
-            mbr = mbr.getMbr(child[nextChild].getBound());
-
+            addChild(nextLeaf);
             return this;
+        }
 
-        } else {
-            final int bestLeaf = chooseLeaf(t, tRect);
-
-            child[bestLeaf] = child[bestLeaf].add(t);
-            mbr = mbr.getMbr(child[bestLeaf].getBound());
-
-            return this;
+        child[best] = child[best].add(t);
+        syncChild(best);
+        final HyperRect childMbr = child[best].getBound();
+        if(!mbr.contains(childMbr)) {
+            mbr = mbr.getMbr(childMbr);
         }
+
+        return this;
     }
 
     public Node<T> remove(final T t) {
@@ -98,13 +115,17 @@ final class Branch<T> implements Node<T> {
 
         for (int i = 0; i < size; i++) {
             if (child[i].getBound().intersects(tRect)) {
-                child[i] = child[i].remove(t);
+                final Node<T> next = child[i].remove(t);
 
-                if (child[i] == null) {
-                    System.arraycopy(child, i+1, child, i, size-i-1);
+                if (next == null) {
+                    // shrink the size before moving and clearing slots, without fences an optimistic reader can
+                    // still see an empty child and is left to StampedRTree's validate() and retry
                     size--;
+                    System.arraycopy(child, i+1, child, i, size-i);
                     child[size] = null;
                     if(size > 0) i--;
+                } else {
+                    child[i] = next;
                 }
             }
         }
@@ -117,8 +138,10 @@ final class Branch<T> implements Node<T> {
         }
 
         mbr = child[0].getBound();
+        syncChild(0);
         for(int i=1; i<size; i++) {
             mbr = mbr.getMbr(child[i].getBound());
+            syncChild(i);
         }
 
         return this;
@@ -129,6 +152,7 @@ final class Branch<T> implements Node<T> {
         for(int i = 0; i < size; i++){
             if(tRect.intersects(child[i].getBound())) {
                 child[i] = child[i].update(told, tnew);
+                syncChild(i);
             }
             if(i==0) {
                 mbr = child[i].getBound();
@@ -177,6 +201,14 @@ final class Branch<T> implements Node<T> {
         return n-n0;
     }
 
+    public void within(final HyperPoint p, final double radius, final Consumer<T> consumer) {
+        for(int i = 0; i < size; i++) {
+            if(child[i].getBound().minDistance(p) <= radius) {
+                child[i].within(p, radius, consumer);
+            }
+        }
+    }
+
     /**
      * @return number of child nodes
      */
@@ -192,47 +224,86 @@ final class Branch<T> implements Node<T> {
         return s;
     }
 
-    private int chooseLeaf(final T t, final HyperRect tRect) {
-        if(size > 0) {
-            int bestNode = 0;
-            HyperRect childMbr = child[0].getBound().getMbr(tRect);
-            double leastEnlargement = childMbr.cost() - (child[0].getBound().cost() + tRect.cost());
-            double leastPerimeter   = childMbr.perimeter();
-
-            for(int i = 1; i<size; i++) {
-                childMbr = child[i].getBound().getMbr(tRect);
-                final double nodeEnlargement = childMbr.cost() - (child[i].getBound().cost() + tRect.cost());
-                if (nodeEnlargement < leastEnlargement) {
-                    leastEnlargement = nodeEnlargement;
-                    leastPerimeter  = childMbr.perimeter();
-                    bestNode = i;
-                }
-                else if(RTree.isEqual(nodeEnlargement, leastEnlargement)) {
-                    final double childPerimeter = childMbr.perimeter();
-                    if (childPerimeter < leastPerimeter) {
-                        leastEnlargement = nodeEnlargement;
-                        leastPerimeter = childPerimeter;
-                        bestNode = i;
-                    }
-                } // else its not the least
+    /**
+     * Pick the child to insert a rect into in one pass over the child bounds. Below the minimum fill the first
+     * child that encloses the rect is used and a new leaf is wanted when there is none, otherwise the child
+     * whose area grows the least, ties going to the smaller perimeter of the enlarged child.
+     *
+     * @param tRect - bounds of the entry being inserted
+     * @return index of the chosen child, or -1 if a new leaf should be added
+     */
+    private int chooseLeaf(final HyperRect tRect) {
+        if(size == 0) {
+            return -1;
+        }
 
-            }
-            return bestNode;
+        double tArea = 1.0;
+        for(int d = 0; d < nDim; d++) {
+            tLo[d] = tRect.getMinCoord(d);
+            tHi[d] = tRect.getMaxCoord(d);
+            tArea *= tHi[d] - tLo[d];
         }
-        else {
-            final Node<T> n = Leaf.create(builder, mMin, mMax, splitType);
-            n.add(t);
-            child[size++] = n;
+        tArea = Math.abs(tArea);
 
-            if(mbr == null) {
-                mbr = n.getBound();
+        int bestNode = -1;
+        double leastEnlargement = Double.POSITIVE_INFINITY;
+        double leastPerimeter = Double.POSITIVE_INFINITY;
+        for(int i = 0; i < size; i++) {
+            boolean encloses = true;
+            double area = 1.0;
+            double perimeter = 0.0;
+            for(int d = 0; d < nDim; d++) {
+                final double lo = childLo[d * mMax + i];
+                final double hi = childHi[d * mMax + i];
+                encloses &= lo <= tLo[d] && hi >= tHi[d];
+                final double range = (hi > tHi[d] ? hi : tHi[d]) - (lo < tLo[d] ? lo : tLo[d]);
+                area *= range;
+                perimeter += 2.0 * range;
             }
-            else {
-                mbr = mbr.getMbr(n.getBound());
+
+            if(size < mMin) {
+                if(encloses) {
+                    return i;
+                }
+                continue;
+            }
+
+            final double nodeEnlargement = Math.abs(area) - (childArea[i] + tArea);
+            if(bestNode < 0 || nodeEnlargement < leastEnlargement) {
+                leastEnlargement = nodeEnlargement;
+                leastPerimeter = perimeter;
+                bestNode = i;
+            } else if(RTree.isEqual(nodeEnlargement, leastEnlargement) && perimeter < leastPerimeter) {
+                leastEnlargement = nodeEnlargement;
+                leastPerimeter = perimeter;
+                bestNode = i;
             }
+        }
+        return bestNode;
+    }
 
-            return size-1;
+    /**
+     * Copy the bounds of child i into the primitive arrays
+     */
+    private void syncChild(final int i) {
+        final HyperRect bound = child[i].getBound();
+        if(childLo == null) {
+            nDim = bound.getNDim();
+            childLo = new double[nDim * mMax];
+            childHi = new double[nDim * mMax];
+            childArea = new double[mMax];
+            tLo = new double[nDim];
+            tHi = new double[nDim];
+        }
+        double area = 1.0;
+        for(int d = 0; d < nDim; d++) {
+            final double lo = bound.getMinCoord(d);
+            final double hi = bound.getMaxCoord(d);
+            childLo[d * mMax + i] = lo;
+            childHi[d * mMax + i] = hi;
+            area *= hi - lo;
         }
+        childArea[i] = Math.abs(area);
     }
 
     /**
@@ -0,0 +1,166 @@
+package rtree;
+
+import java.util.Collection;
+
+/**
+ * <p>Builds an R-Tree bottom up with Sort-Tile-Recursive packing instead of inserting entries one at a time.</p>
+ *
+ * <p>Entries are sorted by the center of their bounding rect along the first dimension and cut into slabs,
+ * each slab is sorted along the next dimension and cut again, and so on until the runs are M entries long.
+ * Each run becomes a full leaf. The leaves are then packed into branches the same way until a single root is
+ * left, so every node except the last of each level is full and siblings barely overlap.</p>
+ *
+ * Reference: Leutenegger, Lopez, Edgington - STR: A Simple and Efficient Algorithm for R-Tree Packing
+ */
+final class BulkLoader {
+
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private BulkLoader() {}
+
+    /**
+     * Pack the given entries into a new tree
+     *
+     * @param builder - Builder implementation used to create HyperRects out of T's
+     * @param mMin - minimum number of entries per node of this tree
+     * @param mMax - maximum number of entries per node of this tree, nodes are packed to this size
+     * @param splitType - type of split used by later inserts into the packed leaves
+     * @param entries - entries to index
+     * @param <T> - The store type of the bound
+     *
+     * @return root node of the packed tree, or null if there are no entries
+     */
+    @SuppressWarnings("unchecked")
+    static <T> Node<T> load(final RectBuilder<T> builder, final int mMin, final int mMax, final RTree.Split splitType,
+                            final Collection<? extends T> entries) {
+        final int n = entries.size();
+        if(n == 0) {
+            return null;
+        }
+
+        final Object[] items = entries.toArray();
+        final HyperRect[] bounds = new HyperRect[n];
+        for(int i = 0; i < n; i++) {
+            bounds[i] = builder.getBBox((T) items[i]);
+        }
+
+        // leaf level
+        final int[] order = sortTiles(bounds, n, mMax);
+        Node<T>[] level = new Node[(n + mMax - 1) / mMax];
+        for(int l = 0; l < level.length; l++) {
+            final Node<T> leaf = Leaf.create(builder, mMin, mMax, splitType);
+            final int end = Math.min(n, (l + 1) * mMax);
+            for(int k = l * mMax; k < end; k++) {
+                leaf.add((T) items[order[k]]);
+            }
+            level[l] = leaf;
+        }
+
+        // branch levels
+        while(level.length > 1) {
+            final int nodes = level.length;
+            final HyperRect[] nodeBounds = new HyperRect[nodes];
+            for(int i = 0; i < nodes; i++) {
+                nodeBounds[i] = level[i].getBound();
+            }
+
+            final int[] nodeOrder = sortTiles(nodeBounds, nodes, mMax);
+            final Node<T>[] parents = new Node[(nodes + mMax - 1) / mMax];
+            for(int p = 0; p < parents.length; p++) {
+                final Branch<T> branch = new Branch<>(builder, mMin, mMax, splitType);
+                final int end = Math.min(nodes, (p + 1) * mMax);
+                for(int k = p * mMax; k < end; k++) {
+                    branch.addChild(level[nodeOrder[k]]);
+                }
+                parents[p] = branch;
+            }
+            level = parents;
+        }
+
+        return level[0];
+    }
+
+    /**
+     * @return permutation of [0, n) that lists the rects tile by tile in STR order
+     */
+    private static int[] sortTiles(final HyperRect[] bounds, final int n, final int mMax) {
+        final int nD = bounds[0].getNDim();
+        final double[] center = new double[n * nD];
+        for(int i = 0; i < n; i++) {
+            for(int d = 0; d < nD; d++) {
+                center[i * nD + d] = (bounds[i].getMinCoord(d) + bounds[i].getMaxCoord(d)) / 2.0;
+            }
+        }
+
+        final int[] order = new int[n];
+        for(int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        sortTiles(order, 0, n, 0, nD, center, mMax);
+        return order;
+    }
+
+    private static void sortTiles(final int[] order, final int from, final int to, final int d, final int nD,
+                                  final double[] center, final int mMax) {
+        sort(order, from, to, center, nD, d);
+        if(d == nD - 1) {
+            return;
+        }
+
+        // number of slabs along this dimension so the remaining dimensions get an even share of the pages
+        final int count = to - from;
+        final double pages = Math.ceil(count / (double) mMax);
+        final int slabs = (int) Math.ceil(Math.pow(pages, 1.0 / (nD - d)));
+        final int slabPages = (int) Math.ceil(pages / slabs);
+        final int slabSize = slabPages * mMax;
+
+        for(int start = from; start < to; start += slabSize) {
+            sortTiles(order, start, Math.min(to, start + slabSize), d + 1, nD, center, mMax);
+        }
+    }
+
+    /**
+     * Sort order[from, to) by center[order[i] * nD + d]
+     */
+    private static void sort(final int[] order, int from, int to, final double[] center, final int nD, final int d) {
+        while(to - from > INSERTION_SORT_THRESHOLD) {
+            // median of three pivot
+            final int mid = (from + to) >>> 1;
+            final double a = center[order[from] * nD + d];
+            final double b = center[order[mid] * nD + d];
+            final double c = center[order[to - 1] * nD + d];
+            final double pivot = Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+
+            int i = from, j = to - 1;
+            while(i <= j) {
+                while(center[order[i] * nD + d] < pivot) i++;
+                while(center[order[j] * nD + d] > pivot) j--;
+                if(i <= j) {
+                    final int tmp = order[i];
+                    order[i++] = order[j];
+                    order[j--] = tmp;
+                }
+            }
+
+            // recurse into the smaller half
+            if(j + 1 - from < to - i) {
+                sort(order, from, j + 1, center, nD, d);
+                from = i;
+            } else {
+                sort(order, i, to, center, nD, d);
+                to = j + 1;
+            }
+        }
+
+        for(int i = from + 1; i < to; i++) {
+            final int item = order[i];
+            final double key = center[item * nD + d];
+            int j = i - 1;
+            while(j >= from && center[order[j] * nD + d] > key) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = item;
+        }
+    }
+}
@@ -1,4 +1,7 @@
 package rtree;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.function.Consumer;
@@ -9,11 +12,18 @@ public class ConcurrentRTree<T> implements SpatialSearch<T> {
     private final SpatialSearch<T> rTree;
     private final Lock readLock;
     private final Lock writeLock;
+    // orders batched removes spatially, batches are applied as given when null
+    private final RectBuilder<T> builder;
 
     protected ConcurrentRTree(SpatialSearch<T> rTree, ReadWriteLock lock) {
+        this(rTree, lock, null);
+    }
+
+    protected ConcurrentRTree(SpatialSearch<T> rTree, ReadWriteLock lock, RectBuilder<T> builder) {
         this.rTree = rTree;
         this.readLock = lock.readLock();
         this.writeLock = lock.writeLock();
+        this.builder = builder;
     }
 
     public int intersects(HyperRect rect, T[] t) {
@@ -35,6 +45,15 @@ public class ConcurrentRTree<T> implements SpatialSearch<T> {
         }
     }
 
+    public void within(final HyperPoint p, final double radius, final Consumer<T> consumer) {
+        readLock.lock();
+        try {
+            rTree.within(p, radius, consumer);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
     /**
      * Blocking locked search
      *
@@ -100,6 +119,148 @@ public class ConcurrentRTree<T> implements SpatialSearch<T> {
         }
     }
 
+    /**
+     * Blocking locked add of many entries, the write lock is taken once for the whole batch
+     *
+     * @param entries - entries to add
+     */
+    public void addAll(final Collection<? extends T> entries) {
+        addAll(entries, 0);
+    }
+
+    /**
+     * Blocking locked add of many entries. Entries are added in the given order: this tree is not height
+     * balanced, and inserting in a sorted order would grow it into long chains.
+     *
+     * @param entries - entries to add
+     * @param opsPerLock - release and reacquire the write lock after this many adds so waiting readers get a
+     *                   turn, 0 to hold it for the whole batch. Readers may then see part of the batch.
+     */
+    public void addAll(final Collection<? extends T> entries, final int opsPerLock) {
+        applyAll(entries, Mutation.Type.ADD, opsPerLock);
+    }
+
+    /**
+     * Blocking locked remove of many entries, the write lock is taken once for the whole batch
+     *
+     * @param entries - entries to remove
+     */
+    public void removeAll(final Collection<? extends T> entries) {
+        removeAll(entries, 0);
+    }
+
+    /**
+     * Blocking locked remove of many entries. Entries are removed in Z-order of their bounding rects, so
+     * consecutive removes walk down the same nodes; the order is computed before the lock is taken.
+     *
+     * @param entries - entries to remove
+     * @param opsPerLock - release and reacquire the write lock after this many removes, 0 to hold it for the
+     *                   whole batch
+     */
+    public void removeAll(final Collection<? extends T> entries, final int opsPerLock) {
+        applyAll(entries, Mutation.Type.REMOVE, opsPerLock);
+    }
+
+    /**
+     * Blocking locked batch of mutations, the write lock is taken once for the whole batch
+     *
+     * @param mutations - adds, removes and updates to apply
+     */
+    public void applyBatch(final List<Mutation<T>> mutations) {
+        applyBatch(mutations, 0);
+    }
+
+    /**
+     * Blocking locked batch of mutations. Each run of consecutive removes is applied in Z-order of the bounding
+     * rects; removes commute, so the final contents are the same as applying the list in order. Adds and
+     * updates are applied where they are in the list.
+     *
+     * @param mutations - adds, removes and updates to apply
+     * @param opsPerLock - release and reacquire the write lock after this many mutations, 0 to hold it for the
+     *                   whole batch. Readers may then see part of the batch.
+     */
+    public void applyBatch(final List<Mutation<T>> mutations, final int opsPerLock) {
+        final List<Mutation<T>> list = mutations instanceof RandomAccess ? mutations : new ArrayList<>(mutations);
+        final int n = list.size();
+        final int[] order = identity(n);
+        if(builder != null) {
+            final HyperRect[] bounds = new HyperRect[n];
+            for(int i = 0; i < n; i++) {
+                final Mutation<T> m = list.get(i);
+                if(m.getType() == Mutation.Type.REMOVE) {
+                    bounds[i] = builder.getBBox(m.getEntry());
+                }
+            }
+            final long[] keys = SpatialOrder.keys(bounds);
+            int start = 0;
+            while(start < n) {
+                final Mutation.Type type = list.get(start).getType();
+                int end = start + 1;
+                while(end < n && list.get(end).getType() == type) {
+                    end++;
+                }
+                if(type == Mutation.Type.REMOVE) {
+                    SpatialOrder.sort(order, start, end, keys);
+                }
+                start = end;
+            }
+        }
+
+        writeLock.lock();
+        try {
+            for(int i = 0; i < n; i++) {
+                if(opsPerLock > 0 && i > 0 && i % opsPerLock == 0) {
+                    writeLock.unlock();
+                    writeLock.lock();
+                }
+                list.get(order[i]).apply(rTree);
+            }
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void applyAll(final Collection<? extends T> entries, final Mutation.Type type, final int opsPerLock) {
+        final List<? extends T> list = entries instanceof List && entries instanceof RandomAccess
+                ? (List<? extends T>) entries : new ArrayList<>(entries);
+        final int n = list.size();
+        final int[] order = identity(n);
+        if(builder != null && type == Mutation.Type.REMOVE) {
+            final HyperRect[] bounds = new HyperRect[n];
+            for(int i = 0; i < n; i++) {
+                bounds[i] = builder.getBBox(list.get(i));
+            }
+            SpatialOrder.sort(order, 0, n, SpatialOrder.keys(bounds));
+        }
+
+        writeLock.lock();
+        try {
+            for(int i = 0; i < n; i++) {
+                if(opsPerLock > 0 && i > 0 && i % opsPerLock == 0) {
+                    writeLock.unlock();
+                    writeLock.lock();
+                }
+                if(type == Mutation.Type.ADD) {
+                    rTree.add(list.get(order[i]));
+                } else {
+                    rTree.remove(list.get(order[i]));
+                }
+            }
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    private static int[] identity(final int n) {
+        final int[] order = new int[n];
+        for(int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        return order;
+    }
+
     /**
      * Non-blocking locked search
      *
@@ -12,6 +12,13 @@ final class CounterNode<T> implements Node<T> {
         this.node = node;
     }
 
+    /**
+     * @return the instrumented node
+     */
+    Node<T> getNode() {
+        return node;
+    }
+
     @Override
     public boolean isLeaf() {
         return node.isLeaf();
@@ -70,6 +77,11 @@ final class CounterNode<T> implements Node<T> {
         node.intersects(rect, consumer);
     }
 
+    @Override
+    public void within(HyperPoint p, double radius, Consumer<T> consumer) {
+        node.within(p, radius, consumer);
+    }
+
     @Override
     public boolean contains(HyperRect rect, T t) {
         return node.contains(rect, t);
@@ -0,0 +1,28 @@
+package rtree;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+public interface EntryCodec<T> {
+
+    /**
+     * Write the given element so that decode can rebuild an equal element
+     *
+     * @param t - element to write
+     * @param out - destination
+     *
+     * @throws IOException if the destination fails
+     */
+    void encode(T t, DataOutput out) throws IOException;
+
+    /**
+     * Read an element written by encode
+     *
+     * @param in - source
+     *
+     * @return T - the element read
+     * @throws IOException if the source fails or is truncated
+     */
+    T decode(DataInput in) throws IOException;
+}
@@ -0,0 +1,562 @@
+package rtree;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * <p>Read-only copy of an R-Tree packed into a few flat arrays, for replicas that only serve queries and need
+ * the index to take as little heap as possible.</p>
+ *
+ * <p>Nodes are numbered breadth first so the children of a branch, and the entries of a leaf, sit next to each
+ * other: a node only records where its run starts and how long it is. Bounding boxes are stored as 16 bit
+ * offsets into the decoded box of the parent node and are rounded outward when quantized, so a decoded box
+ * always encloses the exact one and pruning never loses a result. The root box is kept exact.</p>
+ *
+ * <p>Quantized boxes only prune. Every candidate entry is checked against its exact bounding rect from the
+ * RectBuilder with the same test RTree applies, so queries return exactly the entries, in the same order, as
+ * the tree this was frozen from.</p>
+ *
+ * <pre>
+ * node k   := first[k] (child node id, or ~entry id for a leaf), count[k], nodeBox[k]
+ * box      := [char lo 0 .. nDim-1][char hi 0 .. nDim-1]
+ * </pre>
+ *
+ * Mutations throw UnsupportedOperationException. Queries keep their state on the stack and may run
+ * concurrently.
+ */
+public final class FrozenRTree<T> implements SpatialSearch<T> {
+    private static final int NIL = -1;
+
+    private static final int MAX_Q = Character.MAX_VALUE;
+
+    private final RectBuilder<T> builder;
+    private final RTree.Split splitType;
+    private final int mMin;
+    private final int mMax;
+
+    private final int nDim;
+    private final int maxDepth;
+    private final int root;
+
+    private final int[] first;
+    private final int[] count;
+    private final char[] nodeBox;
+
+    private final Object[] entries;
+    private final char[] entryBox;
+
+    private final double[] rootLo;
+    private final double[] rootHi;
+
+    /**
+     * Freeze the tree below root, which is left unchanged
+     *
+     * @param builder - Builder implementation used to create HyperRects out of T's
+     * @param splitType - split type of the source tree, reported by collectStats
+     * @param mMin - minimum number of entries per node of the source tree
+     * @param mMax - maximum number of entries per node of the source tree
+     * @param root - root of the source tree, or null if it is empty
+     */
+    FrozenRTree(final RectBuilder<T> builder, final RTree.Split splitType, final int mMin, final int mMax, final Node<T> root) {
+        this.builder = builder;
+        this.splitType = splitType;
+        this.mMin = mMin;
+        this.mMax = mMax;
+
+        // breadth first numbering, the children of each branch are appended as one run
+        final List<Node<T>> nodes = new ArrayList<>();
+        final List<Integer> depths = new ArrayList<>();
+        if(root != null && root.totalSize() > 0) {
+            nodes.add(unwrap(root));
+            depths.add(0);
+        }
+        int nEntries = 0;
+        int depth = 0;
+        for(int k = 0; k < nodes.size(); k++) {
+            final Node<T> node = nodes.get(k);
+            depth = Math.max(depth, depths.get(k));
+            if(node.isLeaf()) {
+                nEntries += node.size();
+            } else {
+                final Node[] children = ((Branch<T>) node).getChildren();
+                for(int i = 0; i < node.size(); i++) {
+                    nodes.add(unwrap((Node<T>) children[i]));
+                    depths.add(depths.get(k) + 1);
+                }
+            }
+        }
+
+        final int nNodes = nodes.size();
+        this.root = nNodes > 0 ? 0 : NIL;
+        this.maxDepth = depth;
+        this.nDim = nNodes > 0 ? firstRect(nodes.get(0)).getNDim() : 0;
+        this.first = new int[nNodes];
+        this.count = new int[nNodes];
+        this.nodeBox = new char[nNodes * 2 * nDim];
+        this.entries = new Object[nEntries];
+        this.entryBox = new char[nEntries * 2 * nDim];
+        this.rootLo = new double[nDim];
+        this.rootHi = new double[nDim];
+
+        // exact bounds of the leaf entries and of every node, children before parents
+        final double[] lo = new double[nEntries * nDim];
+        final double[] hi = new double[nEntries * nDim];
+        final double[] nodeLo = new double[nNodes * nDim];
+        final double[] nodeHi = new double[nNodes * nDim];
+        int nextChild = 1;
+        int nextEntry = 0;
+        for(int k = 0; k < nNodes; k++) {
+            final Node<T> node = nodes.get(k);
+            count[k] = node.size();
+            if(node.isLeaf()) {
+                final Leaf<T> leaf = (Leaf<T>) node;
+                first[k] = ~nextEntry;
+                for(int i = 0; i < leaf.size; i++) {
+                    entries[nextEntry] = leaf.entry[i];
+                    for(int d = 0; d < nDim; d++) {
+                        lo[nextEntry * nDim + d] = leaf.r[i].getMinCoord(d);
+                        hi[nextEntry * nDim + d] = leaf.r[i].getMaxCoord(d);
+                    }
+                    nextEntry++;
+                }
+            } else {
+                first[k] = nextChild;
+                nextChild += node.size();
+            }
+        }
+        for(int k = nNodes - 1; k >= 0; k--) {
+            final boolean leaf = first[k] < 0;
+            final int start = leaf ? ~first[k] : first[k];
+            for(int d = 0; d < nDim; d++) {
+                double min = Double.POSITIVE_INFINITY;
+                double max = Double.NEGATIVE_INFINITY;
+                for(int i = start; i < start + count[k]; i++) {
+                    min = Math.min(min, leaf ? lo[i * nDim + d] : nodeLo[i * nDim + d]);
+                    max = Math.max(max, leaf ? hi[i * nDim + d] : nodeHi[i * nDim + d]);
+                }
+                nodeLo[k * nDim + d] = min;
+                nodeHi[k * nDim + d] = max;
+            }
+        }
+
+        // quantize each child relative to the decoded box of its parent, parents before children
+        if(nNodes > 0) {
+            System.arraycopy(nodeLo, 0, rootLo, 0, nDim);
+            System.arraycopy(nodeHi, 0, rootHi, 0, nDim);
+        }
+        final double[] decodedLo = new double[nNodes * nDim];
+        final double[] decodedHi = new double[nNodes * nDim];
+        System.arraycopy(rootLo, 0, decodedLo, 0, nDim);
+        System.arraycopy(rootHi, 0, decodedHi, 0, nDim);
+        for(int k = 0; k < nNodes; k++) {
+            final boolean leaf = first[k] < 0;
+            final int start = leaf ? ~first[k] : first[k];
+            for(int i = start; i < start + count[k]; i++) {
+                for(int d = 0; d < nDim; d++) {
+                    final double pLo = decodedLo[k * nDim + d];
+                    final double pHi = decodedHi[k * nDim + d];
+                    final double cLo = leaf ? lo[i * nDim + d] : nodeLo[i * nDim + d];
+                    final double cHi = leaf ? hi[i * nDim + d] : nodeHi[i * nDim + d];
+                    final char qLo = encodeLo(pLo, pHi, cLo);
+                    final char qHi = encodeHi(pLo, pHi, cHi);
+                    final char[] box = leaf ? entryBox : nodeBox;
+                    box[i * 2 * nDim + d] = qLo;
+                    box[i * 2 * nDim + nDim + d] = qHi;
+
+                    final double dLo = decode(pLo, pHi, qLo);
+                    final double dHi = decode(pLo, pHi, qHi);
+                    if(dLo > cLo || dHi < cHi) {
+                        throw new IllegalStateException("Quantized box does not enclose [" + cLo + ", " + cHi + "]");
+                    }
+                    if(!leaf) {
+                        decodedLo[i * nDim + d] = dLo;
+                        decodedHi[i * nDim + d] = dHi;
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public int search(final HyperRect rect, final T[] t) {
+        if(root != NIL) {
+            return search(root, 0, scratch(), lo(rect), hi(rect), rect, t, 0);
+        }
+        return 0;
+    }
+
+    @Override
+    public void search(final HyperRect rect, final Consumer<T> consumer) {
+        if(root != NIL) {
+            search(root, 0, scratch(), lo(rect), hi(rect), rect, consumer);
+        }
+    }
+
+    @Override
+    public void search(final HyperRect rect, final Collection<T> collection) {
+        search(rect, t -> collection.add(t));
+    }
+
+    @Override
+    public int intersects(final HyperRect rect, final T[] t) {
+        if(root != NIL) {
+            return intersects(root, 0, scratch(), lo(rect), hi(rect), rect, t, 0);
+        }
+        return 0;
+    }
+
+    @Override
+    public void intersects(final HyperRect rect, final Consumer<T> consumer) {
+        if(root != NIL) {
+            intersects(root, 0, scratch(), lo(rect), hi(rect), rect, consumer);
+        }
+    }
+
+    @Override
+    public void within(final HyperPoint p, final double radius, final Consumer<T> consumer) {
+        if(root != NIL) {
+            final double[] x = new double[nDim];
+            for(int d = 0; d < nDim; d++) {
+                final Comparable c = p.getCoord(d);
+                x[d] = ((Number) c).doubleValue();
+            }
+            within(root, 0, scratch(), x, p, radius, consumer);
+        }
+    }
+
+    @Override
+    public boolean contains(final T t) {
+        if(root != NIL) {
+            final HyperRect bbox = builder.getBBox(t);
+            return find(root, 0, scratch(), lo(bbox), hi(bbox), bbox, t);
+        }
+        return false;
+    }
+
+    @Override
+    public void add(final T t) {
+        throw new UnsupportedOperationException("FrozenRTree is read-only");
+    }
+
+    @Override
+    public void remove(final T t) {
+        throw new UnsupportedOperationException("FrozenRTree is read-only");
+    }
+
+    @Override
+    public void update(final T told, final T tnew) {
+        throw new UnsupportedOperationException("FrozenRTree is read-only");
+    }
+
+    @Override
+    public int getEntryCount() {
+        return entries.length;
+    }
+
+    @Override
+    public void forEach(final Consumer<T> consumer) {
+        if(root != NIL) {
+            forEach(root, consumer);
+        }
+    }
+
+    @Override
+    public Stats collectStats() {
+        final Stats stats = new Stats();
+        stats.setType(splitType);
+        stats.setMaxFill(mMax);
+        stats.setMinFill(mMin);
+        if(root != NIL) {
+            collectStats(root, stats, 0);
+        }
+        return stats;
+    }
+
+    /**
+     * @return approximate number of heap bytes held by the flat arrays of this tree, not counting the entries
+     */
+    public long getIndexBytes() {
+        return 4L * first.length + 4L * count.length + 2L * nodeBox.length + 4L * entries.length + 2L * entryBox.length;
+    }
+
+    /*
+     * Quantization
+     */
+
+    private static double decode(final double pLo, final double pHi, final int q) {
+        if(q == MAX_Q) {
+            return pHi;
+        }
+        return Math.min(pLo + q * ((pHi - pLo) / MAX_Q), pHi);
+    }
+
+    /**
+     * @return largest q whose decoded value is not above v
+     */
+    private static char encodeLo(final double pLo, final double pHi, final double v) {
+        if(!(pHi > pLo)) {
+            return 0;
+        }
+        int q = (int) Math.max(0, Math.min(MAX_Q, Math.floor((v - pLo) / (pHi - pLo) * MAX_Q)));
+        while(q > 0 && decode(pLo, pHi, q) > v) {
+            q--;
+        }
+        while(q < MAX_Q && decode(pLo, pHi, q + 1) <= v) {
+            q++;
+        }
+        return (char) q;
+    }
+
+    /**
+     * @return smallest q whose decoded value is not below v
+     */
+    private static char encodeHi(final double pLo, final double pHi, final double v) {
+        if(!(pHi > pLo)) {
+            return MAX_Q;
+        }
+        int q = (int) Math.max(0, Math.min(MAX_Q, Math.ceil((v - pLo) / (pHi - pLo) * MAX_Q)));
+        while(q < MAX_Q && decode(pLo, pHi, q) < v) {
+            q++;
+        }
+        while(q > 0 && decode(pLo, pHi, q - 1) >= v) {
+            q--;
+        }
+        return (char) q;
+    }
+
+    /**
+     * @return scratch space for the decoded boxes along one root to leaf path, the root box at level 0
+     */
+    private double[] scratch() {
+        final double[] scratch = new double[2 * nDim * (maxDepth + 2)];
+        System.arraycopy(rootLo, 0, scratch, 0, nDim);
+        System.arraycopy(rootHi, 0, scratch, nDim, nDim);
+        return scratch;
+    }
+
+    /**
+     * Decode box i, a child of the node whose box is at level depth of scratch, into level depth + 1
+     *
+     * @return offset of the decoded box in scratch, lo at [offset, offset + nDim) and hi after it
+     */
+    private int decode(final char[] box, final int i, final double[] scratch, final int depth) {
+        final int pOff = depth * 2 * nDim;
+        final int off = pOff + 2 * nDim;
+        for(int d = 0; d < nDim; d++) {
+            final double pLo = scratch[pOff + d];
+            final double pHi = scratch[pOff + nDim + d];
+            scratch[off + d] = decode(pLo, pHi, box[i * 2 * nDim + d]);
+            scratch[off + nDim + d] = decode(pLo, pHi, box[i * 2 * nDim + nDim + d]);
+        }
+        return off;
+    }
+
+    private boolean intersects(final double[] scratch, final int off, final double[] lo, final double[] hi) {
+        for(int d = 0; d < nDim; d++) {
+            if(scratch[off + d] > hi[d] || lo[d] > scratch[off + nDim + d]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private double distance(final double[] scratch, final int off, final double[] x) {
+        double sum = 0.0;
+        for(int d = 0; d < nDim; d++) {
+            final double lo = scratch[off + d];
+            final double hi = scratch[off + nDim + d];
+            final double delta = x[d] < lo ? lo - x[d] : (x[d] > hi ? x[d] - hi : 0.0);
+            sum += delta * delta;
+        }
+        return Math.sqrt(sum);
+    }
+
+    private double[] lo(final HyperRect rect) {
+        final double[] lo = new double[nDim];
+        for(int d = 0; d < nDim; d++) {
+            lo[d] = rect.getMinCoord(d);
+        }
+        return lo;
+    }
+
+    private double[] hi(final HyperRect rect) {
+        final double[] hi = new double[nDim];
+        for(int d = 0; d < nDim; d++) {
+            hi[d] = rect.getMaxCoord(d);
+        }
+        return hi;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T entry(final int i) {
+        return (T) entries[i];
+    }
+
+    private static <T> Node<T> unwrap(final Node<T> node) {
+        return node instanceof CounterNode ? ((CounterNode<T>) node).getNode() : node;
+    }
+
+    private static <T> HyperRect firstRect(Node<T> node) {
+        while(!node.isLeaf()) {
+            final Node[] children = ((Branch<T>) node).getChildren();
+            int i = 0;
+            while(children[i].totalSize() == 0) {
+                i++;
+            }
+            node = unwrap((Node<T>) children[i]);
+        }
+        return ((Leaf<T>) node).r[0];
+    }
+
+    /*
+     * Queries, the decoded box of node is at level depth of scratch
+     */
+
+    private int search(final int node, final int depth, final double[] scratch, final double[] lo, final double[] hi,
+                       final HyperRect rect, final T[] t, int n) {
+        final int tLen = t.length;
+        final int n0 = n;
+        final int start = first[node];
+        if(start < 0) {
+            for(int i = ~start; i < ~start + count[node] && n < tLen; i++) {
+                if(intersects(scratch, decode(entryBox, i, scratch, depth), lo, hi) && rect.contains(builder.getBBox(entry(i)))) {
+                    t[n++] = entry(i);
+                }
+            }
+        } else {
+            for(int i = start; i < start + count[node] && n < tLen; i++) {
+                if(intersects(scratch, decode(nodeBox, i, scratch, depth), lo, hi)) {
+                    n += search(i, depth + 1, scratch, lo, hi, rect, t, n);
+                }
+            }
+        }
+        return n - n0;
+    }
+
+    private void search(final int node, final int depth, final double[] scratch, final double[] lo, final double[] hi,
+                        final HyperRect rect, final Consumer<T> consumer) {
+        final int start = first[node];
+        if(start < 0) {
+            for(int i = ~start; i < ~start + count[node]; i++) {
+                if(intersects(scratch, decode(entryBox, i, scratch, depth), lo, hi) && rect.contains(builder.getBBox(entry(i)))) {
+                    consumer.accept(entry(i));
+                }
+            }
+        } else {
+            for(int i = start; i < start + count[node]; i++) {
+                if(intersects(scratch, decode(nodeBox, i, scratch, depth), lo, hi)) {
+                    search(i, depth + 1, scratch, lo, hi, rect, consumer);
+                }
+            }
+        }
+    }
+
+    private int intersects(final int node, final int depth, final double[] scratch, final double[] lo, final double[] hi,
+                           final HyperRect rect, final T[] t, int n) {
+        final int tLen = t.length;
+        final int n0 = n;
+        final int start = first[node];
+        if(start < 0) {
+            for(int i = ~start; i < ~start + count[node] && n < tLen; i++) {
+                if(intersects(scratch, decode(entryBox, i, scratch, depth), lo, hi) && rect.intersects(builder.getBBox(entry(i)))) {
+                    t[n++] = entry(i);
+                }
+            }
+        } else {
+            for(int i = start; i < start + count[node] && n < tLen; i++) {
+                if(intersects(scratch, decode(nodeBox, i, scratch, depth), lo, hi)) {
+                    n += intersects(i, depth + 1, scratch, lo, hi, rect, t, n);
+                }
+            }
+        }
+        return n - n0;
+    }
+
+    private void intersects(final int node, final int depth, final double[] scratch, final double[] lo, final double[] hi,
+                            final HyperRect rect, final Consumer<T> consumer) {
+        final int start = first[node];
+        if(start < 0) {
+            for(int i = ~start; i < ~start + count[node]; i++) {
+                if(intersects(scratch, decode(entryBox, i, scratch, depth), lo, hi) && rect.intersects(builder.getBBox(entry(i)))) {
+                    consumer.accept(entry(i));
+                }
+            }
+        } else {
+            for(int i = start; i < start + count[node]; i++) {
+                if(intersects(scratch, decode(nodeBox, i, scratch, depth), lo, hi)) {
+                    intersects(i, depth + 1, scratch, lo, hi, rect, consumer);
+                }
+            }
+        }
+    }
+
+    private void within(final int node, final int depth, final double[] scratch, final double[] x, final HyperPoint p,
+                        final double radius, final Consumer<T> consumer) {
+        final int start = first[node];
+        if(start < 0) {
+            for(int i = ~start; i < ~start + count[node]; i++) {
+                if(distance(scratch, decode(entryBox, i, scratch, depth), x) <= radius
+                        && builder.getBBox(entry(i)).minDistance(p) <= radius) {
+                    consumer.accept(entry(i));
+                }
+            }
+        } else {
+            for(int i = start; i < start + count[node]; i++) {
+                if(distance(scratch, decode(nodeBox, i, scratch, depth), x) <= radius) {
+                    within(i, depth + 1, scratch, x, p, radius, consumer);
+                }
+            }
+        }
+    }
+
+    private boolean find(final int node, final int depth, final double[] scratch, final double[] lo, final double[] hi,
+                         final HyperRect bbox, final T t) {
+        final int start = first[node];
+        if(start < 0) {
+            for(int i = ~start; i < ~start + count[node]; i++) {
+                if(intersects(scratch, decode(entryBox, i, scratch, depth), lo, hi)
+                        && bbox.contains(builder.getBBox(entry(i))) && entry(i).equals(t)) {
+                    return true;
+                }
+            }
+        } else {
+            for(int i = start; i < start + count[node]; i++) {
+                if(intersects(scratch, decode(nodeBox, i, scratch, depth), lo, hi) && find(i, depth + 1, scratch, lo, hi, bbox, t)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void forEach(final int node, final Consumer<T> consumer) {
+        final int start = first[node];
+        if(start < 0) {
+            for(int i = ~start; i < ~start + count[node]; i++) {
+                consumer.accept(entry(i));
+            }
+        } else {
+            for(int i = start; i < start + count[node]; i++) {
+                forEach(i, consumer);
+            }
+        }
+    }
+
+    private void collectStats(final int node, final Stats stats, final int depth) {
+        final int start = first[node];
+        if(start < 0) {
+            if(depth > stats.getMaxDepth()) {
+                stats.setMaxDepth(depth);
+            }
+            stats.countLeafAtDepth(depth);
+            stats.countEntriesAtDepth(count[node], depth);
+        } else {
+            for(int i = start; i < start + count[node]; i++) {
+                collectStats(i, stats, depth + 1);
+            }
+            stats.countBranchAtDepth(depth);
+        }
+    }
+}
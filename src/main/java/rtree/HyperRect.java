@@ -32,6 +32,32 @@ public interface HyperRect<D extends Comparable<D>> {
      */
     HyperPoint getMax();
 
+    /**
+     * Get the lower bound of this HyperRect in the given dimension as a primitive. Implementations with numeric
+     * coordinates should override this to avoid boxing.
+     *
+     * @param d - dimension
+     *
+     * @return double - minimum coordinate in dimension d
+     */
+    default double getMinCoord(final int d) {
+        final Comparable c = getMin().getCoord(d);
+        return ((Number) c).doubleValue();
+    }
+
+    /**
+     * Get the upper bound of this HyperRect in the given dimension as a primitive. Implementations with numeric
+     * coordinates should override this to avoid boxing.
+     *
+     * @param d - dimension
+     *
+     * @return double - maximum coordinate in dimension d
+     */
+    default double getMaxCoord(final int d) {
+        final Comparable c = getMax().getCoord(d);
+        return ((Number) c).doubleValue();
+    }
+
     /**
      * Get the HyperPoint representing the center point in all dimensions of this HyperRect
      *
@@ -66,6 +92,28 @@ public interface HyperRect<D extends Comparable<D>> {
      */
     boolean intersects(HyperRect r);
 
+    /**
+     * Calculate the minimum distance from the given point to any point of this HyperRect - zero when the point
+     * lies inside
+     *
+     * @param p - point to calculate distance to
+     *
+     * @return double - minimum euclidean distance
+     */
+    default double minDistance(final HyperPoint p) {
+        double sum = 0.0;
+        final int nD = getNDim();
+        for(int d = 0; d < nD; d++) {
+            final Comparable c = p.getCoord(d);
+            final double x = ((Number) c).doubleValue();
+            final double lo = getMinCoord(d);
+            final double hi = getMaxCoord(d);
+            final double delta = x < lo ? lo - x : (x > hi ? x - hi : 0.0);
+            sum += delta * delta;
+        }
+        return Math.sqrt(sum);
+    }
+
     /**
      * Calculate the "cost" of this HyperRect - usually the area across all dimensions
      *
@@ -0,0 +1,53 @@
+package rtree;
+
+import rtree.geometry.Rect2d;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * Measures insert throughput and heap allocated per insert of RTree as the fan-out M grows.
+ *
+ * Allocation is read from the HotSpot thread allocation counter, so it covers the whole insert path: the
+ * choice of subtree, the mbr updates on the way down and the leaf splits.
+ */
+public class InsertBenchmark {
+
+    private static final int[] FAN_OUTS = {8, 16, 32, 64, 128};
+    private static final int ENTRIES = 500_000;
+
+    public static void main(String[] args) {
+        final Random random = new Random(11);
+        final Rect2d[] rects = new Rect2d[ENTRIES];
+        for(int i = 0; i < ENTRIES; i++) {
+            final double x = random.nextDouble() * 1000;
+            final double y = random.nextDouble() * 1000;
+            rects[i] = new Rect2d(x, y, x + random.nextDouble(), y + random.nextDouble());
+        }
+
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().getId();
+
+        for(int round = 0; round < 3; round++) {
+            for(final RTree.Split split : new RTree.Split[] {RTree.Split.AXIAL, RTree.Split.QUADRATIC}) {
+                for(int m : FAN_OUTS) {
+                    final SpatialSearch<Rect2d> tree = SpatialSearches.rTree(new Rect2d.Builder(), 2, m, split);
+                    final long bytes0 = threads.getThreadAllocatedBytes(threadId);
+                    final long t0 = System.nanoTime();
+                    for(final Rect2d rect : rects) {
+                        tree.add(rect);
+                    }
+                    final long elapsed = System.nanoTime() - t0;
+                    final long bytes = threads.getThreadAllocatedBytes(threadId) - bytes0;
+
+                    if(tree.getEntryCount() != ENTRIES) {
+                        throw new IllegalStateException();
+                    }
+                    System.out.printf("%-10s M=%-4d %10.0f inserts/s %8.0f bytes/insert%n", split, m,
+                            ENTRIES / (elapsed / 1e9), bytes / (double) ENTRIES);
+                }
+            }
+            System.out.println();
+        }
+    }
+}
@@ -48,8 +48,11 @@ abstract class Leaf<T> implements Node<T> {
                 mbr = tRect;
             }
 
+            // plain fields, an optimistic reader may still see the new size before the slot; StampedRTree
+            // relies on validate() and retries under the read lock, this order only makes that rarer
             r[size] = tRect;
-            entry[size++] = t;
+            entry[size] = t;
+            size++;
 
         } else { // overloaded lef then split
 
@@ -61,44 +64,38 @@ abstract class Leaf<T> implements Node<T> {
 
     @Override
     public Node<T> remove(final T t)  {
-
-        int i=0;
-        int j;
-
-        while(i<size && (entry[i]!=t) && (!entry[i].equals(t))) {
-            i++;
+        // every equal entry goes, not only the first run of them
+        int kept = 0;
+        for(int i=0; i<size; i++) {
+            if((entry[i]!=t) && (!entry[i].equals(t))) {
+                kept++;
+            }
         }
 
-        j=i;
-
-        while(j<size && ((entry[j]==t) || entry[j].equals(t))) {
-            j++;
-        }
+        if(kept < size) {
+            if(kept == 0) {
+                // clean sweep
+                return null;
+            }
 
-        if(i < j) {
-            final int nRemoved = j-i;
-            if (j < size) {
-                final int nRemaining = size-j;
-                System.arraycopy(r, j, r, i, nRemaining);
-                System.arraycopy(entry, j, entry, i, nRemaining);
-                for (int k=size-nRemoved; k < size; k++) {
-                    r[k] = null;
-                    entry[k] = null;
-                }
-            } else {
-                if(i==0) {
-                    // clean sweep
-                    return null;
-                }
-                for (int k=i; k < size; k++) {
-                    r[k] = null;
-                    entry[k] = null;
+            // shrink the size before moving and clearing slots, without fences an optimistic reader can still
+            // see an empty entry and is left to StampedRTree's validate() and retry
+            final int oldSize = size;
+            size = kept;
+            int k = 0;
+            for(int i=0; i<oldSize; i++) {
+                if((entry[i]!=t) && (!entry[i].equals(t))) {
+                    r[k] = r[i];
+                    entry[k] = entry[i];
+                    k++;
                 }
             }
+            for (k=size; k < oldSize; k++) {
+                r[k] = null;
+                entry[k] = null;
+            }
 
-            size -= nRemoved;
-
-            for(int k=0; k<size; k++) {
+            for(k=0; k<size; k++) {
                 if(k==0) {
                     mbr = r[k];
                 } else {
@@ -176,6 +173,15 @@ abstract class Leaf<T> implements Node<T> {
         }
     }
 
+    @Override
+    public void within(final HyperPoint p, final double radius, final Consumer<T> consumer) {
+        for(int i = 0; i < size; i++) {
+            if(r[i].minDistance(p) <= radius) {
+                consumer.accept(entry[i]);
+            }
+        }
+    }
+
     @Override
     public int size() {
         return size;
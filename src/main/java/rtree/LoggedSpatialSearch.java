@@ -0,0 +1,441 @@
+package rtree;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * <p>Crash safe wrapper around a SpatialSearch. Every add, remove and update is appended to a MutationLog before
+ * it is applied and is acknowledged once the log's durability level is met. Snapshots of the whole index are
+ * written every snapshotInterval mutations (or on checkpoint()) and drop the log segments they cover.</p>
+ *
+ * <p>Automatic snapshots stay off the write path. A background thread rotates the log to a new segment, which
+ * cuts it at a sequence number without stopping writers, then rebuilds the index at that point in a scratch
+ * index from the previous snapshot and the closed segments, and writes it out. The live index is never read, so
+ * writers are not blocked, at the cost of memory for a second copy of the index while a snapshot runs. A failed
+ * automatic snapshot does not fail any mutation, it is reported by getSnapshotFailure() and the log keeps growing
+ * until a later snapshot succeeds. checkpoint() instead writes the live index while blocking writers.</p>
+ *
+ * <p>Recovery loads the last snapshot and replays the log records written after it. Use RTree or ConcurrentRTree
+ * as the wrapped index - mutations are ordered by this wrapper, so an unprotected RTree is fine as long as
+ * queries do not run concurrently with writes.</p>
+ *
+ * <pre>
+ * dir/rtree.snapshot := [int magic][long seq][int count][entry] ...
+ * dir/rtree.[n].log  := log segment n, see MutationLog
+ * </pre>
+ */
+public final class LoggedSpatialSearch<T> implements SpatialSearch<T>, Closeable {
+    private static final int SNAPSHOT_MAGIC = 0x52545350; // "RTSP"
+    private static final String SNAPSHOT_FILE = "rtree.snapshot";
+    private static final String SEGMENT_PREFIX = "rtree.";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final long DEFAULT_SYNC_INTERVAL_MILLIS = 10;
+
+    private final SpatialSearch<T> tree;
+    private final Supplier<SpatialSearch<T>> factory;
+    private final EntryCodec<T> codec;
+    private final MutationLog<T> log;
+    private final Path dir;
+    private final long snapshotInterval;
+
+    // orders log appends with the mutations applied to the tree
+    private final Object writeMonitor = new Object();
+    private long mutationsSinceSnapshot = 0;
+
+    // one snapshot at a time, guards segment, the number of the segment the log appends to
+    private final Object snapshotMonitor = new Object();
+    private long segment;
+    private final ExecutorService snapshotter;
+    private final AtomicBoolean snapshotPending = new AtomicBoolean();
+    private volatile IOException snapshotFailure;
+
+    private LoggedSpatialSearch(final SpatialSearch<T> tree, final Supplier<SpatialSearch<T>> factory,
+                                final EntryCodec<T> codec, final MutationLog<T> log, final Path dir,
+                                final long segment, final long snapshotInterval) {
+        this.tree = tree;
+        this.factory = factory;
+        this.codec = codec;
+        this.log = log;
+        this.dir = dir;
+        this.segment = segment;
+        this.snapshotInterval = snapshotInterval;
+
+        if(snapshotInterval > 0) {
+            this.snapshotter = Executors.newSingleThreadExecutor(r -> {
+                final Thread thread = new Thread(r, "rtree-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.snapshotter = null;
+        }
+    }
+
+    /**
+     * Recover the index stored in dir into a new index and start logging its mutations
+     *
+     * @param factory - creates empty indexes: the live one, and the scratch ones automatic snapshots are built in
+     * @param dir - directory holding the snapshot and log, created if missing
+     * @param codec - codec used to persist entries
+     * @param durability - when a mutation is acknowledged, see MutationLog
+     * @param snapshotInterval - mutations between automatic snapshots, 0 to only snapshot on checkpoint()
+     * @param <T> - The store type of the bound
+     *
+     * @return LoggedSpatialSearch - the recovered index
+     * @throws IOException if the snapshot or log cannot be read
+     */
+    public static <T> LoggedSpatialSearch<T> open(final Supplier<SpatialSearch<T>> factory, final Path dir,
+                                                  final EntryCodec<T> codec, final MutationLog.Durability durability,
+                                                  final long snapshotInterval) throws IOException {
+        return open(factory, dir, codec, durability, snapshotInterval, DEFAULT_SYNC_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Recover the index stored in dir into a new index and start logging its mutations
+     *
+     * @param factory - creates empty indexes: the live one, and the scratch ones automatic snapshots are built in
+     * @param dir - directory holding the snapshot and log, created if missing
+     * @param codec - codec used to persist entries
+     * @param durability - when a mutation is acknowledged, see MutationLog
+     * @param snapshotInterval - mutations between automatic snapshots, 0 to only snapshot on checkpoint()
+     * @param syncIntervalMillis - fsync period for BATCHED durability
+     * @param <T> - The store type of the bound
+     *
+     * @return LoggedSpatialSearch - the recovered index
+     * @throws IOException if the snapshot or log cannot be read
+     */
+    public static <T> LoggedSpatialSearch<T> open(final Supplier<SpatialSearch<T>> factory, final Path dir,
+                                                  final EntryCodec<T> codec, final MutationLog.Durability durability,
+                                                  final long snapshotInterval, final long syncIntervalMillis) throws IOException {
+        final SpatialSearch<T> tree = factory.get();
+        if(tree.getEntryCount() != 0) {
+            throw new IllegalArgumentException("Recovery requires an empty index");
+        }
+        Files.createDirectories(dir);
+
+        final long snapshotSeq = loadSnapshot(tree, dir.resolve(SNAPSHOT_FILE), codec);
+        final List<Long> segments = segments(dir);
+        MutationLog.ReplayResult replayed = new MutationLog.ReplayResult(snapshotSeq, 0);
+        for(final long n : segments) {
+            // every segment but the newest was forced before the next one started, so only the newest can be torn,
+            // or one that a failed write left behind, whose records the snapshot already covers
+            final MutationLog.ReplayResult r = MutationLog.replay(segmentFile(dir, n), codec, snapshotSeq,
+                    applier(tree));
+            replayed = new MutationLog.ReplayResult(Math.max(replayed.lastSeq, r.lastSeq), r.validLength);
+        }
+
+        final long segment = segments.isEmpty() ? 0 : segments.get(segments.size() - 1);
+        final MutationLog<T> log = MutationLog.open(segmentFile(dir, segment), codec, durability, syncIntervalMillis,
+                replayed.lastSeq, replayed.validLength);
+        return new LoggedSpatialSearch<>(tree, factory, codec, log, dir, segment, snapshotInterval);
+    }
+
+    private static <T> MutationLog.Replayer<T> applier(final SpatialSearch<T> tree) {
+        return (op, t, tnew) -> {
+            switch(op) {
+                case MutationLog.ADD:
+                    tree.add(t);
+                    break;
+                case MutationLog.REMOVE:
+                    tree.remove(t);
+                    break;
+                case MutationLog.UPDATE:
+                    tree.update(t, tnew);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown log record " + op);
+            }
+        };
+    }
+
+    @Override
+    public void add(final T t) {
+        mutate(MutationLog.ADD, t, null);
+    }
+
+    @Override
+    public void remove(final T t) {
+        mutate(MutationLog.REMOVE, t, null);
+    }
+
+    @Override
+    public void update(final T told, final T tnew) {
+        mutate(MutationLog.UPDATE, told, tnew);
+    }
+
+    private void mutate(final byte op, final T t, final T tnew) {
+        try {
+            final long seq;
+            synchronized(writeMonitor) {
+                seq = log.append(op, t, tnew);
+                switch(op) {
+                    case MutationLog.ADD:
+                        tree.add(t);
+                        break;
+                    case MutationLog.REMOVE:
+                        tree.remove(t);
+                        break;
+                    default:
+                        tree.update(t, tnew);
+                        break;
+                }
+                // while a snapshot runs the count keeps growing, the next mutation after it starts another one
+                if(snapshotInterval > 0 && ++mutationsSinceSnapshot >= snapshotInterval
+                        && snapshotPending.compareAndSet(false, true)) {
+                    mutationsSinceSnapshot = 0;
+                    snapshotter.execute(this::snapshotInBackground);
+                }
+            }
+            // wait outside of the monitor so that concurrent writers share one fsync
+            log.await(seq);
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Write a snapshot of the live index and drop the log. Blocks writers while the snapshot is written.
+     *
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void checkpoint() throws IOException {
+        synchronized(snapshotMonitor) {
+            final long covered = segment;
+            synchronized(writeMonitor) {
+                writeSnapshot(tree, log.lastSeq());
+                log.reset(segmentFile(dir, covered + 1));
+                segment = covered + 1;
+                mutationsSinceSnapshot = 0;
+            }
+            deleteSegments(covered);
+        }
+    }
+
+    /**
+     * @return IOException - failure of the last automatic snapshot, null if it succeeded or none ran yet
+     */
+    public IOException getSnapshotFailure() {
+        return snapshotFailure;
+    }
+
+    /**
+     * Force all logged mutations to disk regardless of the durability level
+     *
+     * @throws IOException if the log cannot be forced
+     */
+    public void sync() throws IOException {
+        log.sync();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if(snapshotter != null) {
+            snapshotter.shutdown();
+            try {
+                snapshotter.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for a snapshot", e);
+            }
+        }
+        synchronized(writeMonitor) {
+            log.close();
+        }
+    }
+
+    private void snapshotInBackground() {
+        try {
+            synchronized(snapshotMonitor) {
+                compact();
+            }
+            snapshotFailure = null;
+        } catch(IOException e) {
+            snapshotFailure = e;
+        } catch(RuntimeException e) {
+            snapshotFailure = new IOException(e);
+        } finally {
+            snapshotPending.set(false);
+        }
+    }
+
+    /**
+     * Snapshot the index as of a log rotation without reading the live index, caller holds snapshotMonitor
+     */
+    private void compact() throws IOException {
+        // the closed segments and the previous snapshot hold every mutation up to seq, and none after it
+        final long closed = segment;
+        final long seq = log.rotate(segmentFile(dir, closed + 1));
+        segment = closed + 1;
+
+        final SpatialSearch<T> scratch = factory.get();
+        final long snapshotSeq = loadSnapshot(scratch, dir.resolve(SNAPSHOT_FILE), codec);
+        long replayed = snapshotSeq;
+        for(final long n : segments(dir)) {
+            if(n <= closed) {
+                replayed = Math.max(replayed, MutationLog.replay(segmentFile(dir, n), codec, snapshotSeq,
+                        applier(scratch)).lastSeq);
+            }
+        }
+        if(replayed != seq) {
+            throw new IOException("Log segments end at record " + replayed + ", expected " + seq);
+        }
+
+        writeSnapshot(scratch, seq);
+        deleteSegments(closed);
+    }
+
+    private void writeSnapshot(final SpatialSearch<T> index, final long seq) throws IOException {
+        final Path snapshot = dir.resolve(SNAPSHOT_FILE);
+        final Path tmp = dir.resolve(SNAPSHOT_FILE + ".tmp");
+
+        try(FileOutputStream file = new FileOutputStream(tmp.toFile());
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(seq);
+            out.writeInt(index.getEntryCount());
+            try {
+                index.forEach(t -> {
+                    try {
+                        codec.encode(t, out);
+                    } catch(IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch(UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.flush();
+            file.getChannel().force(true);
+        }
+        Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // the rename is only durable once the directory is forced, dropping log segments before that could leave
+        // the old snapshot without the records it needs after a crash
+        try(FileChannel directory = FileChannel.open(dir, StandardOpenOption.READ)) {
+            directory.force(true);
+        }
+    }
+
+    // the snapshot covers segments up to last, a crash before they are gone only replays records it skips
+    private void deleteSegments(final long last) throws IOException {
+        for(final long n : segments(dir)) {
+            if(n <= last) {
+                Files.deleteIfExists(segmentFile(dir, n));
+            }
+        }
+    }
+
+    private static Path segmentFile(final Path dir, final long n) {
+        return dir.resolve(SEGMENT_PREFIX + n + SEGMENT_SUFFIX);
+    }
+
+    /**
+     * @return numbers of the log segments in dir, ascending
+     */
+    private static List<Long> segments(final Path dir) throws IOException {
+        final List<Long> segments = new ArrayList<>();
+        try(DirectoryStream<Path> files = Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for(final Path file : files) {
+                final String name = file.getFileName().toString();
+                try {
+                    segments.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())));
+                } catch(NumberFormatException e) {
+                    // not a segment
+                }
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private static <T> long loadSnapshot(final SpatialSearch<T> tree, final Path snapshot, final EntryCodec<T> codec) throws IOException {
+        if(!Files.exists(snapshot)) {
+            return 0;
+        }
+        try(InputStream file = Files.newInputStream(snapshot);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(file, 1 << 16))) {
+            if(in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a snapshot: " + snapshot);
+            }
+            final long seq = in.readLong();
+            final int count = in.readInt();
+            for(int i = 0; i < count; i++) {
+                tree.add(codec.decode(in));
+            }
+            return seq;
+        }
+    }
+
+    @Override
+    public int intersects(final HyperRect rect, final T[] t) {
+        return tree.intersects(rect, t);
+    }
+
+    @Override
+    public void intersects(final HyperRect rect, final Consumer<T> consumer) {
+        tree.intersects(rect, consumer);
+    }
+
+    @Override
+    public void within(final HyperPoint p, final double radius, final Consumer<T> consumer) {
+        tree.within(p, radius, consumer);
+    }
+
+    @Override
+    public int search(final HyperRect rect, final T[] t) {
+        return tree.search(rect, t);
+    }
+
+    @Override
+    public void search(final HyperRect rect, final Consumer<T> consumer) {
+        tree.search(rect, consumer);
+    }
+
+    @Override
+    public void search(final HyperRect rect, final Collection<T> collection) {
+        tree.search(rect, collection);
+    }
+
+    @Override
+    public boolean contains(final T t) {
+        return tree.contains(t);
+    }
+
+    @Override
+    public int getEntryCount() {
+        return tree.getEntryCount();
+    }
+
+    @Override
+    public void forEach(final Consumer<T> consumer) {
+        tree.forEach(consumer);
+    }
+
+    @Override
+    public Stats collectStats() {
+        return tree.collectStats();
+    }
+}
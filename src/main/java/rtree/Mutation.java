@@ -0,0 +1,94 @@
+package rtree;
+
+/**
+ * A single add, remove or update of an index entry, used to hand a batch of changes to
+ * SpatialSearch.applyBatch()
+ *
+ * @param <T> - The store type of the index
+ */
+public final class Mutation<T> {
+
+    public enum Type {
+        ADD,
+        REMOVE,
+        UPDATE,
+    }
+
+    private final Type type;
+    private final T entry;
+    private final T old;
+
+    private Mutation(final Type type, final T entry, final T old) {
+        this.type = type;
+        this.entry = entry;
+        this.old = old;
+    }
+
+    /**
+     * @param t - entry to add
+     * @param <T> - The store type of the index
+     *
+     * @return Mutation - adds t
+     */
+    public static <T> Mutation<T> add(final T t) {
+        return new Mutation<>(Type.ADD, t, null);
+    }
+
+    /**
+     * @param t - entry to remove
+     * @param <T> - The store type of the index
+     *
+     * @return Mutation - removes t
+     */
+    public static <T> Mutation<T> remove(final T t) {
+        return new Mutation<>(Type.REMOVE, t, null);
+    }
+
+    /**
+     * @param told - entry to update
+     * @param tnew - entry with new value
+     * @param <T> - The store type of the index
+     *
+     * @return Mutation - replaces told with tnew
+     */
+    public static <T> Mutation<T> update(final T told, final T tnew) {
+        return new Mutation<>(Type.UPDATE, tnew, told);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return the entry added or removed, or the new value of an update
+     */
+    public T getEntry() {
+        return entry;
+    }
+
+    /**
+     * @return the entry replaced by an update, null for add and remove
+     */
+    public T getOld() {
+        return old;
+    }
+
+    void apply(final SpatialSearch<T> tree) {
+        switch(type) {
+            case ADD:
+                tree.add(entry);
+                break;
+            case REMOVE:
+                tree.remove(entry);
+                break;
+            case UPDATE:
+                tree.update(old, entry);
+                break;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return type == Type.UPDATE ? type + "(" + old + " -> " + entry + ")" : type + "(" + entry + ")";
+    }
+}
@@ -0,0 +1,504 @@
+package rtree;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * <p>Append-only log of add, remove and update mutations, written through a FileChannel.</p>
+ *
+ * <p>The log is a sequence of files, segments. rotate() forces the current segment and continues in a new one, so
+ * every segment but the newest is complete and can be read while records are appended.</p>
+ *
+ * <p>Records are encoded into an in-memory buffer by append() and written to the channel in batches. How
+ * batches are made durable depends on the Durability level:</p>
+ * <ul>
+ *     <li>NONE - records stay in the 1 MB buffer of this log until it fills up or sync() runs, so even a crash
+ *     of the process loses them. Written batches are left to the OS to flush.</li>
+ *     <li>BATCHED - a background thread writes and fsyncs every sync interval, a crash loses at most one
+ *     interval of acknowledged mutations</li>
+ *     <li>SYNC - await() returns once the record is on disk. Concurrent writers share fsyncs (group commit):
+ *     the first waiter writes and forces everything appended so far while the others wait for it</li>
+ * </ul>
+ *
+ * <p>A failed write or force leaves it unknown which records reached the disk, so the log stops acknowledging:
+ * the writer that hit the failure throws it, and every append(), await() and sync() after it throws as well, at
+ * every durability level, until a snapshot covers the lost records and reset() clears the failure. Nothing is
+ * written after a lost batch, so the log never holds a gap that replay would silently skip.</p>
+ *
+ * <pre>
+ * record := [int length][int crc32][long seq][byte op][entry] ([entry] for update)
+ * </pre>
+ *
+ * The length and crc cover everything after the crc, replay stops at the first torn or corrupt record.
+ */
+public final class MutationLog<T> implements Closeable {
+
+    public enum Durability {
+        NONE,
+        BATCHED,
+        SYNC,
+    }
+
+    static final byte ADD = 1;
+    static final byte REMOVE = 2;
+    static final byte UPDATE = 3;
+
+    private static final int FLUSH_THRESHOLD = 1 << 20;
+    private static final int HEADER_BYTES = 8;
+    private static final long WAIT_MILLIS = 100;
+
+    private FileChannel channel; // current segment, replaced under ioLock
+    private final EntryCodec<T> codec;
+    private final Durability durability;
+    private final ScheduledExecutorService syncer;
+
+    // appendLock guards the active buffer, the encoder and lastSeq
+    private final Object appendLock = new Object();
+    private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(256);
+    private final DataOutputStream recordOut = new DataOutputStream(recordBytes);
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer active = ByteBuffer.allocate(FLUSH_THRESHOLD);
+    private long lastSeq;
+
+    // ioLock serializes writes to the channel, the writer owns the spare buffer
+    private final ReentrantLock ioLock = new ReentrantLock();
+    private ByteBuffer spare = ByteBuffer.allocate(FLUSH_THRESHOLD);
+
+    private final Object durableMonitor = new Object();
+    private volatile long durableSeq;
+    private volatile IOException failure; // first failed write or force since the last reset
+
+    private MutationLog(final FileChannel channel, final EntryCodec<T> codec, final Durability durability,
+                        final long lastSeq, final long syncIntervalMillis) {
+        this.channel = channel;
+        this.codec = codec;
+        this.durability = durability;
+        this.lastSeq = lastSeq;
+        this.durableSeq = lastSeq;
+
+        if(durability == Durability.BATCHED) {
+            this.syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+                final Thread thread = new Thread(r, "mutation-log-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.syncer.scheduleWithFixedDelay(() -> {
+                try {
+                    sync();
+                } catch(IOException e) {
+                    // the log is failed now, writers and close() report it
+                }
+            }, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.syncer = null;
+        }
+    }
+
+    /**
+     * Open a log segment for appending after the last valid record. A torn tail left by a crash is cut off.
+     *
+     * @param file - segment file, created if missing
+     * @param codec - codec for the logged entries
+     * @param durability - when appended records are forced to disk
+     * @param syncIntervalMillis - fsync period for BATCHED durability
+     * @param lastSeq - sequence number of the last record already applied (from replay)
+     * @param validLength - length of the valid prefix of the file (from replay)
+     * @param <T> - entry type
+     *
+     * @return MutationLog - open log
+     * @throws IOException if the file cannot be opened
+     */
+    static <T> MutationLog<T> open(final Path file, final EntryCodec<T> codec, final Durability durability,
+                                   final long syncIntervalMillis, final long lastSeq, final long validLength) throws IOException {
+        final FileChannel channel = Files.exists(file)
+                ? FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : create(file);
+        if(channel.size() > validLength) {
+            channel.truncate(validLength);
+        }
+        channel.position(validLength);
+        return new MutationLog<>(channel, codec, durability, lastSeq, syncIntervalMillis);
+    }
+
+    /**
+     * Append a record for a mutation. Callers must append in the order mutations are applied.
+     *
+     * @param op - ADD, REMOVE or UPDATE
+     * @param t - entry (old entry for update)
+     * @param tnew - new entry for update, null otherwise
+     *
+     * @return sequence number of the record, pass to await() to wait for durability
+     * @throws IOException if a full buffer cannot be written out, or an earlier write failed
+     */
+    long append(final byte op, final T t, final T tnew) throws IOException {
+        checkFailure();
+        final long seq;
+        final boolean full;
+        synchronized(appendLock) {
+            seq = ++lastSeq;
+            recordBytes.reset();
+            recordOut.writeLong(seq);
+            recordOut.writeByte(op);
+            codec.encode(t, recordOut);
+            if(tnew != null) {
+                codec.encode(tnew, recordOut);
+            }
+            recordOut.flush();
+
+            final int length = recordBytes.size();
+            crc.reset();
+            crc.update(recordBytes.toByteArray(), 0, length);
+
+            if(active.remaining() < HEADER_BYTES + length) {
+                final ByteBuffer grown = ByteBuffer.allocate(Math.max(active.capacity() * 2, active.position() + HEADER_BYTES + length));
+                active.flip();
+                grown.put(active);
+                active = grown;
+            }
+            active.putInt(length);
+            active.putInt((int) crc.getValue());
+            active.put(recordBytes.toByteArray(), 0, length);
+            full = active.position() >= FLUSH_THRESHOLD;
+        }
+
+        if(full && durability != Durability.SYNC) {
+            ioLock.lock();
+            try {
+                checkFailure();
+                write();
+            } catch(IOException | RuntimeException e) {
+                fail(e);
+                throw e;
+            } finally {
+                ioLock.unlock();
+            }
+        }
+        return seq;
+    }
+
+    /**
+     * Block until the record with the given sequence number is durable. Only waits for SYNC durability.
+     *
+     * @param seq - sequence number returned by append
+     *
+     * @throws IOException if writing or forcing the log fails
+     */
+    void await(final long seq) throws IOException {
+        if(durability != Durability.SYNC) {
+            return;
+        }
+        while(durableSeq < seq) {
+            checkFailure();
+            if(ioLock.tryLock()) {
+                // leader - write and force everything appended so far
+                final long upTo;
+                try {
+                    upTo = writeAndForce();
+                } finally {
+                    ioLock.unlock();
+                }
+                markDurable(upTo);
+            } else {
+                synchronized(durableMonitor) {
+                    // a leader holding ioLock notifies once its batch is forced or has failed, the timeout only
+                    // guards against a holder of ioLock that never notifies
+                    if(durableSeq < seq && failure == null && ioLock.isLocked()) {
+                        try {
+                            durableMonitor.wait(WAIT_MILLIS);
+                        } catch(InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new IOException("Interrupted while waiting for log sync", e);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Write and force all appended records
+     *
+     * @throws IOException if writing or forcing the log fails
+     */
+    public void sync() throws IOException {
+        final long upTo;
+        ioLock.lock();
+        try {
+            upTo = writeAndForce();
+        } finally {
+            ioLock.unlock();
+        }
+        markDurable(upTo);
+    }
+
+    /**
+     * Write and force all appended records, then continue in a new segment. The current segment is closed.
+     *
+     * @param next - file of the new segment
+     *
+     * @return sequence number of the last record in the closed segment, later records go to next
+     * @throws IOException if the log has failed or the new segment cannot be created
+     */
+    long rotate(final Path next) throws IOException {
+        final long upTo;
+        ioLock.lock();
+        try {
+            upTo = writeAndForce();
+            final FileChannel closed = channel;
+            channel = create(next);
+            closed.close();
+        } finally {
+            ioLock.unlock();
+        }
+        markDurable(upTo);
+        return upTo;
+    }
+
+    /**
+     * Discard all unwritten records and continue in a new segment, called once a snapshot covers every record
+     * appended so far. Sequence numbers keep increasing.
+     *
+     * @param next - file of the new segment
+     *
+     * @throws IOException if the new segment cannot be created
+     */
+    void reset(final Path next) throws IOException {
+        final long upTo;
+        ioLock.lock();
+        try {
+            final FileChannel discarded = channel;
+            channel = create(next);
+            synchronized(appendLock) {
+                active.clear();
+                upTo = lastSeq;
+            }
+            failure = null; // the snapshot holds whatever a failed write lost
+            discarded.close();
+        } finally {
+            ioLock.unlock();
+        }
+        markDurable(upTo);
+    }
+
+    /**
+     * @return sequence number of the last appended record
+     */
+    long lastSeq() {
+        synchronized(appendLock) {
+            return lastSeq;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if(syncer != null) {
+            // no interrupt, it would close the channel under a running sync and fail the log
+            syncer.shutdown();
+            try {
+                syncer.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch(InterruptedException e) {
+                // the final sync still waits for a running one on ioLock
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            sync();
+        } finally {
+            ioLock.lock();
+            try {
+                channel.close();
+            } finally {
+                ioLock.unlock();
+            }
+        }
+    }
+
+    // create an empty segment and force its directory entry, records forced into it must not vanish with it
+    private static FileChannel create(final Path file) throws IOException {
+        final FileChannel created = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try(FileChannel directory = FileChannel.open(file.toAbsolutePath().getParent(), StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch(IOException | RuntimeException e) {
+            created.close();
+            throw e;
+        }
+        return created;
+    }
+
+    /**
+     * Swap the active buffer out and write it to the channel, caller holds ioLock
+     *
+     * @return sequence number of the last record written
+     */
+    private long write() throws IOException {
+        final ByteBuffer batch;
+        final long upTo;
+        synchronized(appendLock) {
+            batch = active;
+            active = spare;
+            upTo = lastSeq;
+        }
+        batch.flip();
+        try {
+            while(batch.hasRemaining()) {
+                channel.write(batch);
+            }
+        } finally {
+            // after a failed write the records of batch are lost either way, active must never share it
+            batch.clear();
+            spare = batch;
+        }
+        return upTo;
+    }
+
+    /**
+     * Write and force the active buffer, caller holds ioLock. A failure is recorded and wakes all waiters, once
+     * the log has failed nothing more is written.
+     *
+     * @return sequence number of the last record forced
+     */
+    private long writeAndForce() throws IOException {
+        checkFailure();
+        try {
+            final long upTo = write();
+            channel.force(false);
+            return upTo;
+        } catch(IOException | RuntimeException e) {
+            fail(e);
+            throw e;
+        }
+    }
+
+    // record the first failure and wake all waiters so they throw it instead of waiting for the leader
+    private void fail(final Exception e) {
+        synchronized(durableMonitor) {
+            if(failure == null) {
+                failure = e instanceof IOException ? (IOException) e : new IOException(e);
+            }
+            durableMonitor.notifyAll();
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        final IOException e = failure;
+        if(e != null) {
+            throw new IOException("Mutation log write failed, records may be lost", e);
+        }
+    }
+
+    private void markDurable(final long upTo) {
+        synchronized(durableMonitor) {
+            if(upTo > durableSeq) {
+                durableSeq = upTo;
+            }
+            durableMonitor.notifyAll();
+        }
+    }
+
+    /**
+     * Receives the records of a log during replay
+     */
+    interface Replayer<T> {
+        void apply(byte op, T t, T tnew);
+    }
+
+    /**
+     * Result of replaying a log file
+     */
+    static final class ReplayResult {
+        final long lastSeq;
+        final long validLength;
+
+        ReplayResult(final long lastSeq, final long validLength) {
+            this.lastSeq = lastSeq;
+            this.validLength = validLength;
+        }
+    }
+
+    /**
+     * Read the log and hand every intact record with a sequence number above afterSeq to the replayer
+     *
+     * @param file - log file, may be missing
+     * @param codec - codec for the logged entries
+     * @param afterSeq - records up to this sequence number are already covered by a snapshot
+     * @param replayer - receives the mutations in log order
+     * @param <T> - entry type
+     *
+     * @return last sequence number seen and the length of the intact prefix of the file
+     * @throws IOException if the file cannot be read
+     */
+    static <T> ReplayResult replay(final Path file, final EntryCodec<T> codec, final long afterSeq,
+                                   final Replayer<T> replayer) throws IOException {
+        if(!file.toFile().exists()) {
+            return new ReplayResult(afterSeq, 0);
+        }
+
+        long lastSeq = afterSeq;
+        long position = 0;
+        final CRC32 crc = new CRC32();
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            ByteBuffer body = ByteBuffer.allocate(256);
+            while(position + HEADER_BYTES <= size) {
+                header.clear();
+                readFully(channel, header, position);
+                header.flip();
+                final int length = header.getInt();
+                final int checksum = header.getInt();
+                if(length < 9 || position + HEADER_BYTES + length > size) {
+                    break; // torn tail
+                }
+                if(body.capacity() < length) {
+                    body = ByteBuffer.allocate(length);
+                }
+                body.clear();
+                body.limit(length);
+                readFully(channel, body, position + HEADER_BYTES);
+
+                crc.reset();
+                crc.update(body.array(), 0, length);
+                if((int) crc.getValue() != checksum) {
+                    break; // corrupt tail
+                }
+
+                final DataInputStream in = new DataInputStream(new ByteArrayInputStream(body.array(), 0, length));
+                final long seq = in.readLong();
+                final byte op = in.readByte();
+                final T t = codec.decode(in);
+                final T tnew = op == UPDATE ? codec.decode(in) : null;
+                if(seq > afterSeq) {
+                    replayer.apply(op, t, tnew);
+                }
+                lastSeq = Math.max(lastSeq, seq);
+                position += HEADER_BYTES + length;
+            }
+        }
+        return new ReplayResult(lastSeq, position);
+    }
+
+    private static void readFully(final FileChannel channel, final ByteBuffer buf, long position) throws IOException {
+        while(buf.hasRemaining()) {
+            final int n = channel.read(buf, position);
+            if(n < 0) {
+                throw new IOException("Unexpected end of log");
+            }
+            position += n;
+        }
+    }
+}
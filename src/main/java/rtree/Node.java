@@ -76,6 +76,16 @@ interface Node<T> {
      */
     void intersects(HyperRect rect, Consumer<T> consumer);
 
+    /**
+     * Visitor pattern:
+     *
+     * Consumer "accepts" every entry whose bound lies within radius of the given point
+     *
+     * @param p - center point
+     * @param radius - maximum distance from p
+     * @param consumer
+     */
+    void within(HyperPoint p, double radius, Consumer<T> consumer);
 
     /**
      *
@@ -0,0 +1,767 @@
+package rtree;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * <p>R-Tree whose nodes live outside of the java heap. Nodes are fixed size records carved out of direct
+ * ByteBuffer slabs and are addressed by int node ids, so a tree of any size is only a handful of objects
+ * to the garbage collector: the slabs, the entry table and a few scratch arrays.</p>
+ *
+ * <p>Each node record holds a small header followed by mMax + 1 slots (the extra slot absorbs the entry
+ * that triggers a split). A slot is the bounding box of a child as primitive doubles plus an int reference,
+ * which is a node id in a branch and an entry id in a leaf. Entry ids index into a single on-heap table of
+ * the stored objects. Freed node ids and entry ids are recycled.</p>
+ *
+ * <p>Unlike RTree the tree is height balanced: entries are always inserted at leaf level and overflowing
+ * nodes are split along the axis with the greatest spread of slot centers, propagating splits upwards.</p>
+ *
+ * <pre>
+ * node   := [int leaf][int size][slot 0] ... [slot mMax]
+ * slot   := [double min 0 .. nDim-1][double max 0 .. nDim-1][int ref]
+ * </pre>
+ *
+ * Mutations are not thread safe, use ConcurrentRTree to protect the tree. Queries never write to the slabs
+ * and may run concurrently with each other.
+ */
+public final class OffHeapRTree<T> implements SpatialSearch<T> {
+    private static final int NIL = -1;
+
+    private static final int LEAF_OFFSET = 0;
+    private static final int SIZE_OFFSET = 4;
+    private static final int HEADER_BYTES = 8;
+
+    // target slab size, 8MB
+    private static final int SLAB_BYTES_LOG2 = 23;
+
+    private final RectBuilder<T> builder;
+    private final int mMax;
+
+    private int nDim;
+    private int slotBytes;
+    private int nodeBytes;
+    private int slabShift;
+    private int slabMask;
+
+    private ByteBuffer[] slabs = new ByteBuffer[8];
+    private int slabCount = 0;
+
+    private int nodeHighWater = 0;   // next never used node id
+    private int[] freeNodes = new int[16];
+    private int freeNodeCount = 0;
+
+    private Object[] entries = new Object[64];
+    private int entryHighWater = 0;  // next never used entry id
+    private int[] freeIds = new int[16];
+    private int freeIdCount = 0;
+
+    private int root = NIL;
+    private int height = 0; // number of branch levels above the leaves
+    private int entryCount = 0;
+
+    // scratch space used by mutations (never by queries)
+    private double[] tLo, tHi;
+    private double[] splitLo, splitHi, splitKey;
+    private int[] splitRef, splitOrder;
+
+    protected OffHeapRTree(final RectBuilder<T> builder, final int mMax) {
+        if(mMax < 2) {
+            throw new IllegalArgumentException("mMax must be at least 2");
+        }
+        this.builder = builder;
+        this.mMax = mMax;
+    }
+
+    @Override
+    public int search(final HyperRect rect, final T[] t) {
+        if(root != NIL) {
+            return search(root, height, lo(rect), hi(rect), t, 0);
+        }
+        return 0;
+    }
+
+    @Override
+    public void search(final HyperRect rect, final Consumer<T> consumer) {
+        if(root != NIL) {
+            search(root, height, lo(rect), hi(rect), consumer);
+        }
+    }
+
+    @Override
+    public void search(final HyperRect rect, final Collection<T> collection) {
+        search(rect, t -> collection.add(t));
+    }
+
+    @Override
+    public int intersects(final HyperRect rect, final T[] t) {
+        if(root != NIL) {
+            return intersects(root, height, lo(rect), hi(rect), t, 0);
+        }
+        return 0;
+    }
+
+    @Override
+    public void intersects(final HyperRect rect, final Consumer<T> consumer) {
+        if(root != NIL) {
+            intersects(root, height, lo(rect), hi(rect), consumer);
+        }
+    }
+
+    @Override
+    public void within(final HyperPoint p, final double radius, final Consumer<T> consumer) {
+        if(root != NIL) {
+            final double[] x = new double[nDim];
+            for(int d = 0; d < nDim; d++) {
+                final Comparable c = p.getCoord(d);
+                x[d] = ((Number) c).doubleValue();
+            }
+            within(root, height, x, radius * radius, consumer);
+        }
+    }
+
+    @Override
+    public boolean contains(final T t) {
+        if(root != NIL) {
+            final HyperRect bbox = builder.getBBox(t);
+            return find(root, height, lo(bbox), hi(bbox), t);
+        }
+        return false;
+    }
+
+    @Override
+    public void add(final T t) {
+        final HyperRect bbox = builder.getBBox(t);
+        if(root == NIL) {
+            init(bbox.getNDim());
+            root = allocNode(true);
+            height = 0;
+        }
+        for(int d = 0; d < nDim; d++) {
+            tLo[d] = bbox.getMinCoord(d);
+            tHi[d] = bbox.getMaxCoord(d);
+        }
+
+        final int id = allocId(t);
+        final int sibling = insert(root, height, tLo, tHi, id);
+        if(sibling != NIL) {
+            // root split - grow the tree by one level
+            final int newRoot = allocNode(false);
+            appendNodeSlot(newRoot, root);
+            appendNodeSlot(newRoot, sibling);
+            root = newRoot;
+            height++;
+        }
+        entryCount++;
+    }
+
+    // removes every equal entry, like the heap RTree
+    @Override
+    public void remove(final T t) {
+        if(root != NIL) {
+            final HyperRect bbox = builder.getBBox(t);
+            final int removed = remove(root, height, lo(bbox), hi(bbox), t);
+            if(removed > 0) {
+                entryCount -= removed;
+                shrinkRoot();
+            }
+        }
+    }
+
+    // replaces every equal entry, like the heap RTree
+    @Override
+    public void update(final T told, final T tnew) {
+        if(root != NIL) {
+            final HyperRect bbox = builder.getBBox(told);
+            final int removed = remove(root, height, lo(bbox), hi(bbox), told);
+            if(removed > 0) {
+                entryCount -= removed;
+                shrinkRoot();
+                for(int i = 0; i < removed; i++) {
+                    add(tnew);
+                }
+            }
+        }
+    }
+
+    @Override
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    @Override
+    public void forEach(final Consumer<T> consumer) {
+        if(root != NIL) {
+            forEach(root, height, consumer);
+        }
+    }
+
+    @Override
+    public Stats collectStats() {
+        final Stats stats = new Stats();
+        stats.setType(RTree.Split.AXIAL);
+        stats.setMaxFill(mMax);
+        stats.setMinFill(mMax / 2);
+        if(root != NIL) {
+            collectStats(root, height, stats, 0);
+        }
+        return stats;
+    }
+
+    /**
+     * @return number of bytes reserved off-heap for node storage
+     */
+    public long getOffHeapBytes() {
+        long bytes = 0;
+        for(int i = 0; i < slabCount; i++) {
+            bytes += slabs[i].capacity();
+        }
+        return bytes;
+    }
+
+    private void init(final int nDim) {
+        this.nDim = nDim;
+        this.slotBytes = 16 * nDim + 4;
+        this.nodeBytes = HEADER_BYTES + (mMax + 1) * slotBytes;
+
+        int nodeBytesLog2 = 32 - Integer.numberOfLeadingZeros(nodeBytes - 1);
+        this.slabShift = Math.max(0, SLAB_BYTES_LOG2 - nodeBytesLog2);
+        this.slabMask = (1 << slabShift) - 1;
+
+        this.tLo = new double[nDim];
+        this.tHi = new double[nDim];
+        this.splitLo = new double[(mMax + 1) * nDim];
+        this.splitHi = new double[(mMax + 1) * nDim];
+        this.splitKey = new double[mMax + 1];
+        this.splitRef = new int[mMax + 1];
+        this.splitOrder = new int[mMax + 1];
+    }
+
+    private double[] lo(final HyperRect rect) {
+        final double[] lo = new double[nDim];
+        for(int d = 0; d < nDim; d++) {
+            lo[d] = rect.getMinCoord(d);
+        }
+        return lo;
+    }
+
+    private double[] hi(final HyperRect rect) {
+        final double[] hi = new double[nDim];
+        for(int d = 0; d < nDim; d++) {
+            hi[d] = rect.getMaxCoord(d);
+        }
+        return hi;
+    }
+
+    /*
+     * Node record access
+     */
+
+    private ByteBuffer slab(final int node) {
+        return slabs[node >>> slabShift];
+    }
+
+    private int base(final int node) {
+        return (node & slabMask) * nodeBytes;
+    }
+
+    private int slot(final int node, final int i) {
+        return base(node) + HEADER_BYTES + i * slotBytes;
+    }
+
+    private boolean isLeaf(final int node) {
+        return slab(node).getInt(base(node) + LEAF_OFFSET) != 0;
+    }
+
+    private int size(final int node) {
+        return slab(node).getInt(base(node) + SIZE_OFFSET);
+    }
+
+    private void setSize(final int node, final int size) {
+        slab(node).putInt(base(node) + SIZE_OFFSET, size);
+    }
+
+    private int ref(final ByteBuffer buf, final int slot) {
+        return buf.getInt(slot + 16 * nDim);
+    }
+
+    private double slotLo(final ByteBuffer buf, final int slot, final int d) {
+        return buf.getDouble(slot + 8 * d);
+    }
+
+    private double slotHi(final ByteBuffer buf, final int slot, final int d) {
+        return buf.getDouble(slot + 8 * (nDim + d));
+    }
+
+    private boolean slotIntersects(final ByteBuffer buf, final int slot, final double[] lo, final double[] hi) {
+        for(int d = 0; d < nDim; d++) {
+            if(slotLo(buf, slot, d) > hi[d] || lo[d] > slotHi(buf, slot, d)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean slotContainedBy(final ByteBuffer buf, final int slot, final double[] lo, final double[] hi) {
+        for(int d = 0; d < nDim; d++) {
+            if(slotLo(buf, slot, d) < lo[d] || slotHi(buf, slot, d) > hi[d]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private double slotDistanceSq(final ByteBuffer buf, final int slot, final double[] x) {
+        double sum = 0.0;
+        for(int d = 0; d < nDim; d++) {
+            final double lo = slotLo(buf, slot, d);
+            final double hi = slotHi(buf, slot, d);
+            final double delta = x[d] < lo ? lo - x[d] : (x[d] > hi ? x[d] - hi : 0.0);
+            sum += delta * delta;
+        }
+        return sum;
+    }
+
+    private void writeSlot(final int node, final int i, final double[] lo, final double[] hi, final int ref) {
+        final ByteBuffer buf = slab(node);
+        final int s = slot(node, i);
+        for(int d = 0; d < nDim; d++) {
+            buf.putDouble(s + 8 * d, lo[d]);
+            buf.putDouble(s + 8 * (nDim + d), hi[d]);
+        }
+        buf.putInt(s + 16 * nDim, ref);
+    }
+
+    private void appendSlot(final int node, final double[] lo, final double[] hi, final int ref) {
+        final int size = size(node);
+        writeSlot(node, size, lo, hi, ref);
+        setSize(node, size + 1);
+    }
+
+    private void appendNodeSlot(final int parent, final int child) {
+        final int size = size(parent);
+        setSize(parent, size + 1);
+        writeBoundsOf(parent, size, child);
+        slab(parent).putInt(slot(parent, size) + 16 * nDim, child);
+    }
+
+    /**
+     * Store the mbr of all slots of child into slot i of parent
+     */
+    private void writeBoundsOf(final int parent, final int i, final int child) {
+        final ByteBuffer cbuf = slab(child);
+        final int n = size(child);
+        final ByteBuffer pbuf = slab(parent);
+        final int ps = slot(parent, i);
+        for(int d = 0; d < nDim; d++) {
+            double lo = Double.POSITIVE_INFINITY;
+            double hi = Double.NEGATIVE_INFINITY;
+            for(int k = 0; k < n; k++) {
+                final int cs = slot(child, k);
+                lo = Math.min(lo, slotLo(cbuf, cs, d));
+                hi = Math.max(hi, slotHi(cbuf, cs, d));
+            }
+            pbuf.putDouble(ps + 8 * d, lo);
+            pbuf.putDouble(ps + 8 * (nDim + d), hi);
+        }
+    }
+
+    private void removeSlot(final int node, final int i) {
+        final int last = size(node) - 1;
+        if(i != last) {
+            final ByteBuffer buf = slab(node);
+            final int dst = slot(node, i);
+            final int src = slot(node, last);
+            for(int b = 0; b < slotBytes; b += 4) {
+                buf.putInt(dst + b, buf.getInt(src + b));
+            }
+        }
+        setSize(node, last);
+    }
+
+    /*
+     * Allocation
+     */
+
+    private int allocNode(final boolean leaf) {
+        final int node;
+        if(freeNodeCount > 0) {
+            node = freeNodes[--freeNodeCount];
+        } else {
+            node = nodeHighWater++;
+            final int slabIdx = node >>> slabShift;
+            if(slabIdx == slabCount) {
+                if(slabCount == slabs.length) {
+                    slabs = Arrays.copyOf(slabs, slabCount * 2);
+                }
+                slabs[slabCount++] = ByteBuffer.allocateDirect(nodeBytes << slabShift).order(ByteOrder.nativeOrder());
+            }
+        }
+        final ByteBuffer buf = slab(node);
+        buf.putInt(base(node) + LEAF_OFFSET, leaf ? 1 : 0);
+        buf.putInt(base(node) + SIZE_OFFSET, 0);
+        return node;
+    }
+
+    private void freeNode(final int node) {
+        if(freeNodeCount == freeNodes.length) {
+            freeNodes = Arrays.copyOf(freeNodes, freeNodeCount * 2);
+        }
+        freeNodes[freeNodeCount++] = node;
+    }
+
+    private int allocId(final T t) {
+        final int id;
+        if(freeIdCount > 0) {
+            id = freeIds[--freeIdCount];
+        } else {
+            if(entryHighWater == entries.length) {
+                entries = Arrays.copyOf(entries, entryHighWater * 2);
+            }
+            id = entryHighWater++;
+        }
+        entries[id] = t;
+        return id;
+    }
+
+    private void freeId(final int id) {
+        entries[id] = null;
+        if(freeIdCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, freeIdCount * 2);
+        }
+        freeIds[freeIdCount++] = id;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T entry(final int id) {
+        return (T) entries[id];
+    }
+
+    /*
+     * Mutation
+     */
+
+    /**
+     * Insert the entry below node
+     *
+     * @return id of the new sibling if node was split, NIL otherwise
+     */
+    private int insert(final int node, final int level, final double[] lo, final double[] hi, final int id) {
+        if(level == 0) {
+            appendSlot(node, lo, hi, id);
+        } else {
+            final int best = chooseSubtree(node, lo, hi);
+            final ByteBuffer buf = slab(node);
+            final int child = ref(buf, slot(node, best));
+            final int sibling = insert(child, level - 1, lo, hi, id);
+            if(sibling != NIL) {
+                writeBoundsOf(node, best, child);
+                appendNodeSlot(node, sibling);
+            } else {
+                // enlarge the slot to cover the new entry
+                final int s = slot(node, best);
+                for(int d = 0; d < nDim; d++) {
+                    if(lo[d] < slotLo(buf, s, d)) {
+                        buf.putDouble(s + 8 * d, lo[d]);
+                    }
+                    if(hi[d] > slotHi(buf, s, d)) {
+                        buf.putDouble(s + 8 * (nDim + d), hi[d]);
+                    }
+                }
+            }
+        }
+
+        if(size(node) > mMax) {
+            return split(node);
+        }
+        return NIL;
+    }
+
+    /**
+     * Least area enlargement, ties broken by least area
+     */
+    private int chooseSubtree(final int node, final double[] lo, final double[] hi) {
+        final ByteBuffer buf = slab(node);
+        final int n = size(node);
+        int best = 0;
+        double bestEnlargement = Double.POSITIVE_INFINITY;
+        double bestArea = Double.POSITIVE_INFINITY;
+        for(int i = 0; i < n; i++) {
+            final int s = slot(node, i);
+            double area = 1.0;
+            double union = 1.0;
+            for(int d = 0; d < nDim; d++) {
+                final double sLo = slotLo(buf, s, d);
+                final double sHi = slotHi(buf, s, d);
+                area *= sHi - sLo;
+                union *= Math.max(sHi, hi[d]) - Math.min(sLo, lo[d]);
+            }
+            final double enlargement = union - area;
+            if(enlargement < bestEnlargement || (RTree.isEqual(enlargement, bestEnlargement) && area < bestArea)) {
+                best = i;
+                bestEnlargement = enlargement;
+                bestArea = area;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Split an overflowing node (mMax + 1 slots) in two halves along the axis with the greatest spread of
+     * slot centers.
+     *
+     * @return id of the new sibling holding the upper half
+     */
+    private int split(final int node) {
+        final ByteBuffer buf = slab(node);
+        final int n = size(node);
+
+        for(int i = 0; i < n; i++) {
+            final int s = slot(node, i);
+            for(int d = 0; d < nDim; d++) {
+                splitLo[i * nDim + d] = slotLo(buf, s, d);
+                splitHi[i * nDim + d] = slotHi(buf, s, d);
+            }
+            splitRef[i] = ref(buf, s);
+        }
+
+        int axis = 0;
+        double bestSpread = Double.NEGATIVE_INFINITY;
+        for(int d = 0; d < nDim; d++) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for(int i = 0; i < n; i++) {
+                final double c = splitLo[i * nDim + d] + splitHi[i * nDim + d];
+                min = Math.min(min, c);
+                max = Math.max(max, c);
+            }
+            if(max - min > bestSpread) {
+                bestSpread = max - min;
+                axis = d;
+            }
+        }
+
+        // insertion sort of the slots by center along axis - n is small
+        for(int i = 0; i < n; i++) {
+            final double key = splitLo[i * nDim + axis] + splitHi[i * nDim + axis];
+            int j = i;
+            while(j > 0 && splitKey[j - 1] > key) {
+                splitKey[j] = splitKey[j - 1];
+                splitOrder[j] = splitOrder[j - 1];
+                j--;
+            }
+            splitKey[j] = key;
+            splitOrder[j] = i;
+        }
+
+        final int sibling = allocNode(isLeaf(node));
+        final int half = n / 2;
+        setSize(node, 0);
+        for(int k = 0; k < n; k++) {
+            final int i = splitOrder[k];
+            final int target = k < half ? node : sibling;
+            final int size = size(target);
+            final ByteBuffer tbuf = slab(target);
+            final int s = slot(target, size);
+            for(int d = 0; d < nDim; d++) {
+                tbuf.putDouble(s + 8 * d, splitLo[i * nDim + d]);
+                tbuf.putDouble(s + 8 * (nDim + d), splitHi[i * nDim + d]);
+            }
+            tbuf.putInt(s + 16 * nDim, splitRef[i]);
+            setSize(target, size + 1);
+        }
+        return sibling;
+    }
+
+    /**
+     * Remove every entry equal to t below node. removeSlot moves the last slot into the freed one, so a removed
+     * slot is looked at again.
+     *
+     * @return number of entries removed
+     */
+    private int remove(final int node, final int level, final double[] lo, final double[] hi, final T t) {
+        final ByteBuffer buf = slab(node);
+        int removed = 0;
+        if(level == 0) {
+            for(int i = 0; i < size(node); ) {
+                final int s = slot(node, i);
+                final int id = ref(buf, s);
+                final T e = entry(id);
+                if((e == t || e.equals(t)) && slotIntersects(buf, s, lo, hi)) {
+                    removeSlot(node, i);
+                    freeId(id);
+                    removed++;
+                } else {
+                    i++;
+                }
+            }
+            return removed;
+        }
+
+        for(int i = 0; i < size(node); ) {
+            final int s = slot(node, i);
+            if(slotIntersects(buf, s, lo, hi)) {
+                final int child = ref(buf, s);
+                final int n = remove(child, level - 1, lo, hi, t);
+                if(n > 0) {
+                    removed += n;
+                    if(size(child) == 0) {
+                        freeNode(child);
+                        removeSlot(node, i);
+                        continue;
+                    }
+                    writeBoundsOf(node, i, child);
+                }
+            }
+            i++;
+        }
+        return removed;
+    }
+
+    private void shrinkRoot() {
+        while(height > 0 && size(root) == 1) {
+            final int oldRoot = root;
+            root = ref(slab(root), slot(root, 0));
+            height--;
+            freeNode(oldRoot);
+        }
+        if(size(root) == 0) {
+            freeNode(root);
+            root = NIL;
+            height = 0;
+        }
+    }
+
+    /*
+     * Queries
+     */
+
+    private int search(final int node, final int level, final double[] lo, final double[] hi, final T[] t, int n) {
+        final ByteBuffer buf = slab(node);
+        final int size = size(node);
+        final int tLen = t.length;
+        final int n0 = n;
+        for(int i = 0; i < size && n < tLen; i++) {
+            final int s = slot(node, i);
+            if(level == 0) {
+                if(slotContainedBy(buf, s, lo, hi)) {
+                    t[n++] = entry(ref(buf, s));
+                }
+            } else if(slotIntersects(buf, s, lo, hi)) {
+                n += search(ref(buf, s), level - 1, lo, hi, t, n);
+            }
+        }
+        return n - n0;
+    }
+
+    private void search(final int node, final int level, final double[] lo, final double[] hi, final Consumer<T> consumer) {
+        final ByteBuffer buf = slab(node);
+        final int size = size(node);
+        for(int i = 0; i < size; i++) {
+            final int s = slot(node, i);
+            if(level == 0) {
+                if(slotContainedBy(buf, s, lo, hi)) {
+                    consumer.accept(entry(ref(buf, s)));
+                }
+            } else if(slotIntersects(buf, s, lo, hi)) {
+                search(ref(buf, s), level - 1, lo, hi, consumer);
+            }
+        }
+    }
+
+    private int intersects(final int node, final int level, final double[] lo, final double[] hi, final T[] t, int n) {
+        final ByteBuffer buf = slab(node);
+        final int size = size(node);
+        final int tLen = t.length;
+        final int n0 = n;
+        for(int i = 0; i < size && n < tLen; i++) {
+            final int s = slot(node, i);
+            if(slotIntersects(buf, s, lo, hi)) {
+                if(level == 0) {
+                    t[n++] = entry(ref(buf, s));
+                } else {
+                    n += intersects(ref(buf, s), level - 1, lo, hi, t, n);
+                }
+            }
+        }
+        return n - n0;
+    }
+
+    private void intersects(final int node, final int level, final double[] lo, final double[] hi, final Consumer<T> consumer) {
+        final ByteBuffer buf = slab(node);
+        final int size = size(node);
+        for(int i = 0; i < size; i++) {
+            final int s = slot(node, i);
+            if(slotIntersects(buf, s, lo, hi)) {
+                if(level == 0) {
+                    consumer.accept(entry(ref(buf, s)));
+                } else {
+                    intersects(ref(buf, s), level - 1, lo, hi, consumer);
+                }
+            }
+        }
+    }
+
+    private void within(final int node, final int level, final double[] x, final double radiusSq, final Consumer<T> consumer) {
+        final ByteBuffer buf = slab(node);
+        final int size = size(node);
+        for(int i = 0; i < size; i++) {
+            final int s = slot(node, i);
+            if(slotDistanceSq(buf, s, x) <= radiusSq) {
+                if(level == 0) {
+                    consumer.accept(entry(ref(buf, s)));
+                } else {
+                    within(ref(buf, s), level - 1, x, radiusSq, consumer);
+                }
+            }
+        }
+    }
+
+    private boolean find(final int node, final int level, final double[] lo, final double[] hi, final T t) {
+        final ByteBuffer buf = slab(node);
+        final int size = size(node);
+        for(int i = 0; i < size; i++) {
+            final int s = slot(node, i);
+            if(level == 0) {
+                if(slotContainedBy(buf, s, lo, hi) && entry(ref(buf, s)).equals(t)) {
+                    return true;
+                }
+            } else if(slotIntersects(buf, s, lo, hi) && find(ref(buf, s), level - 1, lo, hi, t)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void forEach(final int node, final int level, final Consumer<T> consumer) {
+        final ByteBuffer buf = slab(node);
+        final int size = size(node);
+        for(int i = 0; i < size; i++) {
+            final int ref = ref(buf, slot(node, i));
+            if(level == 0) {
+                consumer.accept(entry(ref));
+            } else {
+                forEach(ref, level - 1, consumer);
+            }
+        }
+    }
+
+    private void collectStats(final int node, final int level, final Stats stats, final int depth) {
+        if(level == 0) {
+            if(depth > stats.getMaxDepth()) {
+                stats.setMaxDepth(depth);
+            }
+            stats.countLeafAtDepth(depth);
+            stats.countEntriesAtDepth(size(node), depth);
+        } else {
+            final ByteBuffer buf = slab(node);
+            final int size = size(node);
+            for(int i = 0; i < size; i++) {
+                collectStats(ref(buf, slot(node, i)), level - 1, stats, depth + 1);
+            }
+            stats.countBranchAtDepth(depth);
+        }
+    }
+}
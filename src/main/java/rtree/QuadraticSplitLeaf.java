@@ -6,6 +6,11 @@ package rtree;
  * strongest preference for one of the groups (in terms of area increase) and assigns the object to this group until all
  * objects are assigned (satisfying the minimum fill).
  *
+ * Bounds are copied once into primitive arrays so that no HyperRect is allocated per pair while picking the
+ * seeds. The enlargement of every unassigned entry for each group is kept in an array and only the deltas of
+ * the group that grew are recomputed after an assignment, so a split costs O(M^2) arithmetic and O(1)
+ * allocations.
+ *
  * @param <T>
  */
 final class QuadraticSplitLeaf<T> extends Leaf<T> {
@@ -17,37 +22,138 @@ final class QuadraticSplitLeaf<T> extends Leaf<T> {
     @Override
     protected Node<T> split(final T t) {
 
-        final Branch<T> pNode = new Branch(builder, mMin, mMax, splitType);
-        final Node<T> l1Node = create(builder, mMin, mMax, splitType);
-        final Node<T> l2Node = create(builder, mMin, mMax, splitType);
+        final Branch<T> pNode = new Branch<>(builder, mMin, mMax, splitType);
+        final Leaf<T> l1Node = (Leaf<T>) create(builder, mMin, mMax, splitType);
+        final Leaf<T> l2Node = (Leaf<T>) create(builder, mMin, mMax, splitType);
+
+        // the new entry takes part in the split as entry n-1
+        final HyperRect tRect = builder.getBBox(t);
+        final int n = size + 1;
+        final int nD = tRect.getNDim();
+        final double[] lo = new double[n * nD];
+        final double[] hi = new double[n * nD];
+        final double[] area = new double[n];
+        for (int i = 0; i < n; i++) {
+            final HyperRect rect = i < size ? r[i] : tRect;
+            double a = 1.0;
+            for (int d = 0; d < nD; d++) {
+                lo[i * nD + d] = rect.getMinCoord(d);
+                hi[i * nD + d] = rect.getMaxCoord(d);
+                a *= hi[i * nD + d] - lo[i * nD + d];
+            }
+            area[i] = a;
+        }
 
         // find the two rectangles that are most wasteful
-        double minCost = Double.MIN_VALUE;
-        int r1Max = 0, r2Max = size - 1;
-        for (int i = 0; i < size; i++) {
-            for (int j = i + 1; j < size; j++) {
-                final HyperRect mbr = r[i].getMbr(r[j]);
-                final double cost = mbr.cost() - (r[i].cost() + r[j].cost());
-                if (cost > minCost) {
-                    r1Max = i;
-                    r2Max = j;
-                    minCost = cost;
+        double maxWaste = Double.NEGATIVE_INFINITY;
+        int s1 = 0, s2 = n - 1;
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                double union = 1.0;
+                for (int d = 0; d < nD; d++) {
+                    union *= max(hi[i * nD + d], hi[j * nD + d]) - min(lo[i * nD + d], lo[j * nD + d]);
+                }
+                final double waste = union - (area[i] + area[j]);
+                if (waste > maxWaste) {
+                    s1 = i;
+                    s2 = j;
+                    maxWaste = waste;
                 }
             }
         }
 
-        // two seeds
-        l1Node.add(entry[r1Max]);
-        l2Node.add(entry[r2Max]);
+        // group bounds, seeded by the two wasteful rectangles
+        final double[] gLo = new double[2 * nD];
+        final double[] gHi = new double[2 * nD];
+        final double[] gArea = new double[2];
+        final int[] gCount = new int[2];
+        System.arraycopy(lo, s1 * nD, gLo, 0, nD);
+        System.arraycopy(hi, s1 * nD, gHi, 0, nD);
+        System.arraycopy(lo, s2 * nD, gLo, nD, nD);
+        System.arraycopy(hi, s2 * nD, gHi, nD, nD);
+        gArea[0] = area[s1];
+        gArea[1] = area[s2];
+        gCount[0] = 1;
+        gCount[1] = 1;
 
-        for (int i = 0; i < size; i++) {
-            if ((i != r1Max) && (i != r2Max)) {
-                // classify with respect to nodes
-                classify(l1Node, l2Node, entry[i]);
+        // unassigned entries are kept densely in pending[0, remaining)
+        final int[] group = new int[n];
+        final int[] pending = new int[n];
+        final double[] enlargement = new double[2 * n];
+        group[s1] = 0;
+        group[s2] = 1;
+        int remaining = 0;
+        int pick = -1;
+        double maxPreference = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            if (i != s1 && i != s2) {
+                enlargement[i] = enlargement(gLo, gHi, gArea, 0, lo, hi, i, nD);
+                enlargement[n + i] = enlargement(gLo, gHi, gArea, 1, lo, hi, i, nD);
+                final double preference = Math.abs(enlargement[i] - enlargement[n + i]);
+                if (preference > maxPreference) {
+                    maxPreference = preference;
+                    pick = remaining;
+                }
+                pending[remaining++] = i;
+            }
+        }
+
+        while (remaining > 0) {
+            // if one group needs every remaining entry to reach the minimum fill, it gets them all
+            final int starving = gCount[0] + remaining <= mMin ? 0 : (gCount[1] + remaining <= mMin ? 1 : -1);
+            if (starving >= 0) {
+                for (int k = 0; k < remaining; k++) {
+                    group[pending[k]] = starving;
+                }
+                break;
+            }
+
+            // PickNext - pick is the entry with the strongest preference for one group
+            final int next = pending[pick];
+            final double e1 = enlargement[next];
+            final double e2 = enlargement[n + next];
+            final int g;
+            if (RTree.isEqual(e1, e2)) {
+                if (RTree.isEqual(gArea[0], gArea[1])) {
+                    g = gCount[0] <= gCount[1] ? 0 : 1;
+                } else {
+                    g = gArea[0] < gArea[1] ? 0 : 1;
+                }
+            } else {
+                g = e1 < e2 ? 0 : 1;
+            }
+
+            group[next] = g;
+            gCount[g]++;
+            pending[pick] = pending[--remaining];
+
+            double a = 1.0;
+            for (int d = 0; d < nD; d++) {
+                gLo[g * nD + d] = min(gLo[g * nD + d], lo[next * nD + d]);
+                gHi[g * nD + d] = max(gHi[g * nD + d], hi[next * nD + d]);
+                a *= gHi[g * nD + d] - gLo[g * nD + d];
+            }
+            final boolean grew = a != gArea[g];
+            gArea[g] = a;
+
+            // refresh only the deltas of the group that grew and find the next pick in the same pass
+            pick = -1;
+            maxPreference = Double.NEGATIVE_INFINITY;
+            for (int k = 0; k < remaining; k++) {
+                final int i = pending[k];
+                if (grew) {
+                    enlargement[g * n + i] = enlargement(gLo, gHi, gArea, g, lo, hi, i, nD);
+                }
+                final double preference = Math.abs(enlargement[i] - enlargement[n + i]);
+                if (preference > maxPreference) {
+                    maxPreference = preference;
+                    pick = k;
+                }
             }
         }
 
-        classify(l1Node, l2Node, t);
+        fill(l1Node, 0, group, lo, hi, nD, tRect, t);
+        fill(l2Node, 1, group, lo, hi, nD, tRect, t);
 
         pNode.addChild(l1Node);
         pNode.addChild(l2Node);
@@ -55,4 +161,67 @@ final class QuadraticSplitLeaf<T> extends Leaf<T> {
         return pNode;
     }
 
+    /**
+     * Move the entries of group g into an empty leaf. The rects are already known, so the mbr is built once
+     * from the entries holding an extreme coordinate rather than grown one entry at a time.
+     */
+    private void fill(final Leaf<T> leaf, final int g, final int[] group, final double[] lo, final double[] hi,
+                      final int nD, final HyperRect tRect, final T t) {
+        final int n = group.length;
+        final int[] extreme = new int[2 * nD];
+        for (int d = 0; d < 2 * nD; d++) {
+            extreme[d] = -1;
+        }
+
+        for (int i = 0; i < n; i++) {
+            if (group[i] == g) {
+                final HyperRect rect = i < size ? r[i] : tRect;
+                leaf.r[leaf.size] = rect;
+                leaf.entry[leaf.size++] = i < size ? entry[i] : t;
+                for (int d = 0; d < nD; d++) {
+                    if (extreme[d] < 0 || lo[i * nD + d] < lo[extreme[d] * nD + d]) {
+                        extreme[d] = i;
+                    }
+                    if (extreme[nD + d] < 0 || hi[i * nD + d] > hi[extreme[nD + d] * nD + d]) {
+                        extreme[nD + d] = i;
+                    }
+                }
+            }
+        }
+
+        HyperRect mbr = null;
+        for (int k = 0; k < 2 * nD; k++) {
+            boolean seen = false;
+            for (int j = 0; j < k; j++) {
+                seen |= extreme[j] == extreme[k];
+            }
+            if (!seen) {
+                final HyperRect rect = extreme[k] < size ? r[extreme[k]] : tRect;
+                mbr = mbr == null ? rect : mbr.getMbr(rect);
+            }
+        }
+        leaf.mbr = mbr;
+    }
+
+    /**
+     * Area increase of group g when entry i is added to it
+     */
+    private static double enlargement(final double[] gLo, final double[] gHi, final double[] gArea, final int g,
+                                      final double[] lo, final double[] hi, final int i, final int nD) {
+        double union = 1.0;
+        for (int d = 0; d < nD; d++) {
+            union *= max(gHi[g * nD + d], hi[i * nD + d]) - min(gLo[g * nD + d], lo[i * nD + d]);
+        }
+        return union - gArea[g];
+    }
+
+    // bounds never hold NaN, so skip the NaN and signed zero handling of Math.min/max
+    private static double min(final double a, final double b) {
+        return a < b ? a : b;
+    }
+
+    private static double max(final double a, final double b) {
+        return a > b ? a : b;
+    }
+
 }
@@ -28,6 +28,11 @@ public final class RTree<T> implements SpatialSearch<T> {
         this.splitType = splitType;
     }
 
+    RTree(final RectBuilder<T> builder, final int mMin, final int mMax, final Split splitType, final Node<T> root) {
+        this(builder, mMin, mMax, splitType);
+        this.root = root;
+    }
+
     @Override
     public int search(final HyperRect rect, final T[] t) {
         if(root != null) {
@@ -65,6 +70,13 @@ public final class RTree<T> implements SpatialSearch<T> {
         }
     }
 
+    @Override
+    public void within(final HyperPoint p, final double radius, final Consumer<T> consumer) {
+        if(root != null) {
+            root.within(p, radius, consumer);
+        }
+    }
+
     @Override
     public void add(final T t) {
         if(root != null) {
@@ -150,6 +162,18 @@ public final class RTree<T> implements SpatialSearch<T> {
         return root;
     }
 
+    int getMinM() {
+        return mMin;
+    }
+
+    int getMaxM() {
+        return mMax;
+    }
+
+    Split getSplitType() {
+        return splitType;
+    }
+
 
     /**
      * Different methods for splitting nodes in an RTree.
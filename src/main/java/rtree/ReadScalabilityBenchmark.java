@@ -0,0 +1,129 @@
+package rtree;
+
+import rtree.geometry.Point2d;
+import rtree.geometry.Rect2d;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Measures query throughput of the ReadWriteLock based ConcurrentRTree and the optimistic StampedRTree from 1 to
+ * 64 reader threads, once with readers only and once with a writer moving an entry every 100us.
+ *
+ * Queries are small so the cost of acquiring the lock is a large share of each query.
+ */
+public class ReadScalabilityBenchmark {
+
+    private static final int ENTRIES = 1_000_000;
+    private static final double QUERY_SIZE = 1.0;
+    private static final long RUN_MILLIS = 1000;
+    private static final long WRITE_INTERVAL_NANOS = 100_000;
+    private static final int[] THREADS = {1, 2, 4, 8, 16, 32, 64};
+
+    private static double run(final SpatialSearch<Point2d> tree, final Rect2d[] rects, final Point2d[] points,
+                              final int threads, final boolean writer) throws InterruptedException {
+        final LongAdder queries = new LongAdder();
+        final AtomicBoolean stop = new AtomicBoolean();
+        final CountDownLatch start = new CountDownLatch(1);
+        final Thread[] readers = new Thread[threads];
+
+        for(int t = 0; t < threads; t++) {
+            final int seed = t;
+            readers[t] = new Thread(() -> {
+                final Point2d[] found = new Point2d[64];
+                int i = seed * 7919;
+                long n = 0;
+                try {
+                    start.await();
+                } catch(InterruptedException e) {
+                    return;
+                }
+                while(!stop.get()) {
+                    tree.intersects(rects[i++ & (rects.length - 1)], found);
+                    n++;
+                }
+                queries.add(n);
+            });
+            readers[t].start();
+        }
+
+        Thread writerThread = null;
+        if(writer) {
+            writerThread = new Thread(() -> {
+                final Random random = new Random(11);
+                long next = System.nanoTime();
+                while(!stop.get()) {
+                    final int i = random.nextInt(points.length);
+                    final Point2d moved = new Point2d(random.nextDouble() * 1000, random.nextDouble() * 1000);
+                    // remove and re-add, an in place update would stretch the old leaf across the map
+                    tree.applyBatch(Arrays.asList(Mutation.remove(points[i]), Mutation.add(moved)));
+                    points[i] = moved;
+                    next += WRITE_INTERVAL_NANOS;
+                    final long wait = next - System.nanoTime();
+                    if(wait > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                }
+            });
+            writerThread.start();
+        }
+
+        final long t0 = System.nanoTime();
+        start.countDown();
+        Thread.sleep(RUN_MILLIS);
+        stop.set(true);
+        for(Thread reader : readers) {
+            reader.join();
+        }
+        final long elapsed = System.nanoTime() - t0;
+        if(writerThread != null) {
+            writerThread.join();
+        }
+        return queries.sum() / (elapsed / 1e9);
+    }
+
+    private static SpatialSearch<Point2d> load(final Function<RectBuilder<Point2d>, SpatialSearch<Point2d>> factory,
+                                               final Point2d[] points) {
+        final SpatialSearch<Point2d> tree = factory.apply(new Point2d.Builder());
+        for(Point2d p : points) {
+            tree.add(p);
+        }
+        return tree;
+    }
+
+    public static void main(String[] args) throws Exception {
+        final Random random = new Random(7);
+        final Point2d[] points = new Point2d[ENTRIES];
+        for(int i = 0; i < ENTRIES; i++) {
+            points[i] = new Point2d(random.nextDouble() * 1000, random.nextDouble() * 1000);
+        }
+        final Rect2d[] rects = new Rect2d[4096];
+        for(int i = 0; i < rects.length; i++) {
+            final double x = random.nextDouble() * (1000 - QUERY_SIZE);
+            final double y = random.nextDouble() * (1000 - QUERY_SIZE);
+            rects[i] = new Rect2d(x, y, x + QUERY_SIZE, y + QUERY_SIZE);
+        }
+
+        final Point2d[] lockingPoints = points.clone();
+        final Point2d[] stampedPoints = points.clone();
+        final SpatialSearch<Point2d> locking = load(b -> SpatialSearches.lockingRTree(b, 2, 16, RTree.Split.AXIAL), lockingPoints);
+        final SpatialSearch<Point2d> stamped = load(b -> SpatialSearches.stampedRTree(b, 2, 16, RTree.Split.AXIAL), stampedPoints);
+
+        System.out.println(ENTRIES + " entries, " + Runtime.getRuntime().availableProcessors() + " cores");
+        for(int round = 0; round < 2; round++) {
+            System.out.printf("%-8s %-8s %16s %16s %8s%n", "threads", "writer", "ReadWriteLock/s", "StampedLock/s", "ratio");
+            for(boolean writer : new boolean[] {false, true}) {
+                for(int threads : THREADS) {
+                    final double rw = run(locking, rects, lockingPoints, threads, writer);
+                    final double st = run(stamped, rects, stampedPoints, threads, writer);
+                    System.out.printf("%-8d %-8s %16.0f %16.0f %8.2f%n", threads, writer ? "yes" : "no", rw, st, st / rw);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package rtree;
+
+/**
+ * <p>Orders rects along a Z-order (Morton) curve through their centers.</p>
+ *
+ * <p>Consecutive rects in this order tend to be close together, so a batch of removes applied in Z-order keeps
+ * revisiting the same path of nodes instead of jumping across the tree.</p>
+ */
+final class SpatialOrder {
+
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private SpatialOrder() {}
+
+    /**
+     * Compute the Z-order key of each rect, keys are relative to the bounds of the given rects. A null rect
+     * gets key 0.
+     *
+     * @param bounds - rects to order
+     *
+     * @return Z-order key of each rect
+     */
+    static long[] keys(final HyperRect[] bounds) {
+        final int n = bounds.length;
+        final long[] keys = new long[n];
+
+        int nD = 0;
+        for(final HyperRect r : bounds) {
+            if(r != null) {
+                nD = r.getNDim();
+                break;
+            }
+        }
+        if(nD == 0) {
+            return keys;
+        }
+
+        final double[] lo = new double[nD];
+        final double[] hi = new double[nD];
+        for(int d = 0; d < nD; d++) {
+            lo[d] = Double.POSITIVE_INFINITY;
+            hi[d] = Double.NEGATIVE_INFINITY;
+        }
+        final double[] center = new double[n * nD];
+        for(int i = 0; i < n; i++) {
+            if(bounds[i] == null) {
+                continue;
+            }
+            for(int d = 0; d < nD; d++) {
+                final double c = (bounds[i].getMinCoord(d) + bounds[i].getMaxCoord(d)) / 2.0;
+                center[i * nD + d] = c;
+                lo[d] = Math.min(lo[d], c);
+                hi[d] = Math.max(hi[d], c);
+            }
+        }
+
+        final int bits = Math.min(31, 63 / nD);
+        final long cells = (1L << bits) - 1;
+        final long[] q = new long[nD];
+        for(int i = 0; i < n; i++) {
+            if(bounds[i] == null) {
+                continue;
+            }
+            for(int d = 0; d < nD; d++) {
+                final double range = hi[d] - lo[d];
+                q[d] = range > 0 ? (long) ((center[i * nD + d] - lo[d]) / range * cells) : 0;
+            }
+            long key = 0;
+            for(int b = bits - 1; b >= 0; b--) {
+                for(int d = 0; d < nD; d++) {
+                    key = (key << 1) | ((q[d] >>> b) & 1);
+                }
+            }
+            keys[i] = key;
+        }
+        return keys;
+    }
+
+    /**
+     * Sort order[from, to) by keys[order[i]]
+     */
+    static void sort(final int[] order, int from, int to, final long[] keys) {
+        while(to - from > INSERTION_SORT_THRESHOLD) {
+            // median of three pivot
+            final int mid = (from + to) >>> 1;
+            final long a = keys[order[from]];
+            final long b = keys[order[mid]];
+            final long c = keys[order[to - 1]];
+            final long pivot = Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+
+            int i = from, j = to - 1;
+            while(i <= j) {
+                while(keys[order[i]] < pivot) i++;
+                while(keys[order[j]] > pivot) j--;
+                if(i <= j) {
+                    final int tmp = order[i];
+                    order[i++] = order[j];
+                    order[j--] = tmp;
+                }
+            }
+
+            // recurse into the smaller half
+            if(j + 1 - from < to - i) {
+                sort(order, from, j + 1, keys);
+                from = i;
+            } else {
+                sort(order, i, to, keys);
+                to = j + 1;
+            }
+        }
+
+        for(int i = from + 1; i < to; i++) {
+            final int item = order[i];
+            final long key = keys[item];
+            int j = i - 1;
+            while(j >= from && keys[order[j]] > key) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = item;
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package rtree;
 
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.Collection;
+import java.util.List;
 
 
 public interface SpatialSearch<T> {
@@ -24,6 +26,53 @@ public interface SpatialSearch<T> {
      */
     void intersects(HyperRect rect, Consumer<T> consumer);
 
+    /**
+     * Two stage search: entries whose bounding rect intersects the given rect are found through the index and
+     * are then passed to an exact geometry refinement predicate, e.g. a point in polygon test
+     *
+     * @param rect - Bounding rectangle of the query geometry
+     * @param refinement - exact test applied to each candidate
+     * @param consumer - callback to receive the entries accepted by refinement
+     *
+     */
+    default void intersects(HyperRect rect, Predicate<T> refinement, Consumer<T> consumer) {
+        intersects(rect, t -> {
+            if(refinement.test(t)) {
+                consumer.accept(t);
+            }
+        });
+    }
+
+    /**
+     * Search for entries whose bounding rect lies within the given distance of a point. Nodes are pruned by the
+     * minimum distance from the point to their bounding rect, which rejects the corners that an enclosing
+     * rect of the circle would still visit.
+     *
+     * @param p - center of the query
+     * @param radius - maximum distance from p
+     * @param consumer - callback to receive the entries in range
+     *
+     */
+    void within(HyperPoint p, double radius, Consumer<T> consumer);
+
+    /**
+     * Two stage distance search: entries found by within(p, radius) are passed to an exact geometry
+     * refinement predicate
+     *
+     * @param p - center of the query
+     * @param radius - maximum distance from p
+     * @param refinement - exact test applied to each candidate
+     * @param consumer - callback to receive the entries accepted by refinement
+     *
+     */
+    default void within(HyperPoint p, double radius, Predicate<T> refinement, Consumer<T> consumer) {
+        within(p, radius, t -> {
+            if(refinement.test(t)) {
+                consumer.accept(t);
+            }
+        });
+    }
+
     /**
      * Search for entries contained by the given bounding rect
      *
@@ -69,7 +118,7 @@ public interface SpatialSearch<T> {
     void add(T t);
 
     /**
-     * Remove the data entry from the SpatialSearch structure
+     * Remove the data entry from the SpatialSearch structure, every entry equal to it if it was added more than once
      *
      * @param t Data entry to be removed
      */
@@ -83,6 +132,39 @@ public interface SpatialSearch<T> {
      */
     void update(T told, T tnew);
 
+    /**
+     * Add all the given entries
+     *
+     * @param entries - Data entries to be added
+     */
+    default void addAll(Collection<? extends T> entries) {
+        for(final T t : entries) {
+            add(t);
+        }
+    }
+
+    /**
+     * Remove all the given entries
+     *
+     * @param entries - Data entries to be removed
+     */
+    default void removeAll(Collection<? extends T> entries) {
+        for(final T t : entries) {
+            remove(t);
+        }
+    }
+
+    /**
+     * Apply a list of mutations, with the same result as applying them one by one in list order
+     *
+     * @param mutations - adds, removes and updates to apply
+     */
+    default void applyBatch(List<Mutation<T>> mutations) {
+        for(final Mutation<T> m : mutations) {
+            m.apply(this);
+        }
+    }
+
     /**
      * Get the number of entries in the tree
      *
@@ -1,5 +1,8 @@
 package rtree;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
@@ -11,6 +14,8 @@ public class SpatialSearches {
     private static final int DEFAULT_MIN_M = 2;
     private static final int DEFAULT_MAX_M = 8;
     private static final RTree.Split DEFAULT_SPLIT_TYPE = RTree.Split.AXIAL;
+    private static final int DEFAULT_OFF_HEAP_MAX_M = 16;
+    private static final int DEFAULT_FROZEN_MAX_M = 16;
 
     private SpatialSearches() {}
 
@@ -41,6 +46,25 @@ public class SpatialSearches {
         return new RTree<>(builder, minM, maxM, splitType);
     }
 
+    /**
+     * Create an R-Tree packed from the given entries with Sort-Tile-Recursive bulk loading. Much faster than
+     * adding the entries one by one and gives near full nodes with little overlap. The tree accepts further
+     * mutations like any other R-Tree.
+     *
+     * @param builder - Builder implementation used to create HyperRects out of T's
+     * @param minM - minimum number of entries per node of this tree
+     * @param maxM - maximum number of entries per node of this tree, nodes are packed to this size
+     * @param splitType - type of split to use when M+1 entries are added to a node
+     * @param entries - entries to index
+     * @param <T> - The store type of the bound
+     *
+     * @return SpatialSearch - The spatial search and index structure
+     */
+    public static <T> SpatialSearch<T> bulkLoadRTree(final RectBuilder<T> builder, final int minM, final int maxM,
+                                                     final RTree.Split splitType, final Collection<? extends T> entries) {
+        return new RTree<>(builder, minM, maxM, splitType, BulkLoader.load(builder, minM, maxM, splitType, entries));
+    }
+
     /**
      * Create a protected R-Tree with default values for m, M, and split type
      *
@@ -50,7 +74,7 @@ public class SpatialSearches {
      * @return SpatialSearch - The spatial search and index structure
      */
     public static <T> SpatialSearch<T> lockingRTree(final RectBuilder<T> builder) {
-        return new ConcurrentRTree<>(rTree(builder), new ReentrantReadWriteLock(true));
+        return new ConcurrentRTree<>(rTree(builder), new ReentrantReadWriteLock(true), builder);
     }
 
     /**
@@ -65,7 +89,95 @@ public class SpatialSearches {
      * @return SpatialSearch - The spatial search and index structure
      */
     public static <T> SpatialSearch<T> lockingRTree(final RectBuilder<T> builder, final int minM, final int maxM, final RTree.Split splitType) {
-        return new ConcurrentRTree<>(rTree(builder, minM, maxM, splitType), new ReentrantReadWriteLock(true));
+        return new ConcurrentRTree<>(rTree(builder, minM, maxM, splitType), new ReentrantReadWriteLock(true), builder);
+    }
+
+    /**
+     * Create a protected R-Tree whose queries run optimistically without taking a lock, with default values for
+     * m, M, and split type
+     *
+     * @param builder - Builder implementation used to create HyperRects out of T's
+     * @param <T> - The store type of the bound
+     *
+     * @return SpatialSearch - The spatial search and index structure
+     */
+    public static <T> SpatialSearch<T> stampedRTree(final RectBuilder<T> builder) {
+        return new StampedRTree<>(new RTree<>(builder, DEFAULT_MIN_M, DEFAULT_MAX_M, DEFAULT_SPLIT_TYPE));
+    }
+
+    /**
+     * Create a protected R-Tree whose queries run optimistically without taking a lock
+     *
+     * @param builder - Builder implementation used to create HyperRects out of T's
+     * @param minM - minimum number of entries per node of this tree
+     * @param maxM - maximum number of entries per node of this tree (exceeding this causes node split)
+     * @param splitType - type of split to use when M+1 entries are added to a node
+     * @param <T> - The store type of the bound
+     *
+     * @return SpatialSearch - The spatial search and index structure
+     */
+    public static <T> SpatialSearch<T> stampedRTree(final RectBuilder<T> builder, final int minM, final int maxM, final RTree.Split splitType) {
+        return new StampedRTree<>(new RTree<>(builder, minM, maxM, splitType));
+    }
+
+    /**
+     * Create an R-Tree whose nodes are stored off-heap with the default value for M
+     *
+     * @param builder - Builder implementation used to create HyperRects out of T's
+     * @param <T> - The store type of the bound
+     *
+     * @return SpatialSearch - The spatial search and index structure
+     */
+    public static <T> SpatialSearch<T> offHeapRTree(final RectBuilder<T> builder) {
+        return new OffHeapRTree<>(builder, DEFAULT_OFF_HEAP_MAX_M);
+    }
+
+    /**
+     * Create an R-Tree whose nodes are stored off-heap
+     *
+     * @param builder - Builder implementation used to create HyperRects out of T's
+     * @param maxM - maximum number of entries per node of this tree (exceeding this causes node split)
+     * @param <T> - The store type of the bound
+     *
+     * @return SpatialSearch - The spatial search and index structure
+     */
+    public static <T> SpatialSearch<T> offHeapRTree(final RectBuilder<T> builder, final int maxM) {
+        return new OffHeapRTree<>(builder, maxM);
+    }
+
+    /**
+     * Create a protected R-Tree whose nodes are stored off-heap
+     *
+     * @param builder - Builder implementation used to create HyperRects out of T's
+     * @param maxM - maximum number of entries per node of this tree (exceeding this causes node split)
+     * @param <T> - The store type of the bound
+     *
+     * @return SpatialSearch - The spatial search and index structure
+     */
+    public static <T> SpatialSearch<T> lockingOffHeapRTree(final RectBuilder<T> builder, final int maxM) {
+        return new ConcurrentRTree<>(offHeapRTree(builder, maxM), new ReentrantReadWriteLock(true), builder);
+    }
+
+    /**
+     * Create a read-only copy of an index with quantized bounding boxes that takes a fraction of the heap of
+     * an R-Tree and returns the same query results. An RTree is copied node for node, any other index has its
+     * entries packed with Sort-Tile-Recursive bulk loading first.
+     *
+     * @param tree - index to copy, it is left unchanged
+     * @param builder - Builder implementation used to create HyperRects out of T's
+     * @param <T> - The store type of the bound
+     *
+     * @return SpatialSearch - The read-only spatial search and index structure
+     */
+    public static <T> SpatialSearch<T> freeze(final SpatialSearch<T> tree, final RectBuilder<T> builder) {
+        if(tree instanceof RTree) {
+            final RTree<T> rTree = (RTree<T>) tree;
+            return new FrozenRTree<>(builder, rTree.getSplitType(), rTree.getMinM(), rTree.getMaxM(), rTree.getRoot());
+        }
+        final List<T> entries = new ArrayList<>(tree.getEntryCount());
+        tree.forEach(entries::add);
+        return new FrozenRTree<>(builder, DEFAULT_SPLIT_TYPE, DEFAULT_MIN_M, DEFAULT_FROZEN_MAX_M,
+                BulkLoader.load(builder, DEFAULT_MIN_M, DEFAULT_FROZEN_MAX_M, DEFAULT_SPLIT_TYPE, entries));
     }
 
 }
@@ -0,0 +1,203 @@
+package rtree;
+
+import rtree.geometry.Rect2d;
+
+import java.util.Random;
+
+/**
+ * Measures the latency of splitting a full leaf for each split type as the node capacity M grows.
+ *
+ * Two baselines for the primitive array quadratic split:
+ * "quadratic (one pass)" is the previous QuadraticSplitLeaf algorithm that builds an mbr per pair of entries to
+ * pick the seeds and then classifies the rest in a single pass without PickNext.
+ * "quadratic (naive)" is Guttman's quadratic split written against HyperRect, building an mbr per pair and
+ * rescanning every remaining entry with fresh mbrs after each PickNext.
+ */
+public class SplitBenchmark {
+
+    private static final int[] FAN_OUTS = {8, 16, 32, 50, 64, 128};
+    private static final int LEAVES = 256;
+    private static final long TARGET_NANOS = 200_000_000L;
+
+    private interface Splitter {
+        Node<Rect2d> split(Leaf<Rect2d> leaf, Rect2d t);
+    }
+
+    public static void main(String[] args) {
+        final Random random = new Random(31);
+        final Rect2d.Builder builder = new Rect2d.Builder();
+
+        System.out.printf("%-22s", "M");
+        for(int m : FAN_OUTS) {
+            System.out.printf("%12d", m);
+        }
+        System.out.println();
+
+        for(int round = 0; round < 4; round++) {
+            for(final RTree.Split split : RTree.Split.values()) {
+                report(split.name().toLowerCase(), random, builder, split, Leaf::split);
+            }
+            report("quadratic (one pass)", random, builder, RTree.Split.QUADRATIC, SplitBenchmark::onePassSplit);
+            report("quadratic (naive)", random, builder, RTree.Split.QUADRATIC, SplitBenchmark::naiveSplit);
+        }
+    }
+
+    private static void report(final String name, final Random random, final Rect2d.Builder builder,
+                               final RTree.Split split, final Splitter splitter) {
+        System.out.printf("%-22s", name);
+        for(int m : FAN_OUTS) {
+            final Leaf<Rect2d>[] leaves = fill(random, builder, split, m);
+            final Rect2d[] extra = new Rect2d[LEAVES];
+            for(int i = 0; i < LEAVES; i++) {
+                extra[i] = randomRect(random);
+            }
+
+            // split does not modify the leaf, so the same full leaves are split over and over
+            long splits = 0;
+            long sink = 0;
+            final long t0 = System.nanoTime();
+            long elapsed;
+            do {
+                for(int i = 0; i < LEAVES; i++) {
+                    sink += splitter.split(leaves[i], extra[i]).size();
+                }
+                splits += LEAVES;
+                elapsed = System.nanoTime() - t0;
+            } while(elapsed < TARGET_NANOS);
+
+            if(sink == 0) {
+                throw new IllegalStateException();
+            }
+            System.out.printf("%10.2fus", elapsed / 1e3 / splits);
+        }
+        System.out.println();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Leaf<Rect2d>[] fill(final Random random, final Rect2d.Builder builder, final RTree.Split split, final int m) {
+        final Leaf<Rect2d>[] leaves = new Leaf[LEAVES];
+        for(int i = 0; i < LEAVES; i++) {
+            final Leaf<Rect2d> leaf = (Leaf<Rect2d>) Leaf.create(builder, 2, m, split);
+            for(int k = 0; k < m; k++) {
+                leaf.add(randomRect(random));
+            }
+            leaves[i] = leaf;
+        }
+        return leaves;
+    }
+
+    private static Rect2d randomRect(final Random random) {
+        final double x = random.nextDouble() * 1000;
+        final double y = random.nextDouble() * 1000;
+        return new Rect2d(x, y, x + random.nextDouble() * 10, y + random.nextDouble() * 10);
+    }
+
+    private static <T> Node<T> onePassSplit(final Leaf<T> leaf, final T t) {
+        final Branch<T> pNode = new Branch<>(leaf.builder, leaf.mMin, leaf.mMax, leaf.splitType);
+        final Node<T> l1Node = Leaf.create(leaf.builder, leaf.mMin, leaf.mMax, leaf.splitType);
+        final Node<T> l2Node = Leaf.create(leaf.builder, leaf.mMin, leaf.mMax, leaf.splitType);
+
+        double minCost = Double.MIN_VALUE;
+        int r1Max = 0, r2Max = leaf.size - 1;
+        for (int i = 0; i < leaf.size; i++) {
+            for (int j = i + 1; j < leaf.size; j++) {
+                final HyperRect mbr = leaf.r[i].getMbr(leaf.r[j]);
+                final double cost = mbr.cost() - (leaf.r[i].cost() + leaf.r[j].cost());
+                if (cost > minCost) {
+                    r1Max = i;
+                    r2Max = j;
+                    minCost = cost;
+                }
+            }
+        }
+
+        l1Node.add(leaf.entry[r1Max]);
+        l2Node.add(leaf.entry[r2Max]);
+        for (int i = 0; i < leaf.size; i++) {
+            if ((i != r1Max) && (i != r2Max)) {
+                leaf.classify(l1Node, l2Node, leaf.entry[i]);
+            }
+        }
+        leaf.classify(l1Node, l2Node, t);
+
+        pNode.addChild(l1Node);
+        pNode.addChild(l2Node);
+        return pNode;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Node<T> naiveSplit(final Leaf<T> leaf, final T t) {
+        final Branch<T> pNode = new Branch<>(leaf.builder, leaf.mMin, leaf.mMax, leaf.splitType);
+        final Node<T> l1Node = Leaf.create(leaf.builder, leaf.mMin, leaf.mMax, leaf.splitType);
+        final Node<T> l2Node = Leaf.create(leaf.builder, leaf.mMin, leaf.mMax, leaf.splitType);
+
+        final int n = leaf.size + 1;
+        final HyperRect[] rects = new HyperRect[n];
+        final Object[] entries = new Object[n];
+        for (int i = 0; i < leaf.size; i++) {
+            rects[i] = leaf.r[i];
+            entries[i] = leaf.entry[i];
+        }
+        rects[leaf.size] = leaf.builder.getBBox(t);
+        entries[leaf.size] = t;
+
+        double maxWaste = Double.NEGATIVE_INFINITY;
+        int s1 = 0, s2 = n - 1;
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                final double waste = rects[i].getMbr(rects[j]).cost() - (rects[i].cost() + rects[j].cost());
+                if (waste > maxWaste) {
+                    s1 = i;
+                    s2 = j;
+                    maxWaste = waste;
+                }
+            }
+        }
+
+        final boolean[] assigned = new boolean[n];
+        assigned[s1] = true;
+        assigned[s2] = true;
+        l1Node.add((T) entries[s1]);
+        l2Node.add((T) entries[s2]);
+
+        for (int remaining = n - 2; remaining > 0; remaining--) {
+            final Node<T> starving = l1Node.size() + remaining <= leaf.mMin ? l1Node
+                    : (l2Node.size() + remaining <= leaf.mMin ? l2Node : null);
+            if (starving != null) {
+                for (int i = 0; i < n; i++) {
+                    if (!assigned[i]) {
+                        starving.add((T) entries[i]);
+                    }
+                }
+                break;
+            }
+
+            int next = -1;
+            double maxPreference = Double.NEGATIVE_INFINITY;
+            double d1Next = 0, d2Next = 0;
+            for (int i = 0; i < n; i++) {
+                if (!assigned[i]) {
+                    final double d1 = l1Node.getBound().getMbr(rects[i]).cost() - l1Node.getBound().cost();
+                    final double d2 = l2Node.getBound().getMbr(rects[i]).cost() - l2Node.getBound().cost();
+                    if (Math.abs(d1 - d2) > maxPreference) {
+                        maxPreference = Math.abs(d1 - d2);
+                        next = i;
+                        d1Next = d1;
+                        d2Next = d2;
+                    }
+                }
+            }
+
+            assigned[next] = true;
+            if (d1Next < d2Next || (d1Next == d2Next && l1Node.size() <= l2Node.size())) {
+                l1Node.add((T) entries[next]);
+            } else {
+                l2Node.add((T) entries[next]);
+            }
+        }
+
+        pNode.addChild(l1Node);
+        pNode.addChild(l2Node);
+        return pNode;
+    }
+}
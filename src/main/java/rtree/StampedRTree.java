@@ -0,0 +1,236 @@
+package rtree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * <p>Protected R-Tree whose queries run without taking a lock.</p>
+ *
+ * <p>A query first runs optimistically under a StampedLock stamp and collects its results; the results are only
+ * handed out if no write happened in the meantime. Otherwise, or if the query tripped over a node that was being
+ * modified, it runs again under the read lock. Short queries therefore never write to a shared lock word, which
+ * is what limits the read scalability of a ReadWriteLock even without any writers.</p>
+ *
+ * <p>Writes take the exclusive lock. Node fields are plain, so an optimistic reader that races with a writer may
+ * see them in any state: torn sizes, empty slots, half split nodes. Correctness rests on two things only: results
+ * are discarded unless validate() succeeds afterwards, and a RuntimeException thrown by an inconsistent read sends
+ * the query to the read lock. Nothing is written where the caller can see it before validation.</p>
+ *
+ * Full scans, forEach and collectStats, always take the read lock.
+ */
+public final class StampedRTree<T> implements SpatialSearch<T> {
+
+    // only heap nodes may be read optimistically, a racing read of off-heap pages could touch freed memory
+    private final RTree<T> rTree;
+    private final StampedLock lock = new StampedLock();
+
+    // result buffer of optimistic array queries, shared by all trees of a thread
+    private static final ThreadLocal<Object[]> FOUND = ThreadLocal.withInitial(() -> new Object[64]);
+
+    StampedRTree(final RTree<T> rTree) {
+        this.rTree = rTree;
+    }
+
+    /**
+     * Run the query optimistically, and again under the read lock if a write overlapped with it
+     */
+    private <R> R read(final Function<SpatialSearch<T>, R> query) {
+        final long stamp = lock.tryOptimisticRead();
+        if(stamp != 0L) {
+            try {
+                final R result = query.apply(rTree);
+                if(lock.validate(stamp)) {
+                    return result;
+                }
+            } catch(RuntimeException e) {
+                // read a node in the middle of a write, retry under the read lock
+            }
+        }
+
+        final long readStamp = lock.readLock();
+        try {
+            return query.apply(rTree);
+        } finally {
+            lock.unlockRead(readStamp);
+        }
+    }
+
+    /**
+     * Same as read for queries that fill an array: the optimistic pass fills a per thread buffer, and only a
+     * validated result is copied to t. The buffer grows to the largest result seen rather than to t.length, a
+     * query that fills it runs again with a larger one.
+     */
+    @SuppressWarnings("unchecked")
+    private int readInto(final T[] t, final BiFunction<SpatialSearch<T>, T[], Integer> query) {
+        final long stamp = lock.tryOptimisticRead();
+        if(stamp != 0L) {
+            Object[] found = FOUND.get();
+            int n = found.length; // slots to clear if the query fails
+            try {
+                n = query.apply(rTree, (T[]) found);
+                while(n == found.length && found.length < t.length) {
+                    // full, there may be more hits than it holds
+                    found = new Object[(int) Math.min((long) found.length * 2, t.length)];
+                    FOUND.set(found);
+                    n = found.length;
+                    n = query.apply(rTree, (T[]) found);
+                }
+                if(lock.validate(stamp)) {
+                    final int m = Math.min(n, t.length);
+                    System.arraycopy(found, 0, t, 0, m);
+                    return m;
+                }
+            } catch(RuntimeException e) {
+                // read a node in the middle of a write, retry under the read lock
+            } finally {
+                // do not keep entries reachable from the buffer
+                Arrays.fill(found, 0, Math.min(n, found.length), null);
+            }
+        }
+
+        final long readStamp = lock.readLock();
+        try {
+            return query.apply(rTree, t);
+        } finally {
+            lock.unlockRead(readStamp);
+        }
+    }
+
+    @Override
+    public int intersects(final HyperRect rect, final T[] t) {
+        return readInto(t, (tree, found) -> tree.intersects(rect, found));
+    }
+
+    @Override
+    public void intersects(final HyperRect rect, final Consumer<T> consumer) {
+        read(tree -> {
+            final List<T> found = new ArrayList<>();
+            tree.intersects(rect, found::add);
+            return found;
+        }).forEach(consumer);
+    }
+
+    @Override
+    public void within(final HyperPoint p, final double radius, final Consumer<T> consumer) {
+        read(tree -> {
+            final List<T> found = new ArrayList<>();
+            tree.within(p, radius, found::add);
+            return found;
+        }).forEach(consumer);
+    }
+
+    @Override
+    public int search(final HyperRect rect, final T[] t) {
+        return readInto(t, (tree, found) -> tree.search(rect, found));
+    }
+
+    @Override
+    public void search(final HyperRect rect, final Consumer<T> consumer) {
+        read(tree -> {
+            final List<T> found = new ArrayList<>();
+            tree.search(rect, found::add);
+            return found;
+        }).forEach(consumer);
+    }
+
+    @Override
+    public void search(final HyperRect rect, final Collection<T> collection) {
+        search(rect, collection::add);
+    }
+
+    @Override
+    public boolean contains(final T t) {
+        return read(tree -> tree.contains(t));
+    }
+
+    @Override
+    public int getEntryCount() {
+        return read(SpatialSearch::getEntryCount);
+    }
+
+    @Override
+    public void add(final T t) {
+        final long stamp = lock.writeLock();
+        try {
+            rTree.add(t);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void remove(final T t) {
+        final long stamp = lock.writeLock();
+        try {
+            rTree.remove(t);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void update(final T told, final T tnew) {
+        final long stamp = lock.writeLock();
+        try {
+            rTree.update(told, tnew);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void addAll(final Collection<? extends T> entries) {
+        final long stamp = lock.writeLock();
+        try {
+            rTree.addAll(entries);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void removeAll(final Collection<? extends T> entries) {
+        final long stamp = lock.writeLock();
+        try {
+            rTree.removeAll(entries);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void applyBatch(final List<Mutation<T>> mutations) {
+        final long stamp = lock.writeLock();
+        try {
+            rTree.applyBatch(mutations);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void forEach(final Consumer<T> consumer) {
+        final long stamp = lock.readLock();
+        try {
+            rTree.forEach(consumer);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public Stats collectStats() {
+        final long stamp = lock.readLock();
+        try {
+            return rTree.collectStats();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+}
@@ -0,0 +1,429 @@
+package rtree;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * <p>Spatio-temporal index made of one R-Tree segment per fixed length time window.</p>
+ *
+ * <p>Entries are routed to the window containing their timestamp. The window currently being written is an
+ * open segment that accepts add, remove and update. Once a window is complete, seal() repacks it into an
+ * immutable bulk-loaded RTree (see BulkLoader); bulkLoad() creates sealed segments directly from history.</p>
+ *
+ * <p>Time range queries first select the windows overlapping the range, then search the matching segments in
+ * parallel on a ForkJoinPool and hand the results to the consumer on the calling thread, in window order.
+ * Retention is dropBefore(), which discards whole segments instead of removing entries one by one.</p>
+ *
+ * Timestamps and window lengths share a unit chosen by the caller, e.g. epoch milliseconds.
+ */
+public final class TimePartitionedIndex<T> implements SpatialSearch<T> {
+
+    private final RectBuilder<T> builder;
+    private final int mMin;
+    private final int mMax;
+    private final RTree.Split splitType;
+    private final ToLongFunction<T> timestamp;
+    private final long windowLength;
+    private final ForkJoinPool pool;
+
+    private final ConcurrentSkipListMap<Long, Segment<T>> segments = new ConcurrentSkipListMap<>();
+
+    // mutations share the lock, sealing and dropping segments are exclusive
+    private final ReadWriteLock segmentLock = new ReentrantReadWriteLock();
+
+    /**
+     * One time window. Open segments guard their tree with a lock, sealed segments are never mutated.
+     */
+    private static final class Segment<T> {
+        final long start;
+        final RTree<T> tree;
+        final ReadWriteLock lock;
+
+        Segment(final long start, final RTree<T> tree, final ReadWriteLock lock) {
+            this.start = start;
+            this.tree = tree;
+            this.lock = lock;
+        }
+
+        boolean isSealed() {
+            return lock == null;
+        }
+
+        void read(final Runnable query) {
+            if(lock == null) {
+                query.run();
+            } else {
+                lock.readLock().lock();
+                try {
+                    query.run();
+                } finally {
+                    lock.readLock().unlock();
+                }
+            }
+        }
+
+        void write(final Runnable mutation) {
+            if(lock == null) {
+                throw new IllegalStateException("Time window starting at " + start + " is sealed");
+            }
+            lock.writeLock().lock();
+            try {
+                mutation.run();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * @param builder - Builder implementation used to create HyperRects out of T's
+     * @param minM - minimum number of entries per node of the segment trees
+     * @param maxM - maximum number of entries per node of the segment trees
+     * @param splitType - type of split used by open segments
+     * @param timestamp - extracts the time of an entry
+     * @param windowLength - length of the time window covered by one segment
+     * @param pool - runs the per segment searches of a query
+     */
+    public TimePartitionedIndex(final RectBuilder<T> builder, final int minM, final int maxM, final RTree.Split splitType,
+                                final ToLongFunction<T> timestamp, final long windowLength, final ForkJoinPool pool) {
+        if(windowLength <= 0) {
+            throw new IllegalArgumentException("windowLength must be positive");
+        }
+        this.builder = builder;
+        this.mMin = minM;
+        this.mMax = maxM;
+        this.splitType = splitType;
+        this.timestamp = timestamp;
+        this.windowLength = windowLength;
+        this.pool = pool;
+    }
+
+    /**
+     * @param builder - Builder implementation used to create HyperRects out of T's
+     * @param timestamp - extracts the time of an entry
+     * @param windowLength - length of the time window covered by one segment
+     */
+    public TimePartitionedIndex(final RectBuilder<T> builder, final ToLongFunction<T> timestamp, final long windowLength) {
+        this(builder, 2, 16, RTree.Split.AXIAL, timestamp, windowLength, ForkJoinPool.commonPool());
+    }
+
+    private long windowStart(final long time) {
+        return Math.floorDiv(time, windowLength) * windowLength;
+    }
+
+    private Segment<T> openSegment(final long start) {
+        return new Segment<>(start, new RTree<>(builder, mMin, mMax, splitType), new ReentrantReadWriteLock());
+    }
+
+    private Segment<T> sealedSegment(final long start, final Collection<? extends T> entries) {
+        final Node<T> root = BulkLoader.load(builder, mMin, mMax, splitType, entries);
+        return new Segment<>(start, new RTree<>(builder, mMin, mMax, splitType, root), null);
+    }
+
+    /*
+     * Segment lifecycle
+     */
+
+    /**
+     * Create sealed segments from the given entries, grouped by time window. Windows that already exist are
+     * merged with the new entries and repacked.
+     *
+     * @param entries - entries to index
+     */
+    public void bulkLoad(final Collection<? extends T> entries) {
+        final Map<Long, List<T>> byWindow = new HashMap<>();
+        for(T t : entries) {
+            byWindow.computeIfAbsent(windowStart(timestamp.applyAsLong(t)), w -> new ArrayList<>()).add(t);
+        }
+
+        segmentLock.writeLock().lock();
+        try {
+            for(Map.Entry<Long, List<T>> window : byWindow.entrySet()) {
+                final List<T> windowEntries = window.getValue();
+                final Segment<T> existing = segments.get(window.getKey());
+                if(existing != null) {
+                    existing.tree.forEach(windowEntries::add);
+                }
+                segments.put(window.getKey(), sealedSegment(window.getKey(), windowEntries));
+            }
+        } finally {
+            segmentLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Repack every open window that ends at or before the given time into an immutable segment. Later
+     * mutations of those windows fail with IllegalStateException.
+     *
+     * @param time - windows ending at or before this time are sealed
+     *
+     * @return number of windows sealed
+     */
+    public int seal(final long time) {
+        int sealed = 0;
+        segmentLock.writeLock().lock();
+        try {
+            for(Segment<T> segment : segments.headMap(time - windowLength, true).values()) {
+                if(!segment.isSealed()) {
+                    final List<T> windowEntries = new ArrayList<>(segment.tree.getEntryCount());
+                    segment.tree.forEach(windowEntries::add);
+                    segments.put(segment.start, sealedSegment(segment.start, windowEntries));
+                    sealed++;
+                }
+            }
+        } finally {
+            segmentLock.writeLock().unlock();
+        }
+        return sealed;
+    }
+
+    /**
+     * Drop every window that ends at or before the given time
+     *
+     * @param time - retention horizon
+     *
+     * @return number of windows dropped
+     */
+    public int dropBefore(final long time) {
+        segmentLock.writeLock().lock();
+        try {
+            final NavigableMap<Long, Segment<T>> expired = segments.headMap(time - windowLength, true);
+            final int dropped = expired.size();
+            expired.clear();
+            return dropped;
+        } finally {
+            segmentLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of time windows currently held
+     */
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    /*
+     * Time range queries
+     */
+
+    /**
+     * Search for entries intersecting given bounding rect with a timestamp in [from, to)
+     *
+     * @param rect - Bounding rectangle to use for querying
+     * @param from - start of the time range, inclusive
+     * @param to - end of the time range, exclusive
+     * @param consumer - callback to receive intersecting objects
+     */
+    public void intersects(final HyperRect rect, final long from, final long to, final Consumer<T> consumer) {
+        query(from, to, consumer, (tree, sink) -> tree.intersects(rect, sink));
+    }
+
+    /**
+     * Search for entries contained by the given bounding rect with a timestamp in [from, to)
+     *
+     * @param rect - Bounding rectangle to use for querying
+     * @param from - start of the time range, inclusive
+     * @param to - end of the time range, exclusive
+     * @param consumer - callback to receive contained objects
+     */
+    public void search(final HyperRect rect, final long from, final long to, final Consumer<T> consumer) {
+        query(from, to, consumer, (tree, sink) -> tree.search(rect, sink));
+    }
+
+    private interface SegmentQuery<T> {
+        void run(RTree<T> tree, Consumer<T> sink);
+    }
+
+    private void query(final long from, final long to, final Consumer<T> consumer, final SegmentQuery<T> query) {
+        if(from >= to) {
+            return;
+        }
+        final List<Segment<T>> matching = new ArrayList<>(segments.subMap(windowStart(from), true, to, false).values());
+
+        // only the first and last window can hold entries outside of [from, to)
+        if(matching.size() == 1) {
+            runSegment(matching.get(0), from, to, query, consumer);
+            return;
+        }
+
+        final List<ForkJoinTask<List<T>>> tasks = new ArrayList<>(matching.size());
+        for(Segment<T> segment : matching) {
+            tasks.add(pool.submit(() -> {
+                final List<T> found = new ArrayList<>();
+                runSegment(segment, from, to, query, found::add);
+                return found;
+            }));
+        }
+        for(ForkJoinTask<List<T>> task : tasks) {
+            for(T t : task.join()) {
+                consumer.accept(t);
+            }
+        }
+    }
+
+    private void runSegment(final Segment<T> segment, final long from, final long to, final SegmentQuery<T> query,
+                            final Consumer<T> sink) {
+        final boolean inside = segment.start >= from && segment.start + windowLength <= to;
+        final Consumer<T> filtered = inside ? sink : t -> {
+            final long time = timestamp.applyAsLong(t);
+            if(time >= from && time < to) {
+                sink.accept(t);
+            }
+        };
+        segment.read(() -> query.run(segment.tree, filtered));
+    }
+
+    /*
+     * SpatialSearch over all windows
+     */
+
+    @Override
+    public void add(final T t) {
+        final long start = windowStart(timestamp.applyAsLong(t));
+        segmentLock.readLock().lock();
+        try {
+            final Segment<T> segment = segments.computeIfAbsent(start, this::openSegment);
+            segment.write(() -> segment.tree.add(t));
+        } finally {
+            segmentLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(final T t) {
+        final long start = windowStart(timestamp.applyAsLong(t));
+        segmentLock.readLock().lock();
+        try {
+            final Segment<T> segment = segments.get(start);
+            if(segment != null) {
+                segment.write(() -> segment.tree.remove(t));
+            }
+        } finally {
+            segmentLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void update(final T told, final T tnew) {
+        final long oldStart = windowStart(timestamp.applyAsLong(told));
+        final long newStart = windowStart(timestamp.applyAsLong(tnew));
+        if(oldStart == newStart) {
+            segmentLock.readLock().lock();
+            try {
+                final Segment<T> segment = segments.get(oldStart);
+                if(segment != null) {
+                    segment.write(() -> segment.tree.update(told, tnew));
+                }
+            } finally {
+                segmentLock.readLock().unlock();
+            }
+        } else {
+            remove(told);
+            add(tnew);
+        }
+    }
+
+    @Override
+    public int intersects(final HyperRect rect, final T[] t) {
+        final int[] n = {0};
+        intersects(rect, found -> {
+            if(n[0] < t.length) {
+                t[n[0]++] = found;
+            }
+        });
+        return n[0];
+    }
+
+    @Override
+    public void intersects(final HyperRect rect, final Consumer<T> consumer) {
+        for(Segment<T> segment : segments.values()) {
+            segment.read(() -> segment.tree.intersects(rect, consumer));
+        }
+    }
+
+    @Override
+    public void within(final HyperPoint p, final double radius, final Consumer<T> consumer) {
+        for(Segment<T> segment : segments.values()) {
+            segment.read(() -> segment.tree.within(p, radius, consumer));
+        }
+    }
+
+    @Override
+    public int search(final HyperRect rect, final T[] t) {
+        final int[] n = {0};
+        search(rect, found -> {
+            if(n[0] < t.length) {
+                t[n[0]++] = found;
+            }
+        });
+        return n[0];
+    }
+
+    @Override
+    public void search(final HyperRect rect, final Consumer<T> consumer) {
+        for(Segment<T> segment : segments.values()) {
+            segment.read(() -> segment.tree.search(rect, consumer));
+        }
+    }
+
+    @Override
+    public void search(final HyperRect rect, final Collection<T> collection) {
+        search(rect, t -> collection.add(t));
+    }
+
+    @Override
+    public boolean contains(final T t) {
+        final Segment<T> segment = segments.get(windowStart(timestamp.applyAsLong(t)));
+        if(segment == null) {
+            return false;
+        }
+        final boolean[] found = {false};
+        segment.read(() -> found[0] = segment.tree.contains(t));
+        return found[0];
+    }
+
+    @Override
+    public int getEntryCount() {
+        final int[] n = {0};
+        for(Segment<T> segment : segments.values()) {
+            segment.read(() -> n[0] += segment.tree.getEntryCount());
+        }
+        return n[0];
+    }
+
+    @Override
+    public void forEach(final Consumer<T> consumer) {
+        for(Segment<T> segment : segments.values()) {
+            segment.read(() -> segment.tree.forEach(consumer));
+        }
+    }
+
+    @Override
+    public Stats collectStats() {
+        final Stats stats = new Stats();
+        stats.setType(splitType);
+        stats.setMaxFill(mMax);
+        stats.setMinFill(mMin);
+        for(Segment<T> segment : segments.values()) {
+            segment.read(() -> {
+                final Node<T> root = segment.tree.getRoot();
+                if(root != null) {
+                    root.collectStats(stats, 0);
+                }
+            });
+        }
+        return stats;
+    }
+}
@@ -1,10 +1,15 @@
 package rtree.geometry;
 
+import rtree.EntryCodec;
 import rtree.HyperPoint;
 import rtree.HyperRect;
 import rtree.RTree;
 import rtree.RectBuilder;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 public final class Point2d implements HyperPoint {
     public static final int X = 0;
     public static final int Y = 1;
@@ -75,4 +80,18 @@ public final class Point2d implements HyperPoint {
             return new Rect2d(point1, point2);
         }
     }
-}
\ No newline at end of file
+
+    public final static class Codec implements EntryCodec<Point2d> {
+
+        public void encode(final Point2d point, final DataOutput out) throws IOException {
+            out.writeDouble(point.x);
+            out.writeDouble(point.y);
+        }
+
+        public Point2d decode(final DataInput in) throws IOException {
+            final double x = in.readDouble();
+            final double y = in.readDouble();
+            return new Point2d(x, y);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package rtree.geometry;
+
+/**
+ * Simple polygon used as the exact geometry of a query. Pair getBounds() with the index as the MBR filter and
+ * use contains() as the refinement predicate:
+ *
+ * <pre>
+ *     tree.intersects(polygon.getBounds(), polygon::contains, consumer);
+ * </pre>
+ */
+public final class Polygon2d {
+    final double[] xs, ys;
+    final Rect2d bounds;
+
+    /**
+     * @param xs - x coordinate of each vertex, in order
+     * @param ys - y coordinate of each vertex, in order
+     */
+    public Polygon2d(final double[] xs, final double[] ys) {
+        if(xs.length != ys.length || xs.length < 3) {
+            throw new IllegalArgumentException("A polygon needs at least 3 vertices with both coordinates");
+        }
+        this.xs = xs.clone();
+        this.ys = ys.clone();
+
+        double minX = xs[0], minY = ys[0], maxX = xs[0], maxY = ys[0];
+        for(int i = 1; i < xs.length; i++) {
+            minX = Math.min(minX, xs[i]);
+            maxX = Math.max(maxX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+        this.bounds = new Rect2d(minX, minY, maxX, maxY);
+    }
+
+    /**
+     * @return minimum bounding rect of the polygon
+     */
+    public Rect2d getBounds() {
+        return bounds;
+    }
+
+    /**
+     * Point in polygon test by ray casting (even-odd rule)
+     *
+     * @param p - point to test
+     *
+     * @return true if p is inside the polygon
+     */
+    public boolean contains(final Point2d p) {
+        if(p.x < bounds.min.x || p.x > bounds.max.x || p.y < bounds.min.y || p.y > bounds.max.y) {
+            return false;
+        }
+
+        boolean inside = false;
+        final int n = xs.length;
+        for(int i = 0, j = n - 1; i < n; j = i++) {
+            if((ys[i] > p.y) != (ys[j] > p.y) &&
+                    p.x < (xs[j] - xs[i]) * (p.y - ys[i]) / (ys[j] - ys[i]) + xs[i]) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+}
@@ -70,6 +70,33 @@ public final class Rect2d implements HyperRect {
         return max;
     }
 
+    public double getMinCoord(final int d) {
+        if (d == 0) {
+            return min.x;
+        } else if (d == 1) {
+            return min.y;
+        } else {
+            throw new IllegalArgumentException("Invalid dimension");
+        }
+    }
+
+    public double getMaxCoord(final int d) {
+        if (d == 0) {
+            return max.x;
+        } else if (d == 1) {
+            return max.y;
+        } else {
+            throw new IllegalArgumentException("Invalid dimension");
+        }
+    }
+
+    public double minDistance(final HyperPoint p) {
+        final Point2d p2 = (Point2d) p;
+        final double dx = p2.x < min.x ? min.x - p2.x : (p2.x > max.x ? p2.x - max.x : 0.0);
+        final double dy = p2.y < min.y ? min.y - p2.y : (p2.y > max.y ? p2.y - max.y : 0.0);
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
     public double getRange(final int d) {
         if (d == 0) {
             return max.x - min.x;
@@ -0,0 +1,31 @@
+package rtree.ingest;
+
+import rtree.SpatialSearch;
+
+import java.util.List;
+
+/**
+ * Adds the ingested entries to an existing index with addAll(), so a locking R-Tree takes its write lock once
+ * per batch. Batches are applied one after another, so an unprotected RTree may be used as long as nothing
+ * else touches it during ingestion.
+ *
+ * @param <T> - The store type of the index
+ */
+public final class AddSink<T> implements IngestSink<T> {
+
+    private final SpatialSearch<T> tree;
+
+    /**
+     * @param tree - index receiving the entries
+     */
+    public AddSink(final SpatialSearch<T> tree) {
+        this.tree = tree;
+    }
+
+    @Override
+    public void accept(final List<T> batch) {
+        synchronized(this) {
+            tree.addAll(batch);
+        }
+    }
+}
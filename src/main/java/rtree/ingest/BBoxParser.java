@@ -0,0 +1,22 @@
+package rtree.ingest;
+
+/**
+ * Extracts the bounding box of the geometry encoded in one record of an input file, without building the
+ * geometry itself.
+ *
+ * Implementations are called from several worker threads at once and must not keep state between calls.
+ */
+public interface BBoxParser {
+
+    /**
+     * Parse the bounding box of the record in line[from, to)
+     *
+     * @param line - buffer holding the record
+     * @param from - index of the first byte of the record
+     * @param to - index after the last byte of the record, line terminators excluded
+     * @param bbox - receives minX, minY, maxX, maxY
+     *
+     * @return true if bbox was filled, false if the record has no geometry or is malformed
+     */
+    boolean parse(byte[] line, int from, int to, double[] bbox);
+}
@@ -0,0 +1,56 @@
+package rtree.ingest;
+
+import rtree.RTree;
+import rtree.RectBuilder;
+import rtree.SpatialSearch;
+import rtree.SpatialSearches;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the ingested entries and packs them into an R-Tree with Sort-Tile-Recursive bulk loading once
+ * the input is exhausted. Only the mapped entries are kept, never the source records.
+ *
+ * @param <T> - The store type of the index
+ */
+public final class BulkLoadSink<T> implements IngestSink<T> {
+
+    private final RectBuilder<T> builder;
+    private final int minM;
+    private final int maxM;
+    private final RTree.Split splitType;
+
+    private final List<T> entries = new ArrayList<>();
+
+    /**
+     * @param builder - Builder implementation used to create HyperRects out of T's
+     * @param minM - minimum number of entries per node of the tree
+     * @param maxM - maximum number of entries per node of the tree, nodes are packed to this size
+     * @param splitType - type of split used by later inserts into the tree
+     */
+    public BulkLoadSink(final RectBuilder<T> builder, final int minM, final int maxM, final RTree.Split splitType) {
+        this.builder = builder;
+        this.minM = minM;
+        this.maxM = maxM;
+        this.splitType = splitType;
+    }
+
+    @Override
+    public void accept(final List<T> batch) {
+        synchronized(entries) {
+            entries.addAll(batch);
+        }
+    }
+
+    /**
+     * Pack everything received so far into a new tree
+     *
+     * @return SpatialSearch - The spatial search and index structure
+     */
+    public SpatialSearch<T> build() {
+        synchronized(entries) {
+            return SpatialSearches.bulkLoadRTree(builder, minM, maxM, splitType, entries);
+        }
+    }
+}
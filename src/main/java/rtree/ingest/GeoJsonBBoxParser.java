@@ -0,0 +1,235 @@
+package rtree.ingest;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p>Bounding box scanner for newline delimited GeoJSON, one Feature or geometry object per line.</p>
+ *
+ * <p>The line is never turned into objects: the scanner skips over strings and, for every "coordinates"
+ * member, walks the nested position arrays and folds the first two numbers of each position into the box.
+ * Geometry collections and multi geometries are covered since every coordinates member is visited.
+ * Positions may carry a third (z) value, which is ignored.</p>
+ *
+ * Numbers with up to 15 significant digits and small exponents are converted on a fast path that is exact;
+ * anything else goes through Double.parseDouble, so boxes always match a full parse.
+ */
+public final class GeoJsonBBoxParser implements BBoxParser {
+
+    private static final byte[] COORDINATES = "coordinates".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int MAX_FAST_DIGITS = 15;
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    @Override
+    public boolean parse(final byte[] line, final int from, final int to, final double[] bbox) {
+        bbox[0] = Double.POSITIVE_INFINITY;
+        bbox[1] = Double.POSITIVE_INFINITY;
+        bbox[2] = Double.NEGATIVE_INFINITY;
+        bbox[3] = Double.NEGATIVE_INFINITY;
+
+        final Cursor cursor = new Cursor(line, from, to);
+        while(cursor.pos < to) {
+            if(line[cursor.pos] != '"') {
+                cursor.pos++;
+                continue;
+            }
+
+            final int start = cursor.pos + 1;
+            if(!cursor.skipString()) {
+                return false;
+            }
+            if(isCoordinates(line, start, cursor.pos - 1)) {
+                cursor.skipWhitespace();
+                if(cursor.pos < to && line[cursor.pos] == ':') {
+                    cursor.pos++;
+                    cursor.skipWhitespace();
+                    if(cursor.pos < to && line[cursor.pos] == '[' && !scanPositions(cursor, bbox)) {
+                        return false;
+                    }
+                }
+            }
+        }
+
+        return bbox[0] <= bbox[2] && bbox[1] <= bbox[3];
+    }
+
+    private static boolean isCoordinates(final byte[] line, final int from, final int to) {
+        if(to - from != COORDINATES.length) {
+            return false;
+        }
+        for(int i = 0; i < COORDINATES.length; i++) {
+            if(line[from + i] != COORDINATES[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Fold the positions of the array at the cursor into bbox, leaves the cursor after the array
+     */
+    private static boolean scanPositions(final Cursor cursor, final double[] bbox) {
+        final byte[] line = cursor.line;
+        int depth = 0;
+        int index = 0; // index of the next number within its position
+        while(cursor.pos < cursor.to) {
+            final byte c = line[cursor.pos];
+            if(c == '[') {
+                depth++;
+                index = 0;
+                cursor.pos++;
+            } else if(c == ']') {
+                cursor.pos++;
+                if(--depth == 0) {
+                    return true;
+                }
+            } else if(c == ',') {
+                index++;
+                cursor.pos++;
+            } else if(c == '-' || (c >= '0' && c <= '9')) {
+                final double v = parseNumber(cursor);
+                if(Double.isNaN(v)) {
+                    return false;
+                }
+                if(index == 0) {
+                    bbox[0] = Math.min(bbox[0], v);
+                    bbox[2] = Math.max(bbox[2], v);
+                } else if(index == 1) {
+                    bbox[1] = Math.min(bbox[1], v);
+                    bbox[3] = Math.max(bbox[3], v);
+                }
+            } else if(c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+                cursor.pos++;
+            } else {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parse the JSON number at the cursor and leave the cursor after it
+     *
+     * @return the number, or NaN if it is malformed
+     */
+    static double parseNumber(final Cursor cursor) {
+        final byte[] line = cursor.line;
+        final int start = cursor.pos;
+        int pos = start;
+        final int to = cursor.to;
+
+        boolean negative = false;
+        if(pos < to && line[pos] == '-') {
+            negative = true;
+            pos++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;       // significant digits in mantissa
+        int exponent = 0;
+        boolean any = false;
+        boolean exact = true;
+        while(pos < to && line[pos] >= '0' && line[pos] <= '9') {
+            any = true;
+            if(digits < MAX_FAST_DIGITS) {
+                mantissa = mantissa * 10 + (line[pos] - '0');
+                if(mantissa != 0) {
+                    digits++;
+                }
+            } else {
+                exact &= line[pos] == '0';
+                exponent++;
+            }
+            pos++;
+        }
+        if(pos < to && line[pos] == '.') {
+            pos++;
+            while(pos < to && line[pos] >= '0' && line[pos] <= '9') {
+                any = true;
+                if(digits < MAX_FAST_DIGITS) {
+                    mantissa = mantissa * 10 + (line[pos] - '0');
+                    if(mantissa != 0) {
+                        digits++;
+                    }
+                    exponent--;
+                } else {
+                    exact &= line[pos] == '0';
+                }
+                pos++;
+            }
+        }
+        if(!any) {
+            cursor.pos = pos;
+            return Double.NaN;
+        }
+        if(pos < to && (line[pos] == 'e' || line[pos] == 'E')) {
+            pos++;
+            boolean negativeExponent = false;
+            if(pos < to && (line[pos] == '+' || line[pos] == '-')) {
+                negativeExponent = line[pos] == '-';
+                pos++;
+            }
+            int e = 0;
+            boolean anyExponent = false;
+            while(pos < to && line[pos] >= '0' && line[pos] <= '9') {
+                anyExponent = true;
+                if(e < 10000) {
+                    e = e * 10 + (line[pos] - '0');
+                }
+                pos++;
+            }
+            if(!anyExponent) {
+                cursor.pos = pos;
+                return Double.NaN;
+            }
+            exponent += negativeExponent ? -e : e;
+        }
+        cursor.pos = pos;
+
+        if(exact && exponent >= -22 && exponent <= 22) {
+            // mantissa and the power of ten are both exact doubles, one rounding gives the correct result
+            final double v = exponent < 0 ? mantissa / POW10[-exponent] : mantissa * POW10[exponent];
+            return negative ? -v : v;
+        }
+        return Double.parseDouble(new String(line, start, pos - start, StandardCharsets.US_ASCII));
+    }
+
+    static final class Cursor {
+        final byte[] line;
+        final int to;
+        int pos;
+
+        Cursor(final byte[] line, final int from, final int to) {
+            this.line = line;
+            this.pos = from;
+            this.to = to;
+        }
+
+        /**
+         * Move from an opening quote to after the closing one
+         *
+         * @return false if the string is not terminated
+         */
+        boolean skipString() {
+            pos++;
+            while(pos < to) {
+                final byte c = line[pos++];
+                if(c == '\\') {
+                    pos++;
+                } else if(c == '"') {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void skipWhitespace() {
+            while(pos < to && (line[pos] == ' ' || line[pos] == '\t' || line[pos] == '\r' || line[pos] == '\n')) {
+                pos++;
+            }
+        }
+    }
+}
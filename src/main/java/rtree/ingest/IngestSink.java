@@ -0,0 +1,18 @@
+package rtree.ingest;
+
+import java.util.List;
+
+/**
+ * Receives batches of entries from the ingestion workers.
+ *
+ * Batches arrive from several worker threads at once and in no particular order.
+ *
+ * @param <T> - The store type of the index
+ */
+public interface IngestSink<T> {
+
+    /**
+     * @param batch - entries mapped from a run of records, the list is not reused by the caller
+     */
+    void accept(List<T> batch);
+}
@@ -0,0 +1,25 @@
+package rtree.ingest;
+
+/**
+ * Creates the entry stored in the index for a parsed record. Entries should be small - typically the bounds
+ * plus an id or the record offset used to fetch the full geometry later - since the source file is never
+ * held in memory.
+ *
+ * Called from several worker threads at once.
+ *
+ * @param <T> - The store type of the index
+ */
+@FunctionalInterface
+public interface RecordMapper<T> {
+
+    /**
+     * @param record - byte offset of the record in the input file
+     * @param minX - bounding box of the record geometry
+     * @param minY - bounding box of the record geometry
+     * @param maxX - bounding box of the record geometry
+     * @param maxY - bounding box of the record geometry
+     *
+     * @return entry to index, or null to skip the record
+     */
+    T map(long record, double minX, double minY, double maxX, double maxY);
+}
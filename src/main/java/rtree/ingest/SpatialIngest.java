@@ -0,0 +1,338 @@
+package rtree.ingest;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p>Streams a newline delimited file of geometries into a spatial index.</p>
+ *
+ * <p>The calling thread reads the file through a FileChannel into fixed size chunks that end on a line
+ * boundary and hands them to worker threads over a bounded queue. Workers find the bounding box of every line
+ * with a BBoxParser, turn it into an entry with a RecordMapper and pass the entries to an IngestSink in
+ * batches. Chunk buffers are recycled through a fixed pool, so memory use is bounded by the pool no matter how
+ * large the file is: about (queueChunks + workers + 1) * chunkBytes, plus the entries the sink keeps.</p>
+ *
+ * <p>Lines that cannot be parsed are counted and skipped. A line longer than a chunk is read into a larger
+ * buffer of its own.</p>
+ *
+ * @param <T> - The store type of the index
+ */
+public final class SpatialIngest<T> {
+
+    private static final int DEFAULT_CHUNK_BYTES = 4 << 20;
+    private static final int DEFAULT_BATCH_SIZE = 4096;
+
+    private final BBoxParser parser;
+    private final RecordMapper<T> mapper;
+    private final int workers;
+    private final int chunkBytes;
+    private final int queueChunks;
+    private final int batchSize;
+
+    /**
+     * Outcome of an ingestion run
+     */
+    public static final class Result {
+        private final long records;
+        private final long indexed;
+        private final long skipped;
+        private final long bytes;
+
+        Result(final long records, final long indexed, final long skipped, final long bytes) {
+            this.records = records;
+            this.indexed = indexed;
+            this.skipped = skipped;
+            this.bytes = bytes;
+        }
+
+        /**
+         * @return number of non blank lines read
+         */
+        public long getRecords() {
+            return records;
+        }
+
+        /**
+         * @return number of entries passed to the sink
+         */
+        public long getIndexed() {
+            return indexed;
+        }
+
+        /**
+         * @return number of lines without a parsable geometry or mapped to null
+         */
+        public long getSkipped() {
+            return skipped;
+        }
+
+        /**
+         * @return number of bytes read
+         */
+        public long getBytes() {
+            return bytes;
+        }
+    }
+
+    /**
+     * Create an ingestion pipeline with one worker per available core, 4MB chunks and two queued chunks per
+     * worker
+     *
+     * @param parser - finds the bounding box of each line
+     * @param mapper - creates the entry for each line
+     */
+    public SpatialIngest(final BBoxParser parser, final RecordMapper<T> mapper) {
+        this(parser, mapper, Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_BYTES,
+                2 * Runtime.getRuntime().availableProcessors(), DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param parser - finds the bounding box of each line
+     * @param mapper - creates the entry for each line
+     * @param workers - number of parsing threads
+     * @param chunkBytes - size of each read
+     * @param queueChunks - number of chunks read ahead of the workers
+     * @param batchSize - number of entries passed to the sink at once
+     */
+    public SpatialIngest(final BBoxParser parser, final RecordMapper<T> mapper, final int workers, final int chunkBytes,
+                         final int queueChunks, final int batchSize) {
+        if(workers < 1 || chunkBytes < 1 || queueChunks < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("workers, chunkBytes, queueChunks and batchSize must be positive");
+        }
+        this.parser = parser;
+        this.mapper = mapper;
+        this.workers = workers;
+        this.chunkBytes = chunkBytes;
+        this.queueChunks = queueChunks;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * A run of whole lines read from the file
+     */
+    private static final class Chunk {
+        final byte[] data;
+        final int length;
+        final long offset; // file offset of data[0]
+
+        Chunk(final byte[] data, final int length, final long offset) {
+            this.data = data;
+            this.length = length;
+            this.offset = offset;
+        }
+    }
+
+    private static final Chunk END = new Chunk(new byte[0], 0, 0);
+
+    /**
+     * Read the whole file and feed its entries to sink, returns once every entry has been passed on
+     *
+     * @param file - newline delimited input
+     * @param sink - receives the entries
+     *
+     * @return Result - counts of the run
+     *
+     * @throws IOException if the file cannot be read or a worker fails
+     */
+    public Result run(final Path file, final IngestSink<T> sink) throws IOException {
+        final BlockingQueue<byte[]> pool = new ArrayBlockingQueue<>(queueChunks + workers + 1);
+        for(int i = 0; i < queueChunks + workers + 1; i++) {
+            pool.add(new byte[chunkBytes]);
+        }
+        final BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(queueChunks + workers);
+
+        final AtomicLong records = new AtomicLong();
+        final AtomicLong indexed = new AtomicLong();
+        final AtomicLong skipped = new AtomicLong();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        final Thread[] threads = new Thread[workers];
+        for(int w = 0; w < workers; w++) {
+            threads[w] = new Thread(() -> {
+                try {
+                    work(queue, pool, sink, records, indexed, skipped);
+                } catch(Throwable t) {
+                    failure.compareAndSet(null, t);
+                    // keep draining so the reader never blocks on a full queue
+                    drain(queue, pool);
+                }
+            }, "spatial-ingest-" + w);
+            threads[w].setDaemon(true);
+            threads[w].start();
+        }
+
+        long bytes = 0;
+        try {
+            bytes = read(file, queue, pool, failure);
+        } finally {
+            try {
+                for(int w = 0; w < workers; w++) {
+                    queue.put(END);
+                }
+                for(final Thread thread : threads) {
+                    thread.join();
+                }
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for ingestion workers");
+            }
+        }
+
+        final Throwable t = failure.get();
+        if(t != null) {
+            if(t instanceof IOException) {
+                throw (IOException) t;
+            }
+            throw new IOException("Ingestion worker failed", t);
+        }
+        return new Result(records.get(), indexed.get(), skipped.get(), bytes);
+    }
+
+    /**
+     * Read the file into chunks that end on a line boundary, the partial last line of each read is carried
+     * over to the start of the next chunk
+     */
+    private long read(final Path file, final BlockingQueue<Chunk> queue, final BlockingQueue<byte[]> pool,
+                      final AtomicReference<Throwable> failure) throws IOException {
+        try(final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            byte[] data = pool.take();
+            int filled = 0;
+            long offset = 0;   // file offset of data[0]
+            long read = 0;
+
+            while(failure.get() == null) {
+                if(filled == data.length) {
+                    // a single line fills the whole chunk, give it a larger buffer of its own
+                    final byte[] larger = new byte[2 * data.length];
+                    System.arraycopy(data, 0, larger, 0, filled);
+                    data = larger;
+                }
+
+                final int n = channel.read(ByteBuffer.wrap(data, filled, data.length - filled));
+                if(n < 0) {
+                    if(filled > 0) {
+                        queue.put(new Chunk(data, filled, offset));
+                    } else {
+                        pool.put(data);
+                    }
+                    break;
+                }
+                read += n;
+                filled += n;
+
+                int end = filled;
+                while(end > 0 && data[end - 1] != '\n') {
+                    end--;
+                }
+                if(end == 0) {
+                    continue;
+                }
+
+                final byte[] next = pool.take();
+                final int carry = filled - end;
+                if(carry > next.length) {
+                    // the partial line is already longer than a pooled buffer
+                    pool.put(next);
+                    final byte[] larger = new byte[2 * carry];
+                    System.arraycopy(data, end, larger, 0, carry);
+                    queue.put(new Chunk(data, end, offset));
+                    data = larger;
+                } else {
+                    System.arraycopy(data, end, next, 0, carry);
+                    queue.put(new Chunk(data, end, offset));
+                    data = next;
+                }
+                offset += end;
+                filled = carry;
+            }
+            return read;
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading " + file);
+        }
+    }
+
+    private void work(final BlockingQueue<Chunk> queue, final BlockingQueue<byte[]> pool, final IngestSink<T> sink,
+                      final AtomicLong records, final AtomicLong indexed, final AtomicLong skipped) throws InterruptedException {
+        final double[] bbox = new double[4];
+        List<T> batch = new ArrayList<>(batchSize);
+        long nRecords = 0, nIndexed = 0, nSkipped = 0;
+
+        for(Chunk chunk = queue.take(); chunk != END; chunk = queue.take()) {
+            final byte[] data = chunk.data;
+            int start = 0;
+            while(start < chunk.length) {
+                int end = start;
+                while(end < chunk.length && data[end] != '\n') {
+                    end++;
+                }
+                final int next = end + 1;
+                if(end > start && data[end - 1] == '\r') {
+                    end--;
+                }
+
+                if(!isBlank(data, start, end)) {
+                    nRecords++;
+                    final T t = parser.parse(data, start, end, bbox)
+                            ? mapper.map(chunk.offset + start, bbox[0], bbox[1], bbox[2], bbox[3])
+                            : null;
+                    if(t != null) {
+                        batch.add(t);
+                        nIndexed++;
+                        if(batch.size() == batchSize) {
+                            sink.accept(batch);
+                            batch = new ArrayList<>(batchSize);
+                        }
+                    } else {
+                        nSkipped++;
+                    }
+                }
+                start = next;
+            }
+            recycle(pool, data);
+        }
+
+        if(!batch.isEmpty()) {
+            sink.accept(batch);
+        }
+        records.addAndGet(nRecords);
+        indexed.addAndGet(nIndexed);
+        skipped.addAndGet(nSkipped);
+    }
+
+    private void drain(final BlockingQueue<Chunk> queue, final BlockingQueue<byte[]> pool) {
+        try {
+            for(Chunk chunk = queue.take(); chunk != END; chunk = queue.take()) {
+                recycle(pool, chunk.data);
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Return a buffer to the pool, buffers grown for long lines are replaced by a regular one
+     */
+    private void recycle(final BlockingQueue<byte[]> pool, final byte[] data) {
+        pool.offer(data.length == chunkBytes ? data : new byte[chunkBytes]);
+    }
+
+    private static boolean isBlank(final byte[] data, final int from, final int to) {
+        for(int i = from; i < to; i++) {
+            if(data[i] != ' ' && data[i] != '\t') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,224 @@
+package rtree.ingest;
+
+/**
+ * <p>Bounding box parser for hex encoded Well-Known Binary, one geometry per line, as written by e.g.
+ * PostGIS COPY or ogr2ogr.</p>
+ *
+ * <p>Reads ISO WKB (Z, M and ZM type codes 1000 / 2000 / 3000 and up) as well as PostGIS EWKB (Z, M and SRID
+ * flags in the high bits of the type), in either byte order, for points, line strings, polygons, their multi
+ * variants and geometry collections. Only the x and y ordinates are read and polygon holes are skipped, since
+ * the exterior ring already bounds them.</p>
+ */
+public final class WkbHexBBoxParser implements BBoxParser {
+
+    private static final int WKB_Z = 0x80000000;
+    private static final int WKB_M = 0x40000000;
+    private static final int WKB_SRID = 0x20000000;
+
+    private static final int MAX_NESTING = 32;
+
+    private static final byte[] HEX = new byte[256];
+
+    static {
+        for(int i = 0; i < 256; i++) {
+            HEX[i] = -1;
+        }
+        for(int i = 0; i < 10; i++) {
+            HEX['0' + i] = (byte) i;
+        }
+        for(int i = 0; i < 6; i++) {
+            HEX['a' + i] = (byte) (10 + i);
+            HEX['A' + i] = (byte) (10 + i);
+        }
+    }
+
+    /**
+     * Thrown internally when a record is truncated or malformed
+     */
+    private static final class MalformedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        MalformedException() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final MalformedException MALFORMED = new MalformedException();
+
+    @Override
+    public boolean parse(final byte[] line, int from, int to, final double[] bbox) {
+        while(from < to && (line[from] == ' ' || line[from] == '\t')) {
+            from++;
+        }
+        while(to > from && (line[to - 1] == ' ' || line[to - 1] == '\t')) {
+            to--;
+        }
+
+        bbox[0] = Double.POSITIVE_INFINITY;
+        bbox[1] = Double.POSITIVE_INFINITY;
+        bbox[2] = Double.NEGATIVE_INFINITY;
+        bbox[3] = Double.NEGATIVE_INFINITY;
+
+        final Cursor cursor = new Cursor(line, from, to);
+        try {
+            geometry(cursor, bbox, 0);
+        } catch(MalformedException e) {
+            return false;
+        }
+
+        return bbox[0] <= bbox[2] && bbox[1] <= bbox[3];
+    }
+
+    private static void geometry(final Cursor cursor, final double[] bbox, final int depth) {
+        if(depth > MAX_NESTING) {
+            throw MALFORMED;
+        }
+
+        final int order = cursor.readByte();
+        if(order > 1) {
+            throw MALFORMED;
+        }
+        final boolean littleEndian = order == 1;
+
+        final int type = cursor.readInt(littleEndian);
+        boolean z = (type & WKB_Z) != 0;
+        boolean m = (type & WKB_M) != 0;
+        if((type & WKB_SRID) != 0) {
+            cursor.readInt(littleEndian);
+        }
+        final int code = type & 0x0fffffff;
+        switch(code / 1000) {
+            case 0:
+                break;
+            case 1:
+                z = true;
+                break;
+            case 2:
+                m = true;
+                break;
+            case 3:
+                z = true;
+                m = true;
+                break;
+            default:
+                throw MALFORMED;
+        }
+        final int dims = 2 + (z ? 1 : 0) + (m ? 1 : 0);
+
+        switch(code % 1000) {
+            case 1: // point, empty when NaN
+                final double x = cursor.readDouble(littleEndian);
+                final double y = cursor.readDouble(littleEndian);
+                cursor.skip(8 * (dims - 2));
+                if(!Double.isNaN(x) && !Double.isNaN(y)) {
+                    fold(bbox, x, y);
+                }
+                break;
+            case 2: // line string
+                points(cursor, bbox, littleEndian, dims, cursor.readCount(littleEndian, 8 * dims));
+                break;
+            case 3: // polygon, only the exterior ring bounds it
+                final int rings = cursor.readCount(littleEndian, 4);
+                for(int r = 0; r < rings; r++) {
+                    final int n = cursor.readCount(littleEndian, 8 * dims);
+                    if(r == 0) {
+                        points(cursor, bbox, littleEndian, dims, n);
+                    } else {
+                        cursor.skip(8 * dims * n);
+                    }
+                }
+                break;
+            case 4: // multi point
+            case 5: // multi line string
+            case 6: // multi polygon
+            case 7: // geometry collection
+                final int parts = cursor.readCount(littleEndian, 9);
+                for(int p = 0; p < parts; p++) {
+                    geometry(cursor, bbox, depth + 1);
+                }
+                break;
+            default:
+                throw MALFORMED;
+        }
+    }
+
+    private static void points(final Cursor cursor, final double[] bbox, final boolean littleEndian, final int dims, final int n) {
+        for(int i = 0; i < n; i++) {
+            final double x = cursor.readDouble(littleEndian);
+            final double y = cursor.readDouble(littleEndian);
+            cursor.skip(8 * (dims - 2));
+            fold(bbox, x, y);
+        }
+    }
+
+    private static void fold(final double[] bbox, final double x, final double y) {
+        bbox[0] = Math.min(bbox[0], x);
+        bbox[1] = Math.min(bbox[1], y);
+        bbox[2] = Math.max(bbox[2], x);
+        bbox[3] = Math.max(bbox[3], y);
+    }
+
+    /**
+     * Reads the binary geometry out of its hex encoding, pos is the index of the next hex digit
+     */
+    private static final class Cursor {
+        final byte[] line;
+        final int to;
+        int pos;
+
+        Cursor(final byte[] line, final int from, final int to) {
+            this.line = line;
+            this.pos = from;
+            this.to = to;
+        }
+
+        int readByte() {
+            if(pos + 2 > to) {
+                throw MALFORMED;
+            }
+            final int hi = HEX[line[pos] & 0xff];
+            final int lo = HEX[line[pos + 1] & 0xff];
+            if(hi < 0 || lo < 0) {
+                throw MALFORMED;
+            }
+            pos += 2;
+            return (hi << 4) | lo;
+        }
+
+        int readInt(final boolean littleEndian) {
+            int v = 0;
+            for(int i = 0; i < 4; i++) {
+                final int b = readByte();
+                v = littleEndian ? v | (b << (8 * i)) : (v << 8) | b;
+            }
+            return v;
+        }
+
+        /**
+         * Read an element count and make sure the line is long enough to hold that many elements
+         */
+        int readCount(final boolean littleEndian, final int minElementBytes) {
+            final int n = readInt(littleEndian);
+            if(n < 0 || (long) n * minElementBytes * 2 > to - pos) {
+                throw MALFORMED;
+            }
+            return n;
+        }
+
+        double readDouble(final boolean littleEndian) {
+            long v = 0;
+            for(int i = 0; i < 8; i++) {
+                final long b = readByte();
+                v = littleEndian ? v | (b << (8 * i)) : (v << 8) | b;
+            }
+            return Double.longBitsToDouble(v);
+        }
+
+        void skip(final int bytes) {
+            if(pos + 2L * bytes > to) {
+                throw MALFORMED;
+            }
+            pos += 2 * bytes;
+        }
+    }
+}